@@ -1,6 +1,7 @@
 package com.valentini.compositeservice.controller;
 
 
+import com.valentini.compositeservice.gateway.GatewayService;
 import com.valentini.compositeservice.model.User;
 import com.valentini.compositeservice.service.FileStorageService;
 import lombok.NoArgsConstructor;
@@ -39,6 +40,8 @@ public class CompositeController {
     private String api_key;
     @Autowired
     private FileStorageService fileStorageService;
+    @Autowired
+    private GatewayService gatewayService;
 
     @Value("${default-avatar-path}")
     private String defaultAvatarPath;
@@ -46,6 +49,9 @@ public class CompositeController {
     @Value("${default-post-image-path}")
     private String defaultPostImagePath;
 
+    @Value("${feed-page-size}")
+    private int feedPageSize;
+
     private User retrieveLoggedUser() {
         RestTemplate restTemplate = new RestTemplate();
         HttpHeaders headers = new HttpHeaders();
@@ -121,74 +127,51 @@ public class CompositeController {
 
     @GetMapping("/home")
     public String homePage(Model model) throws Exception {
-        User user = retrieveLoggedUser();
-
+        loadFeedPage(model, null);
+        // Return the view name (e.g., home.html)
+        return "home";
+    }
 
-        // Add the username to the model to display it in the view
-        model.addAttribute("user", user );
+    // Next page of the home feed, requested by the infinite scroll of the home page
+    @GetMapping("/home/posts")
+    public String homePostsPage(@RequestParam String after, Model model) throws Exception {
+        loadFeedPage(model, after);
+        return "home :: posts";
+    }
 
-        RestTemplate restTemplate = new RestTemplate();
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("X-API-Key", api_key);
+    private void loadFeedPage(Model model, String after) throws Exception {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
-        // Build the GraphQL query
-        String query = "{ getPosts { id description user { id username avatarPath } comments { id user { id username avatarPath } content } likesCount imagePath } }";
+        // One query to the gateway: the logged user and the page of the feed are fetched in parallel, then the
+        // authors, comments, like counts and like states of all the posts of the page, then the comment authors
+        String query = "query FeedPage($first: Int, $after: String) { viewer { id username email avatarPath } feed(first: $first, after: $after) { edges { node { id description user { id username avatarPath } comments { id user { id username avatarPath } content } likesCount isLiked: likedByViewer imagePath } } pageInfo { hasNextPage endCursor } } }";
 
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("query", query);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("first", feedPageSize);
+        variables.put("after", after);
 
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        Map<String, Object> data = gatewayService.execute(query, variables, authentication.getName());
 
-        ResponseEntity<Map> response = restTemplate.postForEntity("http://post:7002/graphql", request, Map.class);
+        User user = toViewer((Map<String, Object>) data.get("viewer"));
+        // Add the username to the model to display it in the view
+        model.addAttribute("user", user);
 
-        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-            Map<String, Object> responseBody = response.getBody();
+        Map<String, Object> connection = (Map<String, Object>) data.get("feed");
+        List<Map<String, Object>> posts = ((List<Map<String, Object>>) connection.get("edges")).stream()
+                .map(edge -> (Map<String, Object>) edge.get("node"))
+                .toList();
 
-            // Check for errors in the response
-            if (responseBody.containsKey("errors")) {
-                throw new Exception("Error retrieving data");
-            }
+        model.addAttribute("posts", posts);
+        model.addAttribute("pageInfo", connection.get("pageInfo"));
+    }
 
-            Map<String, Object> data = (Map<String, Object>) responseBody.get("data");
-            if (data == null) {
-                throw new Exception("Error retrieving data");
-            }
-            List<Map<String,Object>> posts = (List<Map<String, Object>>) data.get("getPosts");
-
-            if (posts != null) {
-                for (Map<String,Object> post : posts) {
-                    // Build the GraphQL query
-                    query = "{ isPostLikedByUser(postId: \"" + post.get("id") + "\", username: \"" + user.getUsername()+ "\") }";
-                    requestBody = new HashMap<>();
-                    requestBody.put("query", query);
-                    request = new HttpEntity<>(requestBody, headers);
-                    response = restTemplate.postForEntity("http://interaction:7003/graphql", request, Map.class);
-                    if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                        responseBody = response.getBody();
-
-                        // Check for errors in the response
-                        if (responseBody.containsKey("errors")) {
-                            throw new Exception("Error retrieving data");
-                        }
-
-                        data = (Map<String, Object>) responseBody.get("data");
-                        if (data == null) {
-                            throw new Exception("Error retrieving data");
-                        }
-                        post.put("isLiked", data.get("isPostLikedByUser"));
-                    } else {
-                        throw new Exception("Error retrieving data");
-                    }
-                }
-                model.addAttribute("posts", posts);
-            }
-        } else if (response.getStatusCode() == HttpStatus.UNAUTHORIZED) {
-            throw new BadCredentialsException("Invalid API Key");
-        } else {
-            throw new Exception("Error retrieving data");
-        }
-            // Return the view name (e.g., home.html)
-        return "home";
+    private User toViewer(Map<String, Object> viewer) {
+        User user = new User();
+        user.setId(Long.valueOf(viewer.get("id").toString()));
+        user.setUsername((String) viewer.get("username"));
+        user.setEmail((String) viewer.get("email"));
+        user.setAvatarPath((String) viewer.get("avatarPath"));
+        return user;
     }
 
     @GetMapping("/createPost")
@@ -559,109 +542,55 @@ public class CompositeController {
 
     @GetMapping("/user/{username}")
     public String showUserProfile(@PathVariable String username, Model model) throws Exception {
-        RestTemplate restTemplate = new RestTemplate();
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("X-API-Key", api_key);
-
-        User user = retrieveLoggedUser();
-
-        // Build the GraphQL query
-        String query = "{ getUserByUsername(username: \"" + username + "\") { id username email avatarPath } }";
+        loadProfilePage(model, username, null);
+        return "userProfile";
+    }
 
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("query", query);
+    // Next page of the posts of a user, requested by the infinite scroll of the profile page
+    @GetMapping("/user/{username}/posts")
+    public String profilePostsPage(@PathVariable String username, @RequestParam String after, Model model) throws Exception {
+        loadProfilePage(model, username, after);
+        return "userProfile :: posts";
+    }
 
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+    private void loadProfilePage(Model model, String username, String after) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
-        ResponseEntity<Map> response = restTemplate.postForEntity("http://user:7001/graphql", request, Map.class);
+        // One query to the gateway: the logged user and the selected user are fetched in parallel, then the page of
+        // posts of the selected user, then the same fields of its posts as on the home feed
+        String query = "query ProfilePage($username: String!, $first: Int, $after: String) { viewer { id username email avatarPath } user(username: $username) { id username avatarPath posts(first: $first, after: $after) { edges { node { id description user { id username avatarPath } comments { id user { id username avatarPath } content } likesCount isLiked: likedByViewer imagePath } } pageInfo { hasNextPage endCursor } } } }";
 
-        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-            Map<String, Object> responseBody = response.getBody();
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("username", username);
+        variables.put("first", feedPageSize);
+        variables.put("after", after);
 
-            // Check for errors in the response
-            if (responseBody.containsKey("errors")) {
-                throw new RuntimeException("Error retrieving data");
-            }
+        Map<String, Object> data = gatewayService.execute(query, variables, authentication.getName());
 
-            Map<String, Object> data = (Map<String, Object>) responseBody.get("data");
-            if (data == null) {
-                throw new RuntimeException("Error retrieving data");
-            }
-            if (data.get("getUserByUsername") == null) {
-                throw new RuntimeException("Error retrieving data");
-            }
-            Map<String, Object> userData = (Map<String, Object>) data.get("getUserByUsername");
-            User selectedUser = new User();
-            selectedUser.setId(Long.valueOf(userData.get("id").toString()));
-            selectedUser.setUsername((String) userData.get("username"));
-            selectedUser.setEmail((String) userData.get("email"));
-            selectedUser.setAvatarPath((String) userData.get("avatarPath"));
-
-            model.addAttribute("currentUser", user);
-            model.addAttribute("selectedUser", selectedUser);
-
-            // Build the GraphQL query
-            query = "{ getPostsByUserId(userId: \"" + selectedUser.getId() + "\") { id description user { id username avatarPath } comments { id user { id username avatarPath } content } likesCount imagePath } }";
-
-            requestBody = new HashMap<>();
-            requestBody.put("query", query);
-            request = new HttpEntity<>(requestBody, headers);
-            response = restTemplate.postForEntity("http://post:7002/graphql", request, Map.class);
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                responseBody = response.getBody();
-
-                // Check for errors in the response
-                if (responseBody.containsKey("errors")) {
-                    throw new RuntimeException("Error retrieving data");
-                }
+        Map<String, Object> userData = (Map<String, Object>) data.get("user");
+        if (userData == null) {
+            throw new RuntimeException("Error retrieving data");
+        }
+        User user = toViewer((Map<String, Object>) data.get("viewer"));
+        User selectedUser = new User();
+        selectedUser.setId(Long.valueOf(userData.get("id").toString()));
+        selectedUser.setUsername((String) userData.get("username"));
+        selectedUser.setAvatarPath((String) userData.get("avatarPath"));
+        // The email address of a user is only shown to that user
+        if (selectedUser.getId().equals(user.getId())) {
+            selectedUser.setEmail(user.getEmail());
+        }
 
-                data = (Map<String, Object>) responseBody.get("data");
-                if (data == null) {
-                    throw new RuntimeException("Error retrieving data");
-                }
-                List<Map<String,Object>> posts = (List<Map<String, Object>>) data.get("getPostsByUserId");
-
-                if (posts != null) {
-                    for (Map<String,Object> post : posts) {
-                        // Build the GraphQL query
-                        query = "{ isPostLikedByUser(postId: \"" + post.get("id") + "\", username: \"" + user.getUsername()+ "\") }";
-                        requestBody = new HashMap<>();
-                        requestBody.put("query", query);
-                        request = new HttpEntity<>(requestBody, headers);
-                        response = restTemplate.postForEntity("http://interaction:7003/graphql", request, Map.class);
-                        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                            responseBody = response.getBody();
-
-                            // Check for errors in the response
-                            if (responseBody.containsKey("errors")) {
-                                throw new RuntimeException("Error retrieving data");
-                            }
-
-                            data = (Map<String, Object>) responseBody.get("data");
-                            if (data == null) {
-                                throw new RuntimeException("Error retrieving data");
-                            }
-                            post.put("isLiked", data.get("isPostLikedByUser"));
-                        } else {
-                            throw new RuntimeException("Error retrieving data");
-                        }
-                    }
-                    model.addAttribute("posts", posts);
-                }
-            } else if (response.getStatusCode() == HttpStatus.UNAUTHORIZED) {
-                throw new BadCredentialsException("Invalid API Key");
-            } else {
-                throw new RuntimeException("Error retrieving data");
-            }
+        model.addAttribute("currentUser", user);
+        model.addAttribute("selectedUser", selectedUser);
 
-            return "userProfile";
+        Map<String, Object> connection = (Map<String, Object>) userData.get("posts");
+        List<Map<String, Object>> posts = ((List<Map<String, Object>>) connection.get("edges")).stream()
+                .map(edge -> (Map<String, Object>) edge.get("node"))
+                .toList();
 
-        } else if (response.getStatusCode() == HttpStatus.UNAUTHORIZED) {
-            throw new BadCredentialsException("Invalid API Key");
-        } else {
-            throw new RuntimeException("Error retrieving data");
-        }
+        model.addAttribute("posts", posts);
+        model.addAttribute("pageInfo", connection.get("pageInfo"));
     }
 
     @GetMapping("/editProfile")
@@ -0,0 +1,236 @@
+package com.valentini.compositeservice.gateway;
+
+import com.valentini.compositeservice.gateway.model.*;
+import graphql.GraphQLContext;
+import org.dataloader.DataLoader;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// Query planning of the gateway: the root fields of a query are fetched in parallel, then every field owned by
+// another service is batched over all the posts of the previous level, one fetch per service and field, in parallel
+@Controller
+public class GatewayResolver {
+    public static final String VIEWER_USERNAME = "viewerUsername";
+    private static final String VIEWER = "viewer";
+
+    // The email address of a user is only returned to that user
+    private static final String USER_FIELDS = "id username avatarPath";
+    private static final String VIEWER_FIELDS = "id username email avatarPath";
+    private static final String POST_CONNECTION_FIELDS = "edges { cursor node { id description imagePath userId } } pageInfo { hasNextPage endCursor }";
+
+    private final SubgraphClient subgraphClient;
+
+    public GatewayResolver(SubgraphClient subgraphClient, BatchLoaderRegistry registry) {
+        this.subgraphClient = subgraphClient;
+        // Authors of posts and comments are looked up by the same loader, so a user is fetched once per query
+        registry.forTypePair(Long.class, UserNode.class)
+                .registerMappedBatchLoader((userIds, environment) -> usersByIds(userIds));
+        // Like and comment counts of a post come from the same lookup
+        registry.forTypePair(Long.class, PostCounters.class)
+                .registerMappedBatchLoader((postIds, environment) -> postCounters(postIds));
+    }
+
+    @QueryMapping
+    public Mono<ViewerNode> viewer(GraphQLContext context) {
+        return viewerOf(context);
+    }
+
+    @QueryMapping
+    public Mono<UserNode> user(@Argument String username) {
+        return userByUsername(username, USER_FIELDS).map(this::toUser);
+    }
+
+    @QueryMapping
+    public Mono<PostConnection> feed(@Argument Integer first, @Argument String after) {
+        String query = "query Feed($first: Int, $after: String) { posts(first: $first, after: $after) { " + POST_CONNECTION_FIELDS + " } }";
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("first", first);
+        variables.put("after", after);
+
+        return subgraphClient.execute(Subgraph.POST, query, variables)
+                .map(data -> toPostConnection((Map<String, Object>) data.get("posts")));
+    }
+
+    @SchemaMapping(typeName = "User")
+    public Mono<PostConnection> posts(UserNode user, @Argument Integer first, @Argument String after) {
+        return postsByUserId(user.id(), first, after);
+    }
+
+    @SchemaMapping(typeName = "Viewer", field = "posts")
+    public Mono<PostConnection> viewerPosts(ViewerNode viewer, @Argument Integer first, @Argument String after) {
+        return postsByUserId(viewer.id(), first, after);
+    }
+
+    @SchemaMapping(typeName = "Post", field = "user")
+    public CompletableFuture<UserNode> postUser(PostNode post, DataLoader<Long, UserNode> users) {
+        return users.load(post.userId());
+    }
+
+    @SchemaMapping(typeName = "Comment", field = "user")
+    public CompletableFuture<UserNode> commentUser(CommentNode comment, DataLoader<Long, UserNode> users) {
+        return users.load(comment.userId());
+    }
+
+    @BatchMapping(typeName = "Post")
+    public Mono<Map<PostNode, List<CommentNode>>> comments(List<PostNode> posts) {
+        String query = "query CommentsByPostIds($postIds: [ID!]!) { getCommentsByPostIds(postIds: $postIds) { id content postId userId } }";
+
+        return subgraphClient.execute(Subgraph.INTERACTION, query, Map.of("postIds", postIds(posts)))
+                .map(data -> {
+                    Map<Long, List<CommentNode>> commentsByPostId = new HashMap<>();
+                    for (Map<String, Object> comment : (List<Map<String, Object>>) data.get("getCommentsByPostIds")) {
+                        CommentNode node = toComment(comment);
+                        commentsByPostId.computeIfAbsent(node.postId(), key -> new ArrayList<>()).add(node);
+                    }
+                    Map<PostNode, List<CommentNode>> comments = new HashMap<>();
+                    for (PostNode post : posts) {
+                        comments.put(post, commentsByPostId.getOrDefault(post.id(), List.of()));
+                    }
+                    return comments;
+                });
+    }
+
+    @SchemaMapping(typeName = "Post")
+    public CompletableFuture<Integer> likesCount(PostNode post, DataLoader<Long, PostCounters> counters) {
+        return counters.load(post.id()).thenApply(counter -> counter == null ? 0 : counter.likesCount());
+    }
+
+    @SchemaMapping(typeName = "Post")
+    public CompletableFuture<Integer> commentsCount(PostNode post, DataLoader<Long, PostCounters> counters) {
+        return counters.load(post.id()).thenApply(counter -> counter == null ? 0 : counter.commentsCount());
+    }
+
+    @BatchMapping(typeName = "Post")
+    public Mono<Map<PostNode, Boolean>> likedByViewer(List<PostNode> posts, GraphQLContext context) {
+        String query = "query LikedPostIds($postIds: [ID!]!, $userId: ID!) { likedPostIds(postIds: $postIds, userId: $userId) }";
+
+        return viewerOf(context)
+                .flatMap(viewer -> subgraphClient.execute(Subgraph.INTERACTION, query,
+                        Map.of("postIds", postIds(posts), "userId", viewer.id())))
+                .map(data -> {
+                    Set<Long> likedPostIds = new HashSet<>();
+                    for (Object postId : (List<Object>) data.get("likedPostIds")) {
+                        likedPostIds.add(Long.valueOf(postId.toString()));
+                    }
+                    Map<PostNode, Boolean> liked = new HashMap<>();
+                    for (PostNode post : posts) {
+                        liked.put(post, likedPostIds.contains(post.id()));
+                    }
+                    return liked;
+                });
+    }
+
+    // Fetched at most once per query, whether it is asked for by the viewer field, by likedByViewer or by both
+    private Mono<ViewerNode> viewerOf(GraphQLContext context) {
+        String username = context.get(VIEWER_USERNAME);
+        if (username == null) {
+            return Mono.error(new IllegalStateException("No authenticated user"));
+        }
+        return context.computeIfAbsent(VIEWER, key -> userByUsername(username, VIEWER_FIELDS)
+                .map(this::toViewer)
+                .switchIfEmpty(Mono.error(new IllegalStateException("User not found: " + username)))
+                .cache());
+    }
+
+    private Mono<Map<String, Object>> userByUsername(String username, String fields) {
+        String query = "query UserByUsername($username: String!) { getUserByUsername(username: $username) { " + fields + " } }";
+
+        return subgraphClient.execute(Subgraph.USER, query, Map.of("username", username))
+                .flatMap(data -> Mono.justOrEmpty((Map<String, Object>) data.get("getUserByUsername")));
+    }
+
+    private Mono<PostConnection> postsByUserId(Long userId, Integer first, String after) {
+        String query = "query PostsByUserId($userId: ID!, $first: Int, $after: String) { postsByUserId(userId: $userId, first: $first, after: $after) { " + POST_CONNECTION_FIELDS + " } }";
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("userId", userId);
+        variables.put("first", first);
+        variables.put("after", after);
+
+        return subgraphClient.execute(Subgraph.POST, query, variables)
+                .map(data -> toPostConnection((Map<String, Object>) data.get("postsByUserId")));
+    }
+
+    private Mono<Map<Long, UserNode>> usersByIds(Set<Long> userIds) {
+        String query = "query UsersByIds($ids: [ID!]!) { getUsersByIds(ids: $ids) { " + USER_FIELDS + " } }";
+
+        return subgraphClient.execute(Subgraph.USER, query, Map.of("ids", List.copyOf(userIds)))
+                .map(data -> {
+                    Map<Long, UserNode> users = new HashMap<>();
+                    for (Map<String, Object> user : (List<Map<String, Object>>) data.get("getUsersByIds")) {
+                        if (user != null) {
+                            UserNode node = toUser(user);
+                            users.put(node.id(), node);
+                        }
+                    }
+                    return users;
+                });
+    }
+
+    private Mono<Map<Long, PostCounters>> postCounters(Set<Long> postIds) {
+        String query = "query PostCounters($postIds: [ID!]!) { getPostCountersByPostIds(postIds: $postIds) { postId likesCount commentsCount } }";
+
+        return subgraphClient.execute(Subgraph.INTERACTION, query, Map.of("postIds", List.copyOf(postIds)))
+                .map(data -> {
+                    Map<Long, PostCounters> counters = new HashMap<>();
+                    for (Map<String, Object> counter : (List<Map<String, Object>>) data.get("getPostCountersByPostIds")) {
+                        Long postId = Long.valueOf(counter.get("postId").toString());
+                        counters.put(postId, new PostCounters(postId,
+                                ((Number) counter.get("likesCount")).intValue(),
+                                ((Number) counter.get("commentsCount")).intValue()));
+                    }
+                    return counters;
+                });
+    }
+
+    private List<Long> postIds(List<PostNode> posts) {
+        return posts.stream().map(PostNode::id).toList();
+    }
+
+    private PostConnection toPostConnection(Map<String, Object> connection) {
+        List<PostEdge> edges = new ArrayList<>();
+        for (Map<String, Object> edge : (List<Map<String, Object>>) connection.get("edges")) {
+            Map<String, Object> node = (Map<String, Object>) edge.get("node");
+            PostNode post = new PostNode(
+                    Long.valueOf(node.get("id").toString()),
+                    (String) node.get("description"),
+                    (String) node.get("imagePath"),
+                    Long.valueOf(node.get("userId").toString()));
+            edges.add(new PostEdge(post, (String) edge.get("cursor")));
+        }
+        Map<String, Object> pageInfo = (Map<String, Object>) connection.get("pageInfo");
+        return new PostConnection(edges, new PageInfo((Boolean) pageInfo.get("hasNextPage"), (String) pageInfo.get("endCursor")));
+    }
+
+    private UserNode toUser(Map<String, Object> user) {
+        return new UserNode(
+                Long.valueOf(user.get("id").toString()),
+                (String) user.get("username"),
+                (String) user.get("avatarPath"));
+    }
+
+    private ViewerNode toViewer(Map<String, Object> viewer) {
+        return new ViewerNode(
+                Long.valueOf(viewer.get("id").toString()),
+                (String) viewer.get("username"),
+                (String) viewer.get("email"),
+                (String) viewer.get("avatarPath"));
+    }
+
+    private CommentNode toComment(Map<String, Object> comment) {
+        return new CommentNode(
+                Long.valueOf(comment.get("id").toString()),
+                (String) comment.get("content"),
+                Long.valueOf(comment.get("postId").toString()),
+                Long.valueOf(comment.get("userId").toString()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.valentini.compositeservice.gateway;
+
+import org.springframework.graphql.ExecutionGraphQlResponse;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.support.DefaultExecutionGraphQlRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+
+// Runs a query against the gateway schema without going through HTTP, for the pages rendered by this service
+@Service
+public class GatewayService {
+    private final ExecutionGraphQlService graphQlService;
+
+    public GatewayService(ExecutionGraphQlService graphQlService) {
+        this.graphQlService = graphQlService;
+    }
+
+    public Map<String, Object> execute(String query, Map<String, Object> variables, String username) {
+        DefaultExecutionGraphQlRequest request = new DefaultExecutionGraphQlRequest(
+                query, null, variables, null, UUID.randomUUID().toString(), null);
+        request.configureExecutionInput((executionInput, builder) ->
+                builder.graphQLContext(Map.of(GatewayResolver.VIEWER_USERNAME, username)).build());
+
+        ExecutionGraphQlResponse response = graphQlService.execute(request).block();
+        if (response == null || !response.getErrors().isEmpty()) {
+            throw new RuntimeException("Error retrieving data: " + (response == null ? null : response.getErrors()));
+        }
+        Map<String, Object> data = response.getData();
+        if (data == null) {
+            throw new RuntimeException("Error retrieving data");
+        }
+        return data;
+    }
+}
@@ -0,0 +1,8 @@
+package com.valentini.compositeservice.gateway;
+
+// The services whose GraphQL schemas are stitched together by the gateway
+public enum Subgraph {
+    USER,
+    POST,
+    INTERACTION
+}
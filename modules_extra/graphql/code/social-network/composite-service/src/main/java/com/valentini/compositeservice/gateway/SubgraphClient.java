@@ -0,0 +1,69 @@
+package com.valentini.compositeservice.gateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class SubgraphClient {
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final Map<Subgraph, String> urls = new EnumMap<>(Subgraph.class);
+    private final String apiKey;
+
+    public SubgraphClient(@Value("${application.api.key}") String apiKey,
+                          @Value("${gateway.subgraph.user-url}") String userUrl,
+                          @Value("${gateway.subgraph.post-url}") String postUrl,
+                          @Value("${gateway.subgraph.interaction-url}") String interactionUrl) {
+        this.apiKey = apiKey;
+        urls.put(Subgraph.USER, userUrl);
+        urls.put(Subgraph.POST, postUrl);
+        urls.put(Subgraph.INTERACTION, interactionUrl);
+    }
+
+    // Each fetch runs on its own thread, so that the fetches planned together are sent in parallel
+    public Mono<Map<String, Object>> execute(Subgraph subgraph, String query, Map<String, Object> variables) {
+        return Mono.fromCallable(() -> post(subgraph, query, variables))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Map<String, Object> post(Subgraph subgraph, String query, Map<String, Object> variables) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.add("X-API-Key", apiKey);
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("query", query);
+        requestBody.put("variables", variables);
+
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+
+        ResponseEntity<Map> response = restTemplate.postForEntity(urls.get(subgraph), request, Map.class);
+
+        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            Map<String, Object> responseBody = response.getBody();
+
+            // Check for errors in the response
+            if (responseBody.containsKey("errors")) {
+                throw new RuntimeException("Error retrieving data from the " + subgraph + " service: " + responseBody.get("errors"));
+            }
+
+            Map<String, Object> data = (Map<String, Object>) responseBody.get("data");
+            if (data == null) {
+                throw new RuntimeException("Error retrieving data from the " + subgraph + " service");
+            }
+            return data;
+        } else if (response.getStatusCode() == HttpStatus.UNAUTHORIZED) {
+            throw new BadCredentialsException("Invalid API Key");
+        } else {
+            throw new RuntimeException("Error retrieving data from the " + subgraph + " service");
+        }
+    }
+}
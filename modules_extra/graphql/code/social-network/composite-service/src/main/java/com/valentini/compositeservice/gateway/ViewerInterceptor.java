@@ -0,0 +1,26 @@
+package com.valentini.compositeservice.gateway;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+// Makes the logged user available to the resolvers of the /graphql endpoint, whatever thread they run on
+@Component
+public class ViewerInterceptor implements WebGraphQlInterceptor {
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            request.configureExecutionInput((executionInput, builder) ->
+                    builder.graphQLContext(Map.of(GatewayResolver.VIEWER_USERNAME, authentication.getName())).build());
+        }
+        return chain.next(request);
+    }
+}
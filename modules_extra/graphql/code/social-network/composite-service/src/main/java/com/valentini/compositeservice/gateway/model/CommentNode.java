@@ -0,0 +1,4 @@
+package com.valentini.compositeservice.gateway.model;
+
+public record CommentNode(Long id, String content, Long postId, Long userId) {
+}
@@ -0,0 +1,4 @@
+package com.valentini.compositeservice.gateway.model;
+
+public record PageInfo(boolean hasNextPage, String endCursor) {
+}
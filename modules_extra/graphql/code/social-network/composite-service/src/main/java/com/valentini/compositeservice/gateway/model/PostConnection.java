@@ -0,0 +1,6 @@
+package com.valentini.compositeservice.gateway.model;
+
+import java.util.List;
+
+public record PostConnection(List<PostEdge> edges, PageInfo pageInfo) {
+}
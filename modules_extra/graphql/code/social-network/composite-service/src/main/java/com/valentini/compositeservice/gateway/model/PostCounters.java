@@ -0,0 +1,4 @@
+package com.valentini.compositeservice.gateway.model;
+
+public record PostCounters(Long postId, int likesCount, int commentsCount) {
+}
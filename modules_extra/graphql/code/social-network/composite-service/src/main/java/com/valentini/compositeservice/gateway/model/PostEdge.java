@@ -0,0 +1,4 @@
+package com.valentini.compositeservice.gateway.model;
+
+public record PostEdge(PostNode node, String cursor) {
+}
@@ -0,0 +1,5 @@
+package com.valentini.compositeservice.gateway.model;
+
+// Fields owned by post-service: the others are resolved from the other services by the gateway
+public record PostNode(Long id, String description, String imagePath, Long userId) {
+}
@@ -0,0 +1,4 @@
+package com.valentini.compositeservice.gateway.model;
+
+public record UserNode(Long id, String username, String avatarPath) {
+}
@@ -0,0 +1,5 @@
+package com.valentini.compositeservice.gateway.model;
+
+// The logged user, the only user whose email address is returned
+public record ViewerNode(Long id, String username, String email, String avatarPath) {
+}
@@ -0,0 +1,25 @@
+package com.valentini.interactionservice.config;
+
+import com.valentini.interactionservice.repository.PostCounterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Slf4j
+@Configuration
+public class PostCounterConfig {
+
+    @Bean
+    public SmartInitializingSingleton postCounterInitializer(PostCounterRepository postCounterRepository, TransactionTemplate transactionTemplate) {
+        return () -> {
+            // Databases created before the counters get them computed once from the existing likes and comments.
+            // Runs before the web server starts, so no like or comment can create a counter in the meantime
+            if (postCounterRepository.count() == 0) {
+                transactionTemplate.executeWithoutResult(status -> postCounterRepository.initializeCounters());
+                log.info("Initialized the counters of {} posts", postCounterRepository.count());
+            }
+        };
+    }
+}
@@ -11,7 +11,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = @Index(name = "comments_post_id_id_idx", columnList = "post_id, id"))
 public class Comment {
 
     @Id
@@ -0,0 +1,26 @@
+package com.valentini.interactionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Like and comment counts of a post, kept up to date by the mutations so that reading them costs one row
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "post_counters")
+public class PostCounter {
+
+    @Id
+    private Long postId;
+
+    @Column(nullable = false)
+    private Long likesCount;
+
+    @Column(nullable = false)
+    private Long commentsCount;
+}
@@ -1,7 +1,10 @@
 package com.valentini.interactionservice.repository;
 
 import com.valentini.interactionservice.model.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,6 +12,17 @@ import java.util.List;
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByPostId(Long postId);
+    List<Comment> findByPostIdIn(List<Long> postIds);
+
+    // Keyset pagination: the page starts after the last comment seen instead of skipping an offset
+    List<Comment> findByPostIdAndIdGreaterThanOrderByIdAsc(Long postId, Long id, Pageable pageable);
+
+    // The first comments of each post, in a single query whatever the number of posts
+    @Query(value = "SELECT ranked.id, ranked.content, ranked.post_id, ranked.user_id FROM (" +
+            "SELECT c.id, c.content, c.post_id, c.user_id, ROW_NUMBER() OVER (PARTITION BY c.post_id ORDER BY c.id) AS position " +
+            "FROM comments c WHERE c.post_id IN (:postIds)) ranked " +
+            "WHERE ranked.position <= :first ORDER BY ranked.post_id, ranked.id", nativeQuery = true)
+    List<Comment> findFirstCommentsByPostIdIn(@Param("postIds") List<Long> postIds, @Param("first") int first);
     List<Comment> findByUserId(Long userId);
     List<Comment> findByPostIdAndUserId(Long postId, Long userId);
 }
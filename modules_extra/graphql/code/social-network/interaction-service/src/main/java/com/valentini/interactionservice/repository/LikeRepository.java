@@ -2,6 +2,8 @@ package com.valentini.interactionservice.repository;
 
 import com.valentini.interactionservice.model.Like;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -11,4 +13,7 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     Like findByPostIdAndUserId(Long postId, Long userId);
     void deleteById(Long id);
     Boolean existsByPostIdAndUserId(Long postId, Long userId);
+
+    @Query("SELECT l.postId FROM Like l WHERE l.userId = :userId AND l.postId IN :postIds")
+    List<Long> findLikedPostIds(@Param("postIds") List<Long> postIds, @Param("userId") Long userId);
 }
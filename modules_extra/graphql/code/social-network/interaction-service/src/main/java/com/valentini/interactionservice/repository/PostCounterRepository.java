@@ -0,0 +1,38 @@
+package com.valentini.interactionservice.repository;
+
+import com.valentini.interactionservice.model.PostCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PostCounterRepository extends JpaRepository<PostCounter, Long> {
+
+    // Adds to the counters in place, creating them on the first like or comment of the post
+    @Modifying
+    @Query(value = "INSERT INTO post_counters (post_id, likes_count, comments_count) VALUES (:postId, :likes, :comments) " +
+            "ON CONFLICT (post_id) DO UPDATE SET likes_count = post_counters.likes_count + EXCLUDED.likes_count, " +
+            "comments_count = post_counters.comments_count + EXCLUDED.comments_count", nativeQuery = true)
+    void incrementCounters(@Param("postId") Long postId, @Param("likes") long likes, @Param("comments") long comments);
+
+    // Never creates a row, nor goes below zero
+    @Modifying
+    @Query(value = "UPDATE post_counters SET likes_count = GREATEST(likes_count - 1, 0) WHERE post_id = :postId", nativeQuery = true)
+    void decrementLikesCount(@Param("postId") Long postId);
+
+    @Modifying
+    @Query(value = "UPDATE post_counters SET comments_count = GREATEST(comments_count - 1, 0) WHERE post_id = :postId", nativeQuery = true)
+    void decrementCommentsCount(@Param("postId") Long postId);
+
+    // Counts the likes and comments stored before the counters existed
+    @Modifying
+    @Query(value = "INSERT INTO post_counters (post_id, likes_count, comments_count) " +
+            "SELECT p.post_id, COALESCE(l.n, 0), COALESCE(c.n, 0) " +
+            "FROM (SELECT post_id FROM likes UNION SELECT post_id FROM comments) p " +
+            "LEFT JOIN (SELECT post_id, COUNT(*) AS n FROM likes GROUP BY post_id) l ON l.post_id = p.post_id " +
+            "LEFT JOIN (SELECT post_id, COUNT(*) AS n FROM comments GROUP BY post_id) c ON c.post_id = p.post_id " +
+            "ON CONFLICT (post_id) DO NOTHING", nativeQuery = true)
+    void initializeCounters();
+}
@@ -5,62 +5,90 @@ import com.valentini.interactionservice.exception.UserNotFoundException;
 import com.valentini.interactionservice.model.Comment;
 import com.valentini.interactionservice.model.User;
 import com.valentini.interactionservice.repository.CommentRepository;
+import com.valentini.interactionservice.repository.PostCounterRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
-import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.http.*;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Controller
 public class CommentResolver {
     private final CommentRepository commentRepository;
+    private final PostCounterRepository postCounterRepository;
 
     @Value("${application.api.key}")
     private String api_key;
 
-    public CommentResolver(CommentRepository commentRepository) {
+    public CommentResolver(CommentRepository commentRepository, PostCounterRepository postCounterRepository) {
         this.commentRepository = commentRepository;
+        this.postCounterRepository = postCounterRepository;
     }
 
     @QueryMapping
-    public Iterable<Comment> getCommentsByPostId(@Argument Long postId) {
-        return commentRepository.findByPostId(postId);
+    public Iterable<Comment> getCommentsByPostId(@Argument Long postId, @Argument Integer first, @Argument Long after) {
+        if (first == null) {
+            return commentRepository.findByPostId(postId);
+        }
+        return commentRepository.findByPostIdAndIdGreaterThanOrderByIdAsc(postId, after == null ? 0L : after, PageRequest.of(0, first));
+    }
+
+    @QueryMapping
+    public List<Comment> getCommentsByPostIds(@Argument List<Long> postIds, @Argument Integer first) {
+        if (first == null) {
+            return commentRepository.findByPostIdIn(postIds);
+        }
+        return commentRepository.findFirstCommentsByPostIdIn(postIds, first);
     }
 
     @MutationMapping
+    @Transactional
     public Comment addComment(@Argument Long postId, @Argument Long userId, @Argument String content) {
         Comment comment = new Comment();
         comment.setPostId(postId);
         comment.setUserId(userId);
         comment.setContent(content);
-        return commentRepository.save(comment);
+        Comment savedComment = commentRepository.save(comment);
+        postCounterRepository.incrementCounters(postId, 0, 1);
+        return savedComment;
     }
 
     @MutationMapping
+    @Transactional
     public Boolean deleteComment(@Argument Long id) {
-        commentRepository.deleteById(id);
+        commentRepository.findById(id).ifPresent(comment -> {
+            commentRepository.delete(comment);
+            postCounterRepository.decrementCommentsCount(comment.getPostId());
+        });
         return true;
     }
 
-    @SchemaMapping
-    public User user(Comment comment) {
+    @BatchMapping
+    public Map<Comment, User> user(List<Comment> comments) {
         RestTemplate restTemplate = new RestTemplate();
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.add("X-API-Key", api_key);
 
-        // Build the GraphQL query
-        String query = "{ getUserById(id:" + comment.getUserId() + "){ id username avatarPath} }";
+        // One query for the authors of all the comments resolved together
+        String query = "query GetUsersByIds($ids: [ID!]!) { getUsersByIds(ids: $ids){ id username avatarPath } }";
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("ids", comments.stream().map(Comment::getUserId).distinct().toList());
 
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("query", query);
+        requestBody.put("variables", variables);
 
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
 
@@ -71,28 +99,36 @@ public class CommentResolver {
 
             // Check for errors in the response
             if (responseBody.containsKey("errors")) {
-                throw new UserNotFoundException(comment.getUserId().toString());
+                throw new RuntimeException("Error fetching comment users");
             }
 
             Map<String, Object> data = (Map<String, Object>) responseBody.get("data");
-            if (data == null) {
-                throw new UserNotFoundException(comment.getUserId().toString());
+            if (data == null || data.get("getUsersByIds") == null) {
+                throw new RuntimeException("Error fetching comment users");
             }
 
-            Map<String, Object> userMap = (Map<String, Object>) data.get("getUserById");
-            if (userMap != null) {
+            Map<Long, User> usersById = new HashMap<>();
+            for (Map<String, Object> userMap : (List<Map<String, Object>>) data.get("getUsersByIds")) {
                 User user = new User();
                 user.setId(Long.valueOf(userMap.get("id").toString()));
                 user.setUsername((String) userMap.get("username"));
                 user.setAvatarPath((String) userMap.get("avatarPath"));
-                return user;
-            } else {
-                throw new UserNotFoundException(comment.getUserId().toString());
+                usersById.put(user.getId(), user);
+            }
+
+            Map<Comment, User> users = new HashMap<>();
+            for (Comment comment : comments) {
+                User user = usersById.get(comment.getUserId());
+                if (user == null) {
+                    throw new UserNotFoundException(comment.getUserId().toString());
+                }
+                users.put(comment, user);
             }
+            return users;
         } else if (response.getStatusCode() == HttpStatus.UNAUTHORIZED) {
             throw new BadCredentialsException("Invalid API Key");
         } else {
-            throw new UserNotFoundException(comment.getUserId().toString());
+            throw new RuntimeException("Error fetching comment users");
         }
     }
 }
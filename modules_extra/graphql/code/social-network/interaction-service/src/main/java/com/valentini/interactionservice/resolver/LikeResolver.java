@@ -4,6 +4,7 @@ import com.valentini.interactionservice.exception.BadCredentialsException;
 import com.valentini.interactionservice.exception.UserNotFoundException;
 import com.valentini.interactionservice.model.Like;
 import com.valentini.interactionservice.repository.LikeRepository;
+import com.valentini.interactionservice.repository.PostCounterRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -13,20 +14,24 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Controller
 public class LikeResolver {
     private final LikeRepository likeRepository;
+    private final PostCounterRepository postCounterRepository;
 
     @Value("${application.api.key}")
     private String api_key;
 
-    public LikeResolver(LikeRepository likeRepository) {
+    public LikeResolver(LikeRepository likeRepository, PostCounterRepository postCounterRepository) {
         this.likeRepository = likeRepository;
+        this.postCounterRepository = postCounterRepository;
     }
 
     @QueryMapping
@@ -34,17 +39,27 @@ public class LikeResolver {
         return likeRepository.findByPostId(postId);
     }
 
+    @QueryMapping
+    public List<Long> likedPostIds(@Argument List<Long> postIds, @Argument Long userId) {
+        return likeRepository.findLikedPostIds(postIds, userId);
+    }
+
     @MutationMapping
+    @Transactional
     public Like likePost(@Argument Long postId, @Argument Long userId) {
         Like like = new Like();
         like.setPostId(postId);
         like.setUserId(userId);
-        return likeRepository.save(like);
+        Like savedLike = likeRepository.save(like);
+        postCounterRepository.incrementCounters(postId, 1, 0);
+        return savedLike;
     }
 
     @MutationMapping
+    @Transactional
     public Boolean unlikePost(@Argument Long postId, @Argument Long userId) {
         likeRepository.deleteById( likeRepository.findByPostIdAndUserId(postId, userId).getId() );
+        postCounterRepository.decrementLikesCount(postId);
         return true;
     }
 
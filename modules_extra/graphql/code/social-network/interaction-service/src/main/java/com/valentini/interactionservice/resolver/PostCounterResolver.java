@@ -0,0 +1,24 @@
+package com.valentini.interactionservice.resolver;
+
+import com.valentini.interactionservice.model.PostCounter;
+import com.valentini.interactionservice.repository.PostCounterRepository;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+
+@Controller
+public class PostCounterResolver {
+    private final PostCounterRepository postCounterRepository;
+
+    public PostCounterResolver(PostCounterRepository postCounterRepository) {
+        this.postCounterRepository = postCounterRepository;
+    }
+
+    // Posts never liked nor commented have no counters
+    @QueryMapping
+    public List<PostCounter> getPostCountersByPostIds(@Argument List<Long> postIds) {
+        return postCounterRepository.findAllById(postIds);
+    }
+}
@@ -0,0 +1,7 @@
+package com.valentini.postservice.exception;
+
+public class InvalidPageSizeException extends RuntimeException {
+    public InvalidPageSizeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,5 @@
+package com.valentini.postservice.model;
+
+// Page of the comments of a post requested by a query, the cursor being null for the first page
+public record CommentPageKey(Long postId, int first, Long after) {
+}
@@ -0,0 +1,52 @@
+package com.valentini.postservice.model;
+
+import com.valentini.postservice.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Relay connection over a page of items ordered by id, the cursor of an item being its encoded id
+@Getter
+@AllArgsConstructor
+public class Connection<T> {
+    private static final String CURSOR_PREFIX = "cursor:";
+
+    private List<Edge<T>> edges;
+    private PageInfo pageInfo;
+
+    // The items are expected to be fetched with one extra item, which only tells whether there is a next page
+    public static <T> Connection<T> of(List<T> items, int first, Function<T, Long> id) {
+        List<Edge<T>> edges = items.stream()
+                .limit(first)
+                .map(item -> new Edge<>(item, encodeCursor(id.apply(item))))
+                .toList();
+        String endCursor = edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor();
+        return new Connection<>(edges, new PageInfo(items.size() > first, endCursor));
+    }
+
+    public static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decodeCursor(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
+        if (!decoded.startsWith(CURSOR_PREFIX) || !decoded.substring(CURSOR_PREFIX.length()).matches("\\d+")) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+        try {
+            return Long.valueOf(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.valentini.postservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Edge<T> {
+    private T node;
+    private String cursor;
+}
@@ -0,0 +1,11 @@
+package com.valentini.postservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PageInfo {
+    private boolean hasNextPage;
+    private String endCursor;
+}
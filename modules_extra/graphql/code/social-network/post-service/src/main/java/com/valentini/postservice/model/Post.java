@@ -12,7 +12,7 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = @Index(name = "posts_user_id_id_idx", columnList = "user_id, id"))
 public class Post {
 
     @Id
@@ -1,6 +1,7 @@
 package com.valentini.postservice.repository;
 
 import com.valentini.postservice.model.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +10,8 @@ import java.util.List;
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
     List<Post> findByUserId(Long userId);
+
+    // Keyset pagination: the page starts after the last post seen instead of skipping an offset
+    List<Post> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+    List<Post> findByUserIdAndIdLessThanOrderByIdDesc(Long userId, Long id, Pageable pageable);
 }
@@ -1,35 +1,59 @@
 package com.valentini.postservice.resolver;
 
+import com.valentini.postservice.exception.InvalidPageSizeException;
 import com.valentini.postservice.exception.UserNotFoundException;
 import com.valentini.postservice.model.Comment;
+import com.valentini.postservice.model.CommentPageKey;
+import com.valentini.postservice.model.Connection;
 import com.valentini.postservice.model.Post;
 import com.valentini.postservice.model.User;
 import com.valentini.postservice.repository.PostRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.dataloader.DataLoader;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
 import org.springframework.http.*;
 import com.valentini.postservice.exception.BadCredentialsException;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Controller
 public class PostResolver {
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int DEFAULT_POSTS_PAGE_SIZE = 10;
+    private static final int DEFAULT_COMMENTS_PAGE_SIZE = 3;
+    private static final String COMMENT_PAGES = "commentPages";
+    private static final String POST_COUNTERS = "postCounters";
+
     private final PostRepository postRepository;
 
     @Value("${application.api.key}")
     private String api_key;
 
-    public PostResolver(PostRepository postRepository) {
+    public PostResolver(PostRepository postRepository, BatchLoaderRegistry batchLoaderRegistry) {
         this.postRepository = postRepository;
+        // The comment pages requested by a query are loaded together, as their arguments are not known to @BatchMapping
+        batchLoaderRegistry.<CommentPageKey, Connection<Comment>>forName(COMMENT_PAGES)
+                .registerMappedBatchLoader((keys, environment) -> Mono.fromSupplier(() -> loadCommentPages(keys)));
+        // Like and comment counts of a post are read from the same counters row, fetched once per query
+        batchLoaderRegistry.<Long, Map<String, Object>>forName(POST_COUNTERS)
+                .registerMappedBatchLoader((postIds, environment) -> Mono.fromSupplier(() -> postCounters(postIds)));
     }
 
     @QueryMapping
@@ -42,6 +66,34 @@ public class PostResolver {
         return postRepository.findAll(Sort.by(Sort.Direction.DESC, "id"));
     }
 
+    @QueryMapping
+    public Connection<Post> posts(@Argument Integer first, @Argument String after) {
+        int pageSize = pageSize(first, DEFAULT_POSTS_PAGE_SIZE);
+        Long afterId = after == null ? Long.MAX_VALUE : Connection.decodeCursor(after);
+        // One extra post tells whether there is a next page
+        List<Post> posts = postRepository.findByIdLessThanOrderByIdDesc(afterId, PageRequest.of(0, pageSize + 1));
+        return Connection.of(posts, pageSize, Post::getId);
+    }
+
+    @QueryMapping
+    public Connection<Post> postsByUserId(@Argument Long userId, @Argument Integer first, @Argument String after) {
+        int pageSize = pageSize(first, DEFAULT_POSTS_PAGE_SIZE);
+        Long afterId = after == null ? Long.MAX_VALUE : Connection.decodeCursor(after);
+        List<Post> posts = postRepository.findByUserIdAndIdLessThanOrderByIdDesc(userId, afterId, PageRequest.of(0, pageSize + 1));
+        return Connection.of(posts, pageSize, Post::getId);
+    }
+
+    // first may be omitted or explicitly null, in which case the default page size of the field applies
+    private static int pageSize(Integer first, int defaultPageSize) {
+        if (first == null) {
+            return defaultPageSize;
+        }
+        if (first < 0) {
+            throw new InvalidPageSizeException("first must not be negative: " + first);
+        }
+        return Math.min(first, MAX_PAGE_SIZE);
+    }
+
     @MutationMapping
     public Post createPost(@Argument String description, @Argument Long userId, @Argument String imagePath) {
         Post post = new Post();
@@ -62,148 +114,205 @@ public class PostResolver {
         return postRepository.findByUserId(userId);
     }
 
-    @SchemaMapping
-    public User user(Post post) {
-        RestTemplate restTemplate = new RestTemplate();
+    @BatchMapping
+    public Map<Post, User> user(List<Post> posts) {
+        // One query for the authors of all the posts resolved together
+        String query = "query GetUsersByIds($ids: [ID!]!) { getUsersByIds(ids: $ids){ id username avatarPath } }";
+        List<Long> userIds = posts.stream().map(Post::getUserId).distinct().toList();
+
+        Map<String, Object> data = executeQuery("http://user:7001/graphql", query, Map.of("ids", userIds),
+                "Error fetching users of posts");
+        List<Map<String, Object>> userMaps = (List<Map<String, Object>>) data.get("getUsersByIds");
+        if (userMaps == null) {
+            throw new RuntimeException("Error fetching users of posts");
+        }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.add("X-API-Key", api_key);
+        Map<Long, User> usersById = new HashMap<>();
+        for (Map<String, Object> userMap : userMaps) {
+            usersById.put(Long.valueOf(userMap.get("id").toString()), toUser(userMap));
+        }
 
-        // Build the GraphQL query
-        String query = "{ getUserById(id:" + post.getUserId() + "){ id username avatarPath } }";
+        Map<Post, User> users = new HashMap<>();
+        for (Post post : posts) {
+            User user = usersById.get(post.getUserId());
+            if (user == null) {
+                throw new UserNotFoundException(post.getUserId().toString());
+            }
+            users.put(post, user);
+        }
+        return users;
+    }
 
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("query", query);
+    @BatchMapping
+    public Map<Post, List<Comment>> comments(List<Post> posts) {
+        // One query for the comments of all the posts resolved together
+        String query = "query GetCommentsByPostIds($postIds: [ID!]!) { getCommentsByPostIds(postIds: $postIds){ id postId content user { id username avatarPath } } }";
 
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        Map<String, Object> data = executeQuery("http://interaction:7003/graphql", query, Map.of("postIds", postIds(posts)),
+                "Error fetching comments of posts");
+        List<Map<String, Object>> commentMaps = (List<Map<String, Object>>) data.get("getCommentsByPostIds");
+        if (commentMaps == null) {
+            throw new RuntimeException("Error fetching comments of posts");
+        }
 
-        ResponseEntity<Map> response = restTemplate.postForEntity("http://user:7001/graphql", request, Map.class);
+        Map<Long, List<Comment>> commentsByPostId = groupByPostId(commentMaps);
 
-        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-            Map<String, Object> responseBody = response.getBody();
+        Map<Post, List<Comment>> comments = new HashMap<>();
+        for (Post post : posts) {
+            comments.put(post, commentsByPostId.getOrDefault(post.getId(), List.of()));
+        }
+        return comments;
+    }
 
-            // Check for errors in the response
-            if (responseBody.containsKey("errors")) {
-                throw new UserNotFoundException(post.getUserId().toString());
+    @SchemaMapping
+    public CompletableFuture<Connection<Comment>> commentsConnection(Post post, @Argument Integer first, @Argument String after,
+                                                                     DataLoader<CommentPageKey, Connection<Comment>> commentPages) {
+        Long afterId = after == null ? null : Connection.decodeCursor(after);
+        return commentPages.load(new CommentPageKey(post.getId(), pageSize(first, DEFAULT_COMMENTS_PAGE_SIZE), afterId));
+    }
+
+    private Map<CommentPageKey, Connection<Comment>> loadCommentPages(Set<CommentPageKey> keys) {
+        Map<CommentPageKey, Connection<Comment>> pages = new HashMap<>();
+
+        // The first pages of the comments of the posts in the query: one call per page size, usually a single one
+        Map<Integer, List<CommentPageKey>> firstPagesBySize = keys.stream()
+                .filter(key -> key.after() == null)
+                .collect(Collectors.groupingBy(CommentPageKey::first));
+        firstPagesBySize.forEach((first, firstPages) -> {
+            String query = "query GetCommentsByPostIds($postIds: [ID!]!, $first: Int) { getCommentsByPostIds(postIds: $postIds, first: $first){ id postId content user { id username avatarPath } } }";
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("postIds", firstPages.stream().map(CommentPageKey::postId).toList());
+            // One extra comment per post tells whether there is a next page
+            variables.put("first", first + 1);
+
+            Map<String, Object> data = executeQuery("http://interaction:7003/graphql", query, variables,
+                    "Error fetching comments of posts");
+            List<Map<String, Object>> commentMaps = (List<Map<String, Object>>) data.get("getCommentsByPostIds");
+            if (commentMaps == null) {
+                throw new RuntimeException("Error fetching comments of posts");
+            }
+            Map<Long, List<Comment>> commentsByPostId = groupByPostId(commentMaps);
+            for (CommentPageKey key : firstPages) {
+                pages.put(key, Connection.of(commentsByPostId.getOrDefault(key.postId(), List.of()), first, Comment::getId));
             }
+        });
 
-            Map<String, Object> data = (Map<String, Object>) responseBody.get("data");
-            if (data == null) {
-                throw new UserNotFoundException(post.getUserId().toString());
+        // Later pages are only requested for the post being read
+        for (CommentPageKey key : keys) {
+            if (key.after() == null) {
+                continue;
             }
-            Map<String, Object> userMap = (Map<String, Object>) data.get("getUserById");
-            if (userMap != null) {
-                User user = new User();
-                user.setId(Long.valueOf(userMap.get("id").toString()));
-                user.setUsername((String) userMap.get("username"));
-                user.setAvatarPath((String) userMap.get("avatarPath"));
-                return user;
-            } else {
-                throw new UserNotFoundException(post.getUserId().toString());
+            String query = "query GetCommentsByPostId($postId: ID!, $first: Int, $after: ID) { getCommentsByPostId(postId: $postId, first: $first, after: $after){ id postId content user { id username avatarPath } } }";
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("postId", key.postId());
+            variables.put("first", key.first() + 1);
+            variables.put("after", key.after());
+
+            Map<String, Object> data = executeQuery("http://interaction:7003/graphql", query, variables,
+                    "Error fetching comments for post: " + key.postId());
+            List<Map<String, Object>> commentMaps = (List<Map<String, Object>>) data.get("getCommentsByPostId");
+            if (commentMaps == null) {
+                throw new RuntimeException("Error fetching comments for post: " + key.postId());
             }
-        } else if (response.getStatusCode() == HttpStatus.UNAUTHORIZED) {
-            throw new BadCredentialsException("Invalid API Key");
-        } else {
-            throw new UserNotFoundException(post.getUserId().toString());
+            pages.put(key, Connection.of(commentMaps.stream().map(PostResolver::toComment).toList(), key.first(), Comment::getId));
         }
+        return pages;
     }
 
     @SchemaMapping
-    public List<Comment> comments(Post post) {
-        RestTemplate restTemplate = new RestTemplate();
+    public CompletableFuture<Integer> likesCount(Post post, DataLoader<Long, Map<String, Object>> postCounters) {
+        return postCounters.load(post.getId()).thenApply(counterMap -> counter(counterMap, "likesCount"));
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.add("X-API-Key", api_key);
+    @SchemaMapping
+    public CompletableFuture<Integer> commentsCount(Post post, DataLoader<Long, Map<String, Object>> postCounters) {
+        return postCounters.load(post.getId()).thenApply(counterMap -> counter(counterMap, "commentsCount"));
+    }
 
-        // Build the GraphQL query
-        String query = "{ getCommentsByPostId(postId:" + post.getId() + "){ id content user { id username avatarPath } } }";
+    private Map<Long, Map<String, Object>> postCounters(Set<Long> postIds) {
+        // The counters are maintained by interaction-service on every like and comment: one row per post, whatever its popularity
+        String query = "query GetPostCountersByPostIds($postIds: [ID!]!) { getPostCountersByPostIds(postIds: $postIds){ postId likesCount commentsCount } }";
 
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("query", query);
-
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        Map<String, Object> data = executeQuery("http://interaction:7003/graphql", query, Map.of("postIds", List.copyOf(postIds)),
+                "Error fetching counters of posts");
+        List<Map<String, Object>> counterMaps = (List<Map<String, Object>>) data.get("getPostCountersByPostIds");
+        if (counterMaps == null) {
+            throw new RuntimeException("Error fetching counters of posts");
+        }
 
-        ResponseEntity<Map> response = restTemplate.postForEntity("http://interaction:7003/graphql", request, Map.class);
+        Map<Long, Map<String, Object>> countersByPostId = new HashMap<>();
+        for (Map<String, Object> counterMap : counterMaps) {
+            countersByPostId.put(Long.valueOf(counterMap.get("postId").toString()), counterMap);
+        }
+        return countersByPostId;
+    }
 
-        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-            Map<String, Object> responseBody = response.getBody();
+    private static Integer counter(Map<String, Object> counterMap, String field) {
+        // Posts never liked nor commented have no counters
+        return counterMap == null ? 0 : ((Number) counterMap.get(field)).intValue();
+    }
 
-            // Check for errors in the response
-            if (responseBody.containsKey("errors")) {
-                throw new RuntimeException("Error fetching comments for post: " + post.getId().toString());
-            }
+    private static List<Long> postIds(List<Post> posts) {
+        return posts.stream().map(Post::getId).toList();
+    }
 
-            Map<String, Object> data = (Map<String, Object>) responseBody.get("data");
-            if (data == null) {
-                throw new RuntimeException("Error fetching comments for post: " + post.getId().toString());
-            }
-            List<Object> comments = (List<Object>) data.get("getCommentsByPostId");
-
-            if (comments != null) {
-                return comments.stream().map(commentMap -> {
-                    Comment comment = new Comment();
-                    comment.setId(Long.valueOf(((Map<String, Object>) commentMap).get("id").toString()));
-                    comment.setContent((String) ((Map<String, Object>) commentMap).get("content"));
-                    User commenter = new User();
-                    commenter.setId(Long.valueOf(((Map<String, Object>) ((Map<String, Object>) commentMap).get("user")).get("id").toString()));
-                    commenter.setUsername((String) ((Map<String, Object>) ((Map<String, Object>) commentMap).get("user")).get("username"));
-                    commenter.setAvatarPath((String) ((Map<String, Object>) ((Map<String, Object>) commentMap).get("user")).get("avatarPath"));
-                    comment.setUser(commenter);
-                    return comment;
-                }).toList();
-            } else {
-                throw new RuntimeException("Error fetching comments for post: " + post.getId().toString());
-            }
-        } else if (response.getStatusCode() == HttpStatus.UNAUTHORIZED) {
-            throw new BadCredentialsException("Invalid API Key");
-        } else {
-            throw new RuntimeException("Error fetching comments for post: " + post.getId().toString());
+    private static Map<Long, List<Comment>> groupByPostId(List<Map<String, Object>> commentMaps) {
+        Map<Long, List<Comment>> commentsByPostId = new HashMap<>();
+        for (Map<String, Object> commentMap : commentMaps) {
+            commentsByPostId.computeIfAbsent(Long.valueOf(commentMap.get("postId").toString()), postId -> new ArrayList<>())
+                    .add(toComment(commentMap));
         }
+        return commentsByPostId;
     }
 
-    @SchemaMapping
-    public Integer likesCount(Post post){
+    private static Comment toComment(Map<String, Object> commentMap) {
+        Comment comment = new Comment();
+        comment.setId(Long.valueOf(commentMap.get("id").toString()));
+        comment.setContent((String) commentMap.get("content"));
+        comment.setUser(toUser((Map<String, Object>) commentMap.get("user")));
+        return comment;
+    }
+
+    private static User toUser(Map<String, Object> userMap) {
+        User user = new User();
+        user.setId(Long.valueOf(userMap.get("id").toString()));
+        user.setUsername((String) userMap.get("username"));
+        user.setAvatarPath((String) userMap.get("avatarPath"));
+        return user;
+    }
+
+    private Map<String, Object> executeQuery(String url, String query, Map<String, Object> variables, String errorMessage) {
         RestTemplate restTemplate = new RestTemplate();
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.add("X-API-Key", api_key);
 
-        // Build the GraphQL query
-        String query = "{ getLikesByPostId(postId:" + post.getId() + "){ id } }";
-
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("query", query);
+        requestBody.put("variables", variables);
 
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
 
-        ResponseEntity<Map> response = restTemplate.postForEntity("http://interaction:7003/graphql", request, Map.class);
+        ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
 
         if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
             Map<String, Object> responseBody = response.getBody();
 
             // Check for errors in the response
             if (responseBody.containsKey("errors")) {
-                throw new RuntimeException("Error fetching likes count for post: " + post.getId().toString());
+                throw new RuntimeException(errorMessage);
             }
 
             Map<String, Object> data = (Map<String, Object>) responseBody.get("data");
             if (data == null) {
-                throw new RuntimeException("Error fetching likes count for post: " + post.getId().toString());
-            }
-            List<Object> likes = (List<Object>) data.get("getLikesByPostId");
-
-            if (likes != null) {
-                return likes.size();
-            } else {
-                throw new RuntimeException("Error fetching likes count for post: " + post.getId().toString());
+                throw new RuntimeException(errorMessage);
             }
+            return data;
         } else if (response.getStatusCode() == HttpStatus.UNAUTHORIZED) {
             throw new BadCredentialsException("Invalid API Key");
         } else {
-            throw new RuntimeException("Error fetching likes count for post: " + post.getId().toString());
+            throw new RuntimeException(errorMessage);
         }
     }
 
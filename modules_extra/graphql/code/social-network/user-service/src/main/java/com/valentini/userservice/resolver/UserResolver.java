@@ -9,6 +9,7 @@ import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 
+import java.util.List;
 import java.util.Optional;
 
 @Controller
@@ -24,6 +25,11 @@ public class UserResolver {
         return userRepository.findById(id).orElse(null);
     }
 
+    @QueryMapping
+    public List<User> getUsersByIds(@Argument List<Long> ids) {
+        return userRepository.findAllById(ids);
+    }
+
     @QueryMapping
     public Optional<User> getUserByUsername(@Argument String username) {
         return userRepository.findByUsername(username);
@@ -1,13 +1,21 @@
 package com.baeldung.raft;
 
+import com.baeldung.raft.config.CoordinationConfig;
+import com.baeldung.raft.config.ElectionConfig;
 import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ReplicationConfig;
+import com.baeldung.raft.config.ShardConfig;
+import com.baeldung.raft.config.SnapshotConfig;
+import com.baeldung.raft.config.StorageConfig;
 import com.baeldung.raft.config.TimeoutConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
-@EnableConfigurationProperties({NodeConfig.class, TimeoutConfig.class})
+@EnableConfigurationProperties({NodeConfig.class, TimeoutConfig.class, ReplicationConfig.class, StorageConfig.class, SnapshotConfig.class,
+        ReadConfig.class, ElectionConfig.class, ShardConfig.class, CoordinationConfig.class})
 public class RaftImplementationWithSpringBootApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,40 @@
+package com.baeldung.raft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the coordination API: named leases with fencing tokens, and watches on the keys.
+ */
+@Data
+@ConfigurationProperties(prefix = "raft.coordination")
+public class CoordinationConfig {
+    /**
+     * Duration in milliseconds of a tick of the timer wheel tracking the lease deadlines. A lease expires at most one
+     * tick after its TTL has elapsed.
+     */
+    private int tick = 50;
+
+    /**
+     * Number of buckets of the timer wheel. Deadlines further than {@code tick * wheelSize} milliseconds share their
+     * bucket with nearer ones and are skipped until their round comes.
+     */
+    private int wheelSize = 512;
+
+    /**
+     * Time in milliseconds after which a lease whose expiry could not be committed is checked again.
+     */
+    private int expiryRetry = 500;
+
+    /**
+     * Maximum number of lease or key events buffered for a watcher that does not keep up. The watch stream fails when
+     * the buffer overflows, and the watcher has to reconnect.
+     */
+    private int watchBuffer = 1024;
+
+    /**
+     * Number of the latest key changes retained by each group, from which a watcher resumes after a disconnection.
+     * A watcher asking for an older revision has to read the keys again.
+     */
+    private int watchHistory = 1024;
+}
@@ -0,0 +1,24 @@
+package com.baeldung.raft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for leader elections.
+ */
+@Data
+@ConfigurationProperties(prefix = "raft.election")
+public class ElectionConfig {
+    /**
+     * Run a PreVote round before each election: the node only increments its term once a majority confirms it could
+     * win, that is, the voters have not heard from a leader within the minimum election timeout and its log is up to
+     * date. A node coming back from a partition then no longer forces a healthy leader to step down.
+     */
+    private boolean preVote = true;
+
+    /**
+     * Make the leader step down when a majority has not acknowledged it within the maximum election timeout, instead
+     * of staying leader of a minority partition until it hears of a higher term.
+     */
+    private boolean checkQuorum = true;
+}
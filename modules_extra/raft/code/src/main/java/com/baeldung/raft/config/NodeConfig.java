@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,4 +23,10 @@ public class NodeConfig {
      * List of cluster node URLs participating in the Raft consensus.
      */
     private List<String> clusterNodes;
+
+    /**
+     * List of learner node URLs. Learners receive the replicated log and serve reads, but never vote, never start
+     * an election and do not count towards the commit quorum. They must not appear in {@code clusterNodes}.
+     */
+    private List<String> learnerNodes = new ArrayList<>();
 }
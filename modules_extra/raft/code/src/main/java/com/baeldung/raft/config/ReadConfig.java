@@ -0,0 +1,29 @@
+package com.baeldung.raft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for linearizable reads.
+ */
+@Data
+@ConfigurationProperties(prefix = "raft.read")
+public class ReadConfig {
+    /**
+     * Serve reads locally, without a heartbeat round, while the leader holds a lease: a majority acknowledged it
+     * less than the minimum election timeout ago. Followers then ignore vote requests while they hear from a leader,
+     * so no other leader can be elected before the lease expires. Relies on bounded clock drift.
+     */
+    private boolean leaseEnabled = false;
+
+    /**
+     * Fraction of the minimum election timeout removed from the lease to absorb clock drift between nodes.
+     */
+    private double clockDriftBound = 0.1;
+
+    /**
+     * Serve reads on followers and learners too: the replica fetches a read index from the leader and answers from
+     * its own state machine once it has applied that index. When disabled, only the leader serves reads.
+     */
+    private boolean followerReads = true;
+}
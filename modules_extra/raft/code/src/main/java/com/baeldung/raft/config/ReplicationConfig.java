@@ -0,0 +1,51 @@
+package com.baeldung.raft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for log replication.
+ */
+@Data
+@ConfigurationProperties(prefix = "raft.replication")
+public class ReplicationConfig {
+    /**
+     * Maximum number of log entries carried by a single AppendEntries request.
+     */
+    private int maxBatchEntries = 64;
+
+    /**
+     * Maximum number of AppendEntries requests in flight to the same follower.
+     */
+    private int maxInflight = 4;
+
+    /**
+     * Maximum number of log entries carried by a single AppendEntries request to a follower that lags behind by more
+     * than {@code maxInflight} full batches, so that it catches up in few round trips.
+     */
+    private int catchUpBatchEntries = 1024;
+
+    /**
+     * Maximum number of client commands the leader appends to its log as a single batch.
+     */
+    private int maxProposalBatch = 256;
+
+    /**
+     * Time in milliseconds the leader waits for more client commands before appending a batch that is not full.
+     * With {@code 0}, a batch holds the commands received while the previous batch was being appended.
+     */
+    private int proposalLinger = 0;
+
+    /**
+     * Maximum number of rounds a new member gets to catch up with the leader's log before it is promoted to voter.
+     * Each round replicates the entries appended during the previous one; the member is caught up once a round
+     * takes less than the minimum election timeout.
+     */
+    private int catchUpRounds = 10;
+
+    /**
+     * Time in milliseconds after which a catch-up round that has not completed aborts the addition of a member,
+     * which is then left as a learner.
+     */
+    private int catchUpTimeout = 10000;
+}
@@ -0,0 +1,18 @@
+package com.baeldung.raft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for Multi-Raft: the keyspace is split into shards, each replicated by its own Raft group.
+ */
+@Data
+@ConfigurationProperties(prefix = "raft.shards")
+public class ShardConfig {
+    /**
+     * Number of shards, hence of Raft groups hosted by each node. A key belongs to the shard given by its hash.
+     * Must be the same on every node. Each group elects its own leader, so writes to different shards are spread
+     * across the nodes.
+     */
+    private int count = 1;
+}
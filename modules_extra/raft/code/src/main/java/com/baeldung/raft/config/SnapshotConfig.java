@@ -0,0 +1,28 @@
+package com.baeldung.raft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for state machine snapshots and log compaction.
+ */
+@Data
+@ConfigurationProperties(prefix = "raft.snapshot")
+public class SnapshotConfig {
+    /**
+     * Number of entries applied since the last snapshot that triggers a new one.
+     */
+    private int threshold = 10000;
+
+    /**
+     * Number of entries kept in the log before the snapshot index, so that slightly lagging followers
+     * can still be served with AppendEntries instead of a full snapshot.
+     */
+    private int retainedEntries = 1000;
+
+    /**
+     * Size in bytes of each InstallSnapshot chunk, and therefore of the memory held by a snapshot transfer.
+     * Only one chunk per follower is in flight at a time.
+     */
+    private int chunkSize = 64 * 1024;
+}
@@ -0,0 +1,31 @@
+package com.baeldung.raft.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the on-disk Raft log and metadata.
+ */
+@Data
+@ConfigurationProperties(prefix = "raft.storage")
+public class StorageConfig {
+    /**
+     * Base directory of the node's data. Each node stores its files in a sub-directory named after its ID.
+     */
+    private String dir = "data";
+
+    /**
+     * Size in bytes of each log segment file.
+     */
+    private int segmentSize = 16 * 1024 * 1024;
+
+    /**
+     * Number of entries between two entries of the sparse index of a segment.
+     */
+    private int indexInterval = 64;
+
+    /**
+     * Whether appended entries are forced to disk before being acknowledged. Disable only for local experiments.
+     */
+    private boolean fsync = true;
+}
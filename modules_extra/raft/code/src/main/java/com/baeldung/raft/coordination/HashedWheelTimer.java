@@ -0,0 +1,215 @@
+package com.baeldung.raft.coordination;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: tracks many deadlines with O(1) scheduling and cancellation.
+ * <p>
+ * Time is cut into ticks, and each tick maps to one of {@code wheelSize} buckets, so a bucket holds the deadlines of
+ * every tick congruent to it. The wheel is passive: it has no thread of its own and only expires the deadlines when
+ * {@link #advance(long)} is called, visiting the buckets of the ticks elapsed since the previous call. A deadline thus
+ * fires at most one tick late, and one recurring task drives any number of deadlines.
+ * </p>
+ * <p>
+ * Not thread-safe: callers must synchronize.
+ * </p>
+ *
+ * @param <T> the type of the tasks attached to the deadlines
+ */
+public class HashedWheelTimer<T> {
+    private final long tickNanos;
+    private final long startNanos;
+    private final Bucket<T>[] wheel;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Constructs a new {@code HashedWheelTimer}.
+     *
+     * @param tickNanos  the duration of a tick in nanoseconds
+     * @param wheelSize  the number of buckets, rounded up to a power of two
+     * @param startNanos the current time in nanoseconds, from which the ticks are counted
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(long tickNanos, int wheelSize, long startNanos) {
+        if (tickNanos <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("The tick and the wheel size must be positive.");
+        }
+        int buckets = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        this.wheel = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) {
+            wheel[i] = new Bucket<>();
+        }
+        this.mask = buckets - 1;
+    }
+
+    /**
+     * Schedules a task. A deadline already passed fires with the next tick.
+     *
+     * @param task          the task
+     * @param deadlineNanos the time in nanoseconds at which the task is due
+     * @return the {@link Timeout}, which cancels the task
+     */
+    public Timeout<T> schedule(T task, long deadlineNanos) {
+        Timeout<T> timeout = new Timeout<>(this, task);
+        add(timeout, deadlineNanos);
+        return timeout;
+    }
+
+    /**
+     * Schedules a task again, whether it is pending, expired or cancelled, reusing its {@link Timeout} so that a
+     * timer re-armed over and over allocates nothing.
+     *
+     * @param timeout       the {@link Timeout} returned when the task was first scheduled
+     * @param deadlineNanos the time in nanoseconds at which the task is due
+     */
+    public void reschedule(Timeout<T> timeout, long deadlineNanos) {
+        if (timeout.timer != this) {
+            throw new IllegalArgumentException("The timeout belongs to another timer.");
+        }
+        timeout.cancel();
+        add(timeout, deadlineNanos);
+    }
+
+    private void add(Timeout<T> timeout, long deadlineNanos) {
+        // Rounded up, so that a task never fires before its deadline
+        timeout.deadlineTick = Math.max(currentTick,
+                Math.floorDiv(deadlineNanos - startNanos + tickNanos - 1, tickNanos));
+        wheel[(int) (timeout.deadlineTick & mask)].add(timeout);
+        size++;
+    }
+
+    /**
+     * Expires the tasks due by the given time.
+     *
+     * @param nowNanos the current time in nanoseconds
+     * @return the expired tasks, which are no longer scheduled
+     */
+    public List<T> advance(long nowNanos) {
+        List<T> expired = new ArrayList<>();
+        advance(nowNanos, expired::add);
+        return expired;
+    }
+
+    /**
+     * Expires the tasks due by the given time, handing each of them to an action as it expires. The action may
+     * {@linkplain #reschedule(Timeout, long) schedule the expired task again}, at the next tick at the earliest.
+     *
+     * @param nowNanos the current time in nanoseconds
+     * @param action   the action called with each expired task, which is no longer scheduled
+     */
+    public void advance(long nowNanos, Consumer<? super T> action) {
+        long targetTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        if (targetTick < currentTick) {
+            return;
+        }
+        // After a pause longer than a turn, every bucket is visited once
+        long steps = Math.min(targetTick - currentTick + 1, wheel.length);
+        long firstTick = currentTick;
+        currentTick = targetTick + 1;
+        for (long tick = firstTick; tick < firstTick + steps; tick++) {
+            wheel[(int) (tick & mask)].expire(targetTick, action);
+        }
+    }
+
+    /**
+     * Returns the number of tasks scheduled.
+     *
+     * @return the number of pending tasks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Handle on a scheduled task.
+     *
+     * @param <T> the type of the task
+     */
+    public static final class Timeout<T> {
+        private final HashedWheelTimer<T> timer;
+        private final T task;
+        private long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(HashedWheelTimer<T> timer, T task) {
+            this.timer = timer;
+            this.task = task;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        /**
+         * Cancels the task, in constant time.
+         *
+         * @return {@code true} if the task was pending, {@code false} if it had already expired or been cancelled
+         */
+        public boolean cancel() {
+            if (bucket == null) {
+                return false;
+            }
+            bucket.remove(this);
+            timer.size--;
+            return true;
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts of a bucket.
+     */
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        void expire(long targetTick, Consumer<? super T> action) {
+            Timeout<T> timeout = head;
+            // Tasks scheduled again by the action are appended after the former tail, and not visited
+            Timeout<T> last = tail;
+            while (timeout != null) {
+                Timeout<T> next = timeout == last ? null : timeout.next;
+                if (timeout.deadlineTick <= targetTick) {
+                    remove(timeout);
+                    timeout.timer.size--;
+                    action.accept(timeout.task);
+                }
+                timeout = next;
+            }
+        }
+    }
+}
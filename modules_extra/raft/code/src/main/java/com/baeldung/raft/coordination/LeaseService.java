@@ -0,0 +1,266 @@
+package com.baeldung.raft.coordination;
+
+import com.baeldung.raft.config.CoordinationConfig;
+import com.baeldung.raft.exception.LeaseConflictException;
+import com.baeldung.raft.exception.LeaseNotFoundException;
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.service.ShardService;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import com.baeldung.raft.statemachine.Lease;
+import com.baeldung.raft.statemachine.LeaseEvent;
+import com.baeldung.raft.statemachine.LeaseResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Service exposing named leases with fencing tokens on top of the replicated state machine.
+ * <p>
+ * Acquisitions, renewals and releases are proposed to the group of the shard owning the lease name, like any write,
+ * so concurrent renewals are appended and replicated as batches. The state machine never reads a clock: every node
+ * tracks the deadline of each lease in a {@link HashedWheelTimer}, re-armed whenever the lease is renewed, and the
+ * leader of the group proposes a {@code LEASE_EXPIRE} entry once the TTL has elapsed. The expiry only applies if the
+ * lease has not been renewed in the meantime.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LeaseService {
+    private final ShardService shardService;
+    private final CoordinationConfig config;
+    private final LongSupplier nanoClock;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HashedWheelTimer<Lease> wheel;
+    private final Map<String, HashedWheelTimer.Timeout<Lease>> timers = new HashMap<>();
+    private final Flux<LeaseEvent> events;
+    private Disposable subscription;
+    private Disposable ticker;
+
+    /**
+     * Constructs a new {@code LeaseService}.
+     *
+     * @param shardService the service routing commands to the group of their shard
+     * @param config       the coordination configuration
+     */
+    @Autowired
+    public LeaseService(ShardService shardService, CoordinationConfig config) {
+        this(shardService, config, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new {@code LeaseService} with the given clock.
+     *
+     * @param shardService the service routing commands to the group of their shard
+     * @param config       the coordination configuration
+     * @param nanoClock    the monotonic clock the lease deadlines are measured with
+     */
+    public LeaseService(ShardService shardService, CoordinationConfig config, LongSupplier nanoClock) {
+        this.shardService = shardService;
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.wheel = new HashedWheelTimer<>(TimeUnit.MILLISECONDS.toNanos(config.getTick()), config.getWheelSize(),
+                nanoClock.getAsLong());
+        this.events = Flux.merge(shardService.getStateMachines().stream().map(KeyValueStateMachine::leaseEvents).toList());
+    }
+
+    /**
+     * Starts tracking the deadlines of the leases and the timer expiring them.
+     */
+    @PostConstruct
+    public void start() {
+        subscription = events.subscribe(this::track);
+        ticker = Flux.interval(Duration.ofMillis(config.getTick()))
+                .onBackpressureDrop()
+                .concatMap(tick -> expireDue(), 1)
+                .subscribe();
+    }
+
+    /**
+     * Acquires a lease, or renews it if the holder already owns it.
+     *
+     * @param name   the name of the lease
+     * @param holder the client acquiring the lease
+     * @param ttl    the time to live of the lease in milliseconds
+     * @return a {@link Mono} emitting the granted {@link Lease} once committed
+     * @throws LeaseConflictException if another client holds the lease
+     * @throws NotLeaderException     if the leader of the lease's shard is unknown or unreachable
+     */
+    public Mono<Lease> acquire(String name, String holder, long ttl) {
+        if (holder == null || holder.isBlank() || ttl <= 0) {
+            return Mono.error(new IllegalArgumentException("A lease needs a holder and a positive TTL."));
+        }
+        return submit(name, Command.leaseAcquire(name, holder, ttl));
+    }
+
+    /**
+     * Renews a lease, which then lives for its TTL from the commit of the renewal.
+     *
+     * @param name   the name of the lease
+     * @param holder the client holding the lease
+     * @param token  the fencing token the lease was granted with
+     * @return a {@link Mono} emitting the renewed {@link Lease} once committed
+     * @throws LeaseNotFoundException if the lease does not exist
+     * @throws LeaseConflictException if the lease is held by another client or under another token
+     */
+    public Mono<Lease> renew(String name, String holder, long token) {
+        return submit(name, Command.leaseRenew(name, holder, token));
+    }
+
+    /**
+     * Releases a lease.
+     *
+     * @param name   the name of the lease
+     * @param holder the client holding the lease
+     * @param token  the fencing token the lease was granted with
+     * @return a {@link Mono} emitting the released {@link Lease} once committed
+     * @throws LeaseNotFoundException if the lease does not exist
+     * @throws LeaseConflictException if the lease is held by another client or under another token
+     */
+    public Mono<Lease> release(String name, String holder, long token) {
+        return submit(name, Command.leaseRelease(name, holder, token));
+    }
+
+    /**
+     * Reads a lease, with the same consistency as key-value reads.
+     *
+     * @param name the name of the lease
+     * @return a {@link Mono} emitting the {@link Lease}
+     * @throws LeaseNotFoundException if the lease does not exist
+     */
+    public Mono<Lease> get(String name) {
+        return shardService.read(Command.leaseGet(name))
+                .map(lease -> objectMapper.convertValue(lease, Lease.class))
+                .switchIfEmpty(Mono.error(() -> new LeaseNotFoundException(name)));
+    }
+
+    /**
+     * Streams the acquisitions, releases and expiries of the leases whose name starts with a prefix, as applied by
+     * this node. Renewals are left out.
+     *
+     * @param prefix the prefix of the lease names, empty for every lease
+     * @return a {@link Flux} of {@link LeaseEvent}, failing if the watcher falls too far behind
+     */
+    public Flux<LeaseEvent> watch(String prefix) {
+        String namePrefix = prefix == null ? "" : prefix;
+        return events.filter(event -> event.getType() != LeaseEvent.Type.RENEWED
+                        && event.getLease().getName().startsWith(namePrefix))
+                .onBackpressureBuffer(config.getWatchBuffer());
+    }
+
+    /**
+     * Returns the number of lease deadlines tracked by this node.
+     *
+     * @return the number of pending deadlines
+     */
+    public synchronized int getTrackedLeases() {
+        return wheel.size();
+    }
+
+    /**
+     * Proposes the expiry of every lease whose deadline has passed, for the groups led by this node. The deadlines
+     * of the other leases are checked again after {@code raft.coordination.expiry-retry} milliseconds, in case
+     * this node becomes their leader.
+     *
+     * @return a {@link Mono} completing once the expiries are committed or have failed
+     */
+    public Mono<Void> expireDue() {
+        List<Lease> due;
+        synchronized (this) {
+            due = wheel.advance(nanoClock.getAsLong());
+            due.forEach(lease -> timers.remove(lease.getName()));
+        }
+        return Flux.fromIterable(due)
+                .flatMap(this::expire)
+                .then();
+    }
+
+    private Mono<Void> expire(Lease lease) {
+        int groupId = shardService.shardOf(lease.getName());
+        RaftService group = shardService.group(groupId);
+        if (!group.getState().isLeader()) {
+            retryLater(groupId, lease);
+            return Mono.empty();
+        }
+        return group.propose(Command.leaseExpire(lease.getName(), lease.getRevision()))
+                .doOnNext(result -> {
+                    if (result instanceof LeaseResult expired && expired.isSuccess()) {
+                        log.info("Lease {} of {} expired", lease.getName(), lease.getHolder());
+                    }
+                })
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Could not expire lease {}: {}", lease.getName(), e.getMessage());
+                    retryLater(groupId, lease);
+                    return Mono.empty();
+                });
+    }
+
+    private synchronized void track(LeaseEvent event) {
+        Lease lease = event.getLease();
+        HashedWheelTimer.Timeout<Lease> previous = timers.remove(lease.getName());
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (event.getType() == LeaseEvent.Type.ACQUIRED || event.getType() == LeaseEvent.Type.RENEWED) {
+            long deadline = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(lease.getTtl());
+            timers.put(lease.getName(), wheel.schedule(lease, deadline));
+        }
+    }
+
+    private void retryLater(int groupId, Lease lease) {
+        // Queried before taking the lock: the state machine calls track() while holding its own
+        Object current = shardService.getStateMachines().get(groupId).query(Command.leaseGet(lease.getName()));
+        if (!(current instanceof Lease applied) || applied.getRevision() != lease.getRevision()) {
+            return;
+        }
+        synchronized (this) {
+            // A renewal applied meanwhile has already replaced the deadline
+            if (!timers.containsKey(lease.getName())) {
+                long deadline = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(config.getExpiryRetry());
+                timers.put(lease.getName(), wheel.schedule(lease, deadline));
+            }
+        }
+    }
+
+    private Mono<Lease> submit(String name, Command command) {
+        return shardService.propose(command)
+                .map(result -> objectMapper.convertValue(result, LeaseResult.class))
+                .flatMap(result -> {
+                    if (result.isSuccess()) {
+                        return Mono.just(result.getLease());
+                    }
+                    if (result.getLease() == null) {
+                        return Mono.error(new LeaseNotFoundException(name));
+                    }
+                    return Mono.error(new LeaseConflictException(name, result.getLease()));
+                });
+    }
+
+    /**
+     * Stops tracking the leases.
+     */
+    @PreDestroy
+    public void close() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.baeldung.raft.coordination;
+
+import com.baeldung.raft.config.CoordinationConfig;
+import com.baeldung.raft.exception.RevisionCompactedException;
+import com.baeldung.raft.service.ShardService;
+import com.baeldung.raft.statemachine.KeyEvent;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Service streaming the changes of the keys as this node applies them.
+ * <p>
+ * The revision of a change is the index of the entry that made it in the log of the key's shard, so revisions are
+ * only ordered within a shard. With a single shard, a watcher resumes from the revision following the last one it
+ * received. With several shards, a watcher resumes one group at a time, since every group has its own revisions.
+ * </p>
+ */
+@Service
+public class WatchService {
+    private final ShardService shardService;
+    private final CoordinationConfig config;
+
+    /**
+     * Constructs a new {@code WatchService}.
+     *
+     * @param shardService the service hosting the state machines of the groups
+     * @param config       the coordination configuration
+     */
+    public WatchService(ShardService shardService, CoordinationConfig config) {
+        this.shardService = shardService;
+        this.config = config;
+    }
+
+    /**
+     * Streams the changes of the keys starting with a prefix, as applied by this node.
+     *
+     * @param prefix       the prefix of the keys, empty for every key
+     * @param fromRevision the first revision to stream, {@code null} for the changes applied from now on
+     * @param group        the group to watch, {@code null} for every group
+     * @return a {@link Flux} of {@link KeyEvent}, failing if the watcher falls too far behind
+     * @throws RevisionCompactedException if the revision is no longer retained by the group
+     * @throws IllegalArgumentException   if the revision is given without a group while there are several
+     */
+    public Flux<KeyEvent> watch(String prefix, Long fromRevision, Integer group) {
+        return Flux.defer(() -> {
+            List<KeyValueStateMachine> stateMachines = shardService.getStateMachines();
+            if (group != null) {
+                // Validates the group ID
+                shardService.group(group);
+                return watch(stateMachines.get(group), prefix, fromRevision);
+            }
+            if (stateMachines.size() == 1) {
+                return watch(stateMachines.get(0), prefix, fromRevision);
+            }
+            if (fromRevision != null) {
+                return Flux.error(new IllegalArgumentException(
+                        "Revisions are counted per shard: pass the group to watch from a revision."));
+            }
+            return Flux.merge(stateMachines.stream()
+                    .map(stateMachine -> watch(stateMachine, prefix, null))
+                    .toList());
+        });
+    }
+
+    private Flux<KeyEvent> watch(KeyValueStateMachine stateMachine, String prefix, Long fromRevision) {
+        if (fromRevision != null && fromRevision <= 0) {
+            return Flux.error(new IllegalArgumentException("Revisions start at 1."));
+        }
+        return stateMachine.watch(prefix, fromRevision == null ? 0 : fromRevision, config.getWatchBuffer());
+    }
+}
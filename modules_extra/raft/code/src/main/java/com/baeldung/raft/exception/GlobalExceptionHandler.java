@@ -49,4 +49,109 @@ public class GlobalExceptionHandler {
     public Mono<ResponseEntity<String>> handleIllegalArgumentException(IllegalArgumentException ex) {
         return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage()));
     }
+
+    /**
+     * Handles {@link KeyNotFoundException} thrown by any controller method.
+     *
+     * @param ex the {@code KeyNotFoundException} that was thrown
+     * @return a {@code Mono} emitting a {@code ResponseEntity} with a 404 NOT FOUND status and the exception message
+     */
+    @ExceptionHandler(KeyNotFoundException.class)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "404", description = "Key not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<String>> handleKeyNotFoundException(KeyNotFoundException ex) {
+        return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage()));
+    }
+
+    /**
+     * Handles {@link NotLeaderException} thrown by any controller method.
+     *
+     * @param ex the {@code NotLeaderException} that was thrown
+     * @return a {@code Mono} emitting a {@code ResponseEntity} with a 503 SERVICE UNAVAILABLE status and the exception message
+     */
+    @ExceptionHandler(NotLeaderException.class)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "503", description = "Node is not the leader"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<String>> handleNotLeaderException(NotLeaderException ex) {
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage()));
+    }
+
+    /**
+     * Handles {@link LeadershipTransferException} thrown by any controller method.
+     *
+     * @param ex the {@code LeadershipTransferException} that was thrown
+     * @return a {@code Mono} emitting a {@code ResponseEntity} with a 409 CONFLICT status and the exception message
+     */
+    @ExceptionHandler(LeadershipTransferException.class)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "409", description = "Leadership transfer failed"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<String>> handleLeadershipTransferException(LeadershipTransferException ex) {
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage()));
+    }
+
+    /**
+     * Handles {@link MembershipChangeException} thrown by any controller method.
+     *
+     * @param ex the {@code MembershipChangeException} that was thrown
+     * @return a {@code Mono} emitting a {@code ResponseEntity} with a 409 CONFLICT status and the exception message
+     */
+    @ExceptionHandler(MembershipChangeException.class)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "409", description = "Membership change failed"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<String>> handleMembershipChangeException(MembershipChangeException ex) {
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage()));
+    }
+
+    /**
+     * Handles {@link LeaseNotFoundException} thrown by any controller method.
+     *
+     * @param ex the {@code LeaseNotFoundException} that was thrown
+     * @return a {@code Mono} emitting a {@code ResponseEntity} with a 404 NOT FOUND status and the exception message
+     */
+    @ExceptionHandler(LeaseNotFoundException.class)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "404", description = "Lease not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<String>> handleLeaseNotFoundException(LeaseNotFoundException ex) {
+        return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage()));
+    }
+
+    /**
+     * Handles {@link LeaseConflictException} thrown by any controller method.
+     *
+     * @param ex the {@code LeaseConflictException} that was thrown
+     * @return a {@code Mono} emitting a {@code ResponseEntity} with a 409 CONFLICT status and the exception message
+     */
+    @ExceptionHandler(LeaseConflictException.class)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "409", description = "Lease held by another client or under another token"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<String>> handleLeaseConflictException(LeaseConflictException ex) {
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage()));
+    }
+
+    /**
+     * Handles {@link RevisionCompactedException} thrown by any controller method.
+     *
+     * @param ex the {@code RevisionCompactedException} that was thrown
+     * @return a {@code Mono} emitting a {@code ResponseEntity} with a 410 GONE status and the exception message
+     */
+    @ExceptionHandler(RevisionCompactedException.class)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "410", description = "Revision no longer retained by the node"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<String>> handleRevisionCompactedException(RevisionCompactedException ex) {
+        return Mono.just(ResponseEntity.status(HttpStatus.GONE).body(ex.getMessage()));
+    }
 }
@@ -0,0 +1,16 @@
+package com.baeldung.raft.exception;
+
+/**
+ * Exception thrown when a key is not present in the replicated key-value store.
+ */
+public class KeyNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code KeyNotFoundException} for the given key.
+     *
+     * @param key the key that was not found
+     */
+    public KeyNotFoundException(String key) {
+        super("Key not found: " + key);
+    }
+}
@@ -0,0 +1,19 @@
+package com.baeldung.raft.exception;
+
+/**
+ * Exception thrown when a leadership transfer cannot be started or does not complete in time.
+ * <p>
+ * The node remains the leader and accepts proposals again.
+ * </p>
+ */
+public class LeadershipTransferException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code LeadershipTransferException} with the specified detail message.
+     *
+     * @param message the detail message explaining why the transfer failed
+     */
+    public LeadershipTransferException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.baeldung.raft.exception;
+
+import com.baeldung.raft.statemachine.Lease;
+import lombok.Getter;
+
+/**
+ * Exception thrown when a lease command is rejected because the lease is held by another client, or under
+ * another fencing token.
+ */
+@Getter
+public class LeaseConflictException extends RuntimeException {
+    private final Lease lease;
+
+    /**
+     * Constructs a new {@code LeaseConflictException} for the lease that prevented the command.
+     *
+     * @param name  the name of the lease
+     * @param lease the current lease
+     */
+    public LeaseConflictException(String name, Lease lease) {
+        super("Lease " + name + " is held by " + lease.getHolder() + " with token " + lease.getToken());
+        this.lease = lease;
+    }
+}
@@ -0,0 +1,16 @@
+package com.baeldung.raft.exception;
+
+/**
+ * Exception thrown when a lease does not exist, because it was never acquired, was released or has expired.
+ */
+public class LeaseNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code LeaseNotFoundException} for the given lease.
+     *
+     * @param name the name of the lease that was not found
+     */
+    public LeaseNotFoundException(String name) {
+        super("Lease not found: " + name);
+    }
+}
@@ -0,0 +1,19 @@
+package com.baeldung.raft.exception;
+
+/**
+ * Exception thrown when a change of the members of a Raft group cannot be started or does not complete.
+ * <p>
+ * The group keeps its latest committed configuration; a member being added may be left as a learner.
+ * </p>
+ */
+public class MembershipChangeException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code MembershipChangeException} with the specified detail message.
+     *
+     * @param message the detail message explaining why the change failed
+     */
+    public MembershipChangeException(String message) {
+        super(message);
+    }
+}
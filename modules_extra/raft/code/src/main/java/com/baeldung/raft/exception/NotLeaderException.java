@@ -0,0 +1,25 @@
+package com.baeldung.raft.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when an operation that requires the leader is sent to another node.
+ * <p>
+ * When known, the URL of the current leader is carried along so the client can retry there.
+ * </p>
+ */
+@Getter
+public class NotLeaderException extends RuntimeException {
+    private final String leaderUrl;
+
+    /**
+     * Constructs a new {@code NotLeaderException} with the specified detail message.
+     *
+     * @param message   the detail message explaining the reason for the exception
+     * @param leaderUrl the URL of the current leader, or {@code null} if unknown
+     */
+    public NotLeaderException(String message, String leaderUrl) {
+        super(leaderUrl == null ? message : message + " Current leader: " + leaderUrl);
+        this.leaderUrl = leaderUrl;
+    }
+}
@@ -0,0 +1,28 @@
+package com.baeldung.raft.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when a watcher asks for revisions that are no longer retained by the node: they have been pushed
+ * out of the watch history, or replaced by a snapshot. The watcher has to read the keys again and watch from the
+ * first retained revision.
+ */
+@Getter
+public class RevisionCompactedException extends RuntimeException {
+    /**
+     * The oldest revision the node can still stream.
+     */
+    private final long firstRetainedRevision;
+
+    /**
+     * Constructs a new {@code RevisionCompactedException}.
+     *
+     * @param revision              the revision asked for
+     * @param firstRetainedRevision the oldest revision the node can still stream
+     */
+    public RevisionCompactedException(long revision, long firstRetainedRevision) {
+        super("Revision " + revision + " has been compacted: reload the keys and watch from revision "
+                + firstRetainedRevision + " or later");
+        this.firstRetainedRevision = firstRetainedRevision;
+    }
+}
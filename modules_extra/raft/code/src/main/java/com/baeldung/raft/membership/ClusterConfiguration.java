@@ -0,0 +1,108 @@
+package com.baeldung.raft.membership;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Members of a Raft group: the voters, which elect the leader and form the commit quorum, and the learners, which
+ * only receive the replicated log.
+ */
+@Value
+public class ClusterConfiguration {
+    /**
+     * Index of the log entry that introduced the configuration, {@code 0} for the one the node was started with.
+     */
+    long index;
+
+    /**
+     * URLs of the voting members.
+     */
+    List<String> voters;
+
+    /**
+     * URLs of the non-voting members.
+     */
+    List<String> learners;
+
+    public ClusterConfiguration(long index, List<String> voters, List<String> learners) {
+        this.index = index;
+        this.voters = List.copyOf(voters);
+        this.learners = learners.stream().filter(url -> !voters.contains(url)).toList();
+    }
+
+    public boolean isVoter(String nodeUrl) {
+        return voters.contains(nodeUrl);
+    }
+
+    public boolean isLearner(String nodeUrl) {
+        return learners.contains(nodeUrl);
+    }
+
+    public boolean isMember(String nodeUrl) {
+        return isVoter(nodeUrl) || isLearner(nodeUrl);
+    }
+
+    /**
+     * Returns this configuration with a new learner.
+     *
+     * @param nodeUrl the URL of the node to add
+     * @return the new configuration, not yet assigned to a log entry
+     */
+    public ClusterConfiguration withLearner(String nodeUrl) {
+        List<String> newLearners = new ArrayList<>(learners);
+        newLearners.add(nodeUrl);
+        return new ClusterConfiguration(index, voters, newLearners);
+    }
+
+    /**
+     * Returns this configuration with a learner promoted to voter.
+     *
+     * @param nodeUrl the URL of the learner
+     * @return the new configuration, not yet assigned to a log entry
+     */
+    public ClusterConfiguration withVoter(String nodeUrl) {
+        List<String> newVoters = new ArrayList<>(voters);
+        newVoters.add(nodeUrl);
+        return new ClusterConfiguration(index, newVoters, learners);
+    }
+
+    /**
+     * Returns this configuration without a member.
+     *
+     * @param nodeUrl the URL of the voter or learner to remove
+     * @return the new configuration, not yet assigned to a log entry
+     */
+    public ClusterConfiguration without(String nodeUrl) {
+        return new ClusterConfiguration(index,
+                voters.stream().filter(url -> !url.equals(nodeUrl)).toList(),
+                learners.stream().filter(url -> !url.equals(nodeUrl)).toList());
+    }
+
+    /**
+     * Encodes the members as the value of a {@code CONFIGURATION} command: {@code voter,voter;learner,learner}.
+     *
+     * @return the encoded members
+     */
+    public String encode() {
+        return String.join(",", voters) + ";" + String.join(",", learners);
+    }
+
+    /**
+     * Decodes the members carried by a {@code CONFIGURATION} command.
+     *
+     * @param index the index of the entry carrying the command
+     * @param value the value of the command, as written by {@link #encode()}
+     * @return the decoded configuration
+     */
+    public static ClusterConfiguration decode(long index, String value) {
+        String[] parts = value.split(";", -1);
+        return new ClusterConfiguration(index, split(parts[0]), parts.length > 1 ? split(parts[1]) : List.of());
+    }
+
+    private static List<String> split(String urls) {
+        return urls.isEmpty() ? List.of() : Arrays.asList(urls.split(","));
+    }
+}
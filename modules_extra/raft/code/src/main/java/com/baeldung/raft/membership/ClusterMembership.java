@@ -0,0 +1,149 @@
+package com.baeldung.raft.membership;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.persistence.log.LogEntry;
+import com.baeldung.raft.persistence.log.RaftLog;
+import com.baeldung.raft.statemachine.CommandType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the configuration of a Raft group as it is changed through the log.
+ * <p>
+ * A configuration is carried by a {@code CONFIGURATION} entry and takes effect as soon as the entry is in the log,
+ * committed or not (Raft thesis §4.1): the latest such entry wins. Since an uncommitted entry may be truncated by a
+ * new leader, every configuration still in the log is kept, and the configuration falls back to the previous one
+ * when its entry is removed. The configuration included in the latest snapshot replaces the one the node was started
+ * with, taken from {@code node.cluster-nodes} and {@code node.learner-nodes}.
+ * </p>
+ */
+@Component
+public class ClusterMembership {
+    private static final int RECOVERY_BATCH = 1024;
+
+    private final TreeMap<Long, ClusterConfiguration> logged = new TreeMap<>();
+    private final List<Consumer<ClusterConfiguration>> listeners = new CopyOnWriteArrayList<>();
+    private ClusterConfiguration base;
+    private volatile ClusterConfiguration current;
+
+    /**
+     * Constructs a new {@code ClusterMembership} starting from the configured members.
+     *
+     * @param nodeConfig the configuration properties for the node
+     */
+    public ClusterMembership(NodeConfig nodeConfig) {
+        // A missing node.cluster-nodes is reported by the RaftService
+        this.base = new ClusterConfiguration(0,
+                nodeConfig.getClusterNodes() == null ? List.of() : nodeConfig.getClusterNodes(),
+                nodeConfig.getLearnerNodes());
+        this.current = base;
+    }
+
+    /**
+     * Returns the configuration in effect: the one of the latest {@code CONFIGURATION} entry of the log.
+     *
+     * @return the current {@link ClusterConfiguration}
+     */
+    public ClusterConfiguration current() {
+        return current;
+    }
+
+    /**
+     * Returns the configuration in effect once the log is applied up to an index, to be stored with a snapshot
+     * taken at that index.
+     *
+     * @param index the log index
+     * @return the latest {@link ClusterConfiguration} introduced at or before the index
+     */
+    public synchronized ClusterConfiguration at(long index) {
+        Map.Entry<Long, ClusterConfiguration> entry = logged.floorEntry(index);
+        return entry == null ? base : entry.getValue();
+    }
+
+    /**
+     * Registers a listener called, under the lock of this tracker, whenever the configuration in effect changes.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Consumer<ClusterConfiguration> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Records the configurations carried by entries appended to the log.
+     *
+     * @param entries the appended entries
+     */
+    public synchronized void append(List<LogEntry> entries) {
+        boolean changed = false;
+        for (LogEntry entry : entries) {
+            if (entry.getCommand() != null && entry.getCommand().getType() == CommandType.CONFIGURATION) {
+                logged.put(entry.getIndex(), ClusterConfiguration.decode(entry.getIndex(), entry.getCommand().getValue()));
+                changed = true;
+            }
+        }
+        if (changed) {
+            update();
+        }
+    }
+
+    /**
+     * Forgets the configurations carried by entries removed from the log.
+     *
+     * @param fromIndex the index of the first removed entry
+     */
+    public synchronized void truncateFrom(long fromIndex) {
+        Map<Long, ClusterConfiguration> removed = logged.tailMap(fromIndex, true);
+        if (!removed.isEmpty()) {
+            removed.clear();
+            update();
+        }
+    }
+
+    /**
+     * Adopts the configuration stored with an installed snapshot.
+     *
+     * @param configuration the configuration in effect at the snapshot's last included entry
+     * @param logDiscarded  whether the log after the snapshot was discarded along with its configurations
+     */
+    public synchronized void restore(ClusterConfiguration configuration, boolean logDiscarded) {
+        base = configuration;
+        if (logDiscarded) {
+            logged.clear();
+        } else {
+            logged.headMap(configuration.getIndex(), true).clear();
+        }
+        update();
+    }
+
+    /**
+     * Reads the configurations carried by the entries of the log after the base configuration, on startup.
+     *
+     * @param raftLog the replicated log
+     */
+    public synchronized void recover(RaftLog raftLog) {
+        long nextIndex = Math.max(raftLog.getFirstIndex(), base.getIndex() + 1);
+        while (nextIndex <= raftLog.getLastIndex()) {
+            List<LogEntry> entries = raftLog.getEntries(nextIndex, RECOVERY_BATCH);
+            if (entries.isEmpty()) {
+                break;
+            }
+            append(entries);
+            nextIndex += entries.size();
+        }
+    }
+
+    private void update() {
+        ClusterConfiguration latest = logged.isEmpty() ? base : logged.lastEntry().getValue();
+        if (latest.equals(current)) {
+            return;
+        }
+        current = latest;
+        listeners.forEach(listener -> listener.accept(latest));
+    }
+}
@@ -0,0 +1,144 @@
+package com.baeldung.raft.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer meters of a Raft group, tagged with the group ID.
+ * <p>
+ * Latencies are timers published as percentile histograms, so that their quantiles can be aggregated across nodes
+ * by Prometheus and compared with the configured election timeout and heartbeat interval. Durations are given in
+ * nanoseconds of the clock of the calling service, so that simulated runs record virtual time.
+ * </p>
+ */
+public class RaftMetrics {
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final Map<String, Timer> elections = new ConcurrentHashMap<>();
+    private final Map<String, Counter> votes = new ConcurrentHashMap<>();
+    private final Map<String, Timer> heartbeatRoundTrips = new ConcurrentHashMap<>();
+    private final Counter termChanges;
+    private final Timer leaderTenure;
+    private final Timer append;
+    private final Timer flush;
+    private final Timer commit;
+
+    /**
+     * Constructs the meters of a Raft group.
+     *
+     * @param registry the registry the meters are published to
+     * @param groupId  the ID of the Raft group
+     */
+    public RaftMetrics(MeterRegistry registry, int groupId) {
+        this.registry = registry;
+        this.tags = Tags.of("group", String.valueOf(groupId));
+        this.termChanges = Counter.builder("raft.term.changes")
+                .description("Number of times the node moved to a higher term")
+                .tags(tags)
+                .register(registry);
+        this.leaderTenure = Timer.builder("raft.leader.tenure")
+                .description("Time the node stayed leader, recorded when it steps down")
+                .tags(tags)
+                .register(registry);
+        this.append = histogram("raft.log.append", "Time taken by the leader to append a batch of commands to its log");
+        this.flush = histogram("raft.log.flush", "Time taken to make appended entries durable");
+        this.commit = histogram("raft.commit.latency", "Time from the proposal of a command to its application");
+    }
+
+    private Timer histogram(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Records an election run by this node.
+     *
+     * @param outcome  {@code won}, {@code lost}, or {@code prevote-rejected} when the term was not incremented
+     * @param duration the duration of the election in nanoseconds, PreVote round included
+     */
+    public void recordElection(String outcome, long duration) {
+        elections.computeIfAbsent(outcome, key -> Timer.builder("raft.election.duration")
+                        .description("Duration of the elections run by the node")
+                        .tags(tags.and("outcome", key))
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a vote or PreVote cast by this node.
+     *
+     * @param preVote whether the request was a PreVote
+     * @param granted whether the vote was granted
+     */
+    public void recordVote(boolean preVote, boolean granted) {
+        String type = preVote ? "prevote" : "vote";
+        String result = granted ? "granted" : "denied";
+        votes.computeIfAbsent(type + "/" + result, key -> Counter.builder("raft.votes")
+                        .description("Votes cast by the node")
+                        .tags(tags.and("type", type, "result", result))
+                        .register(registry))
+                .increment();
+    }
+
+    public void recordTermChange() {
+        termChanges.increment();
+    }
+
+    public void recordLeaderTenure(long duration) {
+        leaderTenure.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAppend(long duration) {
+        append.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFlush(long duration) {
+        flush.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCommit(long duration) {
+        commit.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the round trip of a heartbeat answered by a follower.
+     *
+     * @param peerUrl  the URL of the follower
+     * @param duration the round-trip time in nanoseconds
+     */
+    public void recordHeartbeatRoundTrip(String peerUrl, long duration) {
+        heartbeatRoundTrips.computeIfAbsent(peerUrl, key -> Timer.builder("raft.heartbeat.rtt")
+                        .description("Round-trip time of the heartbeats sent by the leader")
+                        .tags(tags.and("peer", key))
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registers the gauge of the number of entries a follower is missing, as seen by the leader.
+     *
+     * @param peerUrl the URL of the follower
+     * @param source  the object the lag is read from, which the gauge does not keep from being collected
+     * @param lag     the function reading the lag, {@code 0} when the node is not the leader
+     * @param <T>     the type of the source
+     */
+    public <T> void gaugeFollowerLag(String peerUrl, T source, ToDoubleFunction<T> lag) {
+        Gauge.builder("raft.follower.lag", source, lag)
+                .description("Number of log entries a follower is missing, as seen by the leader")
+                .tags(tags.and("peer", peerUrl))
+                .register(registry);
+    }
+}
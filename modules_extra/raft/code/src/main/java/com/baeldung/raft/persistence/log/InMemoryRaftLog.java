@@ -0,0 +1,127 @@
+package com.baeldung.raft.persistence.log;
+
+import com.baeldung.raft.statemachine.Command;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link RaftLog} implementation keeping every entry on the heap. Nothing survives a restart,
+ * so it is only meant for tests.
+ */
+public class InMemoryRaftLog implements RaftLog {
+    private final List<LogEntry> entries = new ArrayList<>();
+    // Index and term of the entry right before the first one in the list
+    private long baseIndex = 0;
+    private int baseTerm = 0;
+
+    @Override
+    public synchronized long getFirstIndex() {
+        return baseIndex + 1;
+    }
+
+    @Override
+    public synchronized long getLastIndex() {
+        return baseIndex + entries.size();
+    }
+
+    @Override
+    public synchronized int getLastTerm() {
+        return entries.isEmpty() ? baseTerm : entries.get(entries.size() - 1).getTerm();
+    }
+
+    @Override
+    public synchronized int getTerm(long index) {
+        if (index == 0) {
+            return 0;
+        }
+        if (index == baseIndex) {
+            return baseTerm;
+        }
+        LogEntry entry = getEntry(index);
+        return entry == null ? -1 : entry.getTerm();
+    }
+
+    @Override
+    public synchronized LogEntry getEntry(long index) {
+        if (index <= baseIndex || index > getLastIndex()) {
+            return null;
+        }
+        return entries.get((int) (index - baseIndex - 1));
+    }
+
+    @Override
+    public synchronized List<LogEntry> getEntries(long fromIndex, int maxEntries) {
+        if (fromIndex <= baseIndex || fromIndex > getLastIndex()) {
+            return List.of();
+        }
+        int from = (int) (fromIndex - baseIndex - 1);
+        int to = Math.min(entries.size(), from + maxEntries);
+        return new ArrayList<>(entries.subList(from, to));
+    }
+
+    @Override
+    public synchronized LogEntry append(int term, Command command) {
+        LogEntry entry = new LogEntry(getLastIndex() + 1, term, command);
+        entries.add(entry);
+        return entry;
+    }
+
+    @Override
+    public synchronized List<LogEntry> append(int term, List<Command> commands) {
+        List<LogEntry> appended = new ArrayList<>(commands.size());
+        for (Command command : commands) {
+            LogEntry entry = new LogEntry(getLastIndex() + 1, term, command);
+            entries.add(entry);
+            appended.add(entry);
+        }
+        return appended;
+    }
+
+    @Override
+    public synchronized void appendEntries(List<LogEntry> newEntries) {
+        for (LogEntry entry : newEntries) {
+            if (entry.getIndex() != getLastIndex() + 1) {
+                throw new IllegalStateException("Non-contiguous append: expected index " + (getLastIndex() + 1)
+                        + " but got " + entry.getIndex());
+            }
+            entries.add(entry);
+        }
+    }
+
+    @Override
+    public synchronized void truncateFrom(long fromIndex) {
+        if (fromIndex <= baseIndex || fromIndex > getLastIndex()) {
+            return;
+        }
+        entries.subList((int) (fromIndex - baseIndex - 1), entries.size()).clear();
+    }
+
+    @Override
+    public synchronized void compact(long index) {
+        if (index <= baseIndex || index > getLastIndex()) {
+            return;
+        }
+        int term = getTerm(index);
+        entries.subList(0, (int) (index - baseIndex)).clear();
+        baseIndex = index;
+        baseTerm = term;
+    }
+
+    @Override
+    public synchronized void reset(long index, int term) {
+        entries.clear();
+        baseIndex = index;
+        baseTerm = term;
+    }
+
+    @Override
+    public synchronized long getDurableIndex() {
+        return getLastIndex();
+    }
+
+    @Override
+    public CompletableFuture<Void> flush(long index) {
+        return CompletableFuture.completedFuture(null);
+    }
+}
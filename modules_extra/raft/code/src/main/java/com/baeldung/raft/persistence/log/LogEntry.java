@@ -0,0 +1,24 @@
+package com.baeldung.raft.persistence.log;
+
+import com.baeldung.raft.statemachine.Command;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single entry of the replicated Raft log.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogEntry {
+    @Schema(description = "Position of the entry in the log (1-based)", example = "42")
+    private long index;
+
+    @Schema(description = "Term in which the entry was created by the leader", example = "3")
+    private int term;
+
+    @Schema(description = "Command to apply to the state machine once the entry is committed")
+    private Command command;
+}
@@ -0,0 +1,87 @@
+package com.baeldung.raft.persistence.log;
+
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.CommandType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of the {@link Command} carried by a log entry.
+ * <p>
+ * Layout: {@code [byte type][string key][string value]}, where each string is an {@code int} length
+ * ({@code -1} for {@code null}) followed by its UTF-8 bytes. Lease commands append {@code [long ttl][long version]},
+ * {@code -1} standing for {@code null}, so that the entries written before leases existed decode unchanged.
+ * </p>
+ */
+public final class LogEntryCodec {
+
+    private LogEntryCodec() {
+    }
+
+    /**
+     * Encodes a command.
+     *
+     * @param command the command to encode
+     * @return the encoded bytes
+     */
+    public static byte[] encode(Command command) {
+        byte[] key = toBytes(command.getKey());
+        byte[] value = toBytes(command.getValue());
+        boolean lease = command.getType().isLease();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + sizeOf(key) + sizeOf(value) + (lease ? 2 * Long.BYTES : 0));
+        buffer.put((byte) command.getType().ordinal());
+        putBytes(buffer, key);
+        putBytes(buffer, value);
+        if (lease) {
+            buffer.putLong(command.getTtl() == null ? -1 : command.getTtl());
+            buffer.putLong(command.getVersion() == null ? -1 : command.getVersion());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a command previously encoded with {@link #encode(Command)}.
+     *
+     * @param buffer the buffer positioned at the beginning of the encoded command
+     * @return the decoded command
+     */
+    public static Command decode(ByteBuffer buffer) {
+        CommandType type = CommandType.values()[buffer.get()];
+        String key = getString(buffer);
+        String value = getString(buffer);
+        if (!type.isLease()) {
+            return new Command(type, key, value);
+        }
+        long ttl = buffer.getLong();
+        long version = buffer.getLong();
+        return new Command(type, key, value, ttl < 0 ? null : ttl, version < 0 ? null : version);
+    }
+
+    private static byte[] toBytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,255 @@
+package com.baeldung.raft.persistence.log;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * A single append-only segment of the {@link SegmentedRaftLog}, memory-mapped in full.
+ * <p>
+ * A segment starts with a {@code [int magic][int previousTerm]} header, where {@code previousTerm} is the term of the
+ * entry preceding the segment, so that the log can still match it once earlier segments have been compacted away.
+ * Each record is then laid out as {@code [int length][int crc][long index][int term][payload]}, where {@code length}
+ * is the payload size and {@code crc} is a CRC32C of everything that follows it. A zero length marks the end of the
+ * segment. A sparse index keeps the position of one entry every {@code indexInterval} entries, so looking up an
+ * entry scans at most {@code indexInterval} record headers.
+ * </p>
+ * <p>
+ * This class is not thread-safe: the owning {@link SegmentedRaftLog} serializes every access.
+ * </p>
+ */
+@Slf4j
+final class LogSegment {
+    static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    static final int SEGMENT_HEADER_SIZE = 4 + 4;
+    private static final int MAGIC = 0x52414654;
+
+    @Getter
+    private final long baseIndex;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int indexInterval;
+    @Getter
+    private int previousTerm;
+
+    private int[] sparseIndex = new int[16];
+    private int sparseCount;
+    private int writePosition;
+    @Getter
+    private long lastIndex;
+    @Getter
+    private int lastTerm;
+    private boolean dirty;
+    @Getter
+    private boolean corrupted;
+
+    private LogSegment(Path path, long baseIndex, int size, int indexInterval) {
+        this.path = path;
+        this.baseIndex = baseIndex;
+        this.indexInterval = indexInterval;
+        this.lastIndex = baseIndex - 1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), size));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map log segment " + path, e);
+        }
+    }
+
+    /**
+     * Creates a new, empty segment.
+     *
+     * @param previousTerm the term of the entry at {@code baseIndex - 1}
+     */
+    static LogSegment create(Path path, long baseIndex, int previousTerm, int size, int indexInterval) {
+        LogSegment segment = new LogSegment(path, baseIndex, size, indexInterval);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, previousTerm);
+        segment.previousTerm = previousTerm;
+        segment.lastTerm = previousTerm;
+        segment.writePosition = SEGMENT_HEADER_SIZE;
+        // The header is synced right away: a segment without a valid header cannot be recovered
+        segment.buffer.force(0, SEGMENT_HEADER_SIZE);
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment and recovers its valid prefix. Records after the first invalid one
+     * (torn write, bad checksum or unexpected index) are discarded and {@link #isCorrupted()} is set.
+     */
+    static LogSegment open(Path path, long baseIndex, int size, int indexInterval) {
+        LogSegment segment = new LogSegment(path, baseIndex, size, indexInterval);
+        segment.recover();
+        return segment;
+    }
+
+    private void recover() {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Invalid header in log segment " + path);
+        }
+        previousTerm = buffer.getInt(4);
+        lastTerm = previousTerm;
+        int position = SEGMENT_HEADER_SIZE;
+        long expectedIndex = baseIndex;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0 && buffer.getInt(position + 4) == 0) {
+                break;
+            }
+            if (length < 0 || position + HEADER_SIZE + length > buffer.capacity()
+                    || buffer.getInt(position + 4) != checksum(position, length)
+                    || buffer.getLong(position + 8) != expectedIndex) {
+                log.warn("Invalid record at position {} of segment {}. Discarding the rest of the segment.", position, path);
+                corrupted = true;
+                zero(position, buffer.capacity());
+                dirty = true;
+                break;
+            }
+            indexRecord(expectedIndex, position);
+            lastTerm = buffer.getInt(position + 16);
+            lastIndex = expectedIndex++;
+            position += HEADER_SIZE + length;
+        }
+        writePosition = position;
+    }
+
+    boolean hasRoomFor(int payloadLength) {
+        return writePosition + HEADER_SIZE + payloadLength <= buffer.capacity();
+    }
+
+    boolean isEmpty() {
+        return lastIndex < baseIndex;
+    }
+
+    void append(long index, int term, byte[] payload) {
+        if (index != lastIndex + 1) {
+            throw new IllegalStateException("Non-contiguous append: expected index " + (lastIndex + 1) + " but got " + index);
+        }
+        int position = writePosition;
+        buffer.putLong(position + 8, index);
+        buffer.putInt(position + 16, term);
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.putInt(position + 4, checksum(position, payload.length));
+        buffer.putInt(position, payload.length);
+        indexRecord(index, position);
+        writePosition = position + HEADER_SIZE + payload.length;
+        lastIndex = index;
+        lastTerm = term;
+        dirty = true;
+    }
+
+    int termAt(long index) {
+        return buffer.getInt(positionOf(index) + 16);
+    }
+
+    LogEntry read(long index) {
+        return readAt(positionOf(index));
+    }
+
+    /**
+     * Reads consecutive entries starting at {@code fromIndex} until {@code out} holds {@code maxEntries}
+     * entries or the end of the segment is reached.
+     */
+    void readFrom(long fromIndex, int maxEntries, List<LogEntry> out) {
+        int position = positionOf(fromIndex);
+        for (long index = fromIndex; index <= lastIndex && out.size() < maxEntries; index++) {
+            out.add(readAt(position));
+            position += HEADER_SIZE + buffer.getInt(position);
+        }
+    }
+
+    /**
+     * Removes the entry at {@code fromIndex} and all following ones. The freed area is zeroed so that
+     * stale records can never be mistaken for valid ones during recovery.
+     */
+    void truncateFrom(long fromIndex) {
+        if (fromIndex > lastIndex) {
+            return;
+        }
+        int position = positionOf(fromIndex);
+        zero(position, writePosition);
+        writePosition = position;
+        lastIndex = fromIndex - 1;
+        sparseCount = (int) ((fromIndex - baseIndex + indexInterval - 1) / indexInterval);
+        lastTerm = isEmpty() ? previousTerm : termAt(lastIndex);
+        dirty = true;
+    }
+
+    /**
+     * Returns whether the segment was modified since the last call, clearing the flag.
+     */
+    boolean takeDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    /**
+     * Forces the content of the segment to disk. Safe to call while entries are being appended.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete log segment " + path, e);
+        }
+    }
+
+    private LogEntry readAt(int position) {
+        int length = buffer.getInt(position);
+        long index = buffer.getLong(position + 8);
+        int term = buffer.getInt(position + 16);
+        ByteBuffer payload = buffer.slice(position + HEADER_SIZE, length);
+        return new LogEntry(index, term, LogEntryCodec.decode(payload));
+    }
+
+    private int positionOf(long index) {
+        if (index < baseIndex || index > lastIndex) {
+            throw new IllegalArgumentException("Index " + index + " is not stored in segment " + path);
+        }
+        int slot = (int) ((index - baseIndex) / indexInterval);
+        int position = sparseIndex[slot];
+        for (long current = baseIndex + (long) slot * indexInterval; current < index; current++) {
+            position += HEADER_SIZE + buffer.getInt(position);
+        }
+        return position;
+    }
+
+    private void indexRecord(long index, int position) {
+        if ((index - baseIndex) % indexInterval != 0) {
+            return;
+        }
+        if (sparseCount == sparseIndex.length) {
+            sparseIndex = Arrays.copyOf(sparseIndex, sparseCount * 2);
+        }
+        sparseIndex[sparseCount++] = position;
+    }
+
+    private int checksum(int position, int payloadLength) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + 8, HEADER_SIZE - 8 + payloadLength));
+        return (int) crc.getValue();
+    }
+
+    private void zero(int from, int to) {
+        byte[] zeros = new byte[Math.min(64 * 1024, Math.max(0, to - from))];
+        for (int position = from; position < to; position += zeros.length) {
+            buffer.put(position, zeros, 0, Math.min(zeros.length, to - position));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.baeldung.raft.persistence.log;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.StorageConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable storage of the Raft metadata that must survive a restart: the current term and the vote cast in it.
+ * <p>
+ * The metadata is kept in a small binary file ({@code [int version][int term][int length + UTF-8 votedFor][int crc]})
+ * next to the log. Each update writes a temporary file, forces it to disk and atomically renames it over the
+ * previous one, so a crash leaves either the old or the new content, never a mix of the two.
+ * </p>
+ */
+@Slf4j
+@Component
+public class MetadataStore {
+    private static final int VERSION = 1;
+    private static final String FILE_NAME = "meta";
+
+    private final Path directory;
+    private final Path file;
+    private final Path tempFile;
+
+    private volatile int currentTerm;
+    private volatile String votedFor;
+
+    @Autowired
+    public MetadataStore(NodeConfig nodeConfig, StorageConfig storageConfig) {
+        this(Path.of(storageConfig.getDir(), nodeConfig.getId()));
+    }
+
+    public MetadataStore(Path directory) {
+        this.directory = directory;
+        this.file = directory.resolve(FILE_NAME);
+        this.tempFile = directory.resolve(FILE_NAME + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            if (Files.exists(file)) {
+                load(ByteBuffer.wrap(Files.readAllBytes(file)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the Raft metadata from " + file, e);
+        }
+        log.info("Loaded Raft metadata from {}: term {}, voted for {}", file, currentTerm, votedFor);
+    }
+
+    public int getCurrentTerm() {
+        return currentTerm;
+    }
+
+    public String getVotedFor() {
+        return votedFor;
+    }
+
+    /**
+     * Durably stores the current term and vote. Does nothing if they did not change.
+     *
+     * @param currentTerm the current term
+     * @param votedFor    the node voted for in {@code currentTerm}, or {@code null}
+     */
+    public synchronized void save(int currentTerm, String votedFor) {
+        if (currentTerm == this.currentTerm && Objects.equals(votedFor, this.votedFor)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = encode(currentTerm, votedFor);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the Raft metadata to " + tempFile, e);
+        }
+        try {
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to replace the Raft metadata file " + file, e);
+        }
+        syncDirectory();
+        this.currentTerm = currentTerm;
+        this.votedFor = votedFor;
+    }
+
+    private void load(ByteBuffer buffer) {
+        try {
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported Raft metadata version " + version + " in " + file);
+            }
+            int term = buffer.getInt();
+            int length = buffer.getInt();
+            String vote = null;
+            if (length > buffer.remaining()) {
+                throw new IllegalStateException("Corrupted Raft metadata file " + file);
+            }
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                vote = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int dataLength = buffer.position();
+            if (buffer.getInt() != checksum(buffer, dataLength)) {
+                throw new IllegalStateException("Corrupted Raft metadata file " + file);
+            }
+            this.currentTerm = term;
+            this.votedFor = vote;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Corrupted Raft metadata file " + file, e);
+        }
+    }
+
+    private static ByteBuffer encode(int currentTerm, String votedFor) {
+        byte[] vote = votedFor == null ? new byte[0] : votedFor.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Integer.BYTES + vote.length);
+        buffer.putInt(VERSION);
+        buffer.putInt(currentTerm);
+        buffer.putInt(votedFor == null ? -1 : vote.length);
+        buffer.put(vote);
+        buffer.putInt(checksum(buffer, buffer.position()));
+        return buffer.flip();
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Forces the directory entry of the renamed file to disk. Not supported on every platform, hence best effort.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Unable to sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+}
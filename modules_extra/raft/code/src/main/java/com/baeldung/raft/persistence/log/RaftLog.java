@@ -0,0 +1,131 @@
+package com.baeldung.raft.persistence.log;
+
+import com.baeldung.raft.statemachine.Command;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage abstraction for the replicated Raft log.
+ * <p>
+ * Indexes are 1-based: index {@code 0} is a virtual entry with term {@code 0} that precedes the first real entry,
+ * so that {@code prevLogIndex = 0} always matches.
+ * </p>
+ * <p>
+ * Once a snapshot covers a prefix of the log, that prefix can be discarded with {@link #compact(long)}. The term of
+ * the entry right before {@link #getFirstIndex()} is still known, so that AppendEntries can be matched against it.
+ * </p>
+ */
+public interface RaftLog {
+
+    /**
+     * Returns the index of the first entry still stored in the log.
+     *
+     * @return the first log index, or {@link #getLastIndex()} {@code + 1} if the log holds no entry
+     */
+    long getFirstIndex();
+
+    /**
+     * Returns the index of the last entry in the log, or {@code 0} if the log is empty.
+     *
+     * @return the last log index
+     */
+    long getLastIndex();
+
+    /**
+     * Returns the term of the last entry in the log, or {@code 0} if the log is empty.
+     *
+     * @return the last log term
+     */
+    int getLastTerm();
+
+    /**
+     * Returns the term of the entry at the given index.
+     *
+     * @param index the log index
+     * @return the term of the entry, {@code 0} for index {@code 0}, or {@code -1} if the entry does not exist
+     * or has been compacted (except for the entry right before {@link #getFirstIndex()})
+     */
+    int getTerm(long index);
+
+    /**
+     * Returns the entry at the given index.
+     *
+     * @param index the log index
+     * @return the {@link LogEntry}, or {@code null} if the entry does not exist
+     */
+    LogEntry getEntry(long index);
+
+    /**
+     * Returns up to {@code maxEntries} consecutive entries starting at {@code fromIndex}.
+     *
+     * @param fromIndex  the index of the first entry to return
+     * @param maxEntries the maximum number of entries to return
+     * @return the entries, possibly empty; always empty if {@code fromIndex} has been compacted
+     */
+    List<LogEntry> getEntries(long fromIndex, int maxEntries);
+
+    /**
+     * Appends a new entry created by the leader at the end of the log.
+     *
+     * @param term    the leader's current term
+     * @param command the command carried by the entry
+     * @return the appended {@link LogEntry}, with its assigned index
+     */
+    LogEntry append(int term, Command command);
+
+    /**
+     * Appends new entries created by the leader at the end of the log, one per command, in a single operation.
+     *
+     * @param term     the leader's current term
+     * @param commands the commands carried by the entries, in log order
+     * @return the appended {@link LogEntry LogEntries}, with their assigned indexes
+     */
+    List<LogEntry> append(int term, List<Command> commands);
+
+    /**
+     * Appends entries received from the leader. The first entry must directly follow the last entry of the log.
+     *
+     * @param entries the entries to append
+     */
+    void appendEntries(List<LogEntry> entries);
+
+    /**
+     * Removes the entry at the given index and every entry that follows it.
+     *
+     * @param fromIndex the index of the first entry to remove
+     */
+    void truncateFrom(long fromIndex);
+
+    /**
+     * Discards entries up to and including {@code index}, which must be covered by a snapshot.
+     * Implementations may keep some of these entries, for example to only drop whole files.
+     *
+     * @param index the index of the last entry that may be discarded
+     */
+    void compact(long index);
+
+    /**
+     * Discards the whole log and restarts it right after a snapshot that the log does not match.
+     *
+     * @param index the last index included in the snapshot
+     * @param term  the term of the entry at {@code index}
+     */
+    void reset(long index, int term);
+
+    /**
+     * Returns the index of the last entry known to be stored durably.
+     *
+     * @return the durable index, never greater than {@link #getLastIndex()}
+     */
+    long getDurableIndex();
+
+    /**
+     * Requests every entry up to {@code index} to be stored durably.
+     * Implementations may share a single disk sync between concurrent requests.
+     *
+     * @param index the index that must become durable
+     * @return a future completed once {@code index} is durable
+     */
+    CompletableFuture<Void> flush(long index);
+}
@@ -0,0 +1,379 @@
+package com.baeldung.raft.persistence.log;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.StorageConfig;
+import com.baeldung.raft.statemachine.Command;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * {@link RaftLog} stored as a sequence of memory-mapped segment files.
+ * <p>
+ * Appends only copy the record into the mapped segment; durability is handled by a dedicated flusher thread that
+ * forces every dirty segment to disk and then completes all the pending {@link #flush(long)} requests it covers.
+ * Concurrent appends therefore share a single disk sync (group commit) and are never blocked by it.
+ * </p>
+ * <p>
+ * Segments are named after the index of their first entry and a new one is started when the current one is full.
+ * On startup every segment is scanned and the log is truncated at the first invalid record, which takes care of
+ * writes torn by a crash. Compaction deletes whole segments covered by a snapshot.
+ * </p>
+ */
+@Slf4j
+@Component
+public class SegmentedRaftLog implements RaftLog {
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final boolean fsync;
+
+    private final TreeMap<Long, LogSegment> segments = new TreeMap<>();
+    private long lastIndex;
+    private int lastTerm;
+    private long truncations;
+    private volatile long durableIndex;
+
+    private final TreeMap<Long, List<CompletableFuture<Void>>> waiters = new TreeMap<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    @Autowired
+    public SegmentedRaftLog(NodeConfig nodeConfig, StorageConfig storageConfig) {
+        this(Path.of(storageConfig.getDir(), nodeConfig.getId(), "log"), storageConfig.getSegmentSize(),
+                storageConfig.getIndexInterval(), storageConfig.isFsync());
+    }
+
+    public SegmentedRaftLog(Path directory, int segmentSize, int indexInterval, boolean fsync) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.indexInterval = indexInterval;
+        this.fsync = fsync;
+        recover();
+        this.flusher = new Thread(this::flushLoop, "raft-log-flusher");
+        this.flusher.setDaemon(true);
+        if (fsync) {
+            this.flusher.start();
+        }
+    }
+
+    private void recover() {
+        List<Path> files;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> stream = Files.list(directory)) {
+                files = stream.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the Raft log in " + directory, e);
+        }
+
+        boolean discardRest = false;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long baseIndex = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            if (discardRest || (!segments.isEmpty() && baseIndex != lastIndex + 1)) {
+                log.warn("Deleting log segment {} that follows a corrupted or missing segment", file);
+                discardRest = true;
+                deleteFile(file);
+                continue;
+            }
+            LogSegment segment = LogSegment.open(file, baseIndex, segmentSize, indexInterval);
+            segments.put(baseIndex, segment);
+            lastIndex = segment.getLastIndex();
+            discardRest = segment.isCorrupted();
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(1L, LogSegment.create(segmentPath(1), 1, 0, segmentSize, indexInterval));
+        }
+        lastTerm = segments.lastEntry().getValue().getLastTerm();
+        segments.values().forEach(segment -> {
+            segment.takeDirty();
+            segment.force();
+        });
+        durableIndex = lastIndex;
+        log.info("Recovered Raft log from {}: {} segment(s), last index {}, last term {}",
+                directory, segments.size(), lastIndex, lastTerm);
+    }
+
+    @Override
+    public synchronized long getFirstIndex() {
+        return segments.firstKey();
+    }
+
+    @Override
+    public synchronized long getLastIndex() {
+        return lastIndex;
+    }
+
+    @Override
+    public synchronized int getLastTerm() {
+        return lastTerm;
+    }
+
+    @Override
+    public synchronized int getTerm(long index) {
+        if (index == 0) {
+            return 0;
+        }
+        long firstIndex = segments.firstKey();
+        if (index == firstIndex - 1) {
+            return segments.firstEntry().getValue().getPreviousTerm();
+        }
+        if (index < firstIndex || index > lastIndex) {
+            return -1;
+        }
+        return segments.floorEntry(index).getValue().termAt(index);
+    }
+
+    @Override
+    public synchronized LogEntry getEntry(long index) {
+        if (index < segments.firstKey() || index > lastIndex) {
+            return null;
+        }
+        return segments.floorEntry(index).getValue().read(index);
+    }
+
+    @Override
+    public synchronized List<LogEntry> getEntries(long fromIndex, int maxEntries) {
+        if (fromIndex < segments.firstKey() || fromIndex > lastIndex) {
+            return List.of();
+        }
+        List<LogEntry> result = new ArrayList<>((int) Math.min(maxEntries, lastIndex - fromIndex + 1));
+        long next = fromIndex;
+        while (next <= lastIndex && result.size() < maxEntries) {
+            segments.floorEntry(next).getValue().readFrom(next, maxEntries, result);
+            next = fromIndex + result.size();
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized LogEntry append(int term, Command command) {
+        LogEntry entry = new LogEntry(lastIndex + 1, term, command);
+        write(entry);
+        return entry;
+    }
+
+    @Override
+    public synchronized List<LogEntry> append(int term, List<Command> commands) {
+        List<LogEntry> appended = new ArrayList<>(commands.size());
+        for (Command command : commands) {
+            LogEntry entry = new LogEntry(lastIndex + 1, term, command);
+            write(entry);
+            appended.add(entry);
+        }
+        return appended;
+    }
+
+    @Override
+    public synchronized void appendEntries(List<LogEntry> newEntries) {
+        for (LogEntry entry : newEntries) {
+            if (entry.getIndex() != lastIndex + 1) {
+                throw new IllegalStateException("Non-contiguous append: expected index " + (lastIndex + 1)
+                        + " but got " + entry.getIndex());
+            }
+            write(entry);
+        }
+    }
+
+    private void write(LogEntry entry) {
+        byte[] payload = LogEntryCodec.encode(entry.getCommand());
+        if (LogSegment.SEGMENT_HEADER_SIZE + LogSegment.HEADER_SIZE + payload.length > segmentSize) {
+            throw new IllegalArgumentException("Log entry of " + payload.length
+                    + " bytes does not fit in a segment of " + segmentSize + " bytes");
+        }
+        LogSegment active = segments.lastEntry().getValue();
+        if (!active.hasRoomFor(payload.length)) {
+            active = LogSegment.create(segmentPath(lastIndex + 1), lastIndex + 1, lastTerm, segmentSize, indexInterval);
+            segments.put(active.getBaseIndex(), active);
+        }
+        active.append(entry.getIndex(), entry.getTerm(), payload);
+        lastIndex = entry.getIndex();
+        lastTerm = entry.getTerm();
+    }
+
+    @Override
+    public synchronized void truncateFrom(long fromIndex) {
+        if (fromIndex > lastIndex) {
+            return;
+        }
+        // Compacted entries are committed and can never conflict
+        fromIndex = Math.max(fromIndex, segments.firstKey());
+        for (Long baseIndex : new ArrayList<>(segments.tailMap(fromIndex, false).keySet())) {
+            segments.remove(baseIndex).delete();
+        }
+        segments.floorEntry(fromIndex).getValue().truncateFrom(fromIndex);
+        lastIndex = fromIndex - 1;
+        lastTerm = getTerm(lastIndex);
+        durableIndex = Math.min(durableIndex, lastIndex);
+        truncations++;
+    }
+
+    @Override
+    public synchronized void compact(long index) {
+        // The last segment is always kept, so that the term preceding the next entry stays known
+        while (segments.size() > 1 && segments.firstEntry().getValue().getLastIndex() <= index) {
+            LogSegment segment = segments.pollFirstEntry().getValue();
+            segment.delete();
+            log.debug("Deleted log segment starting at index {} covered by a snapshot", segment.getBaseIndex());
+        }
+    }
+
+    @Override
+    public synchronized void reset(long index, int term) {
+        segments.values().forEach(LogSegment::delete);
+        segments.clear();
+        LogSegment segment = LogSegment.create(segmentPath(index + 1), index + 1, term, segmentSize, indexInterval);
+        segment.takeDirty();
+        segment.force();
+        segments.put(segment.getBaseIndex(), segment);
+        lastIndex = index;
+        lastTerm = term;
+        durableIndex = index;
+        truncations++;
+        log.info("Raft log reset to start after index {} (term {})", index, term);
+    }
+
+    @Override
+    public long getDurableIndex() {
+        return fsync ? durableIndex : getLastIndex();
+    }
+
+    @Override
+    public CompletableFuture<Void> flush(long index) {
+        if (!fsync || index <= durableIndex) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (waiters) {
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("The Raft log is closed"));
+            }
+            waiters.computeIfAbsent(index, key -> new ArrayList<>()).add(future);
+            waiters.notifyAll();
+        }
+        return future;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                synchronized (waiters) {
+                    while (running && waiters.isEmpty()) {
+                        waiters.wait();
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                if (!syncOnce()) {
+                    // Every dirty segment is on disk but some waiters are ahead of the log (their entries have
+                    // been truncated or are not written yet): back off instead of spinning.
+                    synchronized (waiters) {
+                        waiters.wait(1);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Failed to sync the Raft log", e);
+                failWaiters(e);
+            }
+        }
+    }
+
+    /**
+     * Forces the dirty segments to disk and completes the waiters that became durable.
+     *
+     * @return {@code false} if there was nothing to force
+     */
+    private boolean syncOnce() {
+        long target;
+        long epoch;
+        List<LogSegment> dirty;
+        synchronized (this) {
+            target = lastIndex;
+            epoch = truncations;
+            dirty = segments.values().stream().filter(LogSegment::takeDirty).toList();
+        }
+        dirty.forEach(LogSegment::force);
+        synchronized (this) {
+            // A truncation in the meantime may have removed entries up to target: retry on the next round
+            if (truncations == epoch) {
+                durableIndex = Math.max(durableIndex, target);
+            }
+        }
+        return completeDurableWaiters() || !dirty.isEmpty();
+    }
+
+    private boolean completeDurableWaiters() {
+        List<CompletableFuture<Void>> completed = new ArrayList<>();
+        synchronized (waiters) {
+            Map<Long, List<CompletableFuture<Void>>> durable = waiters.headMap(durableIndex, true);
+            durable.values().forEach(completed::addAll);
+            durable.clear();
+        }
+        completed.forEach(future -> future.complete(null));
+        return !completed.isEmpty();
+    }
+
+    private void failWaiters(Throwable cause) {
+        List<CompletableFuture<Void>> failed = new ArrayList<>();
+        synchronized (waiters) {
+            waiters.values().forEach(failed::addAll);
+            waiters.clear();
+        }
+        failed.forEach(future -> future.completeExceptionally(cause));
+    }
+
+    /**
+     * Stops the flusher and forces the whole log to disk.
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (waiters) {
+            running = false;
+            waiters.notifyAll();
+        }
+        try {
+            flusher.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            segments.values().forEach(LogSegment::force);
+            durableIndex = lastIndex;
+        }
+        completeDurableWaiters();
+        failWaiters(new IllegalStateException("The Raft log is closed"));
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete " + file, e);
+        }
+    }
+
+    private Path segmentPath(long baseIndex) {
+        return directory.resolve(String.format("%020d%s", baseIndex, SEGMENT_SUFFIX));
+    }
+}
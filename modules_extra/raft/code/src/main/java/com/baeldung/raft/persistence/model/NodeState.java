@@ -16,6 +16,9 @@ public enum NodeState {
     @Schema(description = "Candidate state")
     CANDIDATE,
 
+    @Schema(description = "Learner state: a non-voting replica")
+    LEARNER,
+
     @Schema(description = "Down state")
     DOWN
 }
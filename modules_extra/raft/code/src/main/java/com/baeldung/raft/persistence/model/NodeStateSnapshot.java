@@ -0,0 +1,74 @@
+package com.baeldung.raft.persistence.model;
+
+import lombok.Value;
+import lombok.With;
+
+/**
+ * Immutable, in-memory view of the Raft state of the local node.
+ * <p>
+ * The authoritative copy is held in memory and swapped atomically on every transition; {@link NodeStateEntity}
+ * is only used to persist it.
+ * </p>
+ */
+@Value
+@With
+public class NodeStateSnapshot {
+    NodeState state;
+    int currentTerm;
+    String votedFor;
+    boolean stopped;
+
+    /**
+     * Returns the state of a node that has just started: a follower in term 0 that has not voted.
+     *
+     * @return the initial snapshot
+     */
+    public static NodeStateSnapshot initial() {
+        return new NodeStateSnapshot(NodeState.FOLLOWER, 0, null, false);
+    }
+
+    /**
+     * Creates a snapshot from a persisted entity.
+     *
+     * @param entity the persisted {@link NodeStateEntity}
+     * @return the corresponding snapshot
+     */
+    public static NodeStateSnapshot fromEntity(NodeStateEntity entity) {
+        return new NodeStateSnapshot(entity.getState(), entity.getCurrentTerm(), entity.getVotedFor(), entity.isStopped());
+    }
+
+    /**
+     * Checks whether the node is an active leader.
+     *
+     * @return {@code true} if the node is the leader and not stopped
+     */
+    public boolean isLeader() {
+        return NodeState.LEADER.equals(state) && !stopped;
+    }
+
+    /**
+     * Returns a copy of this snapshot that moved to a newer term, without a vote.
+     *
+     * @param term the new term
+     * @return the updated snapshot
+     */
+    public NodeStateSnapshot withNewTerm(int term) {
+        return new NodeStateSnapshot(state, term, null, stopped);
+    }
+
+    /**
+     * Converts the snapshot into an entity to persist.
+     *
+     * @param nodeId the ID of the node
+     * @return a new {@link NodeStateEntity} without database identifier
+     */
+    public NodeStateEntity toEntity(String nodeId) {
+        NodeStateEntity entity = new NodeStateEntity();
+        entity.setNodeId(nodeId);
+        entity.setState(state);
+        entity.setCurrentTerm(currentTerm);
+        entity.setVotedFor(votedFor);
+        entity.setIsStopped(stopped);
+        return entity;
+    }
+}
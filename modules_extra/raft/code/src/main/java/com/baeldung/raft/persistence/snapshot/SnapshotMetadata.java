@@ -0,0 +1,24 @@
+package com.baeldung.raft.persistence.snapshot;
+
+import lombok.Value;
+
+/**
+ * Description of a stored state machine snapshot.
+ */
+@Value
+public class SnapshotMetadata {
+    /**
+     * Index of the last log entry applied to the state machine when the snapshot was taken.
+     */
+    long lastIncludedIndex;
+
+    /**
+     * Term of the entry at {@link #lastIncludedIndex}.
+     */
+    int lastIncludedTerm;
+
+    /**
+     * Size in bytes of the snapshot data.
+     */
+    long size;
+}
@@ -0,0 +1,224 @@
+package com.baeldung.raft.persistence.snapshot;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.StorageConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Stores state machine snapshots as files named {@code <lastIncludedIndex>-<lastIncludedTerm>.snap}.
+ * <p>
+ * A snapshot is always written to a temporary file, forced to disk and then atomically renamed, so a snapshot file
+ * that exists is always complete. Only the latest snapshot and the one before it are kept: the previous one may still
+ * be streamed to a follower.
+ * </p>
+ */
+@Slf4j
+@Component
+public class SnapshotStore {
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d+)-(\\d+)\\.snap");
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int RETAINED_SNAPSHOTS = 2;
+
+    private final Path directory;
+    private volatile SnapshotMetadata latest;
+
+    @Autowired
+    public SnapshotStore(NodeConfig nodeConfig, StorageConfig storageConfig) {
+        this(Path.of(storageConfig.getDir(), nodeConfig.getId(), "snapshot"));
+    }
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                        // Left over by a crash while a snapshot was written or received
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the snapshot directory " + directory, e);
+        }
+        List<SnapshotMetadata> snapshots = list();
+        this.latest = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+        log.info("Latest snapshot in {}: {}", directory, latest);
+    }
+
+    /**
+     * Returns the latest complete snapshot.
+     *
+     * @return the {@link SnapshotMetadata}, or {@code null} if no snapshot has been taken yet
+     */
+    public SnapshotMetadata getLatest() {
+        return latest;
+    }
+
+    /**
+     * Writes a new snapshot.
+     *
+     * @param lastIncludedIndex the index of the last entry included in the snapshot
+     * @param lastIncludedTerm  the term of that entry
+     * @param content           writes the snapshot data to the given stream
+     * @return the {@link SnapshotMetadata} of the stored snapshot
+     */
+    public SnapshotMetadata save(long lastIncludedIndex, int lastIncludedTerm, SnapshotContent content) {
+        Path temp = createTempFile(lastIncludedIndex, lastIncludedTerm);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            content.writeTo(out);
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Unable to write snapshot " + temp, e);
+        }
+        return commit(temp, lastIncludedIndex, lastIncludedTerm);
+    }
+
+    /**
+     * Creates an empty temporary file to receive a snapshot from the leader.
+     *
+     * @param lastIncludedIndex the index of the last entry included in the snapshot
+     * @param lastIncludedTerm  the term of that entry
+     * @return the path of the temporary file
+     */
+    public Path createTempFile(long lastIncludedIndex, int lastIncludedTerm) {
+        Path temp = directory.resolve(fileName(lastIncludedIndex, lastIncludedTerm) + TEMP_SUFFIX);
+        try {
+            Files.deleteIfExists(temp);
+            return Files.createFile(temp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create snapshot file " + temp, e);
+        }
+    }
+
+    /**
+     * Makes a fully written temporary file the latest snapshot and deletes older snapshots.
+     * The content of the file must already be forced to disk.
+     *
+     * @param temp              the temporary file returned by {@link #createTempFile(long, int)}
+     * @param lastIncludedIndex the index of the last entry included in the snapshot
+     * @param lastIncludedTerm  the term of that entry
+     * @return the {@link SnapshotMetadata} of the stored snapshot
+     */
+    public synchronized SnapshotMetadata commit(Path temp, long lastIncludedIndex, int lastIncludedTerm) {
+        Path file = directory.resolve(fileName(lastIncludedIndex, lastIncludedTerm));
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            SnapshotMetadata metadata = new SnapshotMetadata(lastIncludedIndex, lastIncludedTerm, Files.size(file));
+            if (latest == null || lastIncludedIndex > latest.getLastIncludedIndex()) {
+                latest = metadata;
+            }
+            List<SnapshotMetadata> snapshots = list();
+            for (SnapshotMetadata old : snapshots.subList(0, Math.max(0, snapshots.size() - RETAINED_SNAPSHOTS))) {
+                Files.deleteIfExists(pathOf(old));
+            }
+            log.info("Stored snapshot at index {} (term {}, {} bytes)", lastIncludedIndex, lastIncludedTerm, metadata.getSize());
+            return metadata;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to store snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Opens a snapshot for reading.
+     *
+     * @param snapshot the snapshot to read
+     * @return an {@link InputStream} over the snapshot data
+     * @throws IOException if the snapshot does not exist anymore
+     */
+    public InputStream open(SnapshotMetadata snapshot) throws IOException {
+        return Files.newInputStream(pathOf(snapshot));
+    }
+
+    /**
+     * Reads a chunk of a snapshot.
+     *
+     * @param snapshot the snapshot to read
+     * @param offset   the offset of the chunk
+     * @param length   the maximum length of the chunk
+     * @return the chunk, shorter than {@code length} only at the end of the snapshot
+     * @throws IOException if the snapshot does not exist anymore
+     */
+    public byte[] readChunk(SnapshotMetadata snapshot, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, snapshot.getSize() - offset)));
+        try (FileChannel channel = FileChannel.open(pathOf(snapshot), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    private List<SnapshotMetadata> list() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(this::parse)
+                    .filter(metadata -> metadata != null)
+                    .sorted(Comparator.comparingLong(SnapshotMetadata::getLastIncludedIndex))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list snapshots in " + directory, e);
+        }
+    }
+
+    private SnapshotMetadata parse(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return new SnapshotMetadata(Long.parseLong(matcher.group(1)), Integer.parseInt(matcher.group(2)), Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read snapshot " + file, e);
+        }
+    }
+
+    private Path pathOf(SnapshotMetadata snapshot) {
+        return directory.resolve(fileName(snapshot.getLastIncludedIndex(), snapshot.getLastIncludedTerm()));
+    }
+
+    private static String fileName(long lastIncludedIndex, int lastIncludedTerm) {
+        return String.format("%020d-%d.snap", lastIncludedIndex, lastIncludedTerm);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the content of a snapshot.
+     */
+    @FunctionalInterface
+    public interface SnapshotContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
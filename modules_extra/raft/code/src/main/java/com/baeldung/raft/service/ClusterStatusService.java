@@ -0,0 +1,245 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.persistence.model.NodeState;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.transport.StatusGossip;
+import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.NodeStatusUpdate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Service keeping the status of every node of the cluster and publishing its changes.
+ * <p>
+ * Nodes do not poll each other: the heartbeat messages and their responses carry the statuses known to their sender,
+ * so followers learn about each other through the leader. Each node stamps its own status with its clock every
+ * heartbeat interval, and a status is only replaced by a newer version from the same node. A node whose version has
+ * not advanced for two maximum election timeouts, or which refuses connections, is reported {@code DOWN}.
+ * </p>
+ * <p>
+ * The statuses are published on a single hot {@link Flux} that replays the latest {@link Update} to new subscribers
+ * and only emits when a status changes, whatever the number of subscribers.
+ * </p>
+ */
+@Service
+@Slf4j
+public class ClusterStatusService implements StatusGossip {
+    private final RaftService raftService;
+    private final PeerClient peerClient;
+    private final String ownNodeUrl;
+    private final long heartbeatInterval;
+    private final long expiry;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Sinks.Many<Update> updates = Sinks.many().replay().latest();
+    private List<NodeStatusDTO> published = List.of();
+    private Disposable ticker;
+
+    /**
+     * Constructs a new {@code ClusterStatusService}.
+     *
+     * @param raftService   the service of the default group, whose state is the status of this node
+     * @param peerClient    the client whose heartbeats carry the statuses
+     * @param nodeConfig    the configuration properties for the node
+     * @param timeoutConfig the Raft timeout configuration
+     */
+    @Autowired
+    public ClusterStatusService(RaftService raftService, PeerClient peerClient, NodeConfig nodeConfig,
+                                TimeoutConfig timeoutConfig) {
+        this(raftService, peerClient, nodeConfig, timeoutConfig, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a new {@code ClusterStatusService} reading the given clock.
+     *
+     * @param raftService   the service of the default group, whose state is the status of this node
+     * @param peerClient    the client whose heartbeats carry the statuses
+     * @param nodeConfig    the configuration properties for the node
+     * @param timeoutConfig the Raft timeout configuration
+     * @param clock         the wall clock, in milliseconds, versioning the statuses of this node
+     */
+    public ClusterStatusService(RaftService raftService, PeerClient peerClient, NodeConfig nodeConfig,
+                                TimeoutConfig timeoutConfig, LongSupplier clock) {
+        this.raftService = raftService;
+        this.peerClient = peerClient;
+        this.ownNodeUrl = raftService.getOwnNodeUrl();
+        this.heartbeatInterval = timeoutConfig.getHeartbeatInterval();
+        this.expiry = 2L * timeoutConfig.getElectionTimeout().getMax();
+        this.clock = clock;
+        List<String> nodeUrls = new ArrayList<>(nodeConfig.getClusterNodes());
+        nodeUrls.addAll(nodeConfig.getLearnerNodes());
+        // Nodes not heard of yet are reported down, until their first status arrives
+        nodeUrls.forEach(nodeUrl -> entries.put(nodeUrl, new Entry(
+                new NodeStatusDTO(nodeUrl, NodeState.DOWN, 0, "None", nodeUrl, true), 0, clock.getAsLong())));
+    }
+
+    /**
+     * Starts exchanging statuses with the heartbeats, and refreshing the status of this node.
+     */
+    @PostConstruct
+    public void start() {
+        peerClient.setStatusGossip(this);
+        ticker = Flux.interval(Duration.ZERO, Duration.ofMillis(heartbeatInterval))
+                .concatMap(tick -> refresh()
+                        .onErrorResume(e -> {
+                            log.error("Error refreshing the node status: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * Stamps the current status of this node with a new version, and reports the nodes that have not been heard of
+     * for too long as down.
+     *
+     * @return a {@link Mono} signaling completion
+     */
+    public Mono<Void> refresh() {
+        return raftService.getNodeStatus().doOnNext(status -> {
+            synchronized (entries) {
+                entries.put(ownNodeUrl, new Entry(status, clock.getAsLong(), clock.getAsLong()));
+                publish();
+            }
+        }).then();
+    }
+
+    /**
+     * Returns the status updates: the latest one is replayed to each new subscriber, then an update is emitted each
+     * time the status of a node changes.
+     *
+     * @return a hot {@link Flux} of {@link Update Updates}
+     */
+    public Flux<Update> getUpdates() {
+        return updates.asFlux();
+    }
+
+    @Override
+    public List<NodeStatusUpdate> getStatusUpdates() {
+        synchronized (entries) {
+            List<NodeStatusUpdate> statuses = new ArrayList<>(entries.size());
+            entries.values().forEach(entry -> {
+                if (entry.version > 0) {
+                    statuses.add(new NodeStatusUpdate(entry.status, entry.version));
+                }
+            });
+            return statuses;
+        }
+    }
+
+    @Override
+    public void merge(List<NodeStatusUpdate> updates) {
+        synchronized (entries) {
+            boolean changed = false;
+            for (NodeStatusUpdate update : updates) {
+                String nodeUrl = update.getStatus().getNodeUrl();
+                Entry entry = entries.get(nodeUrl);
+                if (ownNodeUrl.equals(nodeUrl) || (entry != null && update.getVersion() <= entry.version)) {
+                    continue;
+                }
+                entries.put(nodeUrl, new Entry(update.getStatus(), update.getVersion(), clock.getAsLong()));
+                changed = true;
+            }
+            if (changed) {
+                publish();
+            }
+        }
+    }
+
+    @Override
+    public void markDown(String nodeUrl) {
+        synchronized (entries) {
+            Entry entry = entries.get(nodeUrl);
+            if (entry != null && !entry.refused) {
+                entry.refused = true;
+                publish();
+            }
+        }
+    }
+
+    /**
+     * Emits an update if the status of any node has changed since the last one. Called while holding the lock on
+     * the entries, so that updates are emitted one at a time and in order.
+     */
+    private void publish() {
+        long now = clock.getAsLong();
+        List<NodeStatusDTO> statuses = new ArrayList<>(entries.size());
+        List<NodeStatusDTO> changes = new ArrayList<>();
+        Map<String, NodeStatusDTO> previous = new LinkedHashMap<>();
+        published.forEach(status -> previous.put(status.getNodeUrl(), status));
+        entries.forEach((nodeUrl, entry) -> {
+            NodeStatusDTO status = entry.status;
+            boolean silent = !nodeUrl.equals(ownNodeUrl) && now - entry.advancedAt > expiry;
+            if ((entry.refused || silent) && status.getState() != NodeState.DOWN) {
+                status = new NodeStatusDTO(status.getNodeId(), NodeState.DOWN, status.getCurrentTerm(),
+                        status.getVotedFor(), nodeUrl, status.isStopped());
+            }
+            statuses.add(status);
+            if (!status.equals(previous.get(nodeUrl))) {
+                changes.add(status);
+            }
+        });
+        if (!changes.isEmpty()) {
+            published = statuses;
+            updates.tryEmitNext(new Update(List.copyOf(statuses), List.copyOf(changes)));
+        }
+    }
+
+    /**
+     * Stops refreshing the status of this node.
+     */
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+    }
+
+    /**
+     * Change of the cluster status.
+     */
+    @Value
+    public static class Update {
+        /**
+         * Status of every node.
+         */
+        List<NodeStatusDTO> statuses;
+
+        /**
+         * Statuses that differ from the previous update, or every status for the first one.
+         */
+        List<NodeStatusDTO> changes;
+    }
+
+    /**
+     * Latest known status of a node.
+     */
+    private static final class Entry {
+        private final NodeStatusDTO status;
+        private final long version;
+        private final long advancedAt;
+        private boolean refused;
+
+        private Entry(NodeStatusDTO status, long version, long advancedAt) {
+            this.status = status;
+            this.version = version;
+            this.advancedAt = advancedAt;
+        }
+    }
+}
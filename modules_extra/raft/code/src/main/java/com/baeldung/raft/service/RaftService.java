@@ -1,81 +1,333 @@
 package com.baeldung.raft.service;
 
+import com.baeldung.raft.config.ElectionConfig;
 import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ShardConfig;
 import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.exception.LeadershipTransferException;
+import com.baeldung.raft.exception.MembershipChangeException;
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.membership.ClusterConfiguration;
+import com.baeldung.raft.metrics.RaftMetrics;
+import com.baeldung.raft.persistence.log.MetadataStore;
+import com.baeldung.raft.persistence.model.NodeStateSnapshot;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import com.baeldung.raft.web.dto.InstallSnapshotResponse;
+import com.baeldung.raft.web.dto.MembershipChangeRequest;
+import com.baeldung.raft.web.dto.MembershipDTO;
 import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.RequestVoteRequest;
+import com.baeldung.raft.web.dto.TimeoutNowRequest;
 import com.baeldung.raft.persistence.model.NodeState;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientRequestException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
 
 import com.baeldung.raft.persistence.model.NodeStateEntity;
 import com.baeldung.raft.persistence.repository.NodeStateRepository;
-import com.baeldung.raft.exception.NodeStateNotFoundException;
 
 import jakarta.annotation.PostConstruct;
 
 /**
  * Service handling Raft consensus operations and node state management.
+ * <p>
+ * The authoritative node state (term, vote and role) is an immutable {@link NodeStateSnapshot} kept in memory and
+ * swapped atomically. Transitions are serialized by {@code stateLock} and the durable fields are written to the
+ * {@link MetadataStore} before any RPC reply that depends on them; heartbeat and status paths never touch storage.
+ * The {@code node_state} table only mirrors the state for monitoring.
+ * </p>
+ * <p>
+ * Each instance runs one Raft group. The Spring bean is the default group, {@code 0}, which also stands for the node
+ * in the status endpoints; the other groups of a Multi-Raft node are created by the {@link ShardService}.
+ * </p>
+ * <p>
+ * The voters of the group follow the latest configuration in the log: a learner promoted to voter takes part in
+ * elections as soon as it receives the new configuration, and a node removed from the group stops doing so.
+ * </p>
  */
 @Service
 @Slf4j
 public class RaftService {
+    @Getter
+    private final int groupId;
     private final NodeStateRepository nodeStateRepository;
     private final TransactionalRaftService transactionalRaftService;
-    private final WebClient webClient;
+    private final ReplicationService replicationService;
+    private final MetadataStore metadataStore;
+    private final PeerClient peerClient;
     @Getter
     private final TimeoutConfig timeoutProperties;
+    private final ReadConfig readConfig;
+    private final ElectionConfig electionConfig;
+    private final RaftMetrics metrics;
     @Getter
     private final String nodeId;
     @Getter
-    private final List<String> clusterNodes;
-    @Getter
     private final String ownNodeUrl;
+    @Getter
+    private volatile String leaderUrl;
+    // Term of the latest request accepted from a leader, for the transfers waiting for the next leader
+    private final Sinks.Many<Integer> leaderTerms = Sinks.many().replay().latest();
+
+    private final AtomicReference<NodeStateSnapshot> state;
+    private final Object stateLock = new Object();
+    private final Object persistLock = new Object();
+    private volatile Long entityId;
 
-    private volatile long lastHeartbeat = System.currentTimeMillis();
+    private final LongSupplier nanoClock;
+    private final Random random;
+    private volatile long lastHeartbeat;
     private final AtomicBoolean electionInProgress = new AtomicBoolean(false);
     private volatile long electionDeadline;
+    private final Duration rpcTimeout;
+    private final Duration readTimeout;
 
     /**
-     * Constructs a new {@code RaftService} with the specified dependencies.
+     * Constructs the {@code RaftService} of the default Raft group.
      *
      * @param nodeStateRepository      the repository for node state entities
      * @param transactionalRaftService the transactional Raft service
+     * @param replicationService       the service replicating the log
+     * @param metadataStore            the durable storage of the current term and vote
+     * @param peerClient               the client sending RPCs to the other nodes
      * @param nodeConfig               the configuration properties for the node
+     * @param timeoutProperties        the Raft timeout configuration
+     * @param readConfig               the read configuration
+     * @param electionConfig           the election configuration
+     * @param shardConfig              the Multi-Raft configuration
      * @param serverPort               the server port on which the node is running
+     * @param meterRegistry            the registry of the election metrics
      * @throws IllegalStateException if cluster nodes are not properly configured
      */
+    @Autowired
     public RaftService(NodeStateRepository nodeStateRepository,
                        TransactionalRaftService transactionalRaftService,
+                       ReplicationService replicationService,
+                       MetadataStore metadataStore,
+                       PeerClient peerClient,
+                       NodeConfig nodeConfig,
+                       TimeoutConfig timeoutProperties,
+                       ReadConfig readConfig,
+                       ElectionConfig electionConfig,
+                       ShardConfig shardConfig,
+                       @Value("${server.port}") int serverPort,
+                       MeterRegistry meterRegistry) {
+        this(0, nodeStateRepository, transactionalRaftService, replicationService, metadataStore, peerClient,
+                nodeConfig, timeoutProperties, readConfig, electionConfig, shardConfig, serverPort, meterRegistry,
+                System::nanoTime, new Random());
+    }
+
+    /**
+     * Constructs a new {@code RaftService} with the specified dependencies.
+     *
+     * @param groupId                  the ID of the Raft group
+     * @param nodeStateRepository      the repository for node state entities
+     * @param transactionalRaftService the transactional Raft service
+     * @param replicationService       the service replicating the log
+     * @param metadataStore            the durable storage of the current term and vote
+     * @param peerClient               the client sending RPCs to the other nodes
+     * @param nodeConfig               the configuration properties for the node
+     * @param timeoutProperties        the Raft timeout configuration
+     * @param readConfig               the read configuration
+     * @param electionConfig           the election configuration
+     * @param shardConfig              the Multi-Raft configuration
+     * @param serverPort               the server port on which the node is running
+     * @param meterRegistry            the registry of the election metrics
+     * @param nanoClock                the monotonic clock, in nanoseconds, used for the election timer
+     * @param random                   the source of the randomized election timeouts
+     * @throws IllegalStateException if cluster nodes are not properly configured
+     */
+    public RaftService(int groupId,
+                       NodeStateRepository nodeStateRepository,
+                       TransactionalRaftService transactionalRaftService,
+                       ReplicationService replicationService,
+                       MetadataStore metadataStore,
+                       PeerClient peerClient,
                        NodeConfig nodeConfig,
                        TimeoutConfig timeoutProperties,
-                       @org.springframework.beans.factory.annotation.Value("${server.port}") int serverPort) {
+                       ReadConfig readConfig,
+                       ElectionConfig electionConfig,
+                       ShardConfig shardConfig,
+                       int serverPort,
+                       MeterRegistry meterRegistry,
+                       LongSupplier nanoClock,
+                       Random random) {
+        this.groupId = groupId;
+        this.nanoClock = nanoClock;
+        this.random = random;
+        this.lastHeartbeat = millis();
         this.nodeStateRepository = nodeStateRepository;
         this.transactionalRaftService = transactionalRaftService;
+        this.replicationService = replicationService;
+        this.metadataStore = metadataStore;
+        this.peerClient = peerClient;
+        this.state = new AtomicReference<>(NodeStateSnapshot.initial()
+                .withCurrentTerm(metadataStore.getCurrentTerm())
+                .withVotedFor(metadataStore.getVotedFor()));
         this.timeoutProperties = timeoutProperties;
+        this.readConfig = readConfig;
+        this.electionConfig = electionConfig;
+        this.metrics = new RaftMetrics(meterRegistry, groupId);
         this.nodeId = nodeConfig.getId();
-        this.clusterNodes = nodeConfig.getClusterNodes();
+        List<String> clusterNodes = nodeConfig.getClusterNodes();
+        List<String> learnerNodes = nodeConfig.getLearnerNodes();
         this.ownNodeUrl = "localhost:" + serverPort;
-        this.webClient = WebClient.create();
-        this.electionDeadline = System.currentTimeMillis() + randomizedTimeout();
+        // A reply arriving after the shortest election timeout is useless: another election may have started
+        this.rpcTimeout = Duration.ofMillis(timeoutProperties.getElectionTimeout().getMin());
+        this.readTimeout = Duration.ofMillis(timeoutProperties.getElectionTimeout().getMax());
+        // With several groups, each node is the preferred leader of every n-th group, so that leaders are spread
+        // across the nodes: the other nodes wait one more election timeout before running for it. Only the first
+        // election is delayed: once the group has run, a crashed leader is replaced within a single election timeout
+        boolean preferredLeader = clusterNodes != null && !clusterNodes.isEmpty()
+                && clusterNodes.get(groupId % clusterNodes.size()).equals(ownNodeUrl);
+        long electionHeadStart = shardConfig.getCount() > 1 && !preferredLeader
+                ? timeoutProperties.getElectionTimeout().getMax()
+                : 0;
+        this.electionDeadline = millis() + electionHeadStart + randomizedTimeout();
 
         // Add validation
-        if (this.clusterNodes == null || this.clusterNodes.isEmpty()) {
+        if (clusterNodes == null || clusterNodes.isEmpty()) {
             log.error("Cluster nodes configuration is missing or empty.");
             throw new IllegalStateException("Cluster nodes must be configured.");
         }
+        if (learnerNodes.stream().anyMatch(clusterNodes::contains)) {
+            log.error("Learner nodes must not be listed among the cluster nodes.");
+            throw new IllegalStateException("A node cannot be both a voter and a learner.");
+        }
         log.info("Node ID: {}", this.nodeId);
-        log.info("Cluster Nodes: {}", String.join(", ", this.clusterNodes));
+        log.info("Cluster Nodes: {}", String.join(", ", clusterNodes));
+        if (learnerNodes.contains(ownNodeUrl)) {
+            log.info("Node {} is a learner: it will neither vote nor start elections.", this.nodeId);
+        }
+    }
+
+    /**
+     * Returns the voting members of the group, as of the latest configuration in the log.
+     *
+     * @return the URLs of the voters
+     */
+    public List<String> getClusterNodes() {
+        return replicationService.getConfiguration().getVoters();
+    }
+
+    /**
+     * Returns the non-voting members of the group, as of the latest configuration in the log.
+     *
+     * @return the URLs of the learners
+     */
+    public List<String> getLearnerNodes() {
+        return replicationService.getConfiguration().getLearners();
+    }
+
+    /**
+     * Tells whether this node does not vote in the group: it was started as a learner, has not been promoted yet,
+     * or has been removed. Such a node never starts an election.
+     *
+     * @return {@code true} if this node is not a voter
+     */
+    private boolean isLearner() {
+        return !replicationService.getConfiguration().isVoter(ownNodeUrl);
+    }
+
+    /**
+     * Returns the current in-memory state of the node.
+     *
+     * @return the current {@link NodeStateSnapshot}
+     */
+    public NodeStateSnapshot getState() {
+        return state.get();
+    }
+
+    /**
+     * Applies a transition to the in-memory state. Transitions are serialized, readers never block.
+     *
+     * @param transition the function computing the new state from the current one
+     * @return the new state
+     */
+    private NodeStateSnapshot updateState(UnaryOperator<NodeStateSnapshot> transition) {
+        synchronized (stateLock) {
+            NodeStateSnapshot previous = state.get();
+            NodeStateSnapshot next = transition.apply(previous);
+            if (next.getCurrentTerm() > previous.getCurrentTerm()) {
+                metrics.recordTermChange();
+            }
+            state.set(next);
+            return next;
+        }
+    }
+
+    /**
+     * Persists the current in-memory state. The latest snapshot is read when the write is performed,
+     * not when the transition happened, so the stored state always includes the caller's transition.
+     * <p>
+     * The term and vote are synced to the {@link MetadataStore} on a blocking-friendly scheduler; the database row
+     * is then updated for monitoring, and a failure to do so does not fail the transition.
+     * </p>
+     *
+     * @return a {@link Mono} signaling completion once the term and vote are durable
+     */
+    private Mono<Void> persistState() {
+        return Mono.fromRunnable(() -> {
+                    // Serialized so that an older snapshot can never overwrite a newer one
+                    synchronized (persistLock) {
+                        NodeStateSnapshot current = state.get();
+                        metadataStore.save(current.getCurrentTerm(), current.getVotedFor());
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(mirrorState().onErrorResume(e -> {
+                    log.warn("Failed to mirror the node state to the database: {}", e.getMessage());
+                    return Mono.empty();
+                }));
+    }
+
+    /**
+     * Mirrors the current in-memory state to the {@code node_state} table.
+     *
+     * @return a {@link Mono} signaling completion once the row is stored
+     */
+    private Mono<Void> mirrorState() {
+        if (groupId != 0) {
+            // The table describes the node: only the default group is mirrored
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            // The row id is only looked up once, the first time the state is written
+            Mono<Optional<Long>> id = entityId != null
+                    ? Mono.just(Optional.of(entityId))
+                    : nodeStateRepository.findByNodeId(nodeId).mapNotNull(NodeStateEntity::getId).map(Optional::of);
+            return id.defaultIfEmpty(Optional.empty())
+                    .flatMap(rowId -> {
+                        NodeStateEntity entity = state.get().toEntity(nodeId);
+                        entity.setId(rowId.orElse(null));
+                        return transactionalRaftService.saveNodeState(entity);
+                    })
+                    .doOnNext(saved -> entityId = saved.getId())
+                    .then();
+        });
     }
 
     /**
@@ -86,7 +338,7 @@ public class RaftService {
      * @return {@code true} if the node is considered up, {@code false} otherwise
      */
     private boolean isNodeUp(Throwable error, String nodeUrl) {
-        if (error instanceof WebClientRequestException && error.getMessage().contains("Connection refused")) {
+        if (PeerClient.isConnectionRefused(error)) {
             log.debug("Connection refused when attempting to contact {}. Assuming node is DOWN.", nodeUrl);
             return false;
         }
@@ -94,7 +346,9 @@ public class RaftService {
     }
 
     /**
-     * Initializes the node by ensuring its state is present and checking cluster readiness.
+     * Initializes the node by loading its mirrored state and checking cluster readiness.
+     * This is the only place where the node state is read from the database; the term and vote
+     * always come from the {@link MetadataStore}.
      *
      * @return a {@link Mono} signaling completion
      */
@@ -104,16 +358,21 @@ public class RaftService {
                     NodeStateEntity node = new NodeStateEntity();
                     node.setNodeId(nodeId);
                     node.setState(NodeState.FOLLOWER);
-                    node.setCurrentTerm(0);
+                    node.setCurrentTerm(state.get().getCurrentTerm());
+                    node.setVotedFor(state.get().getVotedFor());
                     node.setIsStopped(false);
                     return transactionalRaftService.saveNodeState(node);
                 }))
                 .flatMap(node -> {
-                    if (node.isStopped()) {
+                    entityId = node.getId();
+                    NodeStateSnapshot loaded = updateState(current -> NodeStateSnapshot.fromEntity(node)
+                            .withCurrentTerm(current.getCurrentTerm())
+                            .withVotedFor(current.getVotedFor()));
+                    if (loaded.isStopped()) {
                         log.info("Node {} is marked as stopped. Skipping initialization.", nodeId);
                         return Mono.empty();
                     }
-                    if (!NodeState.LEADER.equals(node.getState())) {
+                    if (!NodeState.LEADER.equals(loaded.getState())) {
                         return checkClusterReadiness().then();
                     }
                     return Mono.empty();
@@ -126,9 +385,9 @@ public class RaftService {
      * @return a {@link Mono} emitting {@code true} when the cluster is ready
      */
     Mono<Boolean> checkClusterReadiness() {
-        return Flux.interval(Duration.ofSeconds(5)).flatMap(tick -> isLeader().flatMap(isLeader -> {
-            if (!isLeader) {
-                return Flux.fromIterable(clusterNodes).flatMap(nodeUrl -> webClient.get().uri("http://" + nodeUrl + "/raft/status").retrieve().bodyToMono(NodeStatusDTO.class).map(dto -> {
+        return Flux.interval(Duration.ofSeconds(5)).flatMap(tick -> {
+            if (!isLeader()) {
+                return Flux.fromIterable(getClusterNodes()).flatMap(nodeUrl -> peerClient.getStatus(nodeUrl).timeout(rpcTimeout).map(dto -> {
                     dto.setNodeUrl(nodeUrl);
                     return dto;
                 }).onErrorResume(e -> {
@@ -142,14 +401,12 @@ public class RaftService {
                     boolean leaderExists = responses.stream().anyMatch(status -> NodeState.LEADER.equals(status.getState()));
                     if (leaderExists) {
                         // If another leader exists, ensure this node is not a leader
-                        return nodeStateRepository.findByNodeId(nodeId).flatMap(node -> {
-                            if (NodeState.LEADER.equals(node.getState())) {
-                                return transactionalRaftService.stepDown(node);
-                            }
-                            // Become a follower if not already
-                            node.setState(NodeState.FOLLOWER);
-                            return Mono.just(true);
-                        });
+                        if (isLeader()) {
+                            replicationService.stepDown();
+                            updateState(current -> current.withState(NodeState.FOLLOWER));
+                            return persistState().thenReturn(true);
+                        }
+                        return Mono.just(true);
                     }
                     // If no leader exists and no election is in progress, start an election
                     if (!electionInProgress.get()) {
@@ -159,7 +416,7 @@ public class RaftService {
                 });
             }
             return Mono.just(true);
-        })).takeUntil(isReady -> (boolean) isReady).then(Mono.just(true));
+        }).takeUntil(isReady -> isReady).then(Mono.just(true));
     }
 
     /**
@@ -168,166 +425,443 @@ public class RaftService {
      * @return a {@link Mono} signaling completion
      */
     public Mono<Void> startElection() {
+        return startElection(false);
+    }
+
+    /**
+     * Starts a new election, preceded by a PreVote round unless it is disabled or the election is run on behalf of
+     * the leader. With {@code leadershipTransfer} set, voters grant their vote even though they still hear from that
+     * leader.
+     */
+    private Mono<Void> startElection(boolean leadershipTransfer) {
         log.info("Node {} is starting an election. {}", nodeId, electionInProgress.get());
         if (!electionInProgress.compareAndSet(false, true)) {
             // Election already in progress
             log.debug("Election already in progress. Skipping. {}", electionInProgress.get());
             return Mono.empty();
         }
+        if (state.get().isStopped()) {
+            log.info("Node {} is stopped. Cannot start an election.", nodeId);
+            electionInProgress.set(false);
+            return Mono.empty();
+        }
+        if (isLearner()) {
+            log.debug("Node {} is a learner. Cannot start an election.", nodeId);
+            electionInProgress.set(false);
+            return Mono.empty();
+        }
 
-        return nodeStateRepository.findByNodeId(nodeId)
-                .flatMap(node -> {
-                    if (node.isStopped()) {
-                        log.info("Node {} is stopped. Cannot start an election.", nodeId);
-                        electionInProgress.set(false);
-                        return Mono.empty();
-                    }
-                    log.info("Node {} has started an election", nodeId);
-                    log.info("Node {} has started an election", nodeId);
-                    node.setState(NodeState.CANDIDATE);
-                    node.setCurrentTerm(node.getCurrentTerm() + 1);
-                    node.setVotedFor(nodeId);
-                    log.debug("Node {} increments term to {}", nodeId, node.getCurrentTerm());
-                    return transactionalRaftService.saveNodeState(node)
-                            .flatMap(this::sendRequestVoteToOtherNodes);
-                }).doOnTerminate(() -> electionInProgress.set(false));
+        long startedAt = nanoClock.getAsLong();
+        Mono<Boolean> preVote = electionConfig.isPreVote() && !leadershipTransfer
+                ? sendPreVoteToOtherNodes(state.get())
+                : Mono.just(true);
+        return preVote
+                .flatMap(canWin -> canWin
+                        ? runElection(leadershipTransfer)
+                        : Mono.just("prevote-rejected"))
+                .doOnNext(outcome -> metrics.recordElection(outcome, nanoClock.getAsLong() - startedAt))
+                .doOnTerminate(() -> electionInProgress.set(false))
+                .then();
     }
 
     /**
-     * Sends vote requests to all other nodes in the cluster.
+     * Asks the other nodes whether they would vote for this node in the next term, without incrementing the term:
+     * a node that cannot win, such as one cut off from the leader by a partition, then leaves the term of the
+     * cluster untouched.
      *
-     * @param node the {@link NodeStateEntity} representing the current node
-     * @return a {@link Mono} signaling completion
+     * @param current the {@link NodeStateSnapshot} of the current node when the PreVote round started
+     * @return a {@link Mono} emitting {@code true} if a majority would grant its vote and the node is still a follower
+     * of the same term that has not heard from a leader since
      */
-    private Mono<Void> sendRequestVoteToOtherNodes(NodeStateEntity node) {
-        log.info("Node {} has started the election for term {}", nodeId, node.getCurrentTerm());
-        return Flux.fromIterable(clusterNodes).flatMap(otherNode -> {
-            // Skip sending to self
-            if (otherNode.equals(ownNodeUrl)) {
-                return Mono.empty();
+    private Mono<Boolean> sendPreVoteToOtherNodes(NodeStateSnapshot current) {
+        log.debug("Node {} is running a PreVote round for term {} in group {}", nodeId, current.getCurrentTerm() + 1, groupId);
+        RequestVoteRequest preVoteRequest = new RequestVoteRequest(nodeId, current.getCurrentTerm() + 1,
+                replicationService.getLastLogIndex(), replicationService.getLastLogTerm(), false, true);
+        return collectVotes(preVoteRequest).map(canWin -> {
+            NodeStateSnapshot latest = state.get();
+            if (!canWin) {
+                log.info("Node {} would not win an election for term {}. Keeping term {}.", nodeId,
+                        preVoteRequest.getCandidateTerm(), latest.getCurrentTerm());
+                return false;
             }
-            Map<String, Object> voteRequest = Map.of("candidateId", node.getNodeId(), "candidateTerm", node.getCurrentTerm());
-            log.debug("Sending vote request to {}", otherNode);
-            return webClient.post().uri("http://" + otherNode + "/raft/request-vote")
-                    .bodyValue(voteRequest)
-                    .retrieve()
-                    .bodyToMono(Boolean.class)
-                    .doOnNext(voteGranted -> log.debug("Vote granted from {}: {}", otherNode, voteGranted))
-                    .onErrorResume(e -> {
-                        if (isNodeUp(e, otherNode)) {
-                            log.error("Error during vote request to {}: {}", otherNode, e.getMessage());
-                        }
-                        // Emit false to indicate no vote
-                        return Mono.just(false);
-                    });
-        }).collectList().flatMap(votes -> {
-            log.debug("Votes received: {}", votes);
-            // Include the vote from the node itself
-            long positiveVotes = votes.stream().filter(v -> v).count() + 1;
-            log.info("Node {} has received {} positive votes", nodeId, positiveVotes);
-            if (positiveVotes > (clusterNodes.size() / 2)) {
-                return transactionalRaftService.becomeLeader(node)
-                        .doOnSuccess(leader -> log.info("Node {} became the leader for term {}", nodeId, node.getCurrentTerm()));
+            // A leader may have shown up while the round was running
+            return latest.getCurrentTerm() == current.getCurrentTerm() && !hearsFromLeader(latest);
+        });
+    }
+
+    /**
+     * Runs an election for the next term.
+     *
+     * @param leadershipTransfer whether the election was requested by the leader
+     * @return a {@link Mono} emitting the outcome of the election, {@code won} or {@code lost}
+     */
+    private Mono<String> runElection(boolean leadershipTransfer) {
+        log.info("Node {} has started an election", nodeId);
+        NodeStateSnapshot candidate = updateState(current -> current
+                .withNewTerm(current.getCurrentTerm() + 1)
+                .withState(NodeState.CANDIDATE)
+                .withVotedFor(nodeId));
+        log.debug("Node {} increments term to {}", nodeId, candidate.getCurrentTerm());
+        return persistState()
+                .then(Mono.defer(() -> sendRequestVoteToOtherNodes(candidate, leadershipTransfer)));
+    }
+
+    /**
+     * Sends vote requests to all other nodes in the cluster and counts the votes as they arrive.
+     * <p>
+     * The election is won as soon as a majority has granted its vote: the requests still outstanding are then
+     * cancelled, so the outcome only depends on the fastest majority. Each request is bounded by the minimum
+     * election timeout and a node that does not answer in time counts as a rejection.
+     * </p>
+     *
+     * @param candidate          the {@link NodeStateSnapshot} of the current node when the election started
+     * @param leadershipTransfer whether the election was requested by the leader
+     * @return a {@link Mono} emitting the outcome of the election, {@code won} or {@code lost}
+     */
+    private Mono<String> sendRequestVoteToOtherNodes(NodeStateSnapshot candidate, boolean leadershipTransfer) {
+        int term = candidate.getCurrentTerm();
+        log.info("Node {} has started the election for term {} in group {}", nodeId, term, groupId);
+        RequestVoteRequest voteRequest = new RequestVoteRequest(nodeId, term,
+                replicationService.getLastLogIndex(), replicationService.getLastLogTerm(), leadershipTransfer, false);
+        return collectVotes(voteRequest).flatMap(won -> {
+            if (won) {
+                return becomeLeader(term).thenReturn("won");
             }
             // If not enough votes, do not become leader
             log.debug("Node {} did not receive enough votes to become leader", nodeId);
-            return Mono.empty();
-        }).then();
+            return Mono.just("lost");
+        });
     }
 
+    /**
+     * Sends a vote request to all other nodes and counts the votes granted, the node's own vote included.
+     *
+     * @param voteRequest the vote or PreVote request
+     * @return a {@link Mono} emitting {@code true} as soon as a majority has granted its vote, {@code false} otherwise
+     */
+    private Mono<Boolean> collectVotes(RequestVoteRequest voteRequest) {
+        // The vote of the node itself is implied
+        List<String> voters = getClusterNodes();
+        int votesNeeded = voters.size() / 2;
+        return Flux.fromIterable(voters)
+                .filter(otherNode -> !otherNode.equals(ownNodeUrl))
+                .flatMap(otherNode -> sendRequestVote(otherNode, voteRequest))
+                .filter(Boolean::booleanValue)
+                // Cancels the requests still in flight once enough votes are granted
+                .take(votesNeeded)
+                .count()
+                .map(votes -> {
+                    log.info("Node {} has received {} positive {}", nodeId, votes + 1,
+                            voteRequest.isPreVote() ? "PreVotes" : "votes");
+                    return votes >= votesNeeded;
+                });
+    }
 
     /**
-     * Sends periodic heartbeat messages to all followers.
+     * Sends a vote request to a single node.
      *
-     * @return a {@link Mono} signaling completion
+     * @param otherNode   the URL of the node
+     * @param voteRequest the vote request
+     * @return a {@link Mono} emitting {@code true} if the vote is granted, {@code false} if it is rejected,
+     * the request failed or the node did not answer before the deadline
      */
-    private Mono<Void> sendHeartbeats() {
-        return nodeStateRepository.findByNodeId(nodeId)
-                .flatMap(node -> {
-                    if (node.isStopped()) {
-                        log.info("Node {} is stopped. Skipping heartbeat transmission.", nodeId);
-                        return Mono.empty();
+    private Mono<Boolean> sendRequestVote(String otherNode, RequestVoteRequest voteRequest) {
+        log.debug("Sending vote request to {}", otherNode);
+        return peerClient.requestVote(otherNode, groupId, voteRequest)
+                .timeout(rpcTimeout)
+                .doOnNext(voteGranted -> log.debug("Vote granted from {}: {}", otherNode, voteGranted))
+                .onErrorResume(e -> {
+                    if (isNodeUp(e, otherNode)) {
+                        log.error("Error during vote request to {}: {}", otherNode, e.getMessage());
                     }
-                    return Flux.fromIterable(clusterNodes)
-                            .flatMap(nodeUrl -> {
-                                if (nodeUrl.equals(ownNodeUrl)) {
-                                    return Mono.empty(); // Skip sending to self
-                                }
-                                // log.debug("Sending heartbeat to {}", nodeUrl);
-                                return webClient.post()
-                                        .uri("http://" + nodeUrl + "/raft/heartbeat")
-                                        .retrieve()
-                                        .bodyToMono(Void.class)
-                                        .doOnError(e -> {
-                                            if (isNodeUp(e, nodeUrl)) {
-                                                log.error("Failed to send heartbeat to {}: {}", nodeUrl, e.getMessage());
-                                            }
-                                        })
-                                        .onErrorResume(e -> Mono.empty()); // Continue even if a node is down
-                            })
-                            .then();
+                    // Emit false to indicate no vote
+                    return Mono.just(false);
                 });
     }
 
     /**
-     * Handles receiving a heartbeat from the leader node.
+     * Promotes the node to leader, unless it has moved to another term or role while votes were collected.
      *
+     * @param term the term the election was won for
      * @return a {@link Mono} signaling completion
      */
-    public Mono<Void> receiveHeartbeat() {
-        lastHeartbeat = System.currentTimeMillis();
-        electionDeadline = lastHeartbeat + randomizedTimeout();
-        // log.debug("Received heartbeat from leader");
-        return isLeader().flatMap(isLeader -> {
-            if (isLeader) {
-                log.warn("Leader {} received heartbeat from another leader. Stepping down.", nodeId);
-                return nodeStateRepository.findByNodeId(nodeId)
-                        .flatMap(transactionalRaftService::stepDown);
-            }
+    private Mono<Void> becomeLeader(int term) {
+        NodeStateSnapshot leader = updateState(current ->
+                current.getCurrentTerm() == term && NodeState.CANDIDATE.equals(current.getState()) && !current.isStopped()
+                        ? current.withState(NodeState.LEADER)
+                        : current);
+        if (!leader.isLeader() || leader.getCurrentTerm() != term) {
+            log.info("Node {} is no longer a candidate for term {}. Ignoring election result.", nodeId, term);
             return Mono.empty();
+        }
+        log.info("Node {} became the leader for term {} in group {}", nodeId, term, groupId);
+        leaderUrl = ownNodeUrl;
+        replicationService.becomeLeader(term);
+        return persistState();
+    }
+
+    /**
+     * Sends periodic heartbeat messages to all followers.
+     * Heartbeats are AppendEntries requests, carrying any entry the followers are missing.
+     *
+     * @param current the current state of the node
+     */
+    private void sendHeartbeats(NodeStateSnapshot current) {
+        replicationService.sendHeartbeats(current.getCurrentTerm());
+    }
+
+    /**
+     * Handles an AppendEntries request (or heartbeat) from the leader node.
+     * Unless the request changes the term or the role of the node, the node state is not persisted.
+     *
+     * @param request the AppendEntries request
+     * @return a {@link Mono} emitting the {@link AppendEntriesResponse}, or empty if the node is stopped
+     */
+    public Mono<AppendEntriesResponse> appendEntries(AppendEntriesRequest request) {
+        return handleLeaderRequest("AppendEntries", request.getTerm(), request.getLeaderId(), request.getLeaderUrl(),
+                currentTerm -> replicationService.handleAppendEntries(request, currentTerm),
+                currentTerm -> new AppendEntriesResponse(currentTerm, false, 0, 0));
+    }
+
+    /**
+     * Handles an InstallSnapshot chunk from the leader node. Like AppendEntries, it resets the election timer.
+     *
+     * @param request the InstallSnapshot request
+     * @return a {@link Mono} emitting the {@link InstallSnapshotResponse}, or empty if the node is stopped
+     */
+    public Mono<InstallSnapshotResponse> installSnapshot(InstallSnapshotRequest request) {
+        return handleLeaderRequest("InstallSnapshot", request.getTerm(), request.getLeaderId(), request.getLeaderUrl(),
+                currentTerm -> replicationService.handleInstallSnapshot(request, currentTerm),
+                currentTerm -> new InstallSnapshotResponse(currentTerm, false, 0));
+    }
+
+    /**
+     * Common handling of the RPCs sent by a leader: stale terms are rejected, otherwise the node follows the
+     * sender, stepping down and persisting the new term first if needed, before the request itself is handled.
+     *
+     * @param rpc        the name of the RPC, for logging
+     * @param term       the leader's term
+     * @param leaderId   the ID of the leader
+     * @param leaderUrl  the URL of the leader
+     * @param handler    handles the request given the follower's current term
+     * @param rejection  builds the rejection sent back for a stale term
+     * @return a {@link Mono} emitting the response, or empty if the node is stopped
+     */
+    private <T> Mono<T> handleLeaderRequest(String rpc, int term, String leaderId, String leaderUrl,
+                                            IntFunction<Mono<T>> handler, IntFunction<T> rejection) {
+        return Mono.defer(() -> {
+            NodeStateSnapshot current = state.get();
+            if (current.isStopped()) {
+                // A stopped node behaves as if it had crashed
+                return Mono.empty();
+            }
+            if (term < current.getCurrentTerm()) {
+                log.debug("Rejected {} from {} with stale term {}", rpc, leaderId, term);
+                return Mono.just(rejection.apply(current.getCurrentTerm()));
+            }
+            lastHeartbeat = millis();
+            electionDeadline = lastHeartbeat + randomizedTimeout();
+            this.leaderUrl = leaderUrl;
+            // Concurrent requests come from the same leader: the one emitted carries the same term
+            leaderTerms.tryEmitNext(term);
+
+            if (term == current.getCurrentTerm() && NodeState.FOLLOWER.equals(current.getState())) {
+                return handler.apply(current.getCurrentTerm());
+            }
+
+            NodeStateSnapshot follower = updateState(latest -> {
+                if (term < latest.getCurrentTerm()) {
+                    return latest;
+                }
+                if (NodeState.LEADER.equals(latest.getState())) {
+                    log.warn("Leader {} received {} from leader {}. Stepping down.", nodeId, rpc, leaderId);
+                }
+                NodeStateSnapshot updated = term > latest.getCurrentTerm()
+                        ? latest.withNewTerm(term)
+                        : latest;
+                return updated.withState(NodeState.FOLLOWER);
+            });
+            if (follower.getCurrentTerm() != term) {
+                return Mono.just(rejection.apply(follower.getCurrentTerm()));
+            }
+            replicationService.stepDown();
+            return persistState()
+                    .then(Mono.defer(() -> handler.apply(follower.getCurrentTerm())));
         });
     }
 
     /**
-     * Monitors heartbeats to detect leader failures and initiate elections.
+     * Proposes a command to the replicated log. Only the leader accepts proposals.
+     *
+     * @param command the command to replicate
+     * @return a {@link Mono} emitting the state machine result once the entry is committed and applied
+     * @throws NotLeaderException if the node is not the leader
      */
-    @PostConstruct
-    public void monitorHeartbeats() {
-        Flux.interval(Duration.ofMillis(timeoutProperties.getHeartbeatInterval()))
+    public Mono<Object> propose(Command command) {
+        return Mono.defer(() -> {
+            NodeStateSnapshot current = state.get();
+            if (!current.isLeader()) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader.", leaderUrl));
+            }
+            return replicationService.propose(current.getCurrentTerm(), command);
+        });
+    }
 
-                .flatMap(tick -> nodeStateRepository.findByNodeId(nodeId)
-                        .flatMap(node -> {
-                            if (node.isStopped()) {
-                                log.info("Node {} is stopped. Ceasing heartbeat monitoring.", nodeId);
-                                return Mono.empty();
-                            }
-                            return isLeader().flatMap(isLeader -> {
-                                if (isLeader) {
-                                    // Leader sends heartbeats periodically
-                                    log.debug("Node {} is leader. Sending heartbeats.", nodeId);
-                                    return sendHeartbeats();
-                                } else {
-                                    // Follower monitors heartbeats
-                                    long now = System.currentTimeMillis();
-                                    // log.debug("Node {} is follower. Current time: {}, Election deadline: {}", nodeId, now, electionDeadline);
-                                    if (now > electionDeadline) {
-                                        log.info("Election deadline exceeded. Initiating election.");
-                                        return startElection()
-                                                .doOnSuccess(v -> {
-                                                    electionDeadline = System.currentTimeMillis() + randomizedTimeout();
-                                                    log.debug("Election initiated. New election deadline set to {}", electionDeadline);
-                                                })
-                                                .doOnError(e -> log.error("Failed to start election: {}", e.getMessage()));
-                                    }
-                                }
+    /**
+     * Serves a read-only command from the local state machine without appending it to the log.
+     * The read is linearizable: it reflects every write committed before it was received.
+     * <p>
+     * Followers and learners fetch a read index from the leader and answer once they have applied it, so reads
+     * scale with the number of replicas while only the index request reaches the leader.
+     * </p>
+     *
+     * @param command the read-only command
+     * @return a {@link Mono} emitting the result of the command, or empty if there is none
+     * @throws NotLeaderException if the read cannot be served by this node
+     */
+    public Mono<Object> read(Command command) {
+        return Mono.defer(() -> {
+            NodeStateSnapshot current = state.get();
+            if (current.isLeader()) {
+                return replicationService.read(current.getCurrentTerm(), command);
+            }
+            String leader = leaderUrl;
+            if (!readConfig.isFollowerReads() || leader == null) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader.", leader));
+            }
+            return peerClient.readIndex(leader, groupId)
+                    .timeout(readTimeout)
+                    .onErrorMap(e -> new NotLeaderException("No read index from " + leader + ": " + e.getMessage(), leader))
+                    .flatMap(readIndex -> replicationService.readAt(readIndex, command));
+        }).onErrorMap(NotLeaderException.class, e -> new NotLeaderException(e.getMessage(), leaderUrl));
+    }
+
+    /**
+     * Returns the read index a replica must apply before serving a linearizable read. Only the leader answers.
+     *
+     * @return a {@link Mono} emitting the read index
+     * @throws NotLeaderException if the node is not the leader or cannot confirm its leadership
+     */
+    public Mono<Long> readIndex() {
+        return Mono.defer(() -> {
+            NodeStateSnapshot current = state.get();
+            if (!current.isLeader()) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader.", leaderUrl));
+            }
+            return replicationService.readIndex(current.getCurrentTerm());
+        });
+    }
+
+    /**
+     * Steps down as soon as a follower reports a term higher than the one this node is leading.
+     */
+    @PostConstruct
+    public void monitorReplicationTerms() {
+        replicationService.higherTerms()
+                .concatMap(term -> {
+                    NodeStateSnapshot previous = state.get();
+                    NodeStateSnapshot updated = updateState(current -> term > current.getCurrentTerm()
+                            ? current.withNewTerm(term).withState(NodeState.FOLLOWER)
+                            : current);
+                    if (updated == previous || updated.getCurrentTerm() != term) {
+                        return Mono.empty();
+                    }
+                    log.info("Node {} discovered higher term {}. Stepping down.", nodeId, term);
+                    replicationService.stepDown();
+                    leaderUrl = null;
+                    // The former leader's deadline is stale: give the new leader a full timeout to show up
+                    electionDeadline = millis() + randomizedTimeout();
+                    return persistState()
+                            .onErrorResume(e -> {
+                                log.error("Failed to step down to term {}: {}", term, e.getMessage());
                                 return Mono.empty();
                             });
-                        }))
-                .subscribe(
-                        null,
-                        error -> log.error("Error in heartbeat monitoring: {}", error.getMessage()),
-                        () -> log.info("Heartbeat monitoring completed.")
-                );
+                })
+                .subscribe();
+    }
+
+    /**
+     * Runs one heartbeat interval of the group: the leader checks it may still lead and sends heartbeats. Called by
+     * the {@link RaftTimer} for every group at once, so that the heartbeats of all groups are coalesced.
+     *
+     * @return a {@link Mono} signaling completion of the step down, if any
+     */
+    public Mono<Void> tick() {
+        NodeStateSnapshot current = state.get();
+        if (current.isStopped()) {
+            log.debug("Node {} is stopped. Skipping heartbeat monitoring.", nodeId);
+            return Mono.empty();
+        }
+        if (current.isLeader()) {
+            if (replicationService.isRemovedFromConfiguration()) {
+                return stepDownInTerm(current.getCurrentTerm(), "has been removed from the voters of group " + groupId);
+            }
+            if (electionConfig.isCheckQuorum() && !replicationService.hasQuorumContact(readTimeout)) {
+                return stepDownInTerm(current.getCurrentTerm(), "has not heard from a majority of group " + groupId
+                        + " for " + readTimeout.toMillis() + " ms");
+            }
+            // Leader sends heartbeats periodically
+            log.debug("Node {} is leader of group {}. Sending heartbeats.", nodeId, groupId);
+            sendHeartbeats(current);
+        }
+        return Mono.empty();
+    }
+
+    /**
+     * Returns the time at which the node starts an election unless it hears from a leader in the meantime. Every
+     * AppendEntries or InstallSnapshot request from the leader moves it forward.
+     *
+     * @return the election deadline, in milliseconds of the node's monotonic clock
+     */
+    public long getElectionDeadline() {
+        return electionDeadline;
+    }
+
+    /**
+     * Starts an election if the election deadline has passed and the node is a voter that is not leading the
+     * group. Called by the {@link RaftTimer} when the election timer of the group fires.
+     *
+     * @return a {@link Mono} signaling completion of the election started, if any
+     */
+    public Mono<Void> checkElectionTimeout() {
+        NodeStateSnapshot current = state.get();
+        if (current.isStopped() || current.isLeader()) {
+            return Mono.empty();
+        }
+        if (isLearner()) {
+            // Learners wait for the leader, however long it takes
+            return Mono.empty();
+        }
+        long now = millis();
+        if (now > electionDeadline) {
+            log.info("Election deadline exceeded in group {}. Initiating election.", groupId);
+            return startElection()
+                    .doOnSuccess(v -> {
+                        electionDeadline = millis() + randomizedTimeout();
+                        log.debug("Election initiated. New election deadline set to {}", electionDeadline);
+                    })
+                    .doOnError(e -> log.error("Failed to start election: {}", e.getMessage()));
+        }
+        return Mono.empty();
+    }
+
+    /**
+     * Steps down from the leadership of the given term without moving to another term: either a majority has not
+     * answered within the maximum election timeout, so the clients are better served by the leader of that majority,
+     * or this node is no longer a voter and the remaining voters elect a leader among themselves.
+     */
+    private Mono<Void> stepDownInTerm(int term, String reason) {
+        NodeStateSnapshot updated = updateState(latest -> latest.isLeader() && latest.getCurrentTerm() == term
+                ? latest.withState(NodeState.FOLLOWER)
+                : latest);
+        if (updated.isLeader() || updated.getCurrentTerm() != term) {
+            return Mono.empty();
+        }
+        log.warn("Node {} {}. Stepping down.", nodeId, reason);
+        replicationService.stepDown();
+        leaderUrl = null;
+        electionDeadline = millis() + randomizedTimeout();
+        return persistState();
     }
 
     /**
@@ -338,47 +872,222 @@ public class RaftService {
     private long randomizedTimeout() {
         long min = timeoutProperties.getElectionTimeout().getMin();
         long max = timeoutProperties.getElectionTimeout().getMax();
-        return min + (long) (Math.random() * (max - min));
+        return min + (long) (random.nextDouble() * (max - min));
+    }
+
+    private long millis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong());
     }
 
     /**
      * Processes a vote request from a candidate.
+     * The vote is only granted if the candidate's log is at least as up-to-date as the local one.
+     * The new term and vote are persisted before the reply is sent.
      *
      * @param candidateId   the ID of the candidate requesting the vote
      * @param candidateTerm the term number of the candidate
+     * @param lastLogIndex  the index of the candidate's last log entry
+     * @param lastLogTerm   the term of the candidate's last log entry
+     * @return a {@link Mono} emitting {@code true} if the vote is granted, {@code false} otherwise
+     */
+    public Mono<Boolean> requestVote(String candidateId, int candidateTerm, long lastLogIndex, int lastLogTerm) {
+        return requestVote(new RequestVoteRequest(candidateId, candidateTerm, lastLogIndex, lastLogTerm, false, false));
+    }
+
+    /**
+     * Processes a vote or PreVote request from a candidate.
+     * <p>
+     * A PreVote is granted, without changing the local state, when the node has not heard from a leader within the
+     * minimum election timeout and the candidate's log is at least as up-to-date as the local one. A candidate started
+     * by a leadership transfer is granted the vote even if the leader is still heard from, since that leader has
+     * stopped serving lease reads.
+     * </p>
+     *
+     * @param request the vote request
      * @return a {@link Mono} emitting {@code true} if the vote is granted, {@code false} otherwise
      */
-    public Mono<Boolean> requestVote(String candidateId, int candidateTerm) {
+    public Mono<Boolean> requestVote(RequestVoteRequest request) {
+        return (request.isPreVote() ? preVote(request) : vote(request))
+                .doOnNext(granted -> metrics.recordVote(request.isPreVote(), granted));
+    }
+
+    private Mono<Boolean> vote(RequestVoteRequest request) {
+        String candidateId = request.getCandidateId();
+        int candidateTerm = request.getCandidateTerm();
+        long lastLogIndex = request.getLastLogIndex();
+        int lastLogTerm = request.getLastLogTerm();
+        boolean leadershipTransfer = request.isLeadershipTransfer();
         log.debug("Received vote request from {} with term {}", candidateId, candidateTerm);
-        return nodeStateRepository.findByNodeId(nodeId).flatMap(node -> {
-            if (candidateTerm > node.getCurrentTerm()) {
-                node.setCurrentTerm(candidateTerm);
-                node.setVotedFor(candidateId);
-                node.setState(NodeState.FOLLOWER);
-                log.debug("Voted in favor of {} for higher term {}", candidateId, candidateTerm);
-                return transactionalRaftService.saveNodeState(node)
-                        .thenReturn(true);
-            } else if (candidateTerm == node.getCurrentTerm() && (node.getVotedFor() == null || node.getVotedFor().equals(candidateId))) {
-                node.setVotedFor(candidateId);
-                node.setState(NodeState.FOLLOWER);
-                log.debug("Voted in favor of {} for current term {}", candidateId, candidateTerm);
-                return transactionalRaftService.saveNodeState(node)
-                        .thenReturn(true);
+        return Mono.defer(() -> {
+            NodeStateSnapshot previous = state.get();
+            if (isLearner()) {
+                log.debug("Ignored vote request from {}: learners do not vote", candidateId);
+                return Mono.just(false);
+            }
+            if (readConfig.isLeaseEnabled() && !leadershipTransfer && candidateTerm > previous.getCurrentTerm()
+                    && hearsFromLeader(previous)) {
+                // The leader may be serving reads under its lease: no other leader can be elected until it expires
+                log.debug("Ignored vote request from {}: a leader is still active", candidateId);
+                return Mono.just(false);
+            }
+            NodeStateSnapshot updated = updateState(current -> {
+                NodeStateSnapshot next = current;
+                if (candidateTerm > current.getCurrentTerm()) {
+                    next = current.withNewTerm(candidateTerm).withState(NodeState.FOLLOWER);
+                }
+                if (candidateTerm == next.getCurrentTerm()
+                        && (next.getVotedFor() == null || next.getVotedFor().equals(candidateId))
+                        && replicationService.isLogUpToDate(lastLogIndex, lastLogTerm)) {
+                    next = next.withVotedFor(candidateId).withState(NodeState.FOLLOWER);
+                }
+                return next;
+            });
+            boolean voteGranted = candidateTerm == updated.getCurrentTerm() && candidateId.equals(updated.getVotedFor());
+            if (NodeState.LEADER.equals(previous.getState()) && !updated.isLeader()) {
+                replicationService.stepDown();
+                leaderUrl = null;
+                electionDeadline = millis() + randomizedTimeout();
+            }
+            if (voteGranted) {
+                electionDeadline = millis() + randomizedTimeout();
+                log.debug("Voted in favor of {} for term {}", candidateId, candidateTerm);
+            } else {
+                log.debug("Voted against {} for term {}", candidateId, candidateTerm);
             }
-            log.debug("Voted against {} for term {}", candidateId, candidateTerm);
-            return Mono.just(false);
+            if (updated.equals(previous)) {
+                return Mono.just(voteGranted);
+            }
+            return persistState().thenReturn(voteGranted);
+        });
+    }
+
+    private Mono<Boolean> preVote(RequestVoteRequest request) {
+        return Mono.fromSupplier(() -> {
+            NodeStateSnapshot current = state.get();
+            boolean granted = !isLearner() && !current.isStopped()
+                    && request.getCandidateTerm() > current.getCurrentTerm()
+                    && !hearsFromLeader(current)
+                    && replicationService.isLogUpToDate(request.getLastLogIndex(), request.getLastLogTerm());
+            log.debug("PreVote {} to {} for term {}", granted ? "granted" : "rejected", request.getCandidateId(),
+                    request.getCandidateTerm());
+            return granted;
+        });
+    }
+
+    /**
+     * Processes a TimeoutNow request from the leader, which hands its leadership over to this node: an election is
+     * started at once, without waiting for the election timeout.
+     *
+     * @param request the TimeoutNow request
+     * @return a {@link Mono} emitting {@code true} if an election was started, {@code false} otherwise
+     */
+    public Mono<Boolean> timeoutNow(TimeoutNowRequest request) {
+        return Mono.defer(() -> {
+            NodeStateSnapshot current = state.get();
+            if (current.isStopped() || isLearner() || current.isLeader() || request.getTerm() != current.getCurrentTerm()) {
+                log.debug("Ignored TimeoutNow from {} for term {}", request.getLeaderId(), request.getTerm());
+                return Mono.just(false);
+            }
+            log.info("Node {} received TimeoutNow from {}. Starting an election in group {}.", nodeId,
+                    request.getLeaderId(), groupId);
+            // Answered right away: the leader learns the outcome from the vote request
+            startElection(true)
+                    .doOnSuccess(v -> electionDeadline = millis() + randomizedTimeout())
+                    .subscribe(null, e -> log.error("Failed to start election: {}", e.getMessage()));
+            return Mono.just(true);
+        });
+    }
+
+    /**
+     * Hands the leadership of this group over to another voting member, which becomes leader within about a
+     * round trip instead of an election timeout.
+     *
+     * @param targetUrl the URL of the node to transfer the leadership to
+     * @return a {@link Mono} completing once another node is known as leader, or right away if this node is the target,
+     * failing with a {@link LeadershipTransferException} if no new leader is heard from in time
+     */
+    public Mono<Void> transferLeadership(String targetUrl) {
+        return Mono.defer(() -> {
+            NodeStateSnapshot current = state.get();
+            if (!current.isLeader() || current.isStopped()) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader of group " + groupId + ".",
+                        leaderUrl));
+            }
+            if (ownNodeUrl.equals(targetUrl)) {
+                return Mono.empty();
+            }
+            int term = current.getCurrentTerm();
+            // The new leader announces itself with its first heartbeat, right after its election. The latest term
+            // is replayed, so a heartbeat received before the step-down completes is not missed
+            return replicationService.transferLeadership(term, targetUrl)
+                    .then(leaderTerms.asFlux()
+                            .filter(leaderTerm -> leaderTerm > term)
+                            .next()
+                            .timeout(readTimeout, Mono.error(() -> new LeadershipTransferException("Node " + nodeId
+                                    + " stepped down, but no new leader of group " + groupId + " was heard from in time.")))
+                            .then());
+        });
+    }
+
+    /**
+     * Returns the members of the group, as of the latest configuration in this node's log.
+     *
+     * @return the {@link MembershipDTO} of the group
+     */
+    public MembershipDTO getMembership() {
+        ClusterConfiguration configuration = replicationService.getConfiguration();
+        return new MembershipDTO(groupId, configuration.getIndex(), configuration.getVoters(), configuration.getLearners());
+    }
+
+    /**
+     * Adds a member to the group or removes one, through the log. A node added as a voter first catches up as a
+     * learner.
+     *
+     * @param request the membership change
+     * @return a {@link Mono} emitting the members of the group once the change is committed
+     * @throws NotLeaderException        if this node is not the group's leader
+     * @throws MembershipChangeException if another change is in progress or the new member did not catch up in time
+     */
+    public Mono<MembershipDTO> changeMembership(MembershipChangeRequest request) {
+        return Mono.defer(() -> {
+            NodeStateSnapshot current = state.get();
+            if (!current.isLeader() || current.isStopped()) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader of group " + groupId + ".",
+                        leaderUrl));
+            }
+            String nodeUrl = request.getNodeUrl();
+            if (nodeUrl == null || nodeUrl.isBlank() || request.getChange() == null) {
+                return Mono.error(new IllegalArgumentException("A membership change needs a node URL and a change."));
+            }
+            int term = current.getCurrentTerm();
+            Mono<ClusterConfiguration> changed = switch (request.getChange()) {
+                case ADD_VOTER -> replicationService.addMember(term, nodeUrl, true);
+                case ADD_LEARNER -> replicationService.addMember(term, nodeUrl, false);
+                case REMOVE -> replicationService.removeMember(term, nodeUrl);
+            };
+            return changed.map(configuration -> new MembershipDTO(groupId, configuration.getIndex(),
+                    configuration.getVoters(), configuration.getLearners()));
         });
     }
 
+    /**
+     * Checks whether this node is the leader or has heard from one within the minimum election timeout.
+     *
+     * @param current the current state of the node
+     * @return {@code true} if a leader is known to be active
+     */
+    private boolean hearsFromLeader(NodeStateSnapshot current) {
+        return current.isLeader()
+                || millis() - lastHeartbeat < timeoutProperties.getElectionTimeout().getMin();
+    }
+
     /**
      * Checks if the current node is the leader.
      *
-     * @return a {@link Mono} emitting {@code true} if the node is the leader, {@code false} otherwise
+     * @return {@code true} if the node is the leader, {@code false} otherwise
      */
-    private Mono<Boolean> isLeader() {
-        return nodeStateRepository.findByNodeId(nodeId)
-                .map(node -> NodeState.LEADER.equals(node.getState()) && !node.isStopped())
-                .defaultIfEmpty(false);
+    private boolean isLeader() {
+        return state.get().isLeader();
     }
 
     /**
@@ -389,21 +1098,12 @@ public class RaftService {
      * @return a {@link Mono} signaling completion
      */
     public Mono<Void> stopNode() {
-        return nodeStateRepository.findByNodeId(nodeId)
-                .switchIfEmpty(Mono.defer(() -> {
-                    NodeStateEntity node = new NodeStateEntity();
-                    node.setNodeId(nodeId);
-                    node.setState(NodeState.DOWN);
-                    node.setCurrentTerm(0);
-                    node.setIsStopped(true);
-                    return transactionalRaftService.saveNodeState(node);
-                }))
-                .flatMap(node -> {
-                    node.setState(NodeState.DOWN);
-                    node.setIsStopped(true);
-                    log.info("Node {} has been stopped and set to DOWN state.", nodeId);
-                    return transactionalRaftService.saveNodeState(node).then();
-                });
+        return Mono.defer(() -> {
+            replicationService.stepDown();
+            updateState(current -> current.withState(NodeState.DOWN).withStopped(true));
+            log.info("Node {} has been stopped and set to DOWN state.", nodeId);
+            return persistState();
+        });
     }
 
     /**
@@ -414,73 +1114,50 @@ public class RaftService {
      * @return a {@link Mono} signaling completion
      */
     public Mono<Void> resumeNode() {
-        return nodeStateRepository.findByNodeId(nodeId)
-                .switchIfEmpty(Mono.error(new IllegalStateException("Node not initialized.")))
-                .flatMap(node -> {
-                    node.setIsStopped(false);
-                    if (node.getState() == NodeState.DOWN) {
-                        node.setState(NodeState.FOLLOWER);
-                    }
-                    log.info("Node {} has been resumed and is now active.", nodeId);
-                    return transactionalRaftService.saveNodeState(node).then();
-                });
+        return Mono.defer(() -> {
+            updateState(current -> current
+                    .withStopped(false)
+                    .withState(NodeState.DOWN.equals(current.getState()) ? NodeState.FOLLOWER : current.getState()));
+            log.info("Node {} has been resumed and is now active.", nodeId);
+            return persistState();
+        });
     }
 
     /**
-     * Retrieves the status of all nodes in the cluster.
-     *
-     * @return a {@link Mono} emitting a list of {@link NodeStatusDTO} representing each node's status
-     */
-    public Mono<List<NodeStatusDTO>> getAllNodeStatuses() {
-        return Flux.fromIterable(clusterNodes).flatMap(nodeUrl -> {
-            if (nodeUrl.equals(ownNodeUrl)) {
-                // Get status from local database
-                return nodeStateRepository.findByNodeId(nodeId).map(node -> new NodeStatusDTO(
-                                node.getNodeId(),
-                                node.getState(),
-                                node.getCurrentTerm(),
-                                node.getVotedFor(),
-                                nodeUrl,
-                                node.isStopped()
-                        ))
-                        .onErrorResume(e -> {
-                            if (isNodeUp(e, nodeUrl)) {
-                                log.error("Error retrieving local state: {}", e.getMessage());
-                            }
-                            // If it fails, consider the node as DOWN
-                            return Mono.just(new NodeStatusDTO(nodeId, NodeState.DOWN, 0, "None", nodeUrl, true));
-                        });
-            } else {
-                // Request status from other nodes
-                return webClient.get().uri("http://" + nodeUrl + "/raft/status").retrieve().bodyToMono(NodeStatusDTO.class).map(dto -> {
-                    dto.setNodeUrl(nodeUrl); // Set nodeUrl in DTO
-                    return dto;
-                }).onErrorResume(e -> {
-                    if (isNodeUp(e, nodeUrl)) {
-                        log.error("Error fetching status from {}: {}", nodeUrl, e.getMessage());
-                    }
-                    // Assign nodeUrl as identifier if nodeId cannot be obtained
-                    return Mono.just(new NodeStatusDTO(nodeUrl, NodeState.DOWN, 0, "None", nodeUrl, true));
-                });
-            }
-        }).collectList();
+     * Retrieves the status of the current node from the in-memory state.
+     *
+     * @return a {@link Mono} emitting the {@link NodeStatusDTO} of the current node
+     */
+    public Mono<NodeStatusDTO> getNodeStatus() {
+        return Mono.fromSupplier(() -> {
+            NodeStateSnapshot current = state.get();
+            return new NodeStatusDTO(
+                    nodeId,
+                    current.isStopped() ? NodeState.DOWN : !current.isLeader() && isLearner() ? NodeState.LEARNER : current.getState(),
+                    current.getCurrentTerm(),
+                    current.getVotedFor(),
+                    ownNodeUrl,
+                    current.isStopped()
+            );
+        });
     }
 
     /**
-     * Retrieves the node state entity for the current node.
+     * Retrieves the node state entity for the current node, built from the in-memory state.
      *
      * @return a {@link Mono} emitting the {@link NodeStateEntity} of the current node
-     * @throws NodeStateNotFoundException if the node state is not found
      */
     public Mono<NodeStateEntity> getNodeStatusEntity() {
         // log.debug("Status request received for node {}", nodeId);
-        return nodeStateRepository.findByNodeId(nodeId)
-                .switchIfEmpty(Mono.error(new NodeStateNotFoundException("Node state not found")))
-                .flatMap(node -> {
-                    if (node.isStopped()) {
-                        node.setState(NodeState.DOWN);
-                    }
-                    return Mono.just(node);
-                });
+        return Mono.fromSupplier(() -> {
+            NodeStateEntity node = state.get().toEntity(nodeId);
+            node.setId(entityId);
+            if (node.isStopped()) {
+                node.setState(NodeState.DOWN);
+            } else if (!NodeState.LEADER.equals(node.getState()) && isLearner()) {
+                node.setState(NodeState.LEARNER);
+            }
+            return node;
+        });
     }
 }
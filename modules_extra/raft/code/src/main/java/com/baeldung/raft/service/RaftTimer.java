@@ -0,0 +1,153 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.coordination.HashedWheelTimer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Drives the timing of the Raft groups hosted by a node.
+ * <p>
+ * Two periodic tasks run on schedulers of their own, away from the database, storage and RPC threads. The heartbeat
+ * task runs every {@code raft.heartbeatInterval} milliseconds on the
+ * {@linkplain com.baeldung.raft.transport.PeerClient#getHeartbeatScheduler() heartbeat scheduler}, so that the
+ * heartbeats of all the groups led by the node reach each peer in one message. The election task expires the
+ * election timers of the groups, kept in a {@link HashedWheelTimer} with a tick of a tenth of the minimum election
+ * timeout. Both only start asynchronous work, such as an election or a step down, and return: a slow task delays
+ * the next tick instead of running alongside it.
+ * </p>
+ * <p>
+ * A request from the leader only moves the {@linkplain RaftService#getElectionDeadline() election deadline} of a
+ * follower, a single volatile write. When the timer of the group fires before that deadline, it is re-armed at the
+ * deadline, reusing its wheel entry, so that followers allocate nothing per heartbeat.
+ * </p>
+ */
+@Slf4j
+public class RaftTimer {
+    private static final int ELECTION_TICKS_PER_TIMEOUT = 10;
+
+    private final List<RaftService> groups;
+    private final Scheduler.Worker heartbeatWorker;
+    private final Scheduler.Worker electionWorker;
+    private final LongSupplier nanoClock;
+    private final long heartbeatIntervalMillis;
+    private final long electionTickNanos;
+    private final long minElectionTimeoutNanos;
+    private final HashedWheelTimer<ElectionTimer> wheel;
+    private final List<RaftService> electionsDue = new ArrayList<>();
+
+    /**
+     * Constructs a new {@code RaftTimer}.
+     *
+     * @param groups             the Raft groups hosted by the node
+     * @param timeoutConfig      the Raft timeout configuration
+     * @param heartbeatScheduler the scheduler the heartbeats are sent on
+     * @param electionScheduler  the scheduler the election timers are expired on, one task at a time
+     * @param nanoClock          the monotonic clock of the groups
+     */
+    public RaftTimer(List<RaftService> groups, TimeoutConfig timeoutConfig, Scheduler heartbeatScheduler,
+                     Scheduler electionScheduler, LongSupplier nanoClock) {
+        this.groups = List.copyOf(groups);
+        this.heartbeatWorker = heartbeatScheduler.createWorker();
+        this.electionWorker = electionScheduler.createWorker();
+        this.nanoClock = nanoClock;
+        this.heartbeatIntervalMillis = timeoutConfig.getHeartbeatInterval();
+        this.minElectionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutConfig.getElectionTimeout().getMin());
+        this.electionTickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1),
+                minElectionTimeoutNanos / ELECTION_TICKS_PER_TIMEOUT);
+        // One turn covers the longest election timeout, including the head start of the first election
+        long maxDeadlineNanos = 2 * TimeUnit.MILLISECONDS.toNanos(timeoutConfig.getElectionTimeout().getMax());
+        this.wheel = new HashedWheelTimer<>(electionTickNanos,
+                (int) Math.min(1 << 16, maxDeadlineNanos / electionTickNanos + 1), nanoClock.getAsLong());
+    }
+
+    /**
+     * Arms the election timer of every group and starts both periodic tasks.
+     */
+    public void start() {
+        // The wheel is only ever touched by the election worker
+        electionWorker.schedule(() -> {
+            for (RaftService group : groups) {
+                ElectionTimer timer = new ElectionTimer(group);
+                timer.timeout = wheel.schedule(timer, deadlineNanos(group));
+            }
+        });
+        heartbeatWorker.schedulePeriodically(this::sendHeartbeats,
+                heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+        electionWorker.schedulePeriodically(this::expireElectionTimers,
+                electionTickNanos, electionTickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs one heartbeat interval of every group.
+     */
+    private void sendHeartbeats() {
+        for (RaftService group : groups) {
+            Mono.defer(group::tick).subscribe(null, e ->
+                    log.error("Error in heartbeat monitoring of group {}: {}", group.getGroupId(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Expires the election timers due, and starts an election in the groups whose deadline has passed.
+     */
+    private void expireElectionTimers() {
+        wheel.advance(nanoClock.getAsLong(), this::onElectionTimer);
+        if (electionsDue.isEmpty()) {
+            return;
+        }
+        for (RaftService group : electionsDue) {
+            // A group already running an election ignores the call
+            Mono.defer(group::checkElectionTimeout).subscribe(null, e ->
+                    log.error("Error in election monitoring of group {}: {}", group.getGroupId(), e.getMessage()));
+        }
+        electionsDue.clear();
+    }
+
+    private void onElectionTimer(ElectionTimer timer) {
+        long now = nanoClock.getAsLong();
+        long deadline = deadlineNanos(timer.group);
+        if (deadline > now) {
+            // Heard from the leader since the timer was armed
+            wheel.reschedule(timer.timeout, deadline);
+            return;
+        }
+        electionsDue.add(timer.group);
+        // Leaders and running elections leave the deadline behind: checked again after the shortest election timeout
+        wheel.reschedule(timer.timeout, now + minElectionTimeoutNanos);
+    }
+
+    /**
+     * Returns the first time at which the group sees its election deadline as passed, the deadline being in
+     * milliseconds.
+     */
+    private static long deadlineNanos(RaftService group) {
+        return TimeUnit.MILLISECONDS.toNanos(group.getElectionDeadline() + 1);
+    }
+
+    /**
+     * Stops both periodic tasks.
+     */
+    public void stop() {
+        heartbeatWorker.dispose();
+        electionWorker.dispose();
+    }
+
+    /**
+     * Election timer of a group, armed once and re-armed in place.
+     */
+    private static final class ElectionTimer {
+        private final RaftService group;
+        private HashedWheelTimer.Timeout<ElectionTimer> timeout;
+
+        private ElectionTimer(RaftService group) {
+            this.group = group;
+        }
+    }
+}
@@ -0,0 +1,1353 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ReplicationConfig;
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.exception.LeadershipTransferException;
+import com.baeldung.raft.exception.MembershipChangeException;
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.membership.ClusterConfiguration;
+import com.baeldung.raft.membership.ClusterMembership;
+import com.baeldung.raft.metrics.RaftMetrics;
+import com.baeldung.raft.persistence.log.LogEntry;
+import com.baeldung.raft.persistence.log.RaftLog;
+import com.baeldung.raft.persistence.snapshot.SnapshotMetadata;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.StateMachine;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import com.baeldung.raft.web.dto.InstallSnapshotResponse;
+import com.baeldung.raft.web.dto.TimeoutNowRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Service handling the replicated log: AppendEntries on both the leader and follower side,
+ * commit index tracking and application of committed entries to the {@link StateMachine}.
+ * Followers that are behind the start of the compacted log are sent the latest snapshot instead.
+ * <p>
+ * Reads are served by the leader without going through the log (ReadIndex, Raft thesis §6.4): the leader records
+ * its commit index, confirms it is still leader with a round of heartbeats and answers once that index is applied.
+ * Concurrent reads share the same round. With the lease enabled, the round is skipped while a majority acknowledged
+ * the leader less than a lease duration ago. Followers and learners serve reads the same way, with a read index
+ * obtained from the leader.
+ * </p>
+ * <p>
+ * Learners are replicated to like followers, but their acknowledgements count neither towards the commit quorum
+ * nor towards the confirmation of the leadership.
+ * </p>
+ * <p>
+ * Client commands are queued on the leader and appended in batches of up to {@code maxProposalBatch} commands:
+ * each batch takes the log lock once, triggers a single replication round and a single disk sync.
+ * </p>
+ * <p>
+ * Leadership is handed over to a follower without waiting for an election timeout (Raft thesis §3.10): the leader
+ * stops accepting proposals, brings the target up to date, then sends it TimeoutNow so that it starts an election
+ * at once. The lease is not trusted during a transfer, since the target may win before it expires.
+ * </p>
+ * <p>
+ * Members are added and removed one at a time, with {@code CONFIGURATION} entries (Raft thesis §4.2): any majority of
+ * the old configuration then overlaps any majority of the new one, so no joint configuration is needed. A new member
+ * first joins as a learner and is only promoted to voter once it has caught up, so that it does not stall commits.
+ * The quorums always follow the latest configuration in the log, committed or not.
+ * </p>
+ */
+@Service
+@Slf4j
+public class ReplicationService {
+    private static final Duration CATCH_UP_POLL_INTERVAL = Duration.ofMillis(5);
+
+    private final RaftLog raftLog;
+    private final StateMachine stateMachine;
+    private final SnapshotService snapshotService;
+    private final ClusterMembership membership;
+    private final ReplicationConfig replicationConfig;
+    private final ReadConfig readConfig;
+    private final PeerClient peerClient;
+    private final RaftMetrics metrics;
+    private final Duration rpcTimeout;
+    private final Duration readTimeout;
+    private final long leaseNanos;
+    private final long heartbeatIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final long clockOrigin;
+    private final int groupId;
+    private final String nodeId;
+    private final String ownNodeUrl;
+    private final Set<String> gaugedPeers = new HashSet<>();
+    private final Map<Long, Proposal> proposals = new ConcurrentHashMap<>();
+    private final Sinks.Many<Integer> higherTerms = Sinks.many().multicast().directBestEffort();
+    private final Object commitLock = new Object();
+    private final Object applyLock = new Object();
+    private final Object transferLock = new Object();
+    private final ArrayDeque<PendingRead> pendingReads = new ArrayDeque<>();
+    private final TreeMap<Long, List<CompletableFuture<Void>>> applyWaiters = new TreeMap<>();
+    private final AtomicBoolean readRoundScheduled = new AtomicBoolean(false);
+    private final ArrayDeque<PendingProposal> proposalQueue = new ArrayDeque<>();
+    private final AtomicBoolean proposalDrainScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean membershipChangeInProgress = new AtomicBoolean(false);
+
+    // Replaced as a whole on each configuration change, so that the quorums never mix two configurations
+    private volatile Members members;
+    private volatile long commitIndex = 0;
+    private volatile int leaderTerm = -1;
+    private volatile long termStartIndex = 0;
+    private volatile long leaderSince;
+    private volatile LeadershipTransfer transfer;
+
+    /**
+     * Constructs the {@code ReplicationService} of the default Raft group.
+     *
+     * @param raftLog           the replicated log
+     * @param stateMachine      the state machine committed entries are applied to
+     * @param snapshotService   the service managing snapshots
+     * @param membership        the configuration of the group
+     * @param peerClient        the client sending RPCs to the followers
+     * @param nodeConfig        the configuration properties for the node
+     * @param timeoutConfig     the Raft timeout configuration, used to bound each RPC
+     * @param replicationConfig the replication configuration
+     * @param readConfig        the read configuration
+     * @param serverPort        the server port on which the node is running
+     * @param meterRegistry     the registry of the replication and storage metrics
+     */
+    @Autowired
+    public ReplicationService(RaftLog raftLog,
+                              StateMachine stateMachine,
+                              SnapshotService snapshotService,
+                              ClusterMembership membership,
+                              PeerClient peerClient,
+                              NodeConfig nodeConfig,
+                              TimeoutConfig timeoutConfig,
+                              ReplicationConfig replicationConfig,
+                              ReadConfig readConfig,
+                              @Value("${server.port}") int serverPort,
+                              MeterRegistry meterRegistry) {
+        this(0, raftLog, stateMachine, snapshotService, membership, peerClient, nodeConfig, timeoutConfig, replicationConfig,
+                readConfig, serverPort, meterRegistry, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new {@code ReplicationService} with the specified dependencies.
+     *
+     * @param groupId           the ID of the Raft group whose log is replicated
+     * @param raftLog           the replicated log
+     * @param stateMachine      the state machine committed entries are applied to
+     * @param snapshotService   the service managing snapshots
+     * @param membership        the configuration of the group
+     * @param peerClient        the client sending RPCs to the followers
+     * @param nodeConfig        the configuration properties for the node
+     * @param timeoutConfig     the Raft timeout configuration, used to bound each RPC
+     * @param replicationConfig the replication configuration
+     * @param readConfig        the read configuration
+     * @param serverPort        the server port on which the node is running
+     * @param meterRegistry     the registry of the replication and storage metrics
+     * @param nanoClock         the monotonic clock, in nanoseconds, used for leases
+     */
+    public ReplicationService(int groupId,
+                              RaftLog raftLog,
+                              StateMachine stateMachine,
+                              SnapshotService snapshotService,
+                              ClusterMembership membership,
+                              PeerClient peerClient,
+                              NodeConfig nodeConfig,
+                              TimeoutConfig timeoutConfig,
+                              ReplicationConfig replicationConfig,
+                              ReadConfig readConfig,
+                              int serverPort,
+                              MeterRegistry meterRegistry,
+                              LongSupplier nanoClock) {
+        this.groupId = groupId;
+        this.nanoClock = nanoClock;
+        this.clockOrigin = nanoClock.getAsLong();
+        this.raftLog = raftLog;
+        this.stateMachine = stateMachine;
+        this.snapshotService = snapshotService;
+        this.membership = membership;
+        // Everything included in the restored snapshot is committed
+        this.commitIndex = snapshotService.getSnapshotIndex();
+        this.replicationConfig = replicationConfig;
+        this.readConfig = readConfig;
+        this.peerClient = peerClient;
+        this.rpcTimeout = Duration.ofMillis(timeoutConfig.getElectionTimeout().getMin());
+        // A leader that cannot reach a majority within an election timeout has most likely been replaced
+        this.readTimeout = Duration.ofMillis(timeoutConfig.getElectionTimeout().getMax());
+        // Followers do not start an election before the minimum election timeout: minus the drift, that is the lease
+        this.leaseNanos = (long) (TimeUnit.MILLISECONDS.toNanos(timeoutConfig.getElectionTimeout().getMin())
+                * (1 - readConfig.getClockDriftBound()));
+        this.heartbeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(timeoutConfig.getHeartbeatInterval());
+        this.nodeId = nodeConfig.getId();
+        this.ownNodeUrl = "localhost:" + serverPort;
+        this.metrics = new RaftMetrics(meterRegistry, groupId);
+        membership.recover(raftLog);
+        membership.addListener(this::onConfigurationChanged);
+        onConfigurationChanged(membership.current());
+    }
+
+    /**
+     * Replicates to the members of a new configuration: the followers already known keep their replication state,
+     * the new ones are probed from the end of the log, and the removed ones are no longer sent anything.
+     */
+    private void onConfigurationChanged(ClusterConfiguration configuration) {
+        Map<String, PeerReplicator> previous = new LinkedHashMap<>();
+        if (members != null) {
+            members.peers.forEach(peer -> previous.put(peer.peerUrl, peer));
+        }
+        List<PeerReplicator> peers = new ArrayList<>();
+        addPeers(peers, previous, configuration.getVoters(), true);
+        addPeers(peers, previous, configuration.getLearners(), false);
+        previous.values().forEach(peer -> peer.removed = true);
+        members = new Members(configuration, List.copyOf(peers));
+        log.info("Group {} configuration at index {}: voters {}, learners {}", groupId, configuration.getIndex(),
+                configuration.getVoters(), configuration.getLearners());
+    }
+
+    private void addPeers(List<PeerReplicator> peers, Map<String, PeerReplicator> previous, List<String> nodeUrls,
+                          boolean voter) {
+        for (String nodeUrl : nodeUrls) {
+            if (nodeUrl.equals(ownNodeUrl)) {
+                continue;
+            }
+            PeerReplicator peer = previous.remove(nodeUrl);
+            if (peer == null) {
+                peer = new PeerReplicator(nodeUrl);
+                if (leaderTerm != -1) {
+                    peer.reset(raftLog.getLastIndex() + 1);
+                }
+                if (gaugedPeers.add(nodeUrl)) {
+                    metrics.gaugeFollowerLag(nodeUrl, this, service -> service.followerLag(nodeUrl));
+                }
+            }
+            peer.voter = voter;
+            peers.add(peer);
+        }
+    }
+
+    /**
+     * Emits every term higher than the leader's one that is observed in an AppendEntries response.
+     * The leader must step down when that happens.
+     *
+     * @return a {@link Flux} of observed higher terms
+     */
+    public Flux<Integer> higherTerms() {
+        return higherTerms.asFlux();
+    }
+
+    public long getCommitIndex() {
+        return commitIndex;
+    }
+
+    public long getLastLogIndex() {
+        return raftLog.getLastIndex();
+    }
+
+    public int getLastLogTerm() {
+        return raftLog.getLastTerm();
+    }
+
+    /**
+     * Returns the configuration of the group in effect on this node.
+     *
+     * @return the latest {@link ClusterConfiguration} of the log
+     */
+    public ClusterConfiguration getConfiguration() {
+        return members.configuration;
+    }
+
+    /**
+     * Tells whether this node has been removed from the voters by a committed configuration. A leader in that case
+     * must step down; until the configuration is committed, it keeps replicating it without counting itself.
+     *
+     * @return {@code true} if this node no longer votes in the group
+     */
+    public boolean isRemovedFromConfiguration() {
+        ClusterConfiguration configuration = members.configuration;
+        return !configuration.isVoter(ownNodeUrl) && configuration.getIndex() <= commitIndex;
+    }
+
+    /**
+     * Returns the number of entries of the leader's log a follower has not acknowledged yet.
+     *
+     * @param peerUrl the URL of the follower
+     * @return the lag of the follower, {@code 0} when this node is not the leader or the follower is not a member
+     */
+    private long followerLag(String peerUrl) {
+        PeerReplicator peer = peer(peerUrl);
+        if (leaderTerm == -1 || peer == null) {
+            return 0;
+        }
+        return Math.max(0, raftLog.getLastIndex() - peer.matchIndex);
+    }
+
+    private PeerReplicator peer(String peerUrl) {
+        return members.peers.stream().filter(peer -> peer.peerUrl.equals(peerUrl)).findFirst().orElse(null);
+    }
+
+    /**
+     * Checks whether a candidate's log is at least as up-to-date as the local one (Raft §5.4.1).
+     *
+     * @param lastLogIndex the index of the candidate's last log entry
+     * @param lastLogTerm  the term of the candidate's last log entry
+     * @return {@code true} if the candidate's log is at least as up-to-date
+     */
+    public boolean isLogUpToDate(long lastLogIndex, int lastLogTerm) {
+        synchronized (raftLog) {
+            int localLastTerm = raftLog.getLastTerm();
+            return lastLogTerm > localLastTerm
+                    || (lastLogTerm == localLastTerm && lastLogIndex >= raftLog.getLastIndex());
+        }
+    }
+
+    /**
+     * Initializes the leader state after winning an election: every follower is assumed to be up to date,
+     * and a NOOP entry is appended so that entries from previous terms can be committed.
+     *
+     * @param term the term the node is leader for
+     */
+    public void becomeLeader(int term) {
+        leaderSince = now();
+        leaderTerm = term;
+        long nextIndex = raftLog.getLastIndex() + 1;
+        members.peers.forEach(peer -> peer.reset(nextIndex));
+        LogEntry noop = raftLog.append(term, Command.noop());
+        // Reads must wait for the NOOP: until then the leader may not know every committed entry (Raft §8)
+        termStartIndex = noop.getIndex();
+        replicate(term, true);
+        flush(noop.getIndex()).thenRun(() -> advanceCommitIndex(term));
+    }
+
+    /**
+     * Clears the leader state. Proposals still waiting to be applied are failed, since their outcome
+     * is now decided by the next leader.
+     */
+    public void stepDown() {
+        if (leaderTerm == -1) {
+            return;
+        }
+        leaderTerm = -1;
+        metrics.recordLeaderTenure(now() - leaderSince);
+        LeadershipTransfer completed;
+        synchronized (transferLock) {
+            completed = transfer;
+            transfer = null;
+        }
+        if (completed != null) {
+            completed.done.complete(null);
+        }
+        proposals.keySet().forEach(index -> {
+            Proposal proposal = proposals.remove(index);
+            if (proposal != null) {
+                proposal.result.completeExceptionally(
+                        new NotLeaderException("Leadership lost before entry " + index + " was committed.", null));
+            }
+        });
+        List<CompletableFuture<Void>> reads = new ArrayList<>();
+        synchronized (pendingReads) {
+            pendingReads.forEach(read -> reads.add(read.confirmed));
+            pendingReads.clear();
+        }
+        synchronized (applyLock) {
+            applyWaiters.values().forEach(reads::addAll);
+            applyWaiters.clear();
+        }
+        reads.forEach(read -> read.completeExceptionally(new NotLeaderException("Leadership lost before the read was served.", null)));
+    }
+
+    /**
+     * Serves a read-only command on the leader without appending it to the log, while keeping it linearizable:
+     * the result reflects every write committed before the read was received.
+     *
+     * @param term    the leader's current term
+     * @param command the read-only command
+     * @return a {@link Mono} emitting the result of the command, or empty if it is {@code null}
+     */
+    public Mono<Object> read(int term, Command command) {
+        return readIndex(term).flatMap(readIndex -> readAt(readIndex, command));
+    }
+
+    /**
+     * Returns the index a replica must have applied to serve a linearizable read received by the leader now,
+     * once the leader has confirmed it is still leader.
+     *
+     * @param term the leader's current term
+     * @return a {@link Mono} emitting the read index
+     */
+    public Mono<Long> readIndex(int term) {
+        return Mono.defer(() -> {
+            if (leaderTerm != term) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader.", null));
+            }
+            long readIndex = Math.max(commitIndex, termStartIndex);
+            return confirmLeadership(term).thenReturn(readIndex);
+        }).timeout(readTimeout, Mono.error(() -> new NotLeaderException(
+                "Node " + nodeId + " could not confirm its leadership in time.", null)));
+    }
+
+    /**
+     * Serves a read-only command from the local state machine once it has applied the given read index.
+     *
+     * @param readIndex the read index obtained from the leader
+     * @param command   the read-only command
+     * @return a {@link Mono} emitting the result of the command, or empty if it is {@code null}
+     */
+    public Mono<Object> readAt(long readIndex, Command command) {
+        return Mono.defer(() -> Mono.fromFuture(awaitApplied(readIndex)))
+                .then(Mono.fromSupplier(() -> stateMachine.query(command)))
+                .timeout(readTimeout, Mono.error(() -> new NotLeaderException(
+                        "Node " + nodeId + " did not apply index " + readIndex + " in time.", null)));
+    }
+
+    /**
+     * Confirms that no other leader could have been elected since the read was received: a majority must
+     * acknowledge a request sent after that point. Under a valid lease, nothing is sent.
+     */
+    private Mono<Void> confirmLeadership(int term) {
+        if (acknowledgementsNeeded(members) == 0 || (readConfig.isLeaseEnabled() && holdsLease())) {
+            return Mono.empty();
+        }
+        PendingRead read = new PendingRead();
+        synchronized (pendingReads) {
+            read.receivedAt = now();
+            pendingReads.addLast(read);
+        }
+        // Registered first: a round scheduled before the check is sent after the read was received
+        if (readRoundScheduled.compareAndSet(false, true)) {
+            Schedulers.parallel().schedule(() -> {
+                readRoundScheduled.set(false);
+                replicate(term, true);
+            });
+        }
+        return Mono.fromFuture(read.confirmed);
+    }
+
+    /**
+     * Completes the reads confirmed by the latest acknowledgements.
+     */
+    private void confirmPendingReads() {
+        long confirmedAt = leadershipConfirmedAt();
+        List<CompletableFuture<Void>> confirmed = new ArrayList<>();
+        synchronized (pendingReads) {
+            while (!pendingReads.isEmpty() && pendingReads.peekFirst().receivedAt < confirmedAt) {
+                confirmed.add(pendingReads.pollFirst().confirmed);
+            }
+        }
+        confirmed.forEach(read -> read.complete(null));
+    }
+
+    /**
+     * Returns the latest point in time at which a majority, the leader included, is known to have acknowledged
+     * the leader: the send time of the request acknowledged by the last follower needed to form that majority.
+     */
+    private long leadershipConfirmedAt() {
+        Members current = members;
+        int followersNeeded = acknowledgementsNeeded(current);
+        if (followersNeeded == 0) {
+            return now();
+        }
+        long[] acknowledged = current.peers.stream().filter(peer -> peer.voter).mapToLong(peer -> peer.acknowledgedAt).toArray();
+        if (acknowledged.length < followersNeeded) {
+            return -1;
+        }
+        Arrays.sort(acknowledged);
+        return acknowledged[acknowledged.length - followersNeeded];
+    }
+
+    /**
+     * Returns the number of voting followers that, with the leader if it votes, form a majority of the voters.
+     */
+    private int acknowledgementsNeeded(Members current) {
+        int majority = current.configuration.getVoters().size() / 2 + 1;
+        return current.configuration.isVoter(ownNodeUrl) ? majority - 1 : majority;
+    }
+
+    /**
+     * Checks whether a majority, the leader included, has acknowledged the leader within the given duration, or the
+     * node became leader less than that duration ago (CheckQuorum). A leader failing this check may well have been
+     * replaced by a majority that no longer hears from it.
+     *
+     * @param within the maximum age of the latest acknowledgement from a majority
+     * @return {@code true} if the leader is still in contact with a majority
+     */
+    public boolean hasQuorumContact(Duration within) {
+        long since = now() - within.toNanos();
+        return leaderSince >= since || leadershipConfirmedAt() >= since;
+    }
+
+    private boolean holdsLease() {
+        if (transfer != null) {
+            return false;
+        }
+        long confirmedAt = leadershipConfirmedAt();
+        return confirmedAt >= 0 && now() - confirmedAt < leaseNanos;
+    }
+
+    private CompletableFuture<Void> awaitApplied(long index) {
+        synchronized (applyLock) {
+            if (stateMachine.getLastAppliedIndex() >= index) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            applyWaiters.computeIfAbsent(index, key -> new ArrayList<>()).add(future);
+            return future;
+        }
+    }
+
+    /**
+     * Monotonic clock in nanoseconds, never negative.
+     */
+    private long now() {
+        return nanoClock.getAsLong() - clockOrigin;
+    }
+
+    /**
+     * Queues a command to be appended to the leader's log and replicated. Commands proposed concurrently are
+     * appended and replicated together.
+     *
+     * @param term    the leader's current term
+     * @param command the command to replicate
+     * @return a {@link Mono} emitting the state machine result once the entry is applied
+     */
+    public Mono<Object> propose(int term, Command command) {
+        return Mono.defer(() -> {
+            if (leaderTerm != term) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader.", null));
+            }
+            LeadershipTransfer ongoing = transfer;
+            if (ongoing != null) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is transferring its leadership.",
+                        ongoing.target.peerUrl));
+            }
+            PendingProposal proposal = new PendingProposal(term, command, now());
+            boolean full;
+            synchronized (proposalQueue) {
+                proposalQueue.addLast(proposal);
+                full = proposalQueue.size() >= replicationConfig.getMaxProposalBatch();
+            }
+            if (full) {
+                drainProposals();
+            } else if (proposalDrainScheduled.compareAndSet(false, true)) {
+                // Registered first: a drain scheduled before the check picks the proposal up
+                Schedulers.parallel().schedule(() -> {
+                    proposalDrainScheduled.set(false);
+                    drainProposals();
+                }, replicationConfig.getProposalLinger(), TimeUnit.MILLISECONDS);
+            }
+            return Mono.fromFuture(proposal.result);
+        });
+    }
+
+    /**
+     * Appends the queued proposals to the log, one batch at a time.
+     */
+    private void drainProposals() {
+        while (true) {
+            List<PendingProposal> batch = new ArrayList<>();
+            synchronized (proposalQueue) {
+                while (!proposalQueue.isEmpty() && batch.size() < replicationConfig.getMaxProposalBatch()) {
+                    batch.add(proposalQueue.pollFirst());
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            appendBatch(batch);
+        }
+    }
+
+    private void appendBatch(List<PendingProposal> batch) {
+        int term = leaderTerm;
+        List<Command> commands = new ArrayList<>(batch.size());
+        for (PendingProposal proposal : batch) {
+            if (proposal.term == term) {
+                commands.add(proposal.command);
+            } else {
+                proposal.result.completeExceptionally(new NotLeaderException("Node " + nodeId + " is not the leader.", null));
+            }
+        }
+        if (commands.isEmpty()) {
+            return;
+        }
+        long appendStartedAt = now();
+        List<LogEntry> entries;
+        synchronized (raftLog) {
+            entries = raftLog.append(term, commands);
+            // Under the log lock, as on followers, so that configuration changes see the log they belong to
+            membership.append(entries);
+        }
+        metrics.recordAppend(now() - appendStartedAt);
+        int next = 0;
+        for (PendingProposal proposal : batch) {
+            if (proposal.term == term) {
+                proposals.put(entries.get(next++).getIndex(), new Proposal(term, proposal.result, proposal.proposedAt));
+            }
+        }
+        if (leaderTerm != term) {
+            // Stepped down while appending: the proposals might have missed stepDown()
+            entries.forEach(entry -> {
+                Proposal proposal = proposals.remove(entry.getIndex());
+                if (proposal != null) {
+                    proposal.result.completeExceptionally(new NotLeaderException("Node " + nodeId + " is not the leader.", null));
+                }
+            });
+            return;
+        }
+        log.debug("Appended a batch of {} proposal(s) to group {}", entries.size(), groupId);
+        // Replicate while the batch is being synced locally: the leader's own write is not on the critical path
+        replicate(term, false);
+        flush(entries.get(entries.size() - 1).getIndex()).thenRun(() -> advanceCommitIndex(term));
+    }
+
+    /**
+     * Makes the log durable up to the given index, recording the time taken unless it already was.
+     *
+     * @param index the index of the last entry to sync
+     * @return a future completed once the entry is durable
+     */
+    private CompletableFuture<Void> flush(long index) {
+        if (raftLog.getDurableIndex() >= index) {
+            return raftLog.flush(index);
+        }
+        long startedAt = now();
+        return raftLog.flush(index).whenComplete((done, error) -> metrics.recordFlush(now() - startedAt));
+    }
+
+    /**
+     * Transfers the leadership to a voting follower. Proposals are rejected from now on, the ones already queued are
+     * appended, and the follower is sent TimeoutNow as soon as its log matches the leader's. If this node has not
+     * stepped down within the maximum election timeout, the transfer is aborted and proposals are accepted again.
+     *
+     * @param term      the leader's current term
+     * @param targetUrl the URL of the follower to hand the leadership over to
+     * @return a {@link Mono} completing once this node has stepped down
+     */
+    public Mono<Void> transferLeadership(int term, String targetUrl) {
+        return Mono.defer(() -> {
+            if (leaderTerm != term) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader.", null));
+            }
+            PeerReplicator target = members.peers.stream()
+                    .filter(peer -> peer.voter && peer.peerUrl.equals(targetUrl))
+                    .findFirst()
+                    .orElse(null);
+            if (target == null) {
+                return Mono.error(new IllegalArgumentException(targetUrl + " is not a voting member of group " + groupId + "."));
+            }
+            LeadershipTransfer started = new LeadershipTransfer(term, target);
+            synchronized (transferLock) {
+                if (transfer != null) {
+                    return Mono.error(new LeadershipTransferException("A leadership transfer to "
+                            + transfer.target.peerUrl + " is already in progress."));
+                }
+                transfer = started;
+            }
+            log.info("Transferring the leadership of group {} to {}", groupId, targetUrl);
+            // Proposals accepted before the transfer are appended, so that the target catches up with them too
+            drainProposals();
+            replicate(term, false);
+            maybeSendTimeoutNow(term);
+            return Mono.fromFuture(started.done)
+                    .timeout(readTimeout, Mono.defer(() -> {
+                        abortTransfer(started);
+                        return Mono.error(new LeadershipTransferException("Leadership of group " + groupId
+                                + " was not transferred to " + targetUrl + " in time."));
+                    }));
+        });
+    }
+
+    /**
+     * Sends TimeoutNow to the target of the ongoing transfer, once, as soon as its log matches the leader's.
+     */
+    private void maybeSendTimeoutNow(int term) {
+        LeadershipTransfer ongoing = transfer;
+        if (ongoing == null || ongoing.term != term || ongoing.target.matchIndex < raftLog.getLastIndex()
+                || !ongoing.timeoutNowSent.compareAndSet(false, true)) {
+            return;
+        }
+        String targetUrl = ongoing.target.peerUrl;
+        log.info("{} is up to date. Sending TimeoutNow for group {}", targetUrl, groupId);
+        peerClient.timeoutNow(targetUrl, groupId, new TimeoutNowRequest(term, nodeId))
+                .timeout(rpcTimeout)
+                .defaultIfEmpty(false)
+                .onErrorResume(e -> {
+                    log.error("Failed to send TimeoutNow to {}: {}", targetUrl, e.getMessage());
+                    return Mono.just(false);
+                })
+                .subscribe(started -> {
+                    if (!started) {
+                        log.warn("{} did not start an election. Aborting the leadership transfer", targetUrl);
+                        abortTransfer(ongoing);
+                    }
+                });
+    }
+
+    private void abortTransfer(LeadershipTransfer aborted) {
+        synchronized (transferLock) {
+            if (transfer != aborted) {
+                return;
+            }
+            transfer = null;
+        }
+        aborted.done.completeExceptionally(new LeadershipTransferException("Leadership of group " + groupId
+                + " was not transferred to " + aborted.target.peerUrl + "."));
+    }
+
+    /**
+     * Adds a member to the group. The node joins as a learner; a voter is then only promoted once it has caught up
+     * with the leader's log, in rounds, so that the new quorum can commit entries right away. Adding an existing
+     * member only promotes a learner, if requested.
+     *
+     * @param term    the leader's current term
+     * @param nodeUrl the URL of the node to add
+     * @param voter   whether the node becomes a voter, or stays a learner
+     * @return a {@link Mono} emitting the new configuration once committed
+     */
+    public Mono<ClusterConfiguration> addMember(int term, String nodeUrl, boolean voter) {
+        return Mono.defer(() -> {
+            ClusterConfiguration configuration = getConfiguration();
+            if (configuration.isVoter(nodeUrl) || (!voter && configuration.isLearner(nodeUrl))) {
+                return Mono.just(configuration);
+            }
+            Mono<ClusterConfiguration> learner = configuration.isLearner(nodeUrl)
+                    ? Mono.just(configuration)
+                    : changeConfiguration(term, configuration.withLearner(nodeUrl));
+            if (!voter) {
+                return learner;
+            }
+            return learner.then(catchUp(term, nodeUrl, 1))
+                    .then(Mono.defer(() -> changeConfiguration(term, getConfiguration().withVoter(nodeUrl))));
+        });
+    }
+
+    /**
+     * Removes a voter or a learner from the group. A leader removing itself keeps leading until the new
+     * configuration is committed, then steps down.
+     *
+     * @param term    the leader's current term
+     * @param nodeUrl the URL of the node to remove
+     * @return a {@link Mono} emitting the new configuration once committed
+     */
+    public Mono<ClusterConfiguration> removeMember(int term, String nodeUrl) {
+        return Mono.defer(() -> {
+            ClusterConfiguration configuration = getConfiguration();
+            if (!configuration.isMember(nodeUrl)) {
+                return Mono.just(configuration);
+            }
+            if (configuration.getVoters().equals(List.of(nodeUrl))) {
+                return Mono.error(new IllegalArgumentException("Cannot remove the last voter of group " + groupId + "."));
+            }
+            return changeConfiguration(term, configuration.without(nodeUrl));
+        });
+    }
+
+    /**
+     * Appends a configuration differing from the current one by a single member and waits for its commit. Only one
+     * change may be in progress: the previous configuration must be committed, and so must an entry of the current
+     * term, since a configuration appended by a previous leader may not be known to be committed yet (Raft thesis
+     * §4.1 and the fix to single-server changes).
+     */
+    private Mono<ClusterConfiguration> changeConfiguration(int term, ClusterConfiguration next) {
+        return Mono.defer(() -> {
+            if (leaderTerm != term) {
+                return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader.", null));
+            }
+            if (getConfiguration().getIndex() > commitIndex || commitIndex < termStartIndex) {
+                return Mono.error(new MembershipChangeException("The previous configuration of group " + groupId
+                        + " is not committed yet."));
+            }
+            if (!membershipChangeInProgress.compareAndSet(false, true)) {
+                return Mono.error(new MembershipChangeException("A membership change of group " + groupId
+                        + " is already in progress."));
+            }
+            log.info("Changing the configuration of group {} to voters {}, learners {}", groupId, next.getVoters(),
+                    next.getLearners());
+            return propose(term, Command.configuration(next.encode()))
+                    .then(Mono.fromSupplier(this::getConfiguration))
+                    .doFinally(signal -> membershipChangeInProgress.set(false));
+        });
+    }
+
+    /**
+     * Waits for a learner to replicate the leader's log as of the start of the round. A round shorter than the
+     * minimum election timeout means the learner keeps up; otherwise another round starts from the new end of the log.
+     */
+    private Mono<Void> catchUp(int term, String nodeUrl, int round) {
+        return Mono.defer(() -> {
+            long target = raftLog.getLastIndex();
+            long startedAt = now();
+            return Flux.interval(Duration.ZERO, CATCH_UP_POLL_INTERVAL)
+                    .filter(tick -> leaderTerm != term || matchIndexOf(nodeUrl) >= target)
+                    .next()
+                    .timeout(Duration.ofMillis(replicationConfig.getCatchUpTimeout()), Mono.error(() ->
+                            new MembershipChangeException(nodeUrl + " did not catch up with group " + groupId + " in time.")))
+                    .then(Mono.defer(() -> {
+                        if (leaderTerm != term) {
+                            return Mono.error(new NotLeaderException("Node " + nodeId + " is not the leader.", null));
+                        }
+                        if (now() - startedAt < rpcTimeout.toNanos()) {
+                            log.info("{} caught up with group {} in {} round(s)", nodeUrl, groupId, round);
+                            return Mono.empty();
+                        }
+                        if (round >= replicationConfig.getCatchUpRounds()) {
+                            return Mono.error(new MembershipChangeException(nodeUrl + " did not catch up with group "
+                                    + groupId + " within " + round + " rounds."));
+                        }
+                        return catchUp(term, nodeUrl, round + 1);
+                    }));
+        });
+    }
+
+    private long matchIndexOf(String nodeUrl) {
+        PeerReplicator peer = peer(nodeUrl);
+        return peer == null ? -1 : peer.matchIndex;
+    }
+
+    /**
+     * Sends AppendEntries to every follower. With {@code heartbeat} set, followers with nothing
+     * to replicate still receive an empty AppendEntries to keep their election timer from firing.
+     *
+     * @param term      the leader's current term
+     * @param heartbeat whether an empty AppendEntries should be sent to up-to-date followers
+     */
+    public void replicate(int term, boolean heartbeat) {
+        if (leaderTerm != term) {
+            return;
+        }
+        members.peers.forEach(peer -> peer.pump(term, heartbeat));
+    }
+
+    /**
+     * Sends a heartbeat to every follower that has not received entries within the last heartbeat interval: an
+     * AppendEntries carrying entries resets the election timer of the follower just as well. Under load, the
+     * followers then learn the commit index from the next batch, and at most one interval late once the load stops.
+     *
+     * @param term the leader's current term
+     */
+    public void sendHeartbeats(int term) {
+        if (leaderTerm != term) {
+            return;
+        }
+        members.peers.forEach(peer -> peer.heartbeat(term));
+    }
+
+    /**
+     * Handles an AppendEntries request on the follower side. The caller has already checked that the
+     * request term is not stale and updated the local term.
+     * <p>
+     * A successful response is only sent once the appended entries are durable, since the leader counts them
+     * towards the commit quorum.
+     * </p>
+     *
+     * @param request     the AppendEntries request
+     * @param currentTerm the follower's current term
+     * @return a {@link Mono} emitting the {@link AppendEntriesResponse} to send back to the leader
+     */
+    public Mono<AppendEntriesResponse> handleAppendEntries(AppendEntriesRequest request, int currentTerm) {
+        long matchIndex;
+        synchronized (raftLog) {
+            long prevLogIndex = request.getPrevLogIndex();
+            long lastIndex = raftLog.getLastIndex();
+            if (prevLogIndex > lastIndex) {
+                return Mono.just(new AppendEntriesResponse(currentTerm, false, 0, lastIndex + 1));
+            }
+            int localPrevTerm = raftLog.getTerm(prevLogIndex);
+            // Entries before the start of the log are covered by a snapshot: they are committed, hence matching
+            boolean compacted = prevLogIndex < raftLog.getFirstIndex() - 1;
+            if (!compacted && localPrevTerm != request.getPrevLogTerm()) {
+                // Skip the whole conflicting term at once instead of one entry per round trip
+                long conflictIndex = prevLogIndex;
+                while (conflictIndex > 1 && raftLog.getTerm(conflictIndex - 1) == localPrevTerm) {
+                    conflictIndex--;
+                }
+                return Mono.just(new AppendEntriesResponse(currentTerm, false, 0, conflictIndex));
+            }
+
+            List<LogEntry> entries = request.getEntries() == null ? List.of() : request.getEntries();
+            int firstNew = 0;
+            while (firstNew < entries.size()) {
+                LogEntry entry = entries.get(firstNew);
+                if (entry.getIndex() < raftLog.getFirstIndex()) {
+                    firstNew++;
+                    continue;
+                }
+                if (entry.getIndex() > raftLog.getLastIndex()) {
+                    break;
+                }
+                if (raftLog.getTerm(entry.getIndex()) != entry.getTerm()) {
+                    log.info("Conflicting entry at index {}. Truncating log.", entry.getIndex());
+                    raftLog.truncateFrom(entry.getIndex());
+                    membership.truncateFrom(entry.getIndex());
+                    break;
+                }
+                firstNew++;
+            }
+            if (firstNew < entries.size()) {
+                List<LogEntry> newEntries = entries.subList(firstNew, entries.size());
+                raftLog.appendEntries(newEntries);
+                membership.append(newEntries);
+            }
+
+            matchIndex = prevLogIndex + entries.size();
+            long newCommitIndex = Math.min(request.getLeaderCommit(), matchIndex);
+            if (newCommitIndex > commitIndex) {
+                commitIndex = newCommitIndex;
+            }
+        }
+        applyCommitted();
+        AppendEntriesResponse response = new AppendEntriesResponse(currentTerm, true, matchIndex, 0);
+        return Mono.fromFuture(flush(matchIndex)).thenReturn(response);
+    }
+
+    /**
+     * Handles an InstallSnapshot chunk on the follower side. The caller has already checked that the
+     * request term is not stale and updated the local term. Once the last chunk is stored, the snapshot
+     * replaces the state machine and the log is aligned with it.
+     *
+     * @param request     the InstallSnapshot request
+     * @param currentTerm the follower's current term
+     * @return a {@link Mono} emitting the {@link InstallSnapshotResponse} to send back to the leader
+     */
+    public Mono<InstallSnapshotResponse> handleInstallSnapshot(InstallSnapshotRequest request, int currentTerm) {
+        return Mono.fromCallable(() -> {
+            long chunkEnd = request.getOffset() + (request.getData() == null ? 0 : request.getData().length);
+            long nextOffset = snapshotService.receiveChunk(request);
+            if (nextOffset >= 0) {
+                return new InstallSnapshotResponse(currentTerm, nextOffset == chunkEnd, nextOffset);
+            }
+            synchronized (applyLock) {
+                SnapshotMetadata snapshot = snapshotService.getLatest();
+                snapshotService.install(snapshot);
+                commitIndex = Math.max(commitIndex, snapshot.getLastIncludedIndex());
+            }
+            applyCommitted();
+            return new InstallSnapshotResponse(currentTerm, true, chunkEnd);
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Advances the commit index to the highest entry stored on a majority of nodes: the quorum-th highest match
+     * index of the voters, counting the leader's durable index as its own unless it has been removed from the
+     * voters. That entry is only committed if it belongs to the current term (Raft §5.4.2); older entries are then
+     * committed along with it.
+     *
+     * @param term the leader's current term
+     */
+    private void advanceCommitIndex(int term) {
+        synchronized (commitLock) {
+            if (leaderTerm != term) {
+                return;
+            }
+            Members current = members;
+            long[] quorumMatches = new long[current.peers.size() + 1];
+            int voters = 0;
+            if (current.configuration.isVoter(ownNodeUrl)) {
+                // The leader only counts itself once the entry is durable in its own log
+                quorumMatches[voters++] = raftLog.getDurableIndex();
+            }
+            for (PeerReplicator peer : current.peers) {
+                if (peer.voter) {
+                    quorumMatches[voters++] = peer.matchIndex;
+                }
+            }
+            if (voters == 0) {
+                return;
+            }
+            Arrays.sort(quorumMatches, 0, voters);
+            long quorumIndex = quorumMatches[voters - (voters / 2 + 1)];
+            if (quorumIndex > commitIndex && raftLog.getTerm(quorumIndex) == term) {
+                log.debug("Commit index advanced to {}", quorumIndex);
+                commitIndex = quorumIndex;
+            }
+        }
+        applyCommitted();
+    }
+
+    /**
+     * Applies every committed entry not yet applied, completing the matching proposals.
+     */
+    private void applyCommitted() {
+        synchronized (applyLock) {
+            while (stateMachine.getLastAppliedIndex() < commitIndex) {
+                LogEntry entry = raftLog.getEntry(stateMachine.getLastAppliedIndex() + 1);
+                if (entry == null) {
+                    break;
+                }
+                Object result = stateMachine.apply(entry);
+                Proposal proposal = proposals.remove(entry.getIndex());
+                if (proposal == null) {
+                    continue;
+                }
+                if (proposal.term == entry.getTerm()) {
+                    metrics.recordCommit(now() - proposal.proposedAt);
+                    proposal.result.complete(result);
+                } else {
+                    proposal.result.completeExceptionally(
+                            new NotLeaderException("Entry " + entry.getIndex() + " was overwritten by another leader.", null));
+                }
+            }
+            Map<Long, List<CompletableFuture<Void>>> applied = applyWaiters.headMap(stateMachine.getLastAppliedIndex(), true);
+            applied.values().forEach(waiters -> waiters.forEach(waiter -> waiter.complete(null)));
+            applied.clear();
+        }
+        snapshotService.maybeTakeSnapshot(stateMachine.getLastAppliedIndex());
+    }
+
+    /**
+     * A read waiting for the leader to confirm its leadership.
+     */
+    private static final class PendingRead {
+        private final CompletableFuture<Void> confirmed = new CompletableFuture<>();
+        private long receivedAt;
+    }
+
+    /**
+     * A client command queued on the leader, waiting to be appended to the log.
+     */
+    private static final class PendingProposal {
+        private final int term;
+        private final Command command;
+        private final long proposedAt;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private PendingProposal(int term, Command command, long proposedAt) {
+            this.term = term;
+            this.command = command;
+            this.proposedAt = proposedAt;
+        }
+    }
+
+    /**
+     * A client command waiting to be applied.
+     */
+    private static final class Proposal {
+        private final int term;
+        private final CompletableFuture<Object> result;
+        private final long proposedAt;
+
+        private Proposal(int term, CompletableFuture<Object> result, long proposedAt) {
+            this.term = term;
+            this.result = result;
+            this.proposedAt = proposedAt;
+        }
+    }
+
+    /**
+     * A leadership transfer in progress, completed when the leader steps down.
+     */
+    private static final class LeadershipTransfer {
+        private final int term;
+        private final PeerReplicator target;
+        private final AtomicBoolean timeoutNowSent = new AtomicBoolean(false);
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private LeadershipTransfer(int term, PeerReplicator target) {
+            this.term = term;
+            this.target = target;
+        }
+    }
+
+    /**
+     * A configuration and the followers replicated to under it.
+     */
+    private record Members(ClusterConfiguration configuration, List<PeerReplicator> peers) {
+    }
+
+    /**
+     * Replication mode of a follower, as seen by the leader.
+     */
+    private enum ReplicationMode {
+        /**
+         * The follower's log position is unknown, after an election, a rejection or a lost request: a single
+         * request is in flight at a time until the follower accepts one.
+         */
+        PROBE,
+        /**
+         * The follower accepts the leader's entries: up to {@code maxInflight} batches are pipelined.
+         */
+        REPLICATE,
+        /**
+         * The follower is behind the start of the log and receives the latest snapshot, one chunk at a time.
+         */
+        SNAPSHOT
+    }
+
+    /**
+     * Leader-side replication state of a single follower. Its {@code matchIndex} and {@code nextIndex} are volatile,
+     * so that commit and monitoring reads never take the follower's lock: they are only written under the
+     * replicator's monitor, and a volatile {@code long} is read atomically. The indexes live with the replicator rather
+     * than in arrays shared by all the followers, so that a follower keeps them across configuration changes, which
+     * add and remove followers at any time.
+     * <p>
+     * In {@link ReplicationMode#REPLICATE} mode, up to {@code maxInflight} AppendEntries requests are pipelined:
+     * {@code nextIndex} is advanced optimistically when a batch is sent. A follower more than a full window of batches
+     * behind is sent batches of up to {@code catchUpBatchEntries} entries instead, so that it catches up in few
+     * round trips. The window bounds the memory held for a slow follower, whose lag never delays the other ones.
+     * </p>
+     * <p>
+     * A rejection or a lost request rewinds {@code nextIndex} and switches to {@link ReplicationMode#PROBE} mode,
+     * so that a follower whose log diverges receives one request per round trip instead of a window of doomed batches.
+     * When {@code nextIndex} falls before the start of the compacted log, the latest snapshot is streamed
+     * instead, one chunk at a time: the next chunk is only read and sent once the follower has stored the
+     * previous one, which bounds the memory used by a transfer to a single chunk.
+     * </p>
+     */
+    private final class PeerReplicator {
+        private final String peerUrl;
+        // Learners are replicated to, but do not count towards any quorum
+        private volatile boolean voter;
+        // Set once a configuration no longer includes the follower: nothing is sent to it anymore
+        private volatile boolean removed;
+        private volatile long matchIndex;
+        private volatile long nextIndex;
+        // Send time of the latest request answered by the follower in the current term, -1 if none
+        private volatile long acknowledgedAt = -1;
+        // Send time of the latest request carrying entries in the current term, -1 if none
+        private long appendedAt = -1;
+        private ReplicationMode mode = ReplicationMode.PROBE;
+        private int inflight = 0;
+        // Set when a request is lost: new batches then wait for the next heartbeat or response
+        private boolean paused = false;
+
+        private PeerReplicator(String peerUrl) {
+            this.peerUrl = peerUrl;
+        }
+
+        private long matchIndex() {
+            return matchIndex;
+        }
+
+        private long nextIndex() {
+            return nextIndex;
+        }
+
+        synchronized void reset(long nextIndex) {
+            this.nextIndex = nextIndex;
+            this.matchIndex = 0;
+            this.acknowledgedAt = -1;
+            this.appendedAt = -1;
+            this.mode = ReplicationMode.PROBE;
+            this.inflight = 0;
+            this.paused = false;
+        }
+
+        synchronized void heartbeat(int term) {
+            // A lost request pauses the follower until the next heartbeat, which is then always sent
+            if (!paused && appendedAt >= 0 && now() - appendedAt < heartbeatIntervalNanos) {
+                return;
+            }
+            pump(term, true);
+        }
+
+        synchronized void pump(int term, boolean heartbeat) {
+            if (removed || mode == ReplicationMode.SNAPSHOT) {
+                // Snapshot chunks keep the follower's election timer from firing
+                return;
+            }
+            if (nextIndex() < raftLog.getFirstIndex()) {
+                sendSnapshot(term);
+                return;
+            }
+            if (heartbeat) {
+                paused = false;
+            }
+            long lastIndex = raftLog.getLastIndex();
+            int window = mode == ReplicationMode.REPLICATE ? replicationConfig.getMaxInflight() : 1;
+            boolean sent = false;
+            // A request can fail synchronously, e.g. when the connection is refused, hence the check on each round
+            while (!paused && inflight < window && nextIndex() <= lastIndex) {
+                long nextIndex = nextIndex();
+                int prevLogTerm = raftLog.getTerm(nextIndex - 1);
+                List<LogEntry> batch = raftLog.getEntries(nextIndex, batchLimit(lastIndex - nextIndex + 1));
+                if (batch.isEmpty() || prevLogTerm < 0) {
+                    // Compacted in the meantime: the next pump sends the snapshot
+                    break;
+                }
+                this.nextIndex = nextIndex + batch.size();
+                inflight++;
+                appendedAt = now();
+                send(term, nextIndex - 1, prevLogTerm, batch, true);
+                sent = true;
+            }
+            if (heartbeat && !sent) {
+                // While batches are in flight, anchor the heartbeat on the last known match
+                // so it cannot be rejected for a gap those batches are about to fill
+                long prevLogIndex = inflight > 0 ? matchIndex() : nextIndex() - 1;
+                int prevLogTerm = raftLog.getTerm(prevLogIndex);
+                if (prevLogTerm >= 0) {
+                    send(term, prevLogIndex, prevLogTerm, List.of(), false);
+                }
+            }
+        }
+
+        /**
+         * Returns the maximum size of the next batch: probes stay small, since they may be rejected, and followers
+         * lagging behind more than a window of regular batches are caught up with large ones.
+         */
+        private int batchLimit(long lag) {
+            int maxBatchEntries = replicationConfig.getMaxBatchEntries();
+            if (mode == ReplicationMode.REPLICATE && lag > (long) maxBatchEntries * replicationConfig.getMaxInflight()) {
+                return Math.max(maxBatchEntries, replicationConfig.getCatchUpBatchEntries());
+            }
+            return maxBatchEntries;
+        }
+
+        private void send(int term, long prevLogIndex, int prevLogTerm, List<LogEntry> entries, boolean pipelined) {
+            AppendEntriesRequest request = new AppendEntriesRequest(term, nodeId, ownNodeUrl, prevLogIndex,
+                    prevLogTerm, entries, commitIndex);
+            long sentAt = now();
+            peerClient.appendEntries(peerUrl, groupId, request)
+                    .timeout(rpcTimeout)
+                    .doOnNext(response -> {
+                        if (entries.isEmpty()) {
+                            metrics.recordHeartbeatRoundTrip(peerUrl, now() - sentAt);
+                        }
+                        onResponse(term, response, pipelined, sentAt);
+                    })
+                    .switchIfEmpty(Mono.fromRunnable(() -> onFailure(pipelined)))
+                    .subscribe(null, error -> {
+                        if (!PeerClient.isConnectionRefused(error)) {
+                            log.error("Failed to send AppendEntries to {}: {}", peerUrl, error.getMessage());
+                        }
+                        onFailure(pipelined);
+                    });
+        }
+
+        private void onResponse(int term, AppendEntriesResponse response, boolean pipelined, long sentAt) {
+            if (response.getTerm() > term) {
+                higherTerms.tryEmitNext(response.getTerm());
+                return;
+            }
+            boolean matchAdvanced = false;
+            synchronized (this) {
+                if (leaderTerm != term) {
+                    return;
+                }
+                // Any answer in the current term, even a rejection, means the follower still follows this leader
+                acknowledgedAt = Math.max(acknowledgedAt, sentAt);
+                if (pipelined) {
+                    inflight = Math.max(0, inflight - 1);
+                }
+                paused = false;
+                long matchIndex = matchIndex();
+                if (response.isSuccess()) {
+                    if (response.getMatchIndex() > matchIndex) {
+                        matchIndex = response.getMatchIndex();
+                        this.matchIndex = matchIndex;
+                        matchAdvanced = true;
+                    }
+                    this.nextIndex = Math.max(nextIndex(), matchIndex + 1);
+                    if (mode == ReplicationMode.PROBE) {
+                        log.debug("Follower {} matches the log up to index {}. Pipelining AppendEntries", peerUrl, matchIndex);
+                        mode = ReplicationMode.REPLICATE;
+                    }
+                } else {
+                    this.nextIndex = Math.max(matchIndex + 1, Math.min(nextIndex(), response.getConflictIndex()));
+                    mode = ReplicationMode.PROBE;
+                    log.debug("Follower {} rejected AppendEntries. Probing from index {}", peerUrl, nextIndex());
+                }
+                pump(term, false);
+            }
+            confirmPendingReads();
+            if (matchAdvanced) {
+                advanceCommitIndex(term);
+                maybeSendTimeoutNow(term);
+            }
+        }
+
+        private void sendSnapshot(int term) {
+            SnapshotMetadata snapshot = snapshotService.getLatest();
+            if (snapshot == null) {
+                return;
+            }
+            mode = ReplicationMode.SNAPSHOT;
+            log.info("Follower {} is behind the start of the log. Sending snapshot at index {} ({} bytes)",
+                    peerUrl, snapshot.getLastIncludedIndex(), snapshot.getSize());
+            sendSnapshotChunk(term, snapshot, 0);
+        }
+
+        private void sendSnapshotChunk(int term, SnapshotMetadata snapshot, long offset) {
+            Mono.fromCallable(() -> snapshotService.readChunk(snapshot, offset))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(data -> peerClient.installSnapshot(peerUrl, groupId,
+                                    new InstallSnapshotRequest(term, nodeId, ownNodeUrl, snapshot.getLastIncludedIndex(),
+                                            snapshot.getLastIncludedTerm(), offset, data,
+                                            offset + data.length >= snapshot.getSize()))
+                            .timeout(rpcTimeout))
+                    .doOnNext(response -> onSnapshotResponse(term, snapshot, response))
+                    .switchIfEmpty(Mono.fromRunnable(() -> onSnapshotFailure(term)))
+                    .subscribe(null, error -> {
+                        if (!PeerClient.isConnectionRefused(error)) {
+                            log.error("Failed to send InstallSnapshot to {}: {}", peerUrl, error.getMessage());
+                        }
+                        onSnapshotFailure(term);
+                    });
+        }
+
+        private void onSnapshotResponse(int term, SnapshotMetadata snapshot, InstallSnapshotResponse response) {
+            if (response.getTerm() > term) {
+                higherTerms.tryEmitNext(response.getTerm());
+                return;
+            }
+            synchronized (this) {
+                if (leaderTerm != term || mode != ReplicationMode.SNAPSHOT) {
+                    return;
+                }
+                if (!response.isSuccess() || response.getNextOffset() < snapshot.getSize()) {
+                    // Next chunk, or resume from the offset the follower expects
+                    sendSnapshotChunk(term, snapshot, response.getNextOffset());
+                    return;
+                }
+                log.info("Follower {} installed the snapshot at index {}", peerUrl, snapshot.getLastIncludedIndex());
+                long matchIndex = Math.max(matchIndex(), snapshot.getLastIncludedIndex());
+                this.matchIndex = matchIndex;
+                this.nextIndex = matchIndex + 1;
+                mode = ReplicationMode.REPLICATE;
+                pump(term, false);
+            }
+            advanceCommitIndex(term);
+        }
+
+        private synchronized void onSnapshotFailure(int term) {
+            if (leaderTerm == term) {
+                // Restarted from the latest snapshot on the next heartbeat
+                mode = ReplicationMode.PROBE;
+            }
+        }
+
+        private synchronized void onFailure(boolean pipelined) {
+            if (!pipelined) {
+                return;
+            }
+            inflight = Math.max(0, inflight - 1);
+            paused = true;
+            // The lost request may leave a gap in the follower's log: probe from the last known match
+            // on the next heartbeat instead of retrying immediately against a node that may be down
+            this.nextIndex = matchIndex() + 1;
+            mode = ReplicationMode.PROBE;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.CoordinationConfig;
+import com.baeldung.raft.config.ElectionConfig;
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ReplicationConfig;
+import com.baeldung.raft.config.ShardConfig;
+import com.baeldung.raft.config.SnapshotConfig;
+import com.baeldung.raft.config.StorageConfig;
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.exception.MembershipChangeException;
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.membership.ClusterMembership;
+import com.baeldung.raft.persistence.log.MetadataStore;
+import com.baeldung.raft.persistence.log.SegmentedRaftLog;
+import com.baeldung.raft.persistence.model.NodeState;
+import com.baeldung.raft.persistence.model.NodeStateSnapshot;
+import com.baeldung.raft.persistence.repository.NodeStateRepository;
+import com.baeldung.raft.persistence.snapshot.SnapshotStore;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.web.dto.MembershipChangeRequest;
+import com.baeldung.raft.web.dto.MembershipDTO;
+import com.baeldung.raft.web.dto.ShardDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Service hosting the Raft groups of a Multi-Raft node and routing client requests to them.
+ * <p>
+ * The keyspace is split into {@code raft.shards.count} hash shards, each replicated by its own Raft group with its
+ * own log, snapshots, term and leader. Group {@code 0} is the default {@link RaftService} bean; the other groups are
+ * built from the same classes and store their data in {@code <raft.storage.dir>/<node.id>/group-<id>}.
+ * </p>
+ * <p>
+ * A single {@link RaftTimer} drives every group: the heartbeats run on the
+ * {@linkplain PeerClient#getHeartbeatScheduler() heartbeat scheduler}, so the heartbeats of all the groups led by
+ * this node reach each peer in one message, and the election timers on a dedicated {@code raft-elections} thread.
+ * </p>
+ */
+@Service
+@Slf4j
+public class ShardService {
+    private final List<RaftService> groups = new ArrayList<>();
+    private final List<KeyValueStateMachine> stateMachines = new ArrayList<>();
+    private final List<SegmentedRaftLog> logs = new ArrayList<>();
+    private final PeerClient peerClient;
+    private final TimeoutConfig timeoutConfig;
+    private final Scheduler electionScheduler = Schedulers.newSingle("raft-elections", true);
+    private RaftTimer timer;
+
+    /**
+     * Constructs a new {@code ShardService} and the Raft groups of the shards other than the default one.
+     *
+     * @param defaultGroup             the {@link RaftService} of the default group
+     * @param defaultStateMachine      the state machine of the default group
+     * @param nodeStateRepository      the repository for node state entities
+     * @param transactionalRaftService the transactional Raft service
+     * @param peerClient               the client sending RPCs to the other nodes
+     * @param nodeConfig               the configuration properties for the node
+     * @param timeoutConfig            the Raft timeout configuration
+     * @param replicationConfig        the replication configuration
+     * @param readConfig               the read configuration
+     * @param electionConfig           the election configuration
+     * @param storageConfig            the storage configuration
+     * @param snapshotConfig           the snapshot configuration
+     * @param shardConfig              the Multi-Raft configuration
+     * @param coordinationConfig       the coordination configuration, which sizes the watch history of the groups
+     * @param serverPort               the server port on which the node is running
+     * @param meterRegistry            the registry of the metrics of the groups
+     */
+    public ShardService(RaftService defaultGroup,
+                        KeyValueStateMachine defaultStateMachine,
+                        NodeStateRepository nodeStateRepository,
+                        TransactionalRaftService transactionalRaftService,
+                        PeerClient peerClient,
+                        NodeConfig nodeConfig,
+                        TimeoutConfig timeoutConfig,
+                        ReplicationConfig replicationConfig,
+                        ReadConfig readConfig,
+                        ElectionConfig electionConfig,
+                        StorageConfig storageConfig,
+                        SnapshotConfig snapshotConfig,
+                        ShardConfig shardConfig,
+                        CoordinationConfig coordinationConfig,
+                        @Value("${server.port}") int serverPort,
+                        MeterRegistry meterRegistry) {
+        this.peerClient = peerClient;
+        this.timeoutConfig = timeoutConfig;
+        groups.add(defaultGroup);
+        stateMachines.add(defaultStateMachine);
+        for (int groupId = 1; groupId < shardConfig.getCount(); groupId++) {
+            Path directory = Path.of(storageConfig.getDir(), nodeConfig.getId(), "group-" + groupId);
+            SegmentedRaftLog raftLog = new SegmentedRaftLog(directory.resolve("log"), storageConfig.getSegmentSize(),
+                    storageConfig.getIndexInterval(), storageConfig.isFsync());
+            logs.add(raftLog);
+            KeyValueStateMachine stateMachine = new KeyValueStateMachine(coordinationConfig);
+            stateMachines.add(stateMachine);
+            ClusterMembership membership = new ClusterMembership(nodeConfig);
+            SnapshotService snapshotService = new SnapshotService(raftLog, stateMachine,
+                    new SnapshotStore(directory.resolve("snapshot")), snapshotConfig, membership);
+            ReplicationService replicationService = new ReplicationService(groupId, raftLog, stateMachine,
+                    snapshotService, membership, peerClient, nodeConfig, timeoutConfig, replicationConfig, readConfig, serverPort,
+                    meterRegistry, System::nanoTime);
+            RaftService group = new RaftService(groupId, nodeStateRepository, transactionalRaftService,
+                    replicationService, new MetadataStore(directory), peerClient, nodeConfig, timeoutConfig,
+                    readConfig, electionConfig, shardConfig, serverPort, meterRegistry, System::nanoTime, new Random());
+            group.monitorReplicationTerms();
+            groups.add(group);
+        }
+        log.info("Hosting {} Raft group(s)", groups.size());
+    }
+
+    /**
+     * Starts the timer running the heartbeat interval and the election timer of every group.
+     */
+    @PostConstruct
+    public void startTicker() {
+        timer = new RaftTimer(groups, timeoutConfig, peerClient.getHeartbeatScheduler(), electionScheduler,
+                System::nanoTime);
+        timer.start();
+    }
+
+    /**
+     * Returns the number of shards, which is also the number of Raft groups.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return groups.size();
+    }
+
+    /**
+     * Returns the shard a key belongs to.
+     *
+     * @param key the key
+     * @return the ID of the shard, and of the Raft group replicating it
+     */
+    public int shardOf(String key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), groups.size());
+    }
+
+    /**
+     * Returns the {@link RaftService} of a group hosted by this node.
+     *
+     * @param groupId the ID of the group
+     * @return the group's {@link RaftService}
+     * @throws IllegalArgumentException if the node does not host the group
+     */
+    public RaftService group(int groupId) {
+        if (groupId < 0 || groupId >= groups.size()) {
+            throw new IllegalArgumentException("Unknown Raft group " + groupId + ". Check raft.shards.count.");
+        }
+        return groups.get(groupId);
+    }
+
+    /**
+     * Returns the state machines of the groups hosted by this node, indexed by group ID.
+     *
+     * @return the {@link KeyValueStateMachine} of every group
+     */
+    public List<KeyValueStateMachine> getStateMachines() {
+        return List.copyOf(stateMachines);
+    }
+
+    /**
+     * Proposes a command to the group of the shard owning its key. If this node is not the group's leader,
+     * the command is forwarded to the leader.
+     *
+     * @param command the command to replicate
+     * @return a {@link Mono} emitting the state machine result once the entry is committed and applied
+     * @throws NotLeaderException if the shard's leader is unknown or unreachable
+     */
+    public Mono<Object> propose(Command command) {
+        return Mono.defer(() -> {
+            int groupId = shardOf(command.getKey());
+            RaftService group = group(groupId);
+            String leaderUrl = group.getLeaderUrl();
+            if (group.getState().isLeader() || leaderUrl == null || leaderUrl.equals(group.getOwnNodeUrl())) {
+                return group.propose(command);
+            }
+            return peerClient.propose(leaderUrl, groupId, command)
+                    .onErrorMap(e -> !(e instanceof NotLeaderException), e -> new NotLeaderException(
+                            "Leader " + leaderUrl + " of shard " + groupId + " failed: " + e.getMessage(), leaderUrl));
+        });
+    }
+
+    /**
+     * Serves a read-only command from the group of the shard owning its key.
+     *
+     * @param command the read-only command
+     * @return a {@link Mono} emitting the result of the command, or empty if there is none
+     * @throws NotLeaderException if the read cannot be served by this node
+     */
+    public Mono<Object> read(Command command) {
+        return Mono.defer(() -> group(shardOf(command.getKey())).read(command));
+    }
+
+    /**
+     * Returns the routing table: the leader of every shard, as known by this node.
+     *
+     * @return the {@link ShardDTO} of every shard
+     */
+    public List<ShardDTO> getShards() {
+        return groups.stream().map(this::toShard).toList();
+    }
+
+    /**
+     * Hands the leadership of every group led by this node over to another node, concurrently.
+     *
+     * @param targetUrl the URL of the node to transfer the leadership to
+     * @return a {@link Mono} emitting the routing table once this node has stepped down in every group
+     * @throws NotLeaderException if this node does not lead any group
+     */
+    public Mono<List<ShardDTO>> transferLeadership(String targetUrl) {
+        return Mono.defer(() -> {
+            List<RaftService> led = groups.stream().filter(group -> group.getState().isLeader()).toList();
+            if (led.isEmpty()) {
+                return Mono.error(new NotLeaderException("Node does not lead any shard.", groups.get(0).getLeaderUrl()));
+            }
+            return Flux.fromIterable(led)
+                    .flatMap(group -> group.transferLeadership(targetUrl))
+                    .then(Mono.fromSupplier(this::getShards));
+        });
+    }
+
+    /**
+     * Returns the members of every group, as known by this node.
+     *
+     * @return the {@link MembershipDTO} of every group
+     */
+    public List<MembershipDTO> getMembership() {
+        return groups.stream().map(RaftService::getMembership).toList();
+    }
+
+    /**
+     * Adds a node to every group or removes it from every group, concurrently. Each change is made by the group's
+     * leader, to which it is forwarded if needed.
+     *
+     * @param request the membership change
+     * @return a {@link Mono} emitting the members of every group once the change is committed in all of them
+     * @throws NotLeaderException        if the leader of a group is unknown or unreachable
+     * @throws MembershipChangeException if the change failed in a group
+     */
+    public Mono<List<MembershipDTO>> changeMembership(MembershipChangeRequest request) {
+        return Flux.fromIterable(groups)
+                .flatMapSequential(group -> changeMembership(group, request))
+                .collectList();
+    }
+
+    private Mono<MembershipDTO> changeMembership(RaftService group, MembershipChangeRequest request) {
+        return Mono.defer(() -> {
+            String leaderUrl = group.getLeaderUrl();
+            if (group.getState().isLeader() || leaderUrl == null || leaderUrl.equals(group.getOwnNodeUrl())) {
+                return group.changeMembership(request);
+            }
+            return peerClient.changeMembership(leaderUrl, group.getGroupId(), request)
+                    .onErrorMap(e -> !(e instanceof NotLeaderException), e -> new MembershipChangeException(
+                            "Leader " + leaderUrl + " of shard " + group.getGroupId() + " failed: " + e.getMessage()));
+        });
+    }
+
+    /**
+     * Returns the shard owning a key and its leader, as known by this node.
+     *
+     * @param key the key
+     * @return the {@link ShardDTO} of the key's shard
+     */
+    public ShardDTO route(String key) {
+        return toShard(groups.get(shardOf(key)));
+    }
+
+    private ShardDTO toShard(RaftService group) {
+        NodeStateSnapshot state = group.getState();
+        return new ShardDTO(group.getGroupId(), group.getLeaderUrl(), state.getCurrentTerm(),
+                state.isStopped() ? NodeState.DOWN : state.getState());
+    }
+
+    /**
+     * Stops every group hosted by the node.
+     *
+     * @return a {@link Mono} signaling completion
+     */
+    public Mono<Void> stopNode() {
+        return Flux.fromIterable(groups).concatMap(RaftService::stopNode).then();
+    }
+
+    /**
+     * Resumes every group hosted by the node.
+     *
+     * @return a {@link Mono} signaling completion
+     */
+    public Mono<Void> resumeNode() {
+        return Flux.fromIterable(groups).concatMap(RaftService::resumeNode).then();
+    }
+
+    /**
+     * Stops the timer and closes the logs of the groups created by this service.
+     */
+    @PreDestroy
+    public void close() {
+        if (timer != null) {
+            timer.stop();
+        }
+        electionScheduler.dispose();
+        logs.forEach(SegmentedRaftLog::close);
+    }
+}
@@ -0,0 +1,288 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.SnapshotConfig;
+import com.baeldung.raft.membership.ClusterConfiguration;
+import com.baeldung.raft.membership.ClusterMembership;
+import com.baeldung.raft.persistence.log.RaftLog;
+import com.baeldung.raft.persistence.snapshot.SnapshotMetadata;
+import com.baeldung.raft.persistence.snapshot.SnapshotStore;
+import com.baeldung.raft.statemachine.StateMachine;
+import com.baeldung.raft.statemachine.StateMachineSnapshot;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service taking state machine snapshots, compacting the log behind them and handling the follower side of
+ * InstallSnapshot transfers.
+ * <p>
+ * A snapshot is taken in the background once {@code raft.snapshot.threshold} entries have been applied since the
+ * previous one. The log is then compacted up to {@code raft.snapshot.retainedEntries} entries before the snapshot.
+ * On startup the latest snapshot is restored, so only the entries after it have to be replayed.
+ * </p>
+ * <p>
+ * The state machine data is preceded by the configuration of the group at the snapshot's last included entry, since
+ * the entry that introduced it may be compacted away. Snapshots written before membership changes existed have no
+ * such header: the configuration the node was started with then stays in effect.
+ * </p>
+ */
+@Service
+@Slf4j
+public class SnapshotService {
+    private static final int CONFIGURATION_MAGIC = 0x52434647;
+
+    private final RaftLog raftLog;
+    private final StateMachine stateMachine;
+    private final SnapshotStore snapshotStore;
+    private final SnapshotConfig snapshotConfig;
+    private final ClusterMembership membership;
+    private final AtomicBoolean snapshotInProgress = new AtomicBoolean(false);
+
+    private PendingSnapshot pending;
+
+    /**
+     * Constructs a new {@code SnapshotService} and restores the latest snapshot, if any.
+     *
+     * @param raftLog        the replicated log
+     * @param stateMachine   the state machine to snapshot
+     * @param snapshotStore  the storage of snapshot files
+     * @param snapshotConfig the snapshot configuration
+     * @param membership     the configuration of the group, stored with each snapshot
+     */
+    public SnapshotService(RaftLog raftLog,
+                           StateMachine stateMachine,
+                           SnapshotStore snapshotStore,
+                           SnapshotConfig snapshotConfig,
+                           ClusterMembership membership) {
+        this.raftLog = raftLog;
+        this.stateMachine = stateMachine;
+        this.snapshotStore = snapshotStore;
+        this.snapshotConfig = snapshotConfig;
+        this.membership = membership;
+        SnapshotMetadata latest = snapshotStore.getLatest();
+        if (latest != null) {
+            install(latest);
+        }
+    }
+
+    /**
+     * Returns the latest snapshot.
+     *
+     * @return the {@link SnapshotMetadata}, or {@code null} if no snapshot has been taken or received yet
+     */
+    public SnapshotMetadata getLatest() {
+        return snapshotStore.getLatest();
+    }
+
+    /**
+     * Returns the index of the last entry included in the latest snapshot.
+     *
+     * @return the snapshot index, or {@code 0} if there is no snapshot
+     */
+    public long getSnapshotIndex() {
+        SnapshotMetadata latest = snapshotStore.getLatest();
+        return latest == null ? 0 : latest.getLastIncludedIndex();
+    }
+
+    /**
+     * Takes a snapshot in the background if enough entries have been applied since the latest one.
+     * Does nothing while another snapshot is being taken.
+     *
+     * @param lastAppliedIndex the index of the last entry applied to the state machine
+     */
+    public void maybeTakeSnapshot(long lastAppliedIndex) {
+        if (lastAppliedIndex - getSnapshotIndex() < snapshotConfig.getThreshold()
+                || !snapshotInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        Mono.fromRunnable(this::takeSnapshot)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doFinally(signal -> snapshotInProgress.set(false))
+                .subscribe(null, e -> log.error("Failed to take a snapshot: {}", e.getMessage()));
+    }
+
+    /**
+     * Takes a snapshot of the state machine and compacts the log behind it.
+     *
+     * @return the {@link SnapshotMetadata} of the new snapshot, or {@code null} if nothing new was applied
+     */
+    public SnapshotMetadata takeSnapshot() {
+        StateMachineSnapshot snapshot = stateMachine.takeSnapshot();
+        long index = snapshot.getLastIncludedIndex();
+        int term = raftLog.getTerm(index);
+        if (index <= getSnapshotIndex() || term < 0) {
+            // Nothing new, or a snapshot received from the leader has replaced the log meanwhile
+            return null;
+        }
+        ClusterConfiguration configuration = membership.at(index);
+        SnapshotMetadata metadata = snapshotStore.save(index, term, out -> {
+            writeConfiguration(out, configuration);
+            snapshot.writeTo(out);
+        });
+        raftLog.compact(index - snapshotConfig.getRetainedEntries());
+        log.info("Snapshot taken at index {}. Log now starts at index {}", index, raftLog.getFirstIndex());
+        return metadata;
+    }
+
+    /**
+     * Reads the chunk of a snapshot starting at {@code offset}.
+     *
+     * @param snapshot the snapshot being sent
+     * @param offset   the offset of the chunk
+     * @return the chunk data
+     * @throws IOException if the snapshot has been deleted in the meantime
+     */
+    public byte[] readChunk(SnapshotMetadata snapshot, long offset) throws IOException {
+        return snapshotStore.readChunk(snapshot, offset, snapshotConfig.getChunkSize());
+    }
+
+    /**
+     * Stores a chunk received from the leader. Chunks must arrive in order: a chunk at an unexpected offset
+     * is ignored and the offset the follower expects is returned, so that the leader can resume from there.
+     * A chunk at offset {@code 0} always starts a new transfer.
+     *
+     * @param request the InstallSnapshot request carrying the chunk
+     * @return the offset of the next expected chunk, or {@code -1} once the last chunk completed the snapshot
+     */
+    public synchronized long receiveChunk(InstallSnapshotRequest request) {
+        if (request.getOffset() == 0) {
+            discardPending();
+            pending = new PendingSnapshot(request.getLastIncludedIndex(), request.getLastIncludedTerm(),
+                    snapshotStore.createTempFile(request.getLastIncludedIndex(), request.getLastIncludedTerm()));
+        }
+        if (pending == null || pending.index != request.getLastIncludedIndex()) {
+            return 0;
+        }
+        if (pending.received != request.getOffset()) {
+            return pending.received;
+        }
+        try {
+            ByteBuffer data = ByteBuffer.wrap(request.getData() == null ? new byte[0] : request.getData());
+            while (data.hasRemaining()) {
+                pending.received += pending.channel.write(data);
+            }
+            if (!request.isDone()) {
+                return pending.received;
+            }
+            pending.channel.force(true);
+            pending.channel.close();
+            snapshotStore.commit(pending.file, pending.index, pending.term);
+            pending = null;
+            return -1;
+        } catch (IOException e) {
+            discardPending();
+            throw new UncheckedIOException("Unable to store snapshot chunk", e);
+        }
+    }
+
+    /**
+     * Replaces the state machine with a stored snapshot and aligns the log with it: the log is kept after
+     * the snapshot if it contains the last included entry, and discarded otherwise (Raft §7).
+     * Nothing happens if the state machine has already applied the snapshot's last included entry.
+     * The caller must prevent entries from being applied concurrently.
+     *
+     * @param snapshot the snapshot to install
+     */
+    public void install(SnapshotMetadata snapshot) {
+        long index = snapshot.getLastIncludedIndex();
+        if (stateMachine.getLastAppliedIndex() >= index) {
+            log.info("State machine is already past snapshot index {}. Skipping installation.", index);
+            return;
+        }
+        ClusterConfiguration configuration;
+        try (InputStream in = new BufferedInputStream(snapshotStore.open(snapshot))) {
+            configuration = readConfiguration(in);
+            stateMachine.restoreSnapshot(index, in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to restore snapshot at index " + index, e);
+        }
+        synchronized (raftLog) {
+            boolean logDiscarded = raftLog.getTerm(index) != snapshot.getLastIncludedTerm();
+            if (logDiscarded) {
+                raftLog.reset(index, snapshot.getLastIncludedTerm());
+            } else {
+                raftLog.compact(index - snapshotConfig.getRetainedEntries());
+            }
+            if (configuration != null) {
+                membership.restore(configuration, logDiscarded);
+            }
+        }
+        log.info("Installed snapshot at index {} (term {})", index, snapshot.getLastIncludedTerm());
+    }
+
+    private static void writeConfiguration(OutputStream out, ClusterConfiguration configuration) throws IOException {
+        // Not closed: the state machine data follows on the same stream
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(CONFIGURATION_MAGIC);
+        data.writeLong(configuration.getIndex());
+        data.writeUTF(configuration.encode());
+        data.flush();
+    }
+
+    /**
+     * Reads the configuration header, leaving the stream at the start of the state machine data.
+     *
+     * @return the configuration, or {@code null} if the snapshot predates membership changes
+     */
+    private static ClusterConfiguration readConfiguration(InputStream in) throws IOException {
+        in.mark(Integer.BYTES);
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != CONFIGURATION_MAGIC) {
+            in.reset();
+            return null;
+        }
+        long index = data.readLong();
+        return ClusterConfiguration.decode(index, data.readUTF());
+    }
+
+    private void discardPending() {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.channel.close();
+            Files.deleteIfExists(pending.file);
+        } catch (IOException e) {
+            log.warn("Unable to discard partial snapshot {}: {}", pending.file, e.getMessage());
+        }
+        pending = null;
+    }
+
+    /**
+     * A snapshot being received from the leader.
+     */
+    private static final class PendingSnapshot {
+        private final long index;
+        private final int term;
+        private final Path file;
+        private final FileChannel channel;
+        private long received;
+
+        private PendingSnapshot(long index, int term, Path file) {
+            this.index = index;
+            this.term = term;
+            this.file = file;
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open snapshot file " + file, e);
+            }
+        }
+    }
+}
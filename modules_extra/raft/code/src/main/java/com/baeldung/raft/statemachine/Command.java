@@ -0,0 +1,78 @@
+package com.baeldung.raft.statemachine;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Command carried by a log entry and applied to the {@link StateMachine} once committed.
+ * <p>
+ * Lease commands use the key as the lease name and the value as the holder; they also carry a TTL and the version
+ * of the lease they apply to. Configuration commands carry the members of the group as their value.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Command {
+    @Schema(description = "Operation to perform", example = "PUT")
+    private CommandType type;
+
+    @Schema(description = "Key the operation refers to", example = "color")
+    private String key;
+
+    @Schema(description = "Value to write, only used by PUT", example = "blue")
+    private String value;
+
+    @Schema(description = "Time to live of the lease in milliseconds, only used by LEASE_ACQUIRE", example = "10000")
+    private Long ttl;
+
+    @Schema(description = "Version of the lease: the fencing token for LEASE_RENEW and LEASE_RELEASE, the revision for LEASE_EXPIRE",
+            example = "42")
+    private Long version;
+
+    public Command(CommandType type, String key, String value) {
+        this(type, key, value, null, null);
+    }
+
+    public static Command noop() {
+        return new Command(CommandType.NOOP, null, null);
+    }
+
+    public static Command get(String key) {
+        return new Command(CommandType.GET, key, null);
+    }
+
+    public static Command put(String key, String value) {
+        return new Command(CommandType.PUT, key, value);
+    }
+
+    public static Command delete(String key) {
+        return new Command(CommandType.DELETE, key, null);
+    }
+
+    public static Command leaseAcquire(String name, String holder, long ttl) {
+        return new Command(CommandType.LEASE_ACQUIRE, name, holder, ttl, null);
+    }
+
+    public static Command leaseRenew(String name, String holder, long token) {
+        return new Command(CommandType.LEASE_RENEW, name, holder, null, token);
+    }
+
+    public static Command leaseRelease(String name, String holder, long token) {
+        return new Command(CommandType.LEASE_RELEASE, name, holder, null, token);
+    }
+
+    public static Command leaseExpire(String name, long revision) {
+        return new Command(CommandType.LEASE_EXPIRE, name, null, null, revision);
+    }
+
+    public static Command leaseGet(String name) {
+        return new Command(CommandType.LEASE_GET, name, null);
+    }
+
+    public static Command configuration(String members) {
+        return new Command(CommandType.CONFIGURATION, null, members);
+    }
+}
@@ -0,0 +1,51 @@
+package com.baeldung.raft.statemachine;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Enumeration of the operations that can be replicated through the Raft log.
+ * <p>
+ * The ordinal is part of the on-disk log format: new operations must be added at the end.
+ * </p>
+ */
+@Schema(description = "Enumeration of the operations that can be replicated through the Raft log.")
+public enum CommandType {
+    @Schema(description = "Empty entry appended by a new leader to commit entries from previous terms")
+    NOOP,
+
+    @Schema(description = "Read a key")
+    GET,
+
+    @Schema(description = "Write a key")
+    PUT,
+
+    @Schema(description = "Remove a key")
+    DELETE,
+
+    @Schema(description = "Acquire a named lease, or renew it if the holder already owns it")
+    LEASE_ACQUIRE,
+
+    @Schema(description = "Renew a lease owned by the holder, identified by its fencing token")
+    LEASE_RENEW,
+
+    @Schema(description = "Release a lease owned by the holder, identified by its fencing token")
+    LEASE_RELEASE,
+
+    @Schema(description = "Revoke a lease that was not renewed in time, proposed by the leader")
+    LEASE_EXPIRE,
+
+    @Schema(description = "Read a lease")
+    LEASE_GET,
+
+    @Schema(description = "Change the members of the Raft group, proposed by the leader")
+    CONFIGURATION;
+
+    /**
+     * Tells whether the operation acts on a lease, and therefore carries a TTL and a lease version.
+     *
+     * @return {@code true} for the lease operations
+     */
+    public boolean isLease() {
+        return ordinal() >= LEASE_ACQUIRE.ordinal() && ordinal() <= LEASE_GET.ordinal();
+    }
+}
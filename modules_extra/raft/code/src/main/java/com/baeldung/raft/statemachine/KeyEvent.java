@@ -0,0 +1,34 @@
+package com.baeldung.raft.statemachine;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of a key, published by the {@link KeyValueStateMachine} when a PUT or a DELETE is applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyEvent {
+    @Schema(description = "Kind of change", example = "PUT")
+    private Type type;
+
+    @Schema(description = "The changed key", example = "config/color")
+    private String key;
+
+    @Schema(description = "The new value, absent for a DELETE", example = "blue")
+    private String value;
+
+    @Schema(description = "Index of the log entry that made the change, unique within the key's shard", example = "42")
+    private long revision;
+
+    /**
+     * Kind of change of a key.
+     */
+    public enum Type {
+        PUT,
+        DELETE
+    }
+}
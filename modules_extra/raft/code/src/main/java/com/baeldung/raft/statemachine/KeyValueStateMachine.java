@@ -0,0 +1,248 @@
+package com.baeldung.raft.statemachine;
+
+import com.baeldung.raft.config.CoordinationConfig;
+import com.baeldung.raft.exception.RevisionCompactedException;
+import com.baeldung.raft.persistence.log.LogEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory key-value store driven by the replicated log. It also holds the named leases of the coordination API.
+ * <p>
+ * Every applied PUT or DELETE is published to the watchers of the key, with the index of its entry as revision.
+ * </p>
+ */
+@Component
+@Slf4j
+public class KeyValueStateMachine implements StateMachine {
+    private final Map<String, String> store = new ConcurrentHashMap<>();
+    private final Sinks.Many<LeaseEvent> leaseEvents = Sinks.many().multicast().directBestEffort();
+    private final LeaseTable leases = new LeaseTable(event -> leaseEvents.tryEmitNext(event));
+    private final KeyWatchers watchers;
+    private volatile long lastAppliedIndex = 0;
+
+    /**
+     * Constructs a new {@code KeyValueStateMachine} with the default watch history.
+     */
+    public KeyValueStateMachine() {
+        this(new CoordinationConfig());
+    }
+
+    /**
+     * Constructs a new {@code KeyValueStateMachine}.
+     *
+     * @param coordinationConfig the coordination configuration, which sizes the watch history
+     */
+    @Autowired
+    public KeyValueStateMachine(CoordinationConfig coordinationConfig) {
+        this.watchers = new KeyWatchers(coordinationConfig.getWatchHistory());
+    }
+
+    /**
+     * Applies a committed entry to the store.
+     *
+     * @param entry the committed {@link LogEntry}
+     * @return the current value for GET, the previous value for PUT and DELETE, {@code null} for NOOP and CONFIGURATION,
+     * a {@link LeaseResult} for the lease commands
+     */
+    @Override
+    public synchronized Object apply(LogEntry entry) {
+        if (entry.getIndex() <= lastAppliedIndex) {
+            log.warn("Entry {} has already been applied. Skipping.", entry.getIndex());
+            return null;
+        }
+        Command command = entry.getCommand();
+        Object result = switch (command.getType()) {
+            // Configurations take effect when appended to the log, not when applied
+            case NOOP, CONFIGURATION -> null;
+            case GET -> store.get(command.getKey());
+            case PUT -> put(entry.getIndex(), command.getKey(), command.getValue());
+            case DELETE -> delete(entry.getIndex(), command.getKey());
+            case LEASE_GET -> leases.get(command.getKey());
+            case LEASE_ACQUIRE, LEASE_RENEW, LEASE_RELEASE, LEASE_EXPIRE -> leases.apply(entry.getIndex(), command);
+        };
+        lastAppliedIndex = entry.getIndex();
+        return result;
+    }
+
+    private String put(long revision, String key, String value) {
+        String previous = store.put(key, value);
+        watchers.publish(new KeyEvent(KeyEvent.Type.PUT, key, value, revision));
+        return previous;
+    }
+
+    private String delete(long revision, String key) {
+        String previous = store.remove(key);
+        if (previous != null) {
+            watchers.publish(new KeyEvent(KeyEvent.Type.DELETE, key, null, revision));
+        }
+        return previous;
+    }
+
+    /**
+     * Answers a GET from the store. Not synchronized: reads never wait for entries being applied.
+     * A LEASE_GET takes the lock, as leases are kept in a plain map.
+     */
+    @Override
+    public Object query(Command command) {
+        if (command.getType() == CommandType.LEASE_GET) {
+            synchronized (this) {
+                return leases.get(command.getKey());
+            }
+        }
+        if (command.getType() != CommandType.GET) {
+            throw new IllegalArgumentException("Only GET and LEASE_GET commands can be queried, got " + command.getType());
+        }
+        return store.get(command.getKey());
+    }
+
+    @Override
+    public long getLastAppliedIndex() {
+        return lastAppliedIndex;
+    }
+
+    /**
+     * Copies the store. The copy is taken under the same lock as {@link #apply(LogEntry)}.
+     * Snapshot layout: {@code [int count]} followed by {@code count} length-prefixed UTF-8 key/value pairs, then
+     * {@code [int leaseCount]} followed by {@code leaseCount} leases
+     * {@code [string name][string holder][long token][long revision][long ttl]}.
+     */
+    @Override
+    public synchronized StateMachineSnapshot takeSnapshot() {
+        // The table replaces a lease on every change instead of modifying it
+        return new KeyValueSnapshot(lastAppliedIndex, new HashMap<>(store), List.copyOf(leases.values()));
+    }
+
+    @Override
+    public synchronized void restoreSnapshot(long lastIncludedIndex, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        Map<String, String> restored = new HashMap<>();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            restored.put(readString(data), readString(data));
+        }
+        Map<String, Lease> restoredLeases = readLeases(data);
+        store.clear();
+        store.putAll(restored);
+        leases.restore(restoredLeases);
+        lastAppliedIndex = lastIncludedIndex;
+        watchers.reset(lastIncludedIndex);
+        log.info("Restored {} keys and {} leases from the snapshot at index {}", count, restoredLeases.size(),
+                lastIncludedIndex);
+    }
+
+    private static Map<String, Lease> readLeases(DataInputStream data) throws IOException {
+        Map<String, Lease> restored = new HashMap<>();
+        int count;
+        try {
+            count = data.readInt();
+        } catch (EOFException e) {
+            // Snapshot taken before leases existed
+            return restored;
+        }
+        for (int i = 0; i < count; i++) {
+            Lease lease = new Lease(readString(data), readString(data), data.readLong(), data.readLong(), data.readLong());
+            restored.put(lease.getName(), lease);
+        }
+        return restored;
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a key from the local replica, without any consistency guarantee.
+     *
+     * @param key the key to read
+     * @return the value, or {@code null} if the key is not present
+     */
+    public String get(String key) {
+        return store.get(key);
+    }
+
+    /**
+     * Streams the changes of the leases as they are applied, including the leases restored from a snapshot.
+     * Subscribers must keep up: events are not buffered.
+     *
+     * @return a {@link Flux} of {@link LeaseEvent}
+     */
+    public Flux<LeaseEvent> leaseEvents() {
+        return leaseEvents.asFlux();
+    }
+
+    /**
+     * Streams the changes of the keys starting with a prefix as they are applied. Resuming from a revision first
+     * replays the retained changes made at or after it.
+     *
+     * @param prefix       the prefix of the keys, empty for every key
+     * @param fromRevision the first revision to stream, {@code 0} for the changes applied from now on
+     * @param bufferSize   the maximum number of events buffered for a watcher that does not keep up
+     * @return a {@link Flux} of {@link KeyEvent}, failing if the watcher falls too far behind or the replica is
+     * replaced by a snapshot
+     * @throws RevisionCompactedException if the revision is no longer retained
+     */
+    public Flux<KeyEvent> watch(String prefix, long fromRevision, int bufferSize) {
+        return watchers.watch(prefix == null ? "" : prefix, fromRevision, bufferSize);
+    }
+
+    /**
+     * Returns the number of keys stored in the local replica.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return store.size();
+    }
+
+    private record KeyValueSnapshot(long lastIncludedIndex, Map<String, String> entries,
+                                    List<Lease> leases) implements StateMachineSnapshot {
+
+        @Override
+        public long getLastIncludedIndex() {
+            return lastIncludedIndex;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(entries.size());
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writeString(data, entry.getKey());
+                writeString(data, entry.getValue());
+            }
+            data.writeInt(leases.size());
+            for (Lease lease : leases) {
+                writeString(data, lease.getName());
+                writeString(data, lease.getHolder());
+                data.writeLong(lease.getToken());
+                data.writeLong(lease.getRevision());
+                data.writeLong(lease.getTtl());
+            }
+            data.flush();
+        }
+
+        private static void writeString(DataOutputStream data, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+}
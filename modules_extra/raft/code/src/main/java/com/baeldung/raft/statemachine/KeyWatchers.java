@@ -0,0 +1,178 @@
+package com.baeldung.raft.statemachine;
+
+import com.baeldung.raft.exception.RevisionCompactedException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Watchers of the keys of a {@link KeyValueStateMachine}, fed by its apply loop.
+ * <p>
+ * The watchers are indexed by a trie of their key prefixes: an applied change walks the trie along its key and only
+ * reaches the watchers of the prefixes of that key. The latest changes are kept in a ring buffer of
+ * {@code raft.coordination.watchHistory} events, so that a watcher that was disconnected resumes from the revision it
+ * stopped at instead of reading every key again. Each watcher buffers at most
+ * {@code raft.coordination.watchBuffer} events, and its stream fails once it falls further behind.
+ * </p>
+ */
+class KeyWatchers {
+    private final int historySize;
+    private final ArrayDeque<KeyEvent> history;
+    private final TrieNode root = new TrieNode(null, (char) 0);
+    private long firstRetainedRevision = 1;
+
+    KeyWatchers(int historySize) {
+        this.historySize = Math.max(1, historySize);
+        this.history = new ArrayDeque<>(this.historySize);
+    }
+
+    /**
+     * Streams the changes of the keys starting with a prefix, from a revision on.
+     *
+     * @param prefix       the prefix of the keys, empty for every key
+     * @param fromRevision the first revision to stream, {@code 0} for the changes applied from now on
+     * @param bufferSize   the maximum number of events buffered for the watcher
+     * @return a {@link Flux} of {@link KeyEvent}, in revision order
+     * @throws RevisionCompactedException if the revision is older than the history
+     */
+    synchronized Flux<KeyEvent> watch(String prefix, long fromRevision, int bufferSize) {
+        if (fromRevision > 0 && fromRevision < firstRetainedRevision) {
+            throw new RevisionCompactedException(fromRevision, firstRetainedRevision);
+        }
+        List<KeyEvent> replay = new ArrayList<>();
+        if (fromRevision > 0) {
+            for (KeyEvent event : history) {
+                if (event.getRevision() >= fromRevision && event.getKey().startsWith(prefix)) {
+                    replay.add(event);
+                }
+            }
+        }
+        // Registered under the same lock as the replay: no change is missed or streamed twice
+        Watcher watcher = new Watcher(Sinks.many().unicast().onBackpressureBuffer(Queues.<KeyEvent>get(bufferSize).get()));
+        TrieNode node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        node.watchers.add(watcher);
+        watcher.node = node;
+        // The apply loop only hands the events over: the watchers are served on other threads
+        return Flux.fromIterable(replay)
+                .concatWith(watcher.sink.asFlux().filter(event -> event.getRevision() >= fromRevision))
+                .doFinally(signal -> remove(watcher))
+                .publishOn(Schedulers.parallel());
+    }
+
+    /**
+     * Records a change and hands it to the watchers of the prefixes of its key.
+     *
+     * @param event the applied change
+     */
+    synchronized void publish(KeyEvent event) {
+        if (history.size() == historySize) {
+            firstRetainedRevision = history.removeFirst().getRevision() + 1;
+        }
+        history.addLast(event);
+        String key = event.getKey();
+        TrieNode node = root;
+        int depth = 0;
+        List<Watcher> overflowed = null;
+        while (node != null) {
+            // Copied, as a watcher may be removed while the event is handed over
+            for (Watcher watcher : node.watchers.isEmpty() ? List.<Watcher>of() : List.copyOf(node.watchers)) {
+                if (watcher.sink.tryEmitNext(event).isFailure()) {
+                    overflowed = overflowed == null ? new ArrayList<>() : overflowed;
+                    overflowed.add(watcher);
+                }
+            }
+            node = depth < key.length() ? node.children.get(key.charAt(depth)) : null;
+            depth++;
+        }
+        if (overflowed != null) {
+            for (Watcher watcher : overflowed) {
+                remove(watcher);
+                watcher.sink.tryEmitError(new IllegalStateException(
+                        "Watcher fell too far behind: resume from revision " + event.getRevision()));
+            }
+        }
+    }
+
+    /**
+     * Forgets the history once the state machine has been replaced by a snapshot, and fails every watcher: the
+     * changes leading to the snapshot cannot be streamed.
+     *
+     * @param lastIncludedIndex the index of the last entry included in the snapshot
+     */
+    synchronized void reset(long lastIncludedIndex) {
+        history.clear();
+        firstRetainedRevision = lastIncludedIndex + 1;
+        List<Watcher> watchers = new ArrayList<>();
+        root.collect(watchers);
+        for (Watcher watcher : watchers) {
+            remove(watcher);
+            watcher.sink.tryEmitError(new RevisionCompactedException(lastIncludedIndex, firstRetainedRevision));
+        }
+    }
+
+    /**
+     * Returns the number of watchers registered.
+     *
+     * @return the number of watchers
+     */
+    synchronized int size() {
+        List<Watcher> watchers = new ArrayList<>();
+        root.collect(watchers);
+        return watchers.size();
+    }
+
+    private synchronized void remove(Watcher watcher) {
+        TrieNode node = watcher.node;
+        if (node == null) {
+            return;
+        }
+        watcher.node = null;
+        node.watchers.remove(watcher);
+        // Prunes the branch left without watchers
+        while (node.parent != null && node.watchers.isEmpty() && node.children.isEmpty()) {
+            node.parent.children.remove(node.label);
+            node = node.parent;
+        }
+    }
+
+    private static final class Watcher {
+        private final Sinks.Many<KeyEvent> sink;
+        // Node of the watcher's prefix, null once removed
+        private TrieNode node;
+
+        private Watcher(Sinks.Many<KeyEvent> sink) {
+            this.sink = sink;
+        }
+    }
+
+    private static final class TrieNode {
+        private final TrieNode parent;
+        private final char label;
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private final List<Watcher> watchers = new ArrayList<>();
+
+        private TrieNode(TrieNode parent, char label) {
+            this.parent = parent;
+            this.label = label;
+        }
+
+        private TrieNode child(char c) {
+            return children.computeIfAbsent(c, key -> new TrieNode(this, key));
+        }
+
+        private void collect(List<Watcher> collected) {
+            collected.addAll(watchers);
+            children.values().forEach(child -> child.collect(collected));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.baeldung.raft.statemachine;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Named lease held by a client until it is released or not renewed within its TTL.
+ * <p>
+ * The fencing token is the log index of the entry that granted the lease: every grant of the same name gets a
+ * greater token, so the resources guarded by the lease can reject the requests of a previous holder.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Lease {
+    @Schema(description = "Name of the lease", example = "scheduler-lock")
+    private String name;
+
+    @Schema(description = "Client holding the lease", example = "worker-1")
+    private String holder;
+
+    @Schema(description = "Fencing token: log index of the entry that granted the lease", example = "42")
+    private long token;
+
+    @Schema(description = "Log index of the last grant or renewal of the lease", example = "57")
+    private long revision;
+
+    @Schema(description = "Time to live of the lease in milliseconds, counted from its last renewal", example = "10000")
+    private long ttl;
+}
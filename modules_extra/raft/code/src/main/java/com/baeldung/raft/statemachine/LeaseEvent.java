@@ -0,0 +1,30 @@
+package com.baeldung.raft.statemachine;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of a lease, published by the {@link KeyValueStateMachine} when a lease command is applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaseEvent {
+    @Schema(description = "Kind of change", example = "ACQUIRED")
+    private Type type;
+
+    @Schema(description = "The lease as granted, renewed, or as it was before being removed")
+    private Lease lease;
+
+    /**
+     * Kind of change of a lease.
+     */
+    public enum Type {
+        ACQUIRED,
+        RENEWED,
+        RELEASED,
+        EXPIRED
+    }
+}
@@ -0,0 +1,20 @@
+package com.baeldung.raft.statemachine;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a lease command applied to the {@link KeyValueStateMachine}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaseResult {
+    @Schema(description = "Whether the command took effect", example = "true")
+    private boolean success;
+
+    @Schema(description = "The lease after the command, or the lease that prevented it; null if there is none")
+    private Lease lease;
+}
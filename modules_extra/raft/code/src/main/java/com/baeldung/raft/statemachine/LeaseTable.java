@@ -0,0 +1,103 @@
+package com.baeldung.raft.statemachine;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Leases of the {@link KeyValueStateMachine}. Not thread-safe: the state machine applies one command at a time.
+ * <p>
+ * The table never reads a clock, so that every replica reaches the same state: a lease only goes away through a
+ * release, or through a {@link CommandType#LEASE_EXPIRE} entry proposed by the leader once the TTL has elapsed.
+ * </p>
+ */
+class LeaseTable {
+    private final Map<String, Lease> leases = new HashMap<>();
+    private final Consumer<LeaseEvent> listener;
+
+    LeaseTable(Consumer<LeaseEvent> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Applies a lease command.
+     *
+     * @param index   the log index of the entry carrying the command
+     * @param command the lease command
+     * @return the {@link LeaseResult}
+     */
+    LeaseResult apply(long index, Command command) {
+        String name = command.getKey();
+        Lease current = leases.get(name);
+        return switch (command.getType()) {
+            case LEASE_ACQUIRE -> {
+                if (current == null) {
+                    yield grant(LeaseEvent.Type.ACQUIRED, new Lease(name, command.getValue(), index, index, ttlOf(command)));
+                }
+                if (!current.getHolder().equals(command.getValue())) {
+                    yield new LeaseResult(false, current);
+                }
+                yield grant(LeaseEvent.Type.RENEWED, new Lease(name, current.getHolder(), current.getToken(), index,
+                        ttlOf(command)));
+            }
+            case LEASE_RENEW -> isHeldBy(current, command)
+                    ? grant(LeaseEvent.Type.RENEWED, new Lease(name, current.getHolder(), current.getToken(), index, current.getTtl()))
+                    : new LeaseResult(false, current);
+            case LEASE_RELEASE -> isHeldBy(current, command)
+                    ? remove(LeaseEvent.Type.RELEASED, current)
+                    : new LeaseResult(false, current);
+            // The lease was renewed after the leader decided to expire it
+            case LEASE_EXPIRE -> current != null && Objects.equals(command.getVersion(), current.getRevision())
+                    ? remove(LeaseEvent.Type.EXPIRED, current)
+                    : new LeaseResult(false, current);
+            default -> throw new IllegalArgumentException("Not a lease command: " + command.getType());
+        };
+    }
+
+    Lease get(String name) {
+        return leases.get(name);
+    }
+
+    Collection<Lease> values() {
+        return leases.values();
+    }
+
+    /**
+     * Replaces every lease. The leases that no longer exist are reported as released, the others as renewed.
+     *
+     * @param restored the leases to keep
+     */
+    void restore(Map<String, Lease> restored) {
+        for (Lease lease : leases.values()) {
+            if (!restored.containsKey(lease.getName())) {
+                listener.accept(new LeaseEvent(LeaseEvent.Type.RELEASED, lease));
+            }
+        }
+        leases.clear();
+        leases.putAll(restored);
+        restored.values().forEach(lease -> listener.accept(new LeaseEvent(LeaseEvent.Type.RENEWED, lease)));
+    }
+
+    private static boolean isHeldBy(Lease lease, Command command) {
+        return lease != null && lease.getHolder().equals(command.getValue())
+                && Objects.equals(command.getVersion(), lease.getToken());
+    }
+
+    private static long ttlOf(Command command) {
+        return command.getTtl() == null ? 0 : command.getTtl();
+    }
+
+    private LeaseResult grant(LeaseEvent.Type type, Lease lease) {
+        leases.put(lease.getName(), lease);
+        listener.accept(new LeaseEvent(type, lease));
+        return new LeaseResult(true, lease);
+    }
+
+    private LeaseResult remove(LeaseEvent.Type type, Lease lease) {
+        leases.remove(lease.getName());
+        listener.accept(new LeaseEvent(type, lease));
+        return new LeaseResult(true, lease);
+    }
+}
@@ -0,0 +1,57 @@
+package com.baeldung.raft.statemachine;
+
+import com.baeldung.raft.persistence.log.LogEntry;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Deterministic state machine fed with committed log entries.
+ * <p>
+ * Every node applies the same entries in the same order, so every replica ends up in the same state.
+ * </p>
+ */
+public interface StateMachine {
+
+    /**
+     * Applies a committed entry. Entries are applied exactly once and in index order.
+     *
+     * @param entry the committed {@link LogEntry}
+     * @return the result handed back to the client that proposed the entry, possibly {@code null}
+     */
+    Object apply(LogEntry entry);
+
+    /**
+     * Answers a read-only command from the current state, without going through the log.
+     * The caller is responsible for making the read linearizable.
+     *
+     * @param command the read-only command
+     * @return the result of the command, possibly {@code null}
+     * @throws IllegalArgumentException if the command modifies the state
+     */
+    Object query(Command command);
+
+    /**
+     * Returns the index of the last entry applied to the state machine.
+     *
+     * @return the last applied index, or {@code 0} if nothing has been applied yet
+     */
+    long getLastAppliedIndex();
+
+    /**
+     * Captures the current state. The capture includes exactly the entries up to
+     * {@link StateMachineSnapshot#getLastIncludedIndex()}.
+     *
+     * @return the {@link StateMachineSnapshot}
+     */
+    StateMachineSnapshot takeSnapshot();
+
+    /**
+     * Replaces the whole state with a snapshot previously written by {@link StateMachineSnapshot#writeTo}.
+     *
+     * @param lastIncludedIndex the index of the last entry included in the snapshot
+     * @param in                the serialized snapshot
+     * @throws IOException if reading fails
+     */
+    void restoreSnapshot(long lastIncludedIndex, InputStream in) throws IOException;
+}
@@ -0,0 +1,26 @@
+package com.baeldung.raft.statemachine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Point-in-time capture of a {@link StateMachine}, detached from the live state so that it can be
+ * written out while new entries keep being applied.
+ */
+public interface StateMachineSnapshot {
+
+    /**
+     * Returns the index of the last entry applied to the state machine when the capture was taken.
+     *
+     * @return the last included index
+     */
+    long getLastIncludedIndex();
+
+    /**
+     * Serializes the captured state.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,316 @@
+package com.baeldung.raft.transport;
+
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.GroupHeartbeat;
+import com.baeldung.raft.web.dto.HeartbeatBatch;
+import com.baeldung.raft.web.dto.HeartbeatBatchResponse;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import com.baeldung.raft.web.dto.InstallSnapshotResponse;
+import com.baeldung.raft.web.dto.MembershipChangeRequest;
+import com.baeldung.raft.web.dto.MembershipDTO;
+import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.RequestVoteRequest;
+import com.baeldung.raft.web.dto.TimeoutNowRequest;
+import io.rsocket.exceptions.ApplicationErrorException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Client side of the peer-to-peer Raft RPCs.
+ * <p>
+ * Each peer is reached through a single long-lived RSocket connection, carried over a WebSocket on the peer's HTTP
+ * port, so no additional port has to be opened. RSocket multiplexes every request (heartbeats, pipelined
+ * AppendEntries batches, votes, snapshot chunks, read indexes and status polls) over that connection, and messages are encoded
+ * with CBOR instead of JSON. The connection is opened on the first request and re-opened by the next request
+ * after a failure.
+ * </p>
+ * <p>
+ * Every RPC is addressed to a Raft group, whose ID is part of the route. Heartbeats (AppendEntries without entries)
+ * of all the groups are coalesced: those issued to the same peer while a task runs on the
+ * {@linkplain #getHeartbeatScheduler() heartbeat scheduler} are sent as a single message once it completes, so the
+ * number of heartbeat messages does not grow with the number of groups. Heartbeat messages and their responses also
+ * carry the node statuses of the {@linkplain #setStatusGossip(StatusGossip) status gossip}, if any.
+ * </p>
+ */
+@Slf4j
+@Component
+public class PeerClient {
+    public static final String REQUEST_VOTE = "raft.request-vote.{group}";
+    public static final String TIMEOUT_NOW = "raft.timeout-now.{group}";
+    public static final String APPEND_ENTRIES = "raft.append-entries.{group}";
+    public static final String HEARTBEATS = "raft.heartbeats";
+    public static final String INSTALL_SNAPSHOT = "raft.install-snapshot.{group}";
+    public static final String READ_INDEX = "raft.read-index.{group}";
+    public static final String PROPOSE = "raft.propose.{group}";
+    public static final String CHANGE_MEMBERSHIP = "raft.change-membership.{group}";
+    public static final String STATUS = "raft.status";
+
+    // Keeps every frame below the 64 KiB WebSocket frame limit of Reactor Netty, snapshot chunks included
+    private static final int MAX_FRAGMENT_SIZE = 16 * 1024;
+
+    private final RSocketRequester.Builder requesterBuilder;
+    private final String mappingPath;
+    private final Map<String, RSocketRequester> requesters = new ConcurrentHashMap<>();
+    private final Scheduler heartbeatScheduler = Schedulers.newSingle("raft-heartbeats", true);
+    private final Map<String, List<PendingHeartbeat>> heartbeats = new HashMap<>();
+    private volatile StatusGossip statusGossip;
+
+    /**
+     * Constructs a new {@code PeerClient}.
+     *
+     * @param requesterBuilder the builder of the {@link RSocketRequester} of each peer
+     * @param mappingPath      the path on which every node accepts RSocket connections
+     */
+    public PeerClient(RSocketRequester.Builder requesterBuilder,
+                      @Value("${spring.rsocket.server.mapping-path}") String mappingPath) {
+        this.requesterBuilder = requesterBuilder
+                .dataMimeType(MimeTypeUtils.parseMimeType("application/cbor"))
+                .rsocketConnector(connector -> connector.fragment(MAX_FRAGMENT_SIZE));
+        this.mappingPath = mappingPath;
+    }
+
+    /**
+     * Returns the scheduler the heartbeats are flushed on. Heartbeats issued by a single task running on it are
+     * sent together, one message per peer.
+     *
+     * @return the heartbeat {@link Scheduler}
+     */
+    public Scheduler getHeartbeatScheduler() {
+        return heartbeatScheduler;
+    }
+
+    /**
+     * Sets the node statuses to exchange with the heartbeats.
+     *
+     * @param statusGossip the source and destination of the statuses
+     */
+    public void setStatusGossip(StatusGossip statusGossip) {
+        this.statusGossip = statusGossip;
+    }
+
+    /**
+     * Sends a RequestVote RPC.
+     *
+     * @param peerUrl the URL of the peer
+     * @param group   the ID of the Raft group
+     * @param request the vote request
+     * @return a {@link Mono} emitting {@code true} if the vote is granted
+     */
+    public Mono<Boolean> requestVote(String peerUrl, int group, RequestVoteRequest request) {
+        return call(peerUrl, requester -> requester.route(REQUEST_VOTE, group).data(request).retrieveMono(Boolean.class));
+    }
+
+    /**
+     * Sends a TimeoutNow RPC, asking a follower to start an election without waiting for its election timeout.
+     *
+     * @param peerUrl the URL of the peer
+     * @param group   the ID of the Raft group
+     * @param request the TimeoutNow request
+     * @return a {@link Mono} emitting {@code true} if the follower started an election
+     */
+    public Mono<Boolean> timeoutNow(String peerUrl, int group, TimeoutNowRequest request) {
+        return call(peerUrl, requester -> requester.route(TIMEOUT_NOW, group).data(request).retrieveMono(Boolean.class));
+    }
+
+    /**
+     * Sends an AppendEntries RPC. A request without entries is a heartbeat and is coalesced with the heartbeats
+     * of the other groups.
+     *
+     * @param peerUrl the URL of the peer
+     * @param group   the ID of the Raft group
+     * @param request the AppendEntries request
+     * @return a {@link Mono} emitting the follower's response, or empty if the follower did not answer
+     */
+    public Mono<AppendEntriesResponse> appendEntries(String peerUrl, int group, AppendEntriesRequest request) {
+        if (request.getEntries() == null || request.getEntries().isEmpty()) {
+            return heartbeat(peerUrl, new GroupHeartbeat(group, request));
+        }
+        return call(peerUrl, requester -> requester.route(APPEND_ENTRIES, group).data(request)
+                .retrieveMono(AppendEntriesResponse.class));
+    }
+
+    /**
+     * Sends an InstallSnapshot RPC carrying a single chunk.
+     *
+     * @param peerUrl the URL of the peer
+     * @param group   the ID of the Raft group
+     * @param request the InstallSnapshot request
+     * @return a {@link Mono} emitting the follower's response
+     */
+    public Mono<InstallSnapshotResponse> installSnapshot(String peerUrl, int group, InstallSnapshotRequest request) {
+        return call(peerUrl, requester -> requester.route(INSTALL_SNAPSHOT, group).data(request)
+                .retrieveMono(InstallSnapshotResponse.class));
+    }
+
+    /**
+     * Requests the status of a peer.
+     *
+     * @param peerUrl the URL of the peer
+     * @return a {@link Mono} emitting the peer's status
+     */
+    public Mono<NodeStatusDTO> getStatus(String peerUrl) {
+        return call(peerUrl, requester -> requester.route(STATUS).retrieveMono(NodeStatusDTO.class));
+    }
+
+    /**
+     * Asks the leader for a read index: a commit index that a replica must have applied before it can serve
+     * a linearizable read.
+     *
+     * @param peerUrl the URL of the leader
+     * @param group   the ID of the Raft group
+     * @return a {@link Mono} emitting the read index
+     */
+    public Mono<Long> readIndex(String peerUrl, int group) {
+        return call(peerUrl, requester -> requester.route(READ_INDEX, group).retrieveMono(Long.class));
+    }
+
+    /**
+     * Forwards a command to the leader of a group, which proposes it to the group's log.
+     *
+     * @param peerUrl the URL of the leader
+     * @param group   the ID of the Raft group
+     * @param command the command to replicate
+     * @return a {@link Mono} emitting the state machine result once the entry is applied, or empty if there is none
+     */
+    public Mono<Object> propose(String peerUrl, int group, Command command) {
+        return call(peerUrl, requester -> requester.route(PROPOSE, group).data(command).retrieveMono(Object.class));
+    }
+
+    /**
+     * Forwards a membership change to the leader of a group.
+     *
+     * @param peerUrl the URL of the leader
+     * @param group   the ID of the Raft group
+     * @param request the membership change
+     * @return a {@link Mono} emitting the new members once the change is committed
+     */
+    public Mono<MembershipDTO> changeMembership(String peerUrl, int group, MembershipChangeRequest request) {
+        return call(peerUrl, requester -> requester.route(CHANGE_MEMBERSHIP, group).data(request)
+                .retrieveMono(MembershipDTO.class));
+    }
+
+    /**
+     * Tells whether a request failed because the peer is not listening, which is expected while it is down.
+     *
+     * @param error the error of the request
+     * @return {@code true} if the connection was refused
+     */
+    public static boolean isConnectionRefused(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<AppendEntriesResponse> heartbeat(String peerUrl, GroupHeartbeat heartbeat) {
+        return Mono.create(sink -> {
+            boolean first;
+            synchronized (heartbeats) {
+                List<PendingHeartbeat> batch = heartbeats.computeIfAbsent(peerUrl, url -> new ArrayList<>());
+                first = batch.isEmpty();
+                batch.add(new PendingHeartbeat(heartbeat, sink));
+            }
+            if (first) {
+                // Runs after the current heartbeat task, if any, has issued the heartbeats of every group
+                heartbeatScheduler.schedule(() -> flushHeartbeats(peerUrl));
+            }
+        });
+    }
+
+    /**
+     * Sends every heartbeat waiting for a peer in a single message. The responses come back in the same order,
+     * {@code null} for the groups that did not answer.
+     */
+    private void flushHeartbeats(String peerUrl) {
+        List<PendingHeartbeat> batch;
+        synchronized (heartbeats) {
+            batch = heartbeats.remove(peerUrl);
+        }
+        if (batch == null) {
+            return;
+        }
+        StatusGossip gossip = statusGossip;
+        HeartbeatBatch request = new HeartbeatBatch(batch.stream().map(pending -> pending.heartbeat).toList(),
+                gossip != null ? gossip.getStatusUpdates() : List.of());
+        call(peerUrl, requester -> requester.route(HEARTBEATS).data(request).retrieveMono(HeartbeatBatchResponse.class))
+                .subscribe(response -> {
+                    if (gossip != null && response.getStatuses() != null) {
+                        gossip.merge(response.getStatuses());
+                    }
+                    List<AppendEntriesResponse> responses = response.getResponses();
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).sink.success(responses != null && i < responses.size() ? responses.get(i) : null);
+                    }
+                }, error -> {
+                    if (gossip != null && isConnectionRefused(error)) {
+                        gossip.markDown(peerUrl);
+                    }
+                    batch.forEach(pending -> pending.sink.error(error));
+                }, () -> batch.forEach(pending -> pending.sink.success()));
+    }
+
+    /**
+     * Sends a request over the connection to a peer. The connection is dropped when the request fails for any
+     * reason other than an error raised by the peer's handler, so that the next request opens a new one.
+     */
+    private <T> Mono<T> call(String peerUrl, Function<RSocketRequester, Mono<T>> request) {
+        return Mono.defer(() -> {
+            RSocketRequester requester = requesters.computeIfAbsent(peerUrl,
+                    url -> requesterBuilder.websocket(URI.create("ws://" + url + mappingPath)));
+            return request.apply(requester).doOnError(error -> {
+                if (error instanceof ApplicationErrorException || !requesters.remove(peerUrl, requester)) {
+                    return;
+                }
+                log.debug("Dropping the connection to {}: {}", peerUrl, error.getMessage());
+                // A refused connection was never opened, and disposing it would fail the requests waiting for it
+                if (!isConnectionRefused(error)) {
+                    requester.dispose();
+                }
+            });
+        });
+    }
+
+    /**
+     * Closes the connection to every peer.
+     */
+    @PreDestroy
+    public void close() {
+        requesters.values().forEach(RSocketRequester::dispose);
+        requesters.clear();
+        heartbeatScheduler.dispose();
+    }
+
+    /**
+     * A heartbeat waiting to be sent with the other heartbeats to the same peer.
+     */
+    private static final class PendingHeartbeat {
+        private final GroupHeartbeat heartbeat;
+        private final MonoSink<AppendEntriesResponse> sink;
+
+        private PendingHeartbeat(GroupHeartbeat heartbeat, MonoSink<AppendEntriesResponse> sink) {
+            this.heartbeat = heartbeat;
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.baeldung.raft.transport;
+
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.service.ShardService;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.HeartbeatBatch;
+import com.baeldung.raft.web.dto.HeartbeatBatchResponse;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import com.baeldung.raft.web.dto.InstallSnapshotResponse;
+import com.baeldung.raft.web.dto.MembershipChangeRequest;
+import com.baeldung.raft.web.dto.MembershipDTO;
+import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.RequestVoteRequest;
+import com.baeldung.raft.web.dto.TimeoutNowRequest;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Server side of the peer-to-peer Raft RPCs sent by {@link PeerClient}. Each RPC is dispatched to the Raft group
+ * named in its route. The same operations remain available over HTTP, for the default group, for manual testing.
+ */
+@Controller
+public class PeerController {
+    private final RaftService raftService;
+    private final ShardService shardService;
+    private final StatusGossip statusGossip;
+
+    /**
+     * Constructs a new {@code PeerController}.
+     *
+     * @param raftService  the service handling Raft operations of the default group
+     * @param shardService the service hosting every Raft group of the node
+     * @param statusGossip the node statuses exchanged with the heartbeats
+     */
+    public PeerController(RaftService raftService, ShardService shardService, StatusGossip statusGossip) {
+        this.raftService = raftService;
+        this.shardService = shardService;
+        this.statusGossip = statusGossip;
+    }
+
+    @MessageMapping(PeerClient.REQUEST_VOTE)
+    public Mono<Boolean> requestVote(@DestinationVariable int group, RequestVoteRequest request) {
+        return shardService.group(group).requestVote(request);
+    }
+
+    @MessageMapping(PeerClient.TIMEOUT_NOW)
+    public Mono<Boolean> timeoutNow(@DestinationVariable int group, TimeoutNowRequest request) {
+        return shardService.group(group).timeoutNow(request);
+    }
+
+    @MessageMapping(PeerClient.APPEND_ENTRIES)
+    public Mono<AppendEntriesResponse> appendEntries(@DestinationVariable int group, AppendEntriesRequest request) {
+        return shardService.group(group).appendEntries(request);
+    }
+
+    /**
+     * Handles the coalesced heartbeats of several groups. The responses are returned in the order of the requests,
+     * {@code null} for a group that does not answer, with the node statuses known to this node.
+     */
+    @MessageMapping(PeerClient.HEARTBEATS)
+    public Mono<HeartbeatBatchResponse> heartbeats(HeartbeatBatch batch) {
+        if (batch.getStatuses() != null) {
+            statusGossip.merge(batch.getStatuses());
+        }
+        return Flux.fromIterable(batch.getHeartbeats())
+                .flatMapSequential(heartbeat -> shardService.group(heartbeat.getGroup())
+                        .appendEntries(heartbeat.getRequest())
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()))
+                .collectList()
+                .map(responses -> {
+                    List<AppendEntriesResponse> result = new ArrayList<>(responses.size());
+                    responses.forEach(response -> result.add(response.orElse(null)));
+                    return new HeartbeatBatchResponse(result, statusGossip.getStatusUpdates());
+                });
+    }
+
+    @MessageMapping(PeerClient.INSTALL_SNAPSHOT)
+    public Mono<InstallSnapshotResponse> installSnapshot(@DestinationVariable int group, InstallSnapshotRequest request) {
+        return shardService.group(group).installSnapshot(request);
+    }
+
+    @MessageMapping(PeerClient.READ_INDEX)
+    public Mono<Long> readIndex(@DestinationVariable int group) {
+        return shardService.group(group).readIndex();
+    }
+
+    /**
+     * Handles a command forwarded by a node that is not the group's leader. It is not forwarded any further.
+     */
+    @MessageMapping(PeerClient.PROPOSE)
+    public Mono<Object> propose(@DestinationVariable int group, Command command) {
+        return shardService.group(group).propose(command);
+    }
+
+    /**
+     * Handles a membership change forwarded by a node that is not the group's leader. It is not forwarded any further.
+     */
+    @MessageMapping(PeerClient.CHANGE_MEMBERSHIP)
+    public Mono<MembershipDTO> changeMembership(@DestinationVariable int group, MembershipChangeRequest request) {
+        return shardService.group(group).changeMembership(request);
+    }
+
+    @MessageMapping(PeerClient.STATUS)
+    public Mono<NodeStatusDTO> getStatus() {
+        return raftService.getNodeStatus();
+    }
+}
@@ -0,0 +1,33 @@
+package com.baeldung.raft.transport;
+
+import com.baeldung.raft.web.dto.NodeStatusUpdate;
+
+import java.util.List;
+
+/**
+ * Node statuses piggybacked on the heartbeat messages: every heartbeat message and every response carry the
+ * statuses known to their sender, so that the nodes learn about each other without polling.
+ */
+public interface StatusGossip {
+
+    /**
+     * Returns the statuses to send to a peer.
+     *
+     * @return the latest known version of the status of every node
+     */
+    List<NodeStatusUpdate> getStatusUpdates();
+
+    /**
+     * Merges the statuses received from a peer.
+     *
+     * @param updates the statuses known to the peer
+     */
+    void merge(List<NodeStatusUpdate> updates);
+
+    /**
+     * Records that a peer refused a connection, until a newer status of the peer is received.
+     *
+     * @param nodeUrl the URL of the peer
+     */
+    void markDown(String nodeUrl);
+}
@@ -0,0 +1,176 @@
+package com.baeldung.raft.web.controller;
+
+import com.baeldung.raft.coordination.LeaseService;
+import com.baeldung.raft.exception.LeaseConflictException;
+import com.baeldung.raft.exception.LeaseNotFoundException;
+import com.baeldung.raft.statemachine.Lease;
+import com.baeldung.raft.statemachine.LeaseEvent;
+import com.baeldung.raft.statemachine.LeaseResult;
+import com.baeldung.raft.web.dto.LeaseRenewalDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * REST controller exposing the coordination API: named leases with fencing tokens.
+ * <p>
+ * Every lease operation is replicated by the group of the shard owning the lease name, and forwarded to its leader
+ * when this node is not the leader.
+ * </p>
+ */
+@RestController
+@RequestMapping("/raft/leases")
+@Tag(name = "Leases", description = "Endpoints for named leases with fencing tokens")
+public class LeaseController {
+    private final LeaseService leaseService;
+
+    /**
+     * Constructs a new {@code LeaseController}.
+     *
+     * @param leaseService the service managing the leases
+     */
+    public LeaseController(LeaseService leaseService) {
+        this.leaseService = leaseService;
+    }
+
+    /**
+     * Acquires a lease, or renews it if the holder already owns it.
+     *
+     * @param name   the name of the lease
+     * @param holder the client acquiring the lease
+     * @param ttl    the time to live of the lease in milliseconds
+     * @return a {@link Mono} emitting the granted {@link Lease}, whose token fences the holder's requests
+     */
+    @Operation(summary = "Acquire a lease")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lease granted",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Lease.class))),
+            @ApiResponse(responseCode = "400", description = "Missing holder or non-positive TTL", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Lease held by another client", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The shard's leader is unknown or unreachable", content = @Content)
+    })
+    @PostMapping("/{name}")
+    public Mono<Lease> acquire(@PathVariable String name,
+                               @Parameter(description = "Client acquiring the lease", example = "worker-1", required = true)
+                               @RequestParam String holder,
+                               @Parameter(description = "Time to live in milliseconds", example = "10000", required = true)
+                               @RequestParam long ttl) {
+        return leaseService.acquire(name, holder, ttl);
+    }
+
+    /**
+     * Renews a lease for another TTL.
+     *
+     * @param name   the name of the lease
+     * @param holder the client holding the lease
+     * @param token  the fencing token the lease was granted with
+     * @return a {@link Mono} emitting the renewed {@link Lease}
+     */
+    @Operation(summary = "Renew a lease")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lease renewed",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Lease.class))),
+            @ApiResponse(responseCode = "404", description = "Lease not found: released or expired", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Lease held by another client or under another token", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The shard's leader is unknown or unreachable", content = @Content)
+    })
+    @PutMapping("/{name}/renew")
+    public Mono<Lease> renew(@PathVariable String name,
+                             @Parameter(description = "Client holding the lease", example = "worker-1", required = true)
+                             @RequestParam String holder,
+                             @Parameter(description = "Fencing token of the lease", example = "42", required = true)
+                             @RequestParam long token) {
+        return leaseService.renew(name, holder, token);
+    }
+
+    /**
+     * Renews a batch of leases. The renewals are proposed concurrently, so that the leader of each shard appends and
+     * replicates them together; a rejected renewal does not fail the others.
+     *
+     * @param renewals the leases to renew
+     * @return a {@link Mono} emitting a {@link LeaseResult} per renewal, in order
+     */
+    @Operation(summary = "Renew a batch of leases")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Every renewal processed"),
+            @ApiResponse(responseCode = "503", description = "The leader of a shard is unknown or unreachable", content = @Content)
+    })
+    @PostMapping("/renewals")
+    public Mono<List<LeaseResult>> renewAll(@RequestBody List<LeaseRenewalDTO> renewals) {
+        return Flux.fromIterable(renewals)
+                .flatMapSequential(renewal -> leaseService.renew(renewal.getName(), renewal.getHolder(), renewal.getToken())
+                                .map(lease -> new LeaseResult(true, lease))
+                                .onErrorResume(LeaseConflictException.class, e -> Mono.just(new LeaseResult(false, e.getLease())))
+                                .onErrorResume(LeaseNotFoundException.class, e -> Mono.just(new LeaseResult(false, null))),
+                        Math.max(1, renewals.size()))
+                .collectList();
+    }
+
+    /**
+     * Releases a lease.
+     *
+     * @param name   the name of the lease
+     * @param holder the client holding the lease
+     * @param token  the fencing token the lease was granted with
+     * @return a {@link Mono} emitting the released {@link Lease}
+     */
+    @Operation(summary = "Release a lease")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lease released",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Lease.class))),
+            @ApiResponse(responseCode = "404", description = "Lease not found: released or expired", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Lease held by another client or under another token", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The shard's leader is unknown or unreachable", content = @Content)
+    })
+    @DeleteMapping("/{name}")
+    public Mono<Lease> release(@PathVariable String name,
+                               @Parameter(description = "Client holding the lease", example = "worker-1", required = true)
+                               @RequestParam String holder,
+                               @Parameter(description = "Fencing token of the lease", example = "42", required = true)
+                               @RequestParam long token) {
+        return leaseService.release(name, holder, token);
+    }
+
+    /**
+     * Reads a lease. Any node can serve the read.
+     *
+     * @param name the name of the lease
+     * @return a {@link Mono} emitting the {@link Lease}
+     */
+    @Operation(summary = "Read a lease")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lease found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Lease.class))),
+            @ApiResponse(responseCode = "404", description = "Lease not found", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Node cannot serve the read: no reachable leader", content = @Content)
+    })
+    @GetMapping("/{name}")
+    public Mono<Lease> get(@PathVariable String name) {
+        return leaseService.get(name);
+    }
+
+    /**
+     * Streams the acquisitions, releases and expiries of the leases using Server-Sent Events.
+     *
+     * @param prefix the prefix of the names of the leases to watch
+     * @return a {@link Flux} emitting a {@link LeaseEvent} per change
+     */
+    @Operation(summary = "Watch the leases")
+    @ApiResponse(responseCode = "200", description = "Streaming lease events", content = @Content(mediaType = "text/event-stream"))
+    @GetMapping(value = "/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<LeaseEvent> watch(
+            @Parameter(description = "Prefix of the lease names, all leases if omitted", example = "scheduler-")
+            @RequestParam(defaultValue = "") String prefix) {
+        return leaseService.watch(prefix);
+    }
+}
@@ -1,8 +1,21 @@
 package com.baeldung.raft.web.controller;
 
+import com.baeldung.raft.exception.KeyNotFoundException;
 import com.baeldung.raft.persistence.model.NodeState;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.CommandType;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import com.baeldung.raft.web.dto.InstallSnapshotResponse;
+import com.baeldung.raft.web.dto.KeyValueDTO;
+import com.baeldung.raft.web.dto.MembershipChangeRequest;
+import com.baeldung.raft.web.dto.MembershipDTO;
 import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.ShardDTO;
+import com.baeldung.raft.service.ClusterStatusService;
 import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.service.ShardService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
@@ -18,8 +31,9 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
-import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * REST controller exposing endpoints for Raft consensus operations.
@@ -30,16 +44,26 @@ import java.util.Map;
 @Tag(name = "Raft Operations", description = "Endpoints for Raft consensus operations")
 public class RaftController {
     private final RaftService raftService;
+    private final ShardService shardService;
     private final ObjectMapper objectMapper;
+    private final Flux<StatusEvent> statusEvents;
 
     /**
-     * Constructs a new {@code RaftController} with the specified Raft service.
+     * Constructs a new {@code RaftController} with the specified Raft services.
      *
-     * @param raftService the service handling Raft operations
+     * @param raftService          the service handling Raft operations of the default group
+     * @param shardService         the service routing key-value requests to the group of their shard
+     * @param clusterStatusService the service publishing the status of every node
      */
-    public RaftController(RaftService raftService) {
+    public RaftController(RaftService raftService, ShardService shardService, ClusterStatusService clusterStatusService) {
         this.raftService = raftService;
+        this.shardService = shardService;
         this.objectMapper = new ObjectMapper();
+        // Each update is serialized once, however many clients stream the status
+        this.statusEvents = Flux.defer(clusterStatusService::getUpdates)
+                .map(update -> new StatusEvent(toJson(update.getStatuses()), toJson(update.getChanges())))
+                .replay(1)
+                .refCount();
     }
 
     /**
@@ -80,12 +104,15 @@ public class RaftController {
         // Recover the candidateId and candidateTerm from the payload
         String candidateId = (String) payload.get("candidateId");
         Integer candidateTerm = (payload.get("candidateTerm") instanceof Integer) ? (Integer) payload.get("candidateTerm") : null;
+        // The last log position is optional: a candidate without it is treated as having an empty log
+        long lastLogIndex = (payload.get("lastLogIndex") instanceof Number n) ? n.longValue() : 0L;
+        int lastLogTerm = (payload.get("lastLogTerm") instanceof Number n) ? n.intValue() : 0;
 
         // Verify that the candidateId and candidateTerm are not null
         if (candidateId == null || candidateTerm == null) {
             return Mono.error(new IllegalArgumentException("Invalid request payload: 'candidateId' or 'candidateTerm' is missing."));
         }
-        return raftService.requestVote(candidateId, candidateTerm);
+        return raftService.requestVote(candidateId, candidateTerm, lastLogIndex, lastLogTerm);
     }
 
     /**
@@ -104,20 +131,250 @@ public class RaftController {
     }
 
     /**
-     * Receives a heartbeat signal from the leader node.
+     * Receives an AppendEntries request from the leader node. Empty requests act as heartbeats.
      *
-     * @return a {@link Mono} signaling completion
+     * @param request the AppendEntries request
+     * @return a {@link Mono} emitting the {@link AppendEntriesResponse}
+     */
+    @Operation(summary = "Receive log entries or a heartbeat from the leader")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "AppendEntries processed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AppendEntriesResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PostMapping("/append-entries")
+    public Mono<AppendEntriesResponse> appendEntries(
+            @Parameter(description = "AppendEntries request", required = true)
+            @RequestBody AppendEntriesRequest request) {
+        return raftService.appendEntries(request);
+    }
+
+    /**
+     * Receives a chunk of the leader's latest snapshot, sent when this node is behind the start of the leader's log.
+     *
+     * @param request the InstallSnapshot request
+     * @return a {@link Mono} emitting the {@link InstallSnapshotResponse}
      */
-    @Operation(summary = "Receive heartbeat from the leader")
+    @Operation(summary = "Receive a snapshot chunk from the leader")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Heartbeat received successfully"),
+            @ApiResponse(responseCode = "200", description = "InstallSnapshot processed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = InstallSnapshotResponse.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    @PostMapping("/heartbeat")
-    public Mono<Void> receiveHeartbeat() {
-        return raftService.receiveHeartbeat();
+    @PostMapping("/install-snapshot")
+    public Mono<InstallSnapshotResponse> installSnapshot(
+            @Parameter(description = "InstallSnapshot request", required = true)
+            @RequestBody InstallSnapshotRequest request) {
+        return raftService.installSnapshot(request);
+    }
+
+    /**
+     * Reads a key from the replicated key-value store. Any node can serve the read.
+     *
+     * @param key the key to read
+     * @return a {@link Mono} emitting the {@link KeyValueDTO}
+     */
+    @Operation(summary = "Read a key from the replicated key-value store")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Key found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeyValueDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Key not found", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Node cannot serve the read: no reachable leader", content = @Content)
+    })
+    @GetMapping("/kv/{key}")
+    public Mono<KeyValueDTO> getValue(@PathVariable String key) {
+        return shardService.read(Command.get(key))
+                .map(value -> new KeyValueDTO(key, (String) value))
+                .switchIfEmpty(Mono.error(new KeyNotFoundException(key)));
+    }
+
+    /**
+     * Writes a key to the replicated key-value store. Returns once the write is committed.
+     * The write is forwarded to the leader of the key's shard when this node is not the leader.
+     *
+     * @param key   the key to write
+     * @param value the value to associate with the key
+     * @return a {@link Mono} emitting the written {@link KeyValueDTO}
+     */
+    @Operation(summary = "Write a key to the replicated key-value store")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Key written and committed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeyValueDTO.class))),
+            @ApiResponse(responseCode = "503", description = "The shard's leader is unknown or unreachable", content = @Content)
+    })
+    @PutMapping("/kv/{key}")
+    public Mono<KeyValueDTO> putValue(@PathVariable String key,
+                                      @Parameter(description = "Value to write", required = true)
+                                      @RequestBody String value) {
+        return shardService.propose(Command.put(key, value))
+                .thenReturn(new KeyValueDTO(key, value));
+    }
+
+    /**
+     * Removes a key from the replicated key-value store. Returns once the removal is committed.
+     * The removal is forwarded to the leader of the key's shard when this node is not the leader.
+     *
+     * @param key the key to remove
+     * @return a {@link Mono} emitting the removed {@link KeyValueDTO}
+     */
+    @Operation(summary = "Remove a key from the replicated key-value store")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Key removed and committed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KeyValueDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Key not found", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The shard's leader is unknown or unreachable", content = @Content)
+    })
+    @DeleteMapping("/kv/{key}")
+    public Mono<KeyValueDTO> deleteValue(@PathVariable String key) {
+        return shardService.propose(Command.delete(key))
+                .map(value -> new KeyValueDTO(key, (String) value))
+                .switchIfEmpty(Mono.error(new KeyNotFoundException(key)));
+    }
+
+    /**
+     * Applies a batch of writes to the replicated key-value store. Returns once every write is committed.
+     * The writes are proposed concurrently, so that the leader of each shard appends and replicates them together.
+     * Writes are forwarded to the leader of their key's shard when this node is not the leader.
+     *
+     * @param commands the PUT and DELETE commands to apply
+     * @return a {@link Mono} emitting a {@link KeyValueDTO} per command, in order: the written value for PUT,
+     * the removed value for DELETE ({@code null} if the key was not present)
+     */
+    @Operation(summary = "Apply a batch of writes to the replicated key-value store")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Every write committed"),
+            @ApiResponse(responseCode = "400", description = "The batch contains a command other than PUT or DELETE", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The leader of a shard is unknown or unreachable", content = @Content)
+    })
+    @PostMapping("/commands")
+    public Mono<List<KeyValueDTO>> submitCommands(@RequestBody List<Command> commands) {
+        for (Command command : commands) {
+            if (command.getType() != CommandType.PUT && command.getType() != CommandType.DELETE) {
+                return Mono.error(new IllegalArgumentException("Unsupported command in batch: " + command.getType()
+                        + ". Only PUT and DELETE are allowed."));
+            }
+        }
+        return Flux.fromIterable(commands)
+                .flatMapSequential(command -> shardService.propose(command)
+                        .map(previous -> Optional.of((String) previous))
+                        .defaultIfEmpty(Optional.empty())
+                        .map(previous -> new KeyValueDTO(command.getKey(),
+                                command.getType() == CommandType.PUT ? command.getValue() : previous.orElse(null))),
+                        Math.max(1, commands.size()))
+                .collectList();
+    }
+
+
+    /**
+     * Retrieves the routing table: every shard of the keyspace and its leader.
+     *
+     * @return a {@link Mono} emitting the {@link ShardDTO} of every shard
+     */
+    @Operation(summary = "Get the shards and their leaders")
+    @ApiResponse(responseCode = "200", description = "Routing table retrieved successfully")
+    @GetMapping("/shards")
+    public Mono<List<ShardDTO>> getShards() {
+        return Mono.fromSupplier(shardService::getShards);
+    }
+
+    /**
+     * Retrieves the shard owning a key and its leader, to which requests on the key can be sent directly.
+     *
+     * @param key the key to route
+     * @return a {@link Mono} emitting the {@link ShardDTO} of the key's shard
+     */
+    @Operation(summary = "Get the shard of a key and its leader")
+    @ApiResponse(responseCode = "200", description = "Route retrieved successfully",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ShardDTO.class)))
+    @GetMapping("/shards/route/{key}")
+    public Mono<ShardDTO> route(@PathVariable String key) {
+        return Mono.fromSupplier(() -> shardService.route(key));
+    }
+
+    /**
+     * Hands the leadership of every shard led by this node over to another node. Proposals are rejected while the
+     * target catches up, then the target starts an election at once: the shards are unavailable for about a round
+     * trip instead of an election timeout.
+     *
+     * @param target the URL of the node to transfer the leadership to
+     * @return a {@link Mono} emitting the routing table once the leadership has moved
+     */
+    @Operation(summary = "Transfer the leadership to another node")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Leadership transferred"),
+            @ApiResponse(responseCode = "400", description = "The target is not a voting member of the cluster", content = @Content),
+            @ApiResponse(responseCode = "409", description = "The transfer did not complete in time", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Node does not lead any shard", content = @Content)
+    })
+    @PostMapping("/transfer-leadership")
+    public Mono<List<ShardDTO>> transferLeadership(
+            @Parameter(description = "URL of the node to transfer the leadership to", example = "localhost:8001", required = true)
+            @RequestParam String target) {
+        return shardService.transferLeadership(target);
     }
 
+    /**
+     * Retrieves the members of every shard's group, as known by this node.
+     *
+     * @return a {@link Mono} emitting the {@link MembershipDTO} of every group
+     */
+    @Operation(summary = "Get the members of every group")
+    @ApiResponse(responseCode = "200", description = "Members retrieved successfully")
+    @GetMapping("/members")
+    public Mono<List<MembershipDTO>> getMembers() {
+        return Mono.fromSupplier(shardService::getMembership);
+    }
+
+    /**
+     * Adds a node to every shard's group. The node must already be running, started with the current voters as
+     * {@code node.cluster-nodes} and itself among {@code node.learner-nodes}. It joins as a learner and, unless
+     * {@code voter} is {@code false}, is promoted to voter once it has caught up with the leader's log.
+     *
+     * @param nodeUrl the URL of the node to add
+     * @param voter   whether the node becomes a voter
+     * @return a {@link Mono} emitting the members of every group once the node has been added
+     */
+    @Operation(summary = "Add a node to the cluster")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Node added"),
+            @ApiResponse(responseCode = "400", description = "Invalid node URL", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Another change is in progress or the node did not catch up in time", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The leader of a shard is unknown or unreachable", content = @Content)
+    })
+    @PostMapping("/members")
+    public Mono<List<MembershipDTO>> addMember(
+            @Parameter(description = "URL of the node to add", example = "localhost:8003", required = true)
+            @RequestParam String nodeUrl,
+            @Parameter(description = "Promote the node to voter once it has caught up", example = "true")
+            @RequestParam(defaultValue = "true") boolean voter) {
+        return shardService.changeMembership(new MembershipChangeRequest(nodeUrl,
+                voter ? MembershipChangeRequest.Change.ADD_VOTER : MembershipChangeRequest.Change.ADD_LEARNER));
+    }
+
+    /**
+     * Removes a node from every shard's group. A leader removing itself steps down once the change is committed.
+     *
+     * @param nodeUrl the URL of the node to remove
+     * @return a {@link Mono} emitting the members of every group once the node has been removed
+     */
+    @Operation(summary = "Remove a node from the cluster")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Node removed"),
+            @ApiResponse(responseCode = "400", description = "The node is the last voter", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Another change is in progress", content = @Content),
+            @ApiResponse(responseCode = "503", description = "The leader of a shard is unknown or unreachable", content = @Content)
+    })
+    @DeleteMapping("/members")
+    public Mono<List<MembershipDTO>> removeMember(
+            @Parameter(description = "URL of the node to remove", example = "localhost:8002", required = true)
+            @RequestParam String nodeUrl) {
+        return shardService.changeMembership(new MembershipChangeRequest(nodeUrl, MembershipChangeRequest.Change.REMOVE));
+    }
 
     /**
      * Stops the node, transitioning it to the DOWN state.
@@ -131,7 +388,7 @@ public class RaftController {
     })
     @GetMapping("/stop")
     public Mono<String> stopNode() {
-        return raftService.stopNode()
+        return shardService.stopNode()
                 .thenReturn("Node has been stopped and is now in DOWN state.");
     }
 
@@ -147,7 +404,7 @@ public class RaftController {
     })
     @GetMapping("/resume")
     public Mono<String> resumeNode() {
-        return raftService.resumeNode()
+        return shardService.resumeNode()
                 .thenReturn("Node has been resumed and is now active.");
     }
 
@@ -183,7 +440,8 @@ public class RaftController {
     }
 
     /**
-     * Streams the status of all nodes in the Raft cluster using Server-Sent Events.
+     * Streams the status of all nodes in the Raft cluster using Server-Sent Events. The first event lists every
+     * node; the next ones only list the nodes whose status has changed.
      *
      * @return a {@link Flux} emitting JSON strings representing node statuses
      */
@@ -196,14 +454,30 @@ public class RaftController {
     })
     @GetMapping(value = "/status-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<String> streamStatus() {
-        return Flux.interval(Duration.ofMillis(500)).flatMap(tick -> raftService.getAllNodeStatuses()).map(nodeStates -> {
-            // Convert the list of NodeStatusDTO objects to a JSON string
-            try {
-                return objectMapper.writeValueAsString(nodeStates);
-            } catch (JsonProcessingException e) {
-                log.error("Error serializing node statuses: {}", e.getMessage());
-                return "[]";
-            }
-        });
+        return statusEvents.index().map(event -> event.getT1() == 0 ? event.getT2().snapshot : event.getT2().changes);
+    }
+
+    private String toJson(List<NodeStatusDTO> nodeStates) {
+        // Convert the list of NodeStatusDTO objects to a JSON string
+        try {
+            return objectMapper.writeValueAsString(nodeStates);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing node statuses: {}", e.getMessage());
+            return "[]";
+        }
+    }
+
+    /**
+     * A status update serialized for the clients that have just subscribed, which receive every status, and for the
+     * others, which only receive the changes.
+     */
+    private static final class StatusEvent {
+        private final String snapshot;
+        private final String changes;
+
+        private StatusEvent(String snapshot, String changes) {
+            this.snapshot = snapshot;
+            this.changes = changes;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package com.baeldung.raft.web.controller;
+
+import com.baeldung.raft.coordination.WatchService;
+import com.baeldung.raft.statemachine.KeyEvent;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * REST controller streaming the changes of the keys of the replicated key-value store.
+ */
+@RestController
+@RequestMapping("/raft/watch")
+@Tag(name = "Watches", description = "Endpoints for streaming the changes of the keys")
+public class WatchController {
+    private final WatchService watchService;
+
+    /**
+     * Constructs a new {@code WatchController}.
+     *
+     * @param watchService the service streaming the changes of the keys
+     */
+    public WatchController(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    /**
+     * Streams the changes of the keys starting with a prefix using Server-Sent Events, as applied by this node.
+     * A watcher that was disconnected resumes from the revision following the last one it received.
+     *
+     * @param prefix       the prefix of the keys to watch
+     * @param fromRevision the first revision to stream, the changes applied from now on if omitted
+     * @param group        the group to watch, every group if omitted
+     * @return a {@link Flux} emitting a {@link KeyEvent} per change
+     */
+    @Operation(summary = "Watch the keys")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming key events",
+                    content = @Content(mediaType = "text/event-stream", schema = @Schema(implementation = KeyEvent.class))),
+            @ApiResponse(responseCode = "400", description = "Revision given without a group while there are several shards",
+                    content = @Content),
+            @ApiResponse(responseCode = "410", description = "Revision no longer retained: reload the keys and watch again",
+                    content = @Content)
+    })
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<KeyEvent> watch(
+            @Parameter(description = "Prefix of the keys, all keys if omitted", example = "config/")
+            @RequestParam(defaultValue = "") String prefix,
+            @Parameter(description = "First revision to stream, only new changes if omitted", example = "42")
+            @RequestParam(required = false) Long fromRevision,
+            @Parameter(description = "Raft group to watch, all groups if omitted", example = "0")
+            @RequestParam(required = false) Integer group) {
+        return watchService.watch(prefix, fromRevision, group);
+    }
+}
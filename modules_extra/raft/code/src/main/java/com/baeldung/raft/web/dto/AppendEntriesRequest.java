@@ -0,0 +1,38 @@
+package com.baeldung.raft.web.dto;
+
+import com.baeldung.raft.persistence.log.LogEntry;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the AppendEntries RPC, used both to replicate entries and as heartbeat.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppendEntriesRequest {
+    @Schema(description = "Leader's current term", example = "2")
+    private int term;
+
+    @Schema(description = "ID of the leader", example = "node1")
+    private String leaderId;
+
+    @Schema(description = "URL of the leader, so followers can redirect clients", example = "localhost:8000")
+    private String leaderUrl;
+
+    @Schema(description = "Index of the log entry immediately preceding the new ones", example = "10")
+    private long prevLogIndex;
+
+    @Schema(description = "Term of the entry at prevLogIndex", example = "2")
+    private int prevLogTerm;
+
+    @Schema(description = "Entries to store, empty for heartbeats")
+    private List<LogEntry> entries;
+
+    @Schema(description = "Leader's commit index", example = "9")
+    private long leaderCommit;
+}
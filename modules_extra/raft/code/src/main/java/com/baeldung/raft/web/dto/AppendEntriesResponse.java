@@ -0,0 +1,26 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object returned by a follower in reply to an AppendEntries RPC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppendEntriesResponse {
+    @Schema(description = "Current term of the follower, for the leader to update itself", example = "2")
+    private int term;
+
+    @Schema(description = "True if the follower contained an entry matching prevLogIndex and prevLogTerm", example = "true")
+    private boolean success;
+
+    @Schema(description = "Index of the last entry known to match the leader's log on success", example = "12")
+    private long matchIndex;
+
+    @Schema(description = "First index the leader should retry from on failure", example = "8")
+    private long conflictIndex;
+}
@@ -0,0 +1,20 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Heartbeat of a single Raft group, sent to a peer together with the heartbeats of the other groups.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupHeartbeat {
+    @Schema(description = "ID of the Raft group", example = "3")
+    private int group;
+
+    @Schema(description = "Empty AppendEntries request of the group's leader")
+    private AppendEntriesRequest request;
+}
@@ -0,0 +1,23 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Heartbeats of several Raft groups sent to a peer in a single message, together with the node statuses known to
+ * the sender.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeartbeatBatch {
+    @Schema(description = "Heartbeat of each group led by the sender")
+    private List<GroupHeartbeat> heartbeats;
+
+    @Schema(description = "Status of every node known to the sender")
+    private List<NodeStatusUpdate> statuses;
+}
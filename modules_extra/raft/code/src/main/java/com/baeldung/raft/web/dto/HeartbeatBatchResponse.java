@@ -0,0 +1,22 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Reply to a {@link HeartbeatBatch}, carrying the node statuses known to the receiver in return.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeartbeatBatchResponse {
+    @Schema(description = "Response of each group, in the order of the heartbeats, null for a group that did not answer")
+    private List<AppendEntriesResponse> responses;
+
+    @Schema(description = "Status of every node known to the receiver")
+    private List<NodeStatusUpdate> statuses;
+}
@@ -0,0 +1,38 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the InstallSnapshot RPC, carrying one chunk of the leader's latest snapshot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstallSnapshotRequest {
+    @Schema(description = "Leader's current term", example = "2")
+    private int term;
+
+    @Schema(description = "ID of the leader", example = "node1")
+    private String leaderId;
+
+    @Schema(description = "URL of the leader, so followers can redirect clients", example = "localhost:8000")
+    private String leaderUrl;
+
+    @Schema(description = "Index of the last entry included in the snapshot", example = "10000")
+    private long lastIncludedIndex;
+
+    @Schema(description = "Term of the entry at lastIncludedIndex", example = "2")
+    private int lastIncludedTerm;
+
+    @Schema(description = "Byte offset of the chunk in the snapshot", example = "0")
+    private long offset;
+
+    @Schema(description = "Chunk data, Base64-encoded in JSON")
+    private byte[] data;
+
+    @Schema(description = "True if this is the last chunk", example = "false")
+    private boolean done;
+}
@@ -0,0 +1,23 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object returned by a follower in reply to an InstallSnapshot RPC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstallSnapshotResponse {
+    @Schema(description = "Current term of the follower, for the leader to update itself", example = "2")
+    private int term;
+
+    @Schema(description = "True if the chunk was stored", example = "true")
+    private boolean success;
+
+    @Schema(description = "Offset of the next chunk the follower expects", example = "262144")
+    private long nextOffset;
+}
@@ -0,0 +1,20 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object representing a key of the replicated key-value store.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyValueDTO {
+    @Schema(description = "Key", example = "color")
+    private String key;
+
+    @Schema(description = "Value associated with the key", example = "blue")
+    private String value;
+}
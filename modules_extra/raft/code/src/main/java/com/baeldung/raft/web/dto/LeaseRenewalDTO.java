@@ -0,0 +1,23 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object representing the renewal of a lease, within a batch of renewals.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaseRenewalDTO {
+    @Schema(description = "Name of the lease", example = "scheduler-lock")
+    private String name;
+
+    @Schema(description = "Client holding the lease", example = "worker-1")
+    private String holder;
+
+    @Schema(description = "Fencing token the lease was granted with", example = "42")
+    private long token;
+}
@@ -0,0 +1,38 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request to add a member to a Raft group or to remove one, forwarded to the group's leader.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembershipChangeRequest {
+    @Schema(description = "URL of the node to add or remove", example = "localhost:8003")
+    private String nodeUrl;
+
+    @Schema(description = "Change to make", example = "ADD_VOTER")
+    private Change change;
+
+    /**
+     * Changes of the members of a group.
+     */
+    public enum Change {
+        /**
+         * Add the node as a learner, then promote it to voter once it has caught up.
+         */
+        ADD_VOTER,
+        /**
+         * Add the node as a learner only.
+         */
+        ADD_LEARNER,
+        /**
+         * Remove the node, voter or learner.
+         */
+        REMOVE
+    }
+}
@@ -0,0 +1,28 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object describing the members of a Raft group.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembershipDTO {
+    @Schema(description = "ID of the Raft group", example = "0")
+    private int group;
+
+    @Schema(description = "Index of the log entry that introduced the configuration, 0 for the initial one", example = "42")
+    private long index;
+
+    @Schema(description = "URLs of the voting members", example = "[\"localhost:8000\", \"localhost:8001\", \"localhost:8002\"]")
+    private List<String> voters;
+
+    @Schema(description = "URLs of the non-voting members", example = "[\"localhost:8003\"]")
+    private List<String> learners;
+}
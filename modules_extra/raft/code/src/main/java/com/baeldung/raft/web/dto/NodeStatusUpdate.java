@@ -0,0 +1,22 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Status of a node, as exchanged between peers with the heartbeats. The version lets a node keep the most recent
+ * status it has heard of, whichever peer relayed it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeStatusUpdate {
+    @Schema(description = "Status of the node")
+    private NodeStatusDTO status;
+
+    @Schema(description = "Clock of the node when it published the status, only comparable with its other versions",
+            example = "1718000000000")
+    private long version;
+}
@@ -0,0 +1,32 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the RequestVote RPC sent by a candidate to the other nodes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequestVoteRequest {
+    @Schema(description = "ID of the candidate requesting the vote", example = "node1")
+    private String candidateId;
+
+    @Schema(description = "Candidate's term", example = "3")
+    private int candidateTerm;
+
+    @Schema(description = "Index of the candidate's last log entry", example = "42")
+    private long lastLogIndex;
+
+    @Schema(description = "Term of the candidate's last log entry", example = "2")
+    private int lastLogTerm;
+
+    @Schema(description = "Whether the election was started at the request of the leader, which hands over its leadership", example = "false")
+    private boolean leadershipTransfer;
+
+    @Schema(description = "Whether this is a PreVote: the candidate asks whether it could win, without incrementing its term", example = "false")
+    private boolean preVote;
+}
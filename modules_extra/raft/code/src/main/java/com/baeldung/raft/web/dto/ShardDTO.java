@@ -0,0 +1,27 @@
+package com.baeldung.raft.web.dto;
+
+import com.baeldung.raft.persistence.model.NodeState;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object describing a shard of the keyspace and where its requests are routed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardDTO {
+    @Schema(description = "ID of the shard, which is also the ID of the Raft group replicating it", example = "3")
+    private int shard;
+
+    @Schema(description = "URL of the shard's leader, if known", example = "localhost:8001")
+    private String leaderUrl;
+
+    @Schema(description = "Current term of the shard's group on this node", example = "2")
+    private int term;
+
+    @Schema(description = "State of this node in the shard's group", example = "FOLLOWER")
+    private NodeState state;
+}
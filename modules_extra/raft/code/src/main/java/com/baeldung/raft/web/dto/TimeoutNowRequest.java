@@ -0,0 +1,20 @@
+package com.baeldung.raft.web.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the TimeoutNow RPC sent by a leader to the follower it transfers its leadership to.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeoutNowRequest {
+    @Schema(description = "Leader's term", example = "3")
+    private int term;
+
+    @Schema(description = "ID of the leader handing over its leadership", example = "node1")
+    private String leaderId;
+}
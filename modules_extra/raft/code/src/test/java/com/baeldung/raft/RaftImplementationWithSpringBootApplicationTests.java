@@ -2,10 +2,13 @@ package com.baeldung.raft;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
 @ActiveProfiles("test")
+// Closed after the test: the timers of a running node would otherwise reach the virtual scheduler of the simulations
+@DirtiesContext
 class RaftImplementationWithSpringBootApplicationTests {
 
     @Test
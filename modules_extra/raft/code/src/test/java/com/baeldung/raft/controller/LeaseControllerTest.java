@@ -0,0 +1,80 @@
+package com.baeldung.raft.controller;
+
+import com.baeldung.raft.coordination.LeaseService;
+import com.baeldung.raft.exception.LeaseConflictException;
+import com.baeldung.raft.exception.LeaseNotFoundException;
+import com.baeldung.raft.statemachine.Lease;
+import com.baeldung.raft.statemachine.LeaseResult;
+import com.baeldung.raft.web.controller.LeaseController;
+import com.baeldung.raft.web.dto.LeaseRenewalDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(controllers = LeaseController.class)
+class LeaseControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private LeaseService leaseService;
+
+    @Test
+    void testAcquire_Success() {
+        Lease lease = new Lease("lock", "worker-1", 42, 42, 10_000);
+        when(leaseService.acquire("lock", "worker-1", 10_000)).thenReturn(Mono.just(lease));
+
+        webTestClient.post()
+                .uri("/raft/leases/lock?holder=worker-1&ttl=10000")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Lease.class)
+                .isEqualTo(lease);
+    }
+
+    @Test
+    void testAcquire_HeldByAnotherClient_ShouldConflict() {
+        when(leaseService.acquire("lock", "worker-2", 10_000))
+                .thenReturn(Mono.error(new LeaseConflictException("lock", new Lease("lock", "worker-1", 42, 42, 10_000))));
+
+        webTestClient.post()
+                .uri("/raft/leases/lock?holder=worker-2&ttl=10000")
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void testRenewAll_ShouldReportEachRenewal() {
+        Lease renewed = new Lease("a", "worker-1", 1, 7, 10_000);
+        when(leaseService.renew("a", "worker-1", 1)).thenReturn(Mono.just(renewed));
+        when(leaseService.renew("b", "worker-1", 2)).thenReturn(Mono.error(new LeaseNotFoundException("b")));
+
+        webTestClient.post()
+                .uri("/raft/leases/renewals")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(new LeaseRenewalDTO("a", "worker-1", 1), new LeaseRenewalDTO("b", "worker-1", 2)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(LeaseResult.class)
+                .isEqualTo(List.of(new LeaseResult(true, renewed), new LeaseResult(false, null)));
+    }
+
+    @Test
+    void testGet_NotFound() {
+        when(leaseService.get("missing")).thenReturn(Mono.error(new LeaseNotFoundException("missing")));
+
+        webTestClient.get()
+                .uri("/raft/leases/missing")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
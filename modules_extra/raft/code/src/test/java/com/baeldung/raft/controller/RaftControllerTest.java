@@ -1,10 +1,17 @@
 package com.baeldung.raft.controller;
 
+import com.baeldung.raft.exception.LeadershipTransferException;
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.statemachine.Command;
 import com.baeldung.raft.web.controller.RaftController;
+import com.baeldung.raft.web.dto.KeyValueDTO;
 import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.ShardDTO;
 import com.baeldung.raft.persistence.model.NodeState;
 import com.baeldung.raft.persistence.model.NodeStateEntity;
+import com.baeldung.raft.service.ClusterStatusService;
 import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.service.ShardService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -14,6 +21,7 @@ import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -30,9 +38,15 @@ class RaftControllerTest {
     @MockBean
     private RaftService raftService;
 
+    @MockBean
+    private ShardService shardService;
+
+    @MockBean
+    private ClusterStatusService clusterStatusService;
+
     @Test
     void testRequestVote_Success() {
-        when(raftService.requestVote(anyString(), anyInt())).thenReturn(Mono.just(true));
+        when(raftService.requestVote(anyString(), anyInt(), anyLong(), anyInt())).thenReturn(Mono.just(true));
 
         webTestClient.post()
                 .uri("/raft/request-vote")
@@ -43,7 +57,97 @@ class RaftControllerTest {
                 .expectBody(Boolean.class)
                 .isEqualTo(true);
 
-        verify(raftService, times(1)).requestVote("node2", 2);
+        verify(raftService, times(1)).requestVote("node2", 2, 0L, 0);
+    }
+
+    @Test
+    void testPutValue_Success() {
+        when(shardService.propose(any(Command.class))).thenReturn(Mono.empty());
+
+        webTestClient.put()
+                .uri("/raft/kv/color")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue("blue")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(KeyValueDTO.class)
+                .isEqualTo(new KeyValueDTO("color", "blue"));
+
+        verify(shardService, times(1)).propose(Command.put("color", "blue"));
+    }
+
+    @Test
+    void testSubmitCommands_Success() {
+        when(shardService.propose(Command.put("color", "blue"))).thenReturn(Mono.just("red"));
+        when(shardService.propose(Command.delete("size"))).thenReturn(Mono.empty());
+
+        webTestClient.post()
+                .uri("/raft/commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(Command.put("color", "blue"), Command.delete("size")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(KeyValueDTO.class)
+                .isEqualTo(List.of(new KeyValueDTO("color", "blue"), new KeyValueDTO("size", null)));
+    }
+
+    @Test
+    void testSubmitCommands_ReadInBatch_ShouldBeRejected() {
+        webTestClient.post()
+                .uri("/raft/commands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(Command.put("color", "blue"), Command.get("color")))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(shardService);
+    }
+
+    @Test
+    void testGetValue_NotFound() {
+        when(shardService.read(any(Command.class))).thenReturn(Mono.empty());
+
+        webTestClient.get()
+                .uri("/raft/kv/missing")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(shardService, times(1)).read(Command.get("missing"));
+    }
+
+    @Test
+    void testGetValue_NotLeader() {
+        when(shardService.read(any(Command.class)))
+                .thenReturn(Mono.error(new NotLeaderException("Node node1 is not the leader.", "localhost:8001")));
+
+        webTestClient.get()
+                .uri("/raft/kv/color")
+                .exchange()
+                .expectStatus().isEqualTo(503);
+    }
+
+    @Test
+    void testTransferLeadership_Success() {
+        List<ShardDTO> shards = List.of(new ShardDTO(0, "localhost:8001", 3, NodeState.FOLLOWER));
+        when(shardService.transferLeadership("localhost:8001")).thenReturn(Mono.just(shards));
+
+        webTestClient.post()
+                .uri("/raft/transfer-leadership?target=localhost:8001")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ShardDTO.class)
+                .isEqualTo(shards);
+    }
+
+    @Test
+    void testTransferLeadership_TimedOut() {
+        when(shardService.transferLeadership("localhost:8001"))
+                .thenReturn(Mono.error(new LeadershipTransferException("Leadership of group 0 was not transferred in time.")));
+
+        webTestClient.post()
+                .uri("/raft/transfer-leadership?target=localhost:8001")
+                .exchange()
+                .expectStatus().isEqualTo(409);
     }
 
     @Test
@@ -98,17 +202,22 @@ class RaftControllerTest {
 
     @Test
     void testStreamStatus_Success() {
-        // Define the status list to be returned by the mocked service
+        // Define the status list to be published by the mocked service
         List<NodeStatusDTO> statusList = List.of(
                 new NodeStatusDTO("node1", NodeState.LEADER, 2, "None", "localhost:8000", false),
                 new NodeStatusDTO("node2", NodeState.FOLLOWER, 2, "node1", "localhost:8001", false),
                 new NodeStatusDTO("node3", NodeState.FOLLOWER, 2, "node1", "localhost:8002", false)
         );
+        NodeStatusDTO node3Down = new NodeStatusDTO("node3", NodeState.DOWN, 2, "node1", "localhost:8002", true);
+        List<NodeStatusDTO> updatedList = List.of(statusList.get(0), statusList.get(1), node3Down);
 
-        // Mock the raftService to return the status list
-        when(raftService.getAllNodeStatuses()).thenReturn(Mono.just(statusList));
+        // Mock the clusterStatusService to publish the statuses, then a single change
+        when(clusterStatusService.getUpdates()).thenReturn(Flux.just(
+                new ClusterStatusService.Update(statusList, statusList),
+                new ClusterStatusService.Update(updatedList, List.of(node3Down))
+        ).concatWith(Flux.never()));
 
-        // Use WebTestClient to subscribe to the stream and expect the first emission
+        // Use WebTestClient to subscribe to the stream: every status first, then only the change
         webTestClient.get()
                 .uri("/raft/status-stream")
                 .accept(MediaType.TEXT_EVENT_STREAM)
@@ -117,21 +226,23 @@ class RaftControllerTest {
                 .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
                 .returnResult(String.class)
                 .getResponseBody()
-                .take(1) // Take only the first emission to prevent timeout
+                .take(2) // Take only the first emissions to prevent timeout
+                .map(RaftControllerTest::parseStatuses)
                 .as(StepVerifier::create)
-                .expectNextMatches(responseBody -> {
-                    // Parse the JSON response and verify its contents
-                    try {
-                        ObjectMapper mapper = new ObjectMapper();
-                        List<NodeStatusDTO> actualStatusList = mapper.readValue(responseBody, new TypeReference<>() {
-                        });
-                        return actualStatusList.equals(statusList);
-                    } catch (JsonProcessingException e) {
-                        return false;
-                    }
-                })
+                .expectNext(statusList)
+                .expectNext(List.of(node3Down))
                 .verifyComplete();
 
-        verify(raftService, times(1)).getAllNodeStatuses();
+        verify(clusterStatusService, times(1)).getUpdates();
+    }
+
+    private static List<NodeStatusDTO> parseStatuses(String responseBody) {
+        // Parse the JSON response
+        try {
+            return new ObjectMapper().readValue(responseBody, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,52 @@
+package com.baeldung.raft.controller;
+
+import com.baeldung.raft.coordination.WatchService;
+import com.baeldung.raft.exception.RevisionCompactedException;
+import com.baeldung.raft.statemachine.KeyEvent;
+import com.baeldung.raft.web.controller.WatchController;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(controllers = WatchController.class)
+class WatchControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private WatchService watchService;
+
+    @Test
+    void testWatch_FromRevision_ShouldStreamEvents() {
+        KeyEvent event = new KeyEvent(KeyEvent.Type.PUT, "config/color", "blue", 42);
+        when(watchService.watch("config/", 42L, 0)).thenReturn(Flux.just(event));
+
+        webTestClient.get()
+                .uri("/raft/watch?prefix=config/&fromRevision=42&group=0")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(KeyEvent.class)
+                .isEqualTo(List.of(event));
+    }
+
+    @Test
+    void testWatch_RevisionCompacted_ShouldBeGone() {
+        when(watchService.watch("", 1L, null)).thenReturn(Flux.error(new RevisionCompactedException(1, 100)));
+
+        webTestClient.get()
+                .uri("/raft/watch?fromRevision=1")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isEqualTo(410);
+    }
+}
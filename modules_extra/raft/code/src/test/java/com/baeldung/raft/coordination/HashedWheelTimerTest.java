@@ -0,0 +1,97 @@
+package com.baeldung.raft.coordination;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void testAdvance_ShouldExpireTasksOnceTheirDeadlineHasPassed() {
+        HashedWheelTimer<String> timer = new HashedWheelTimer<>(TICK, 8, 0);
+        timer.schedule("a", 25);
+        timer.schedule("b", 40);
+
+        assertEquals(List.of(), timer.advance(20));
+        assertEquals(List.of("a"), timer.advance(30));
+        assertEquals(1, timer.size());
+        assertEquals(List.of("b"), timer.advance(40));
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void testAdvance_DeadlineBeyondOneTurn_ShouldWaitForItsRound() {
+        HashedWheelTimer<String> timer = new HashedWheelTimer<>(TICK, 8, 0);
+        // Tick 10 shares the bucket of tick 2
+        timer.schedule("later", 100);
+        timer.schedule("sooner", 20);
+
+        assertEquals(List.of("sooner"), timer.advance(30));
+        assertEquals(List.of(), timer.advance(90));
+        assertEquals(List.of("later"), timer.advance(100));
+    }
+
+    @Test
+    void testAdvance_AfterLongPause_ShouldExpireEveryOverdueTask() {
+        HashedWheelTimer<Integer> timer = new HashedWheelTimer<>(TICK, 8, 0);
+        for (int i = 1; i <= 50; i++) {
+            timer.schedule(i, i * TICK);
+        }
+
+        List<Integer> expired = timer.advance(1_000);
+
+        assertEquals(50, expired.size());
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void testCancel_ShouldRemoveTaskFromItsBucket() {
+        HashedWheelTimer<String> timer = new HashedWheelTimer<>(TICK, 8, 0);
+        HashedWheelTimer.Timeout<String> first = timer.schedule("first", 30);
+        timer.schedule("second", 30);
+        HashedWheelTimer.Timeout<String> third = timer.schedule("third", 30);
+
+        assertTrue(first.cancel());
+        assertTrue(third.cancel());
+        assertFalse(third.cancel());
+
+        assertEquals(List.of("second"), timer.advance(30));
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void testSchedule_PastDeadline_ShouldFireOnNextTick() {
+        HashedWheelTimer<String> timer = new HashedWheelTimer<>(TICK, 8, 0);
+        timer.advance(100);
+
+        timer.schedule("late", 50);
+
+        assertEquals(List.of("late"), timer.advance(110));
+    }
+
+    @Test
+    void testReschedule_FromExpiryAction_ShouldFireAgainAtNewDeadline() {
+        HashedWheelTimer<String> timer = new HashedWheelTimer<>(TICK, 8, 0);
+        HashedWheelTimer.Timeout<String> timeout = timer.schedule("election", 20);
+        List<String> fired = new ArrayList<>();
+
+        timer.advance(20, task -> {
+            fired.add(task);
+            // Due in the bucket being visited: must not fire again before the next tick
+            timer.reschedule(timeout, 0);
+        });
+        assertEquals(List.of("election"), fired);
+        assertEquals(1, timer.size());
+
+        timer.reschedule(timeout, 150);
+        assertEquals(1, timer.size());
+        assertEquals(List.of(), timer.advance(140));
+        assertEquals(List.of("election"), timer.advance(150));
+        assertEquals(0, timer.size());
+    }
+}
@@ -0,0 +1,153 @@
+package com.baeldung.raft.coordination;
+
+import com.baeldung.raft.config.CoordinationConfig;
+import com.baeldung.raft.exception.LeaseConflictException;
+import com.baeldung.raft.exception.LeaseNotFoundException;
+import com.baeldung.raft.persistence.log.LogEntry;
+import com.baeldung.raft.persistence.model.NodeState;
+import com.baeldung.raft.persistence.model.NodeStateSnapshot;
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.service.ShardService;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import com.baeldung.raft.statemachine.Lease;
+import com.baeldung.raft.statemachine.LeaseEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LeaseServiceTest {
+
+    private final ShardService shardService = mock(ShardService.class);
+    private final RaftService group = mock(RaftService.class);
+    private final KeyValueStateMachine stateMachine = new KeyValueStateMachine();
+    private final AtomicLong nextIndex = new AtomicLong(1);
+    private final AtomicLong clock = new AtomicLong();
+
+    private LeaseService leaseService;
+
+    @BeforeEach
+    void setUp() {
+        // Every proposal is committed at once, as on a single-node cluster
+        when(shardService.getStateMachines()).thenReturn(List.of(stateMachine));
+        when(shardService.group(0)).thenReturn(group);
+        when(shardService.propose(any())).thenAnswer(invocation -> commit(invocation.getArgument(0)));
+        when(shardService.read(any())).thenAnswer(invocation ->
+                Mono.justOrEmpty(stateMachine.query(invocation.getArgument(0))));
+        when(group.propose(any())).thenAnswer(invocation -> commit(invocation.getArgument(0)));
+        when(group.getState()).thenReturn(new NodeStateSnapshot(NodeState.LEADER, 1, "node1", false));
+
+        CoordinationConfig config = new CoordinationConfig();
+        config.setTick(10);
+        config.setWheelSize(64);
+        config.setExpiryRetry(100);
+        leaseService = new LeaseService(shardService, config, clock::get);
+        leaseService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        leaseService.close();
+    }
+
+    private Mono<Object> commit(Command command) {
+        return Mono.fromSupplier(() -> stateMachine.apply(new LogEntry(nextIndex.getAndIncrement(), 1, command)));
+    }
+
+    private void advanceClock(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void testAcquire_HeldByAnotherClient_ShouldConflict() {
+        Lease lease = leaseService.acquire("lock", "worker-1", 1_000).block();
+
+        assertEquals(new Lease("lock", "worker-1", 1, 1, 1_000), lease);
+        StepVerifier.create(leaseService.acquire("lock", "worker-2", 1_000))
+                .expectErrorMatches(e -> e instanceof LeaseConflictException conflict
+                        && conflict.getLease().getHolder().equals("worker-1"))
+                .verify();
+    }
+
+    @Test
+    void testRenewAndRelease_ShouldRequireTheFencingToken() {
+        Lease lease = leaseService.acquire("lock", "worker-1", 1_000).block();
+
+        StepVerifier.create(leaseService.renew("lock", "worker-1", lease.getToken() + 1))
+                .expectError(LeaseConflictException.class)
+                .verify();
+        StepVerifier.create(leaseService.renew("lock", "worker-1", lease.getToken()))
+                .expectNextMatches(renewed -> renewed.getToken() == lease.getToken() && renewed.getRevision() > lease.getRevision())
+                .verifyComplete();
+        StepVerifier.create(leaseService.release("lock", "worker-1", lease.getToken()))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(leaseService.get("lock"))
+                .expectError(LeaseNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void testExpireDue_ShouldExpireLeaseNotRenewedWithinTtl() {
+        Lease first = leaseService.acquire("lock", "worker-1", 1_000).block();
+        advanceClock(600);
+        leaseService.renew("lock", "worker-1", first.getToken()).block();
+        advanceClock(600);
+        leaseService.expireDue().block();
+
+        // Renewed 600 ms ago: still held
+        assertEquals("worker-1", leaseService.get("lock").block().getHolder());
+
+        advanceClock(500);
+        leaseService.expireDue().block();
+
+        assertNull(stateMachine.query(Command.leaseGet("lock")));
+        assertEquals(0, leaseService.getTrackedLeases());
+        Lease second = leaseService.acquire("lock", "worker-2", 1_000).block();
+        assertTrue(second.getToken() > first.getToken());
+    }
+
+    @Test
+    void testExpireDue_NotLeader_ShouldRetryUntilLeader() {
+        when(group.getState()).thenReturn(new NodeStateSnapshot(NodeState.FOLLOWER, 1, "node2", false));
+        leaseService.acquire("lock", "worker-1", 1_000).block();
+        advanceClock(1_100);
+        leaseService.expireDue().block();
+
+        assertNotNull(stateMachine.query(Command.leaseGet("lock")));
+        assertEquals(1, leaseService.getTrackedLeases());
+
+        when(group.getState()).thenReturn(new NodeStateSnapshot(NodeState.LEADER, 2, "node1", false));
+        advanceClock(100);
+        leaseService.expireDue().block();
+
+        assertNull(stateMachine.query(Command.leaseGet("lock")));
+    }
+
+    @Test
+    void testWatch_ShouldStreamChangesOfMatchingLeasesOnly() {
+        StepVerifier.create(leaseService.watch("jobs."))
+                .then(() -> {
+                    Lease lease = leaseService.acquire("jobs.report", "worker-1", 1_000).block();
+                    leaseService.acquire("other", "worker-1", 1_000).block();
+                    leaseService.renew("jobs.report", "worker-1", lease.getToken()).block();
+                    leaseService.release("jobs.report", "worker-1", lease.getToken()).block();
+                })
+                .expectNextMatches(event -> event.getType() == LeaseEvent.Type.ACQUIRED)
+                .expectNextMatches(event -> event.getType() == LeaseEvent.Type.RELEASED
+                        && event.getLease().getName().equals("jobs.report"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+}
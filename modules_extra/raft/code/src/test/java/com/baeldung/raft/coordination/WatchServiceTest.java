@@ -0,0 +1,118 @@
+package com.baeldung.raft.coordination;
+
+import com.baeldung.raft.config.CoordinationConfig;
+import com.baeldung.raft.exception.RevisionCompactedException;
+import com.baeldung.raft.persistence.log.LogEntry;
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.service.ShardService;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.CommandType;
+import com.baeldung.raft.statemachine.KeyEvent;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.*;
+
+class WatchServiceTest {
+
+    private final ShardService shardService = mock(ShardService.class);
+    private final AtomicLong nextIndex = new AtomicLong(1);
+
+    private KeyValueStateMachine stateMachine;
+    private WatchService watchService;
+
+    @BeforeEach
+    void setUp() {
+        CoordinationConfig config = new CoordinationConfig();
+        config.setWatchHistory(4);
+        stateMachine = new KeyValueStateMachine(config);
+        when(shardService.getStateMachines()).thenReturn(List.of(stateMachine));
+        when(shardService.group(0)).thenReturn(mock(RaftService.class));
+        watchService = new WatchService(shardService, config);
+    }
+
+    private void put(String key, String value) {
+        stateMachine.apply(new LogEntry(nextIndex.getAndIncrement(), 1, new Command(CommandType.PUT, key, value)));
+    }
+
+    private void delete(String key) {
+        stateMachine.apply(new LogEntry(nextIndex.getAndIncrement(), 1, new Command(CommandType.DELETE, key, null)));
+    }
+
+    private void restoreEmptySnapshot(long lastIncludedIndex) {
+        try {
+            // No keys and no leases
+            stateMachine.restoreSnapshot(lastIncludedIndex, new ByteArrayInputStream(new byte[8]));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void testWatch_ShouldOnlyStreamKeysStartingWithPrefix() {
+        StepVerifier.create(watchService.watch("config/", null, null))
+                .then(() -> {
+                    put("config/color", "blue");
+                    put("users/alice", "admin");
+                    delete("config/color");
+                    delete("config/missing");
+                })
+                .expectNext(new KeyEvent(KeyEvent.Type.PUT, "config/color", "blue", 1))
+                .expectNext(new KeyEvent(KeyEvent.Type.DELETE, "config/color", null, 3))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testWatch_FromRevision_ShouldReplayHistoryThenStreamNewChanges() {
+        put("config/a", "1");
+        put("config/b", "2");
+        put("config/c", "3");
+
+        StepVerifier.create(watchService.watch("config/", 2L, 0))
+                .expectNext(new KeyEvent(KeyEvent.Type.PUT, "config/b", "2", 2))
+                .expectNext(new KeyEvent(KeyEvent.Type.PUT, "config/c", "3", 3))
+                .then(() -> put("config/d", "4"))
+                .expectNext(new KeyEvent(KeyEvent.Type.PUT, "config/d", "4", 4))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testWatch_FromRevisionOlderThanHistory_ShouldFailWithCompacted() {
+        for (int i = 0; i < 6; i++) {
+            put("key" + i, "value");
+        }
+
+        StepVerifier.create(watchService.watch("", 2L, null))
+                .expectErrorMatches(e -> e instanceof RevisionCompactedException compacted
+                        && compacted.getFirstRetainedRevision() == 3)
+                .verify();
+    }
+
+    @Test
+    void testWatch_SnapshotInstalled_ShouldFailWatchers() {
+        StepVerifier.create(watchService.watch("", null, null))
+                .then(() -> restoreEmptySnapshot(10))
+                .expectError(RevisionCompactedException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testWatch_RevisionWithoutGroupOnSeveralShards_ShouldFail() {
+        when(shardService.getStateMachines()).thenReturn(List.of(stateMachine, new KeyValueStateMachine()));
+
+        StepVerifier.create(watchService.watch("", 1L, null))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,42 @@
+package com.baeldung.raft.log;
+
+import com.baeldung.raft.persistence.log.MetadataStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSaveAndReload() {
+        MetadataStore store = new MetadataStore(directory);
+        assertEquals(0, store.getCurrentTerm());
+        assertNull(store.getVotedFor());
+
+        store.save(3, "node2");
+        store.save(4, null);
+
+        MetadataStore reloaded = new MetadataStore(directory);
+        assertEquals(4, reloaded.getCurrentTerm());
+        assertNull(reloaded.getVotedFor());
+        assertFalse(Files.exists(directory.resolve("meta.tmp")));
+    }
+
+    @Test
+    void testCorruptedFileIsRejected() throws IOException {
+        new MetadataStore(directory).save(7, "node1");
+        byte[] content = Files.readAllBytes(directory.resolve("meta"));
+        content[5] ^= 0x01;
+        Files.write(directory.resolve("meta"), content);
+
+        assertThrows(IllegalStateException.class, () -> new MetadataStore(directory));
+    }
+}
@@ -0,0 +1,197 @@
+package com.baeldung.raft.log;
+
+import com.baeldung.raft.persistence.log.LogEntry;
+import com.baeldung.raft.persistence.log.SegmentedRaftLog;
+import com.baeldung.raft.statemachine.Command;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedRaftLogTest {
+
+    @TempDir
+    Path directory;
+
+    private SegmentedRaftLog raftLog;
+
+    private SegmentedRaftLog open(int segmentSize) {
+        raftLog = new SegmentedRaftLog(directory, segmentSize, 4, true);
+        return raftLog;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (raftLog != null) {
+            raftLog.close();
+        }
+    }
+
+    @Test
+    void testAppendAndRead() {
+        SegmentedRaftLog log = open(4096);
+        log.append(1, Command.put("a", "1"));
+        log.append(1, Command.delete("a"));
+        log.append(2, Command.noop());
+
+        assertEquals(3, log.getLastIndex());
+        assertEquals(2, log.getLastTerm());
+        assertEquals(0, log.getTerm(0));
+        assertEquals(-1, log.getTerm(4));
+        assertEquals(Command.put("a", "1"), log.getEntry(1).getCommand());
+        assertEquals(List.of(2L, 3L), log.getEntries(2, 10).stream().map(LogEntry::getIndex).toList());
+    }
+
+    @Test
+    void testRecoverAfterRestart() {
+        SegmentedRaftLog log = open(4096);
+        IntStream.rangeClosed(1, 10).forEach(i -> log.append(i / 5 + 1, Command.put("k" + i, "v" + i)));
+        log.close();
+
+        SegmentedRaftLog reopened = open(4096);
+        assertEquals(10, reopened.getLastIndex());
+        assertEquals(3, reopened.getLastTerm());
+        assertEquals(10, reopened.getDurableIndex());
+        assertEquals(Command.put("k7", "v7"), reopened.getEntry(7).getCommand());
+    }
+
+    @Test
+    void testLeaseCommandsKeepTtlAndVersionAcrossRestart() {
+        SegmentedRaftLog log = open(4096);
+        log.append(1, Command.leaseAcquire("lock", "worker-1", 10_000));
+        log.append(1, Command.leaseExpire("lock", 1));
+        log.close();
+
+        SegmentedRaftLog reopened = open(4096);
+        assertEquals(Command.leaseAcquire("lock", "worker-1", 10_000), reopened.getEntry(1).getCommand());
+        assertEquals(Command.leaseExpire("lock", 1), reopened.getEntry(2).getCommand());
+    }
+
+    @Test
+    void testRollsSegmentsAndReadsAcrossThem() throws IOException {
+        SegmentedRaftLog log = open(128);
+        IntStream.rangeClosed(1, 20).forEach(i -> log.append(1, Command.put("key" + i, "value" + i)));
+
+        assertTrue(countSegments() > 1);
+        List<LogEntry> entries = log.getEntries(1, 100);
+        assertEquals(20, entries.size());
+        assertEquals(Command.put("key20", "value20"), entries.get(19).getCommand());
+        assertThrows(IllegalArgumentException.class, () -> log.append(1, Command.put("key", "x".repeat(200))));
+    }
+
+    @Test
+    void testTruncateAcrossSegmentsSurvivesRestart() throws IOException {
+        SegmentedRaftLog log = open(128);
+        IntStream.rangeClosed(1, 20).forEach(i -> log.append(1, Command.put("key" + i, "value" + i)));
+        log.truncateFrom(3);
+        log.append(2, Command.put("key3", "replaced"));
+        log.close();
+
+        SegmentedRaftLog reopened = open(128);
+        assertEquals(3, reopened.getLastIndex());
+        assertEquals(2, reopened.getTerm(3));
+        assertEquals(Command.put("key3", "replaced"), reopened.getEntry(3).getCommand());
+        assertEquals(1, countSegments());
+    }
+
+    @Test
+    void testCompactDeletesCoveredSegmentsAndSurvivesRestart() throws IOException {
+        SegmentedRaftLog log = open(128);
+        IntStream.rangeClosed(1, 20).forEach(i -> log.append(i <= 10 ? 1 : 2, Command.put("key" + i, "value" + i)));
+        long segments = countSegments();
+
+        log.compact(15);
+        long firstIndex = log.getFirstIndex();
+        assertTrue(countSegments() < segments);
+        assertTrue(firstIndex > 1 && firstIndex <= 16);
+        assertNull(log.getEntry(firstIndex - 1));
+        assertTrue(log.getTerm(firstIndex - 1) > 0);
+        assertTrue(log.getEntries(1, 10).isEmpty());
+        log.close();
+
+        SegmentedRaftLog reopened = open(128);
+        assertEquals(firstIndex, reopened.getFirstIndex());
+        assertEquals(20, reopened.getLastIndex());
+        assertEquals(Command.put("key20", "value20"), reopened.getEntry(20).getCommand());
+    }
+
+    @Test
+    void testResetStartsAfterSnapshot() {
+        SegmentedRaftLog log = open(4096);
+        IntStream.rangeClosed(1, 5).forEach(i -> log.append(1, Command.noop()));
+        log.reset(100, 7);
+        log.close();
+
+        SegmentedRaftLog reopened = open(4096);
+        assertEquals(101, reopened.getFirstIndex());
+        assertEquals(100, reopened.getLastIndex());
+        assertEquals(7, reopened.getLastTerm());
+        assertEquals(7, reopened.getTerm(100));
+        assertEquals(101, reopened.append(8, Command.noop()).getIndex());
+    }
+
+    @Test
+    void testCorruptedRecordIsDiscardedOnRecovery() throws IOException {
+        SegmentedRaftLog log = open(4096);
+        IntStream.rangeClosed(1, 5).forEach(i -> log.append(1, Command.put("k" + i, "v" + i)));
+        log.close();
+
+        // Flip a byte in the payload of the last record, as a torn write would
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        long lastRecord = lastRecordPosition(segment, 5);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), lastRecord + 21);
+        }
+
+        SegmentedRaftLog reopened = open(4096);
+        assertEquals(4, reopened.getLastIndex());
+        assertNull(reopened.getEntry(5));
+        assertEquals(5, reopened.append(1, Command.noop()).getIndex());
+    }
+
+    @Test
+    void testFlushCompletesOnceDurable() throws Exception {
+        SegmentedRaftLog log = open(4096);
+        List<CompletableFuture<Void>> flushes = IntStream.rangeClosed(1, 50)
+                .mapToObj(i -> log.flush(log.append(1, Command.put("k" + i, "v")).getIndex()))
+                .toList();
+
+        CompletableFuture.allOf(flushes.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertEquals(50, log.getDurableIndex());
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    /**
+     * Walks the record headers ({@code [int length][int crc][long index][int term]}), after the 8-byte
+     * segment header, to find a record.
+     */
+    private static long lastRecordPosition(Path segment, int records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = 8;
+        for (int i = 1; i < records; i++) {
+            position += 20 + buffer.getInt(position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,94 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.persistence.model.NodeState;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.NodeStatusUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ClusterStatusServiceTest {
+
+    private static final NodeStatusDTO LEADER = new NodeStatusDTO("node1", NodeState.LEADER, 2, "node1", "localhost:8000", false);
+    private static final NodeStatusDTO FOLLOWER = new NodeStatusDTO("node2", NodeState.FOLLOWER, 2, "node1", "localhost:8001", false);
+    private static final NodeStatusDTO OTHER_FOLLOWER = new NodeStatusDTO("node3", NodeState.FOLLOWER, 2, "node1", "localhost:8002", false);
+
+    private final RaftService raftService = mock(RaftService.class);
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    private ClusterStatusService clusterStatusService;
+
+    @BeforeEach
+    void setUp() {
+        NodeConfig nodeConfig = new NodeConfig();
+        nodeConfig.setId("node1");
+        nodeConfig.setClusterNodes(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+
+        TimeoutConfig timeoutConfig = TimeoutConfig.builder()
+                .electionTimeout(TimeoutConfig.ElectionTimeout.builder().min(150).max(300).build())
+                .heartbeatInterval(50)
+                .build();
+
+        when(raftService.getOwnNodeUrl()).thenReturn("localhost:8000");
+        when(raftService.getNodeStatus()).thenReturn(Mono.just(LEADER));
+        clusterStatusService = new ClusterStatusService(raftService, mock(PeerClient.class), nodeConfig, timeoutConfig,
+                clock::get);
+        clusterStatusService.refresh().block();
+        clusterStatusService.merge(List.of(new NodeStatusUpdate(FOLLOWER, 10), new NodeStatusUpdate(OTHER_FOLLOWER, 10)));
+    }
+
+    @Test
+    void testMerge_ShouldOnlyPublishChanges() {
+        NodeStatusDTO candidate = new NodeStatusDTO("node3", NodeState.CANDIDATE, 3, "node3", "localhost:8002", false);
+
+        StepVerifier.create(clusterStatusService.getUpdates().take(3))
+                // The latest update is replayed to new subscribers
+                .expectNext(new ClusterStatusService.Update(List.of(LEADER, FOLLOWER, OTHER_FOLLOWER),
+                        List.of(FOLLOWER, OTHER_FOLLOWER)))
+                .then(() -> {
+                    // Relayed or stale statuses do not change anything
+                    clusterStatusService.merge(List.of(new NodeStatusUpdate(FOLLOWER, 10),
+                            new NodeStatusUpdate(candidate, 5)));
+                    clusterStatusService.merge(List.of(new NodeStatusUpdate(FOLLOWER, 11),
+                            new NodeStatusUpdate(candidate, 11)));
+                })
+                .expectNext(new ClusterStatusService.Update(List.of(LEADER, FOLLOWER, candidate), List.of(candidate)))
+                .then(() -> clusterStatusService.markDown("localhost:8001"))
+                .expectNextMatches(update -> update.getChanges().size() == 1
+                        && update.getChanges().get(0).getState() == NodeState.DOWN
+                        && "localhost:8001".equals(update.getChanges().get(0).getNodeUrl()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testRefresh_SilentNode_ShouldBeReportedDown() {
+        clock.addAndGet(500);
+        clusterStatusService.merge(List.of(new NodeStatusUpdate(FOLLOWER, 20)));
+        clock.addAndGet(200);
+        clusterStatusService.refresh().block();
+
+        ClusterStatusService.Update update = clusterStatusService.getUpdates().blockFirst();
+        assertNotNull(update);
+        assertEquals(List.of(LEADER, FOLLOWER), update.getStatuses().subList(0, 2));
+        assertEquals(NodeState.DOWN, update.getStatuses().get(2).getState());
+        assertEquals(List.of(update.getStatuses().get(2)), update.getChanges());
+    }
+
+    @Test
+    void testGetStatusUpdates_ShouldCarryKnownStatusesOnly() {
+        List<NodeStatusUpdate> statuses = clusterStatusService.getStatusUpdates();
+
+        assertEquals(List.of(LEADER, FOLLOWER, OTHER_FOLLOWER), statuses.stream().map(NodeStatusUpdate::getStatus).toList());
+        assertEquals(1_000, statuses.get(0).getVersion());
+    }
+}
@@ -1,21 +1,41 @@
 package com.baeldung.raft.service;
 
+import com.baeldung.raft.config.ElectionConfig;
 import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ShardConfig;
 import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.exception.LeadershipTransferException;
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.membership.ClusterConfiguration;
+import com.baeldung.raft.persistence.log.MetadataStore;
 import com.baeldung.raft.persistence.model.NodeState;
 import com.baeldung.raft.persistence.model.NodeStateEntity;
+import com.baeldung.raft.persistence.model.NodeStateSnapshot;
 import com.baeldung.raft.persistence.repository.NodeStateRepository;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.RequestVoteRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,9 +47,22 @@ class RaftServiceTest {
     @Mock
     private TransactionalRaftService transactionalRaftService;
 
+    @Mock
+    private ReplicationService replicationService;
+
+    @Mock
+    private MetadataStore metadataStore;
+
+    @Mock
+    private PeerClient peerClient;
+
     @Mock
     private NodeConfig nodeConfig;
 
+    private ReadConfig readConfig;
+
+    private ElectionConfig electionConfig;
+
     private RaftService raftService;
 
     @BeforeEach
@@ -42,6 +75,9 @@ class RaftServiceTest {
         // Update NodeConfig mock
         when(nodeConfig.getId()).thenReturn(nodeId);
         when(nodeConfig.getClusterNodes()).thenReturn(clusterNodes);
+        when(nodeConfig.getLearnerNodes()).thenReturn(List.of());
+        lenient().when(replicationService.getConfiguration())
+                .thenReturn(new ClusterConfiguration(0, clusterNodes, List.of()));
 
         // Instantiate RaftTimeoutProperties using builder
         TimeoutConfig.ElectionTimeout electionTimeout = TimeoutConfig.ElectionTimeout.builder()
@@ -54,13 +90,23 @@ class RaftServiceTest {
                 .heartbeatInterval(50)
                 .build();
 
+        readConfig = new ReadConfig();
+        electionConfig = new ElectionConfig();
+
         // Instantiate RaftService with mocked dependencies and predefined values
         RaftService realRaftService = new RaftService(
                 nodeStateRepository,
                 transactionalRaftService,
+                replicationService,
+                metadataStore,
+                peerClient,
                 nodeConfig,
                 timeoutConfig,
-                serverPort
+                readConfig,
+                electionConfig,
+                new ShardConfig(),
+                serverPort,
+                new SimpleMeterRegistry()
         );
 
         // Create a spy of RaftService to allow partial mocking
@@ -98,52 +144,50 @@ class RaftServiceTest {
         verify(raftService, times(1)).checkClusterReadiness();
     }
 
+    /**
+     * Puts the service in the given state, as if it had been initialized from the database.
+     */
+    @SuppressWarnings("unchecked")
+    private void givenState(NodeStateSnapshot snapshot) {
+        ((AtomicReference<NodeStateSnapshot>) ReflectionTestUtils.getField(raftService, "state")).set(snapshot);
+        ReflectionTestUtils.setField(raftService, "entityId", 1L);
+    }
+
     @Test
     void testRequestVote_CandidateTermHigher_ShouldGrantVote() {
-        NodeStateEntity currentNode = new NodeStateEntity();
-        currentNode.setNodeId("node1");
-        currentNode.setState(NodeState.FOLLOWER);
-        currentNode.setCurrentTerm(1);
-        currentNode.setVotedFor(null);
-
-        NodeStateEntity updatedNode = new NodeStateEntity();
-        updatedNode.setNodeId("node1");
-        updatedNode.setState(NodeState.FOLLOWER);
-        updatedNode.setCurrentTerm(2);
-        updatedNode.setVotedFor("node2");
-
-        // Mock the repository to return the current node state
-        when(nodeStateRepository.findByNodeId("node1")).thenReturn(Mono.just(currentNode));
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 1, null, false));
 
         // Mock the transactional service to save and return the updated node
-        when(transactionalRaftService.saveNodeState(any(NodeStateEntity.class))).thenReturn(Mono.just(updatedNode));
+        when(transactionalRaftService.saveNodeState(any(NodeStateEntity.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        // The candidate's log is as up-to-date as the local one
+        when(replicationService.isLogUpToDate(0L, 0)).thenReturn(true);
 
         // Act
-        Mono<Boolean> voteResult = raftService.requestVote("node2", 2);
+        Mono<Boolean> voteResult = raftService.requestVote("node2", 2, 0L, 0);
 
         // Assert
         StepVerifier.create(voteResult)
                 .expectNext(true)
                 .verifyComplete();
 
-        // Verify interactions
-        verify(nodeStateRepository, times(1)).findByNodeId("node1");
-        verify(transactionalRaftService, times(1)).saveNodeState(any(NodeStateEntity.class));
+        // The new term and vote are persisted before replying, without reading the database
+        verify(metadataStore, times(1)).save(2, "node2");
+        ArgumentCaptor<NodeStateEntity> captor = ArgumentCaptor.forClass(NodeStateEntity.class);
+        verify(transactionalRaftService, times(1)).saveNodeState(captor.capture());
+        assert captor.getValue().getCurrentTerm() == 2;
+        assert "node2".equals(captor.getValue().getVotedFor());
+        assert captor.getValue().getId() == 1L;
+        verifyNoInteractions(nodeStateRepository);
+        assert raftService.getState().getCurrentTerm() == 2;
     }
 
     @Test
     void testRequestVote_CandidateTermLower_ShouldRejectVote() {
-        NodeStateEntity currentNode = new NodeStateEntity();
-        currentNode.setNodeId("node1");
-        currentNode.setState(NodeState.FOLLOWER);
-        currentNode.setCurrentTerm(3);
-        currentNode.setVotedFor(null);
-
-        // Mock the repository to return the current node state
-        when(nodeStateRepository.findByNodeId("node1")).thenReturn(Mono.just(currentNode));
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 3, null, false));
 
         // Act
-        Mono<Boolean> voteResult = raftService.requestVote("node2", 2);
+        Mono<Boolean> voteResult = raftService.requestVote("node2", 2, 0L, 0);
 
         // Assert
         StepVerifier.create(voteResult)
@@ -151,7 +195,219 @@ class RaftServiceTest {
                 .verifyComplete();
 
         // Verify interactions
-        verify(nodeStateRepository, times(1)).findByNodeId("node1");
+        verifyNoInteractions(nodeStateRepository);
+        verify(transactionalRaftService, never()).saveNodeState(any(NodeStateEntity.class));
+    }
+
+    @Test
+    void testRequestVote_AlreadyVotedForAnotherCandidate_ShouldRejectVote() {
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 2, "node3", false));
+
+        StepVerifier.create(raftService.requestVote("node2", 2, 0L, 0))
+                .expectNext(false)
+                .verifyComplete();
+
         verify(transactionalRaftService, never()).saveNodeState(any(NodeStateEntity.class));
+        verify(metadataStore, never()).save(anyInt(), any());
+        assert "node3".equals(raftService.getState().getVotedFor());
+    }
+
+    @Test
+    void testRequestVote_CandidateLogBehind_ShouldRejectVoteAndAdoptTerm() {
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 1, null, false));
+        when(transactionalRaftService.saveNodeState(any(NodeStateEntity.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        // The local log holds entries the candidate does not have
+        when(replicationService.isLogUpToDate(0L, 0)).thenReturn(false);
+
+        // Act
+        Mono<Boolean> voteResult = raftService.requestVote("node2", 2, 0L, 0);
+
+        // Assert
+        StepVerifier.create(voteResult)
+                .expectNext(false)
+                .verifyComplete();
+
+        ArgumentCaptor<NodeStateEntity> captor = ArgumentCaptor.forClass(NodeStateEntity.class);
+        verify(transactionalRaftService, times(1)).saveNodeState(captor.capture());
+        assert captor.getValue().getCurrentTerm() == 2;
+        assert captor.getValue().getVotedFor() == null;
+    }
+
+    @Test
+    void testRequestVote_LeaseEnabledAndLeaderActive_ShouldIgnoreVote() {
+        readConfig.setLeaseEnabled(true);
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 1, "node3", false));
+        // A heartbeat was just received from the leader
+        ReflectionTestUtils.setField(raftService, "lastHeartbeat", System.currentTimeMillis());
+
+        StepVerifier.create(raftService.requestVote("node2", 2, 0L, 0))
+                .expectNext(false)
+                .verifyComplete();
+
+        // The term is not adopted, so the leader is not deposed while its lease may be in use
+        verify(metadataStore, never()).save(anyInt(), any());
+        assert raftService.getState().getCurrentTerm() == 1;
+    }
+
+    @Test
+    void testRequestVote_PreVote_ShouldNotChangeState() {
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 1, null, false));
+        // No heartbeat received for longer than the election timeout
+        ReflectionTestUtils.setField(raftService, "lastHeartbeat", TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) - 1_000);
+        when(replicationService.isLogUpToDate(0L, 0)).thenReturn(true);
+
+        StepVerifier.create(raftService.requestVote(new RequestVoteRequest("node2", 2, 0L, 0, false, true)))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(metadataStore, never()).save(anyInt(), any());
+        assert raftService.getState().getCurrentTerm() == 1;
+        assert raftService.getState().getVotedFor() == null;
+    }
+
+    @Test
+    void testRequestVote_PreVoteWhileLeaderActive_ShouldReject() {
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 1, "node3", false));
+        ReflectionTestUtils.setField(raftService, "lastHeartbeat", TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+
+        StepVerifier.create(raftService.requestVote(new RequestVoteRequest("node2", 2, 0L, 0, false, true)))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void testAppendEntries_StaleTerm_ShouldReject() {
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 3, null, false));
+
+        AppendEntriesRequest request = new AppendEntriesRequest(2, "node2", "localhost:8001", 0, 0, List.of(), 0);
+
+        StepVerifier.create(raftService.appendEntries(request))
+                .expectNextMatches(response -> !response.isSuccess() && response.getTerm() == 3)
+                .verifyComplete();
+
+        verify(replicationService, never()).handleAppendEntries(any(), anyInt());
+    }
+
+    @Test
+    void testAppendEntries_CurrentLeader_ShouldNotTouchDatabase() {
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 2, "node2", false));
+        AppendEntriesRequest request = new AppendEntriesRequest(2, "node2", "localhost:8001", 0, 0, List.of(), 0);
+        when(replicationService.handleAppendEntries(request, 2)).thenReturn(Mono.just(new AppendEntriesResponse(2, true, 0, 0)));
+
+        StepVerifier.create(raftService.appendEntries(request))
+                .expectNextMatches(AppendEntriesResponse::isSuccess)
+                .verifyComplete();
+
+        verifyNoInteractions(nodeStateRepository, transactionalRaftService);
+        verify(metadataStore, never()).save(anyInt(), any());
+        assert "localhost:8001".equals(raftService.getLeaderUrl());
+    }
+
+    @Test
+    void testRead_Follower_ShouldWaitForLeaderReadIndex() {
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 2, "node2", false));
+        ReflectionTestUtils.setField(raftService, "leaderUrl", "localhost:8001");
+        when(peerClient.readIndex("localhost:8001", 0)).thenReturn(Mono.just(7L));
+        when(replicationService.readAt(7L, Command.get("color"))).thenReturn(Mono.just("blue"));
+
+        StepVerifier.create(raftService.read(Command.get("color")))
+                .expectNext("blue")
+                .verifyComplete();
+
+        verify(replicationService, never()).read(anyInt(), any());
+    }
+
+    @Test
+    void testRead_FollowerReadsDisabled_ShouldRedirectToLeader() {
+        readConfig.setFollowerReads(false);
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 2, "node2", false));
+        ReflectionTestUtils.setField(raftService, "leaderUrl", "localhost:8001");
+
+        StepVerifier.create(raftService.read(Command.get("color")))
+                .expectErrorMatches(e -> e instanceof NotLeaderException
+                        && "localhost:8001".equals(((NotLeaderException) e).getLeaderUrl()))
+                .verify();
+
+        verifyNoInteractions(peerClient);
+    }
+
+    @Test
+    void testTransferLeadership_NewLeaderHeartbeat_ShouldComplete() {
+        givenState(new NodeStateSnapshot(NodeState.LEADER, 2, "node1", false));
+        AppendEntriesRequest heartbeat = new AppendEntriesRequest(3, "node2", "localhost:8001", 0, 0, List.of(), 0);
+        when(replicationService.handleAppendEntries(heartbeat, 3)).thenReturn(Mono.just(new AppendEntriesResponse(3, true, 0, 0)));
+        // The heartbeat of the new leader arrives before the step-down is reported
+        when(replicationService.transferLeadership(2, "localhost:8001")).thenReturn(Mono.defer(() -> {
+            givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 3, null, false));
+            return raftService.appendEntries(heartbeat).then();
+        }));
+
+        StepVerifier.create(raftService.transferLeadership("localhost:8001"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testTransferLeadership_NoNewLeader_ShouldFail() {
+        givenState(new NodeStateSnapshot(NodeState.LEADER, 2, "node1", false));
+        when(replicationService.transferLeadership(2, "localhost:8001")).thenReturn(Mono.empty());
+
+        StepVerifier.create(raftService.transferLeadership("localhost:8001"))
+                .expectError(LeadershipTransferException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testStartElection_MajorityGranted_ShouldNotWaitForSlowNode() throws InterruptedException {
+        electionConfig.setPreVote(false);
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 1, null, false));
+        when(transactionalRaftService.saveNodeState(any(NodeStateEntity.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+        CountDownLatch slowRequestCancelled = new CountDownLatch(1);
+        // A partitioned node never answers
+        when(peerClient.requestVote(eq("localhost:8001"), eq(0), any(RequestVoteRequest.class)))
+                .thenReturn(Mono.<Boolean>never().doOnCancel(slowRequestCancelled::countDown));
+        when(peerClient.requestVote(eq("localhost:8002"), eq(0), any(RequestVoteRequest.class))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(raftService.startElection())
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assert raftService.getState().isLeader();
+        assert raftService.getState().getCurrentTerm() == 2;
+        // The election may complete on another thread before the cancellation has reached the request
+        assert slowRequestCancelled.await(1, TimeUnit.SECONDS);
+        verify(replicationService).becomeLeader(2);
+    }
+
+    @Test
+    void testStartElection_MajorityRejected_ShouldRemainCandidate() {
+        electionConfig.setPreVote(false);
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 1, null, false));
+        when(transactionalRaftService.saveNodeState(any(NodeStateEntity.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+        when(peerClient.requestVote(anyString(), eq(0), any(RequestVoteRequest.class))).thenReturn(Mono.just(false));
+
+        StepVerifier.create(raftService.startElection())
+                .verifyComplete();
+
+        assert NodeState.CANDIDATE.equals(raftService.getState().getState());
+        verify(replicationService, never()).becomeLeader(anyInt());
+    }
+
+    @Test
+    void testStartElection_PreVoteRejected_ShouldKeepTerm() {
+        givenState(new NodeStateSnapshot(NodeState.FOLLOWER, 1, null, false));
+        ReflectionTestUtils.setField(raftService, "lastHeartbeat", TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) - 1_000);
+        when(peerClient.requestVote(anyString(), eq(0), any(RequestVoteRequest.class))).thenReturn(Mono.just(false));
+
+        StepVerifier.create(raftService.startElection())
+                .verifyComplete();
+
+        // Only PreVotes were sent, for the next term, and the node did not move to it
+        ArgumentCaptor<RequestVoteRequest> captor = ArgumentCaptor.forClass(RequestVoteRequest.class);
+        verify(peerClient, times(2)).requestVote(anyString(), eq(0), captor.capture());
+        assert captor.getAllValues().stream().allMatch(request -> request.isPreVote() && request.getCandidateTerm() == 2);
+        assert NodeState.FOLLOWER.equals(raftService.getState().getState());
+        assert raftService.getState().getCurrentTerm() == 1;
+        verify(metadataStore, never()).save(anyInt(), any());
     }
 }
@@ -0,0 +1,576 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ReplicationConfig;
+import com.baeldung.raft.config.SnapshotConfig;
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.exception.LeadershipTransferException;
+import com.baeldung.raft.exception.MembershipChangeException;
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.membership.ClusterConfiguration;
+import com.baeldung.raft.membership.ClusterMembership;
+import com.baeldung.raft.persistence.log.InMemoryRaftLog;
+import com.baeldung.raft.persistence.log.LogEntry;
+import com.baeldung.raft.persistence.snapshot.SnapshotStore;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.CommandType;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import com.baeldung.raft.web.dto.InstallSnapshotResponse;
+import com.baeldung.raft.web.dto.TimeoutNowRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicationServiceTest {
+
+    private final InMemoryRaftLog raftLog = spy(new InMemoryRaftLog());
+    private final KeyValueStateMachine stateMachine = new KeyValueStateMachine();
+
+    @TempDir
+    Path snapshotDir;
+
+    private ReplicationService createService(List<String> clusterNodes) {
+        return createService(clusterNodes, List.of());
+    }
+
+    private ReplicationService createService(List<String> clusterNodes, List<String> learnerNodes) {
+        return createService(clusterNodes, learnerNodes, new ReplicationConfig());
+    }
+
+    private ReplicationService createService(List<String> clusterNodes, List<String> learnerNodes,
+                                             ReplicationConfig replicationConfig) {
+        // The other nodes are not running: every RPC fails with a refused connection
+        PeerClient peerClient = new PeerClient(RSocketRequester.builder().rsocketStrategies(RSocketStrategies.builder()
+                .encoder(new Jackson2CborEncoder())
+                .decoder(new Jackson2CborDecoder())
+                .build()), "/rsocket");
+        return createService(clusterNodes, learnerNodes, replicationConfig, peerClient);
+    }
+
+    private ReplicationService createService(List<String> clusterNodes, List<String> learnerNodes,
+                                             ReplicationConfig replicationConfig, PeerClient peerClient) {
+        return createService(clusterNodes, learnerNodes, replicationConfig, peerClient, System::nanoTime);
+    }
+
+    private ReplicationService createService(List<String> clusterNodes, List<String> learnerNodes,
+                                             ReplicationConfig replicationConfig, PeerClient peerClient,
+                                             LongSupplier nanoClock) {
+        NodeConfig nodeConfig = new NodeConfig();
+        nodeConfig.setId("node1");
+        nodeConfig.setClusterNodes(clusterNodes);
+        nodeConfig.setLearnerNodes(learnerNodes);
+
+        TimeoutConfig timeoutConfig = TimeoutConfig.builder()
+                .electionTimeout(TimeoutConfig.ElectionTimeout.builder().min(150).max(300).build())
+                .heartbeatInterval(50)
+                .build();
+
+        ClusterMembership membership = new ClusterMembership(nodeConfig);
+        SnapshotService snapshotService = new SnapshotService(raftLog, stateMachine, new SnapshotStore(snapshotDir),
+                new SnapshotConfig(), membership);
+        return new ReplicationService(0, raftLog, stateMachine, snapshotService, membership, peerClient, nodeConfig,
+                timeoutConfig, replicationConfig, new ReadConfig(), 8000, new SimpleMeterRegistry(), nanoClock);
+    }
+
+    private static LogEntry entry(long index, int term, Command command) {
+        return new LogEntry(index, term, command);
+    }
+
+    /**
+     * Returns a {@link PeerClient} whose AppendEntries requests stay pending until the test answers them.
+     */
+    private static PeerClient pendingPeerClient(List<PendingAppend> requests) {
+        PeerClient peerClient = mock(PeerClient.class);
+        when(peerClient.appendEntries(anyString(), anyInt(), any())).thenAnswer(invocation ->
+                Mono.<AppendEntriesResponse>create(sink -> requests.add(
+                        new PendingAppend(invocation.getArgument(0), invocation.getArgument(2), sink))));
+        return peerClient;
+    }
+
+    private static List<PendingAppend> requestsTo(List<PendingAppend> requests, String peerUrl) {
+        return requests.stream().filter(request -> request.peerUrl.equals(peerUrl)).toList();
+    }
+
+    private record PendingAppend(String peerUrl, AppendEntriesRequest request, MonoSink<AppendEntriesResponse> sink) {
+
+        void accept() {
+            sink.success(new AppendEntriesResponse(request.getTerm(), true,
+                    request.getPrevLogIndex() + request.getEntries().size(), 0));
+        }
+
+        void reject(long conflictIndex) {
+            sink.success(new AppendEntriesResponse(request.getTerm(), false, 0, conflictIndex));
+        }
+    }
+
+    @Test
+    void testHandleAppendEntries_AppendsAndApplies() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+
+        AppendEntriesRequest request = new AppendEntriesRequest(1, "node2", "localhost:8001", 0, 0,
+                List.of(entry(1, 1, Command.noop()), entry(2, 1, Command.put("color", "blue"))), 2);
+
+        AppendEntriesResponse response = service.handleAppendEntries(request, 1).block();
+
+        assertTrue(response.isSuccess());
+        assertEquals(2, response.getMatchIndex());
+        assertEquals(2, service.getCommitIndex());
+        assertEquals("blue", stateMachine.get("color"));
+    }
+
+    @Test
+    void testHandleAppendEntries_MissingPrefix_ShouldReturnConflictIndex() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+
+        AppendEntriesRequest request = new AppendEntriesRequest(1, "node2", "localhost:8001", 5, 1,
+                List.of(entry(6, 1, Command.put("color", "blue"))), 6);
+
+        AppendEntriesResponse response = service.handleAppendEntries(request, 1).block();
+
+        assertFalse(response.isSuccess());
+        assertEquals(1, response.getConflictIndex());
+        assertEquals(0, raftLog.getLastIndex());
+    }
+
+    @Test
+    void testHandleAppendEntries_ConflictingSuffix_ShouldBeTruncated() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        raftLog.appendEntries(List.of(
+                entry(1, 1, Command.put("a", "1")),
+                entry(2, 1, Command.put("b", "stale")),
+                entry(3, 1, Command.put("c", "stale"))));
+
+        AppendEntriesRequest request = new AppendEntriesRequest(2, "node3", "localhost:8002", 1, 1,
+                List.of(entry(2, 2, Command.put("b", "2"))), 2);
+
+        AppendEntriesResponse response = service.handleAppendEntries(request, 2).block();
+
+        assertTrue(response.isSuccess());
+        assertEquals(2, raftLog.getLastIndex());
+        assertEquals(2, raftLog.getTerm(2));
+        assertEquals("2", stateMachine.get("b"));
+        assertNull(stateMachine.get("c"));
+    }
+
+    @Test
+    void testHandleAppendEntries_DuplicateRequest_ShouldNotTruncate() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        AppendEntriesRequest first = new AppendEntriesRequest(1, "node2", "localhost:8001", 0, 0,
+                List.of(entry(1, 1, Command.put("a", "1")), entry(2, 1, Command.put("b", "2"))), 0);
+        AppendEntriesRequest retransmitted = new AppendEntriesRequest(1, "node2", "localhost:8001", 0, 0,
+                List.of(entry(1, 1, Command.put("a", "1"))), 0);
+
+        service.handleAppendEntries(first, 1).block();
+        AppendEntriesResponse response = service.handleAppendEntries(retransmitted, 1).block();
+
+        assertTrue(response.isSuccess());
+        assertEquals(2, raftLog.getLastIndex());
+    }
+
+    @Test
+    void testHandleAppendEntries_CompactedPrefix_ShouldMatch() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        raftLog.reset(10, 1);
+
+        // The leader is behind on this follower's snapshot: the overlapping entries are committed already
+        AppendEntriesRequest request = new AppendEntriesRequest(2, "node2", "localhost:8001", 8, 1,
+                List.of(entry(9, 1, Command.noop()), entry(10, 1, Command.noop()), entry(11, 2, Command.put("a", "1"))), 0);
+
+        AppendEntriesResponse response = service.handleAppendEntries(request, 2).block();
+
+        assertTrue(response.isSuccess());
+        assertEquals(11, response.getMatchIndex());
+        assertEquals(11, raftLog.getLastIndex());
+    }
+
+    @Test
+    void testHandleInstallSnapshot_InChunks_ShouldRestoreStateAndResetLog() throws IOException {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        raftLog.appendEntries(List.of(entry(1, 1, Command.put("stale", "x"))));
+
+        // Snapshot of a leader that applied 20 entries up to term 3
+        KeyValueStateMachine leaderState = new KeyValueStateMachine();
+        for (int i = 1; i <= 20; i++) {
+            leaderState.apply(entry(i, 3, Command.put("k" + i, "v" + i)));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        leaderState.takeSnapshot().writeTo(out);
+        byte[] snapshot = out.toByteArray();
+        int half = snapshot.length / 2;
+
+        InstallSnapshotResponse first = service.handleInstallSnapshot(new InstallSnapshotRequest(3, "node2", "localhost:8001",
+                20, 3, 0, Arrays.copyOfRange(snapshot, 0, half), false), 3).block();
+        // A chunk at an unexpected offset is rejected with the offset to resume from
+        InstallSnapshotResponse outOfOrder = service.handleInstallSnapshot(new InstallSnapshotRequest(3, "node2", "localhost:8001",
+                20, 3, half + 1, new byte[1], false), 3).block();
+        InstallSnapshotResponse last = service.handleInstallSnapshot(new InstallSnapshotRequest(3, "node2", "localhost:8001",
+                20, 3, half, Arrays.copyOfRange(snapshot, half, snapshot.length), true), 3).block();
+
+        assertTrue(first.isSuccess());
+        assertFalse(outOfOrder.isSuccess());
+        assertEquals(half, outOfOrder.getNextOffset());
+        assertTrue(last.isSuccess());
+        assertEquals("v7", stateMachine.get("k7"));
+        assertNull(stateMachine.get("stale"));
+        assertEquals(20, service.getCommitIndex());
+        assertEquals(20, raftLog.getLastIndex());
+        assertEquals(3, raftLog.getLastTerm());
+    }
+
+    @Test
+    void testPropose_SingleNodeCluster_ShouldCommitImmediately() {
+        ReplicationService service = createService(List.of("localhost:8000"));
+        service.becomeLeader(1);
+
+        StepVerifier.create(service.propose(1, Command.put("color", "blue")))
+                .verifyComplete();
+        StepVerifier.create(service.propose(1, Command.get("color")))
+                .expectNext("blue")
+                .verifyComplete();
+
+        assertEquals(3, service.getCommitIndex());
+    }
+
+    @Test
+    void testPropose_ConcurrentCommands_ShouldBeAppendedInBatches() {
+        ReplicationConfig replicationConfig = new ReplicationConfig();
+        replicationConfig.setMaxProposalBatch(4);
+        replicationConfig.setProposalLinger(20);
+        ReplicationService service = createService(List.of("localhost:8000"), List.of(), replicationConfig);
+        service.becomeLeader(1);
+
+        StepVerifier.create(Flux.range(0, 10).flatMap(i -> service.propose(1, Command.put("key-" + i, "value"))))
+                .verifyComplete();
+
+        // Two full batches appended right away, and the rest once the linger has elapsed
+        verify(raftLog, times(3)).append(eq(1), anyList());
+        assertEquals(11, service.getCommitIndex());
+        assertEquals("value", stateMachine.get("key-9"));
+    }
+
+    @Test
+    void testPropose_UnreachableLearner_ShouldNotDelayCommit() {
+        ReplicationService service = createService(List.of("localhost:8000"), List.of("localhost:8001", "localhost:8002"));
+        service.becomeLeader(1);
+
+        StepVerifier.create(service.propose(1, Command.put("color", "blue")))
+                .verifyComplete();
+        StepVerifier.create(service.read(1, Command.get("color")))
+                .expectNext("blue")
+                .verifyComplete();
+    }
+
+    @Test
+    void testReplicate_RejectedBatch_ShouldProbeOneRequestAtATime() {
+        ReplicationConfig replicationConfig = new ReplicationConfig();
+        replicationConfig.setMaxBatchEntries(1);
+        List<PendingAppend> requests = new ArrayList<>();
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001"), List.of(),
+                replicationConfig, pendingPeerClient(requests));
+        raftLog.append(1, List.of(Command.put("a", "1"), Command.put("b", "2"), Command.put("c", "3")));
+        service.becomeLeader(2);
+
+        // A new leader does not know the follower's log: it probes with the NOOP only
+        assertEquals(1, requests.size());
+        assertEquals(3, requests.get(0).request.getPrevLogIndex());
+
+        // The follower has nothing: probing again from its conflict index, still one request at a time
+        requests.get(0).reject(1);
+        assertEquals(2, requests.size());
+        assertEquals(0, requests.get(1).request.getPrevLogIndex());
+
+        // Once the follower accepts, the remaining batches are pipelined
+        requests.get(1).accept();
+        assertEquals(List.of(1L, 2L, 3L), requests.subList(2, requests.size()).stream()
+                .map(pending -> pending.request.getPrevLogIndex())
+                .toList());
+        requests.subList(2, requests.size()).forEach(PendingAppend::accept);
+        assertEquals(4, service.getCommitIndex());
+    }
+
+    @Test
+    void testReplicate_LaggingFollower_ShouldCatchUpInLargeBatches() {
+        ReplicationConfig replicationConfig = new ReplicationConfig();
+        replicationConfig.setMaxBatchEntries(2);
+        replicationConfig.setMaxInflight(2);
+        replicationConfig.setCatchUpBatchEntries(100);
+        List<PendingAppend> requests = new ArrayList<>();
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001"), List.of(),
+                replicationConfig, pendingPeerClient(requests));
+        raftLog.append(1, IntStream.range(0, 20).mapToObj(i -> Command.put("key-" + i, "value")).toList());
+        service.becomeLeader(1);
+
+        requests.get(0).reject(1);
+        requests.get(1).accept();
+
+        // 19 entries behind, more than two batches of 2: the rest is sent at once
+        assertEquals(3, requests.size());
+        assertEquals(19, requests.get(2).request.getEntries().size());
+        requests.get(2).accept();
+        assertEquals(21, service.getCommitIndex());
+    }
+
+    @Test
+    void testReplicate_ShouldCommitQuorumMedianMatchIndex() {
+        List<PendingAppend> requests = new ArrayList<>();
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002",
+                "localhost:8003", "localhost:8004"), List.of(), new ReplicationConfig(), pendingPeerClient(requests));
+        raftLog.append(1, List.of(Command.put("a", "1"), Command.put("b", "2"), Command.put("c", "3")));
+        service.becomeLeader(2);
+        List.copyOf(requests).forEach(pending -> pending.reject(1));
+        assertEquals(0, service.getCommitIndex());
+
+        // Leader at 4, followers at 4, 2, 1 and unknown: the third highest match is 2, but from an older term
+        requestsTo(requests, "localhost:8001").get(1).accept();
+        PendingAppend second = requestsTo(requests, "localhost:8002").get(1);
+        second.sink.success(new AppendEntriesResponse(2, true, 2, 0));
+        PendingAppend third = requestsTo(requests, "localhost:8003").get(1);
+        third.sink.success(new AppendEntriesResponse(2, true, 1, 0));
+        assertEquals(0, service.getCommitIndex());
+
+        // A third replica of the NOOP commits it, and the entries before it
+        requestsTo(requests, "localhost:8004").get(1).accept();
+        assertEquals(4, service.getCommitIndex());
+        assertEquals("3", stateMachine.get("c"));
+    }
+
+    @Test
+    void testSendHeartbeats_ShouldSkipFollowersSentEntriesWithinInterval() {
+        List<PendingAppend> requests = new ArrayList<>();
+        AtomicLong clock = new AtomicLong();
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"),
+                List.of(), new ReplicationConfig(), pendingPeerClient(requests), clock::get);
+        service.becomeLeader(1);
+        requestsTo(requests, "localhost:8001").get(0).accept();
+
+        // Both followers received the NOOP less than a heartbeat interval ago
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(30));
+        service.sendHeartbeats(1);
+        assertEquals(2, requests.size());
+
+        // Only the follower that matched the log is sent the new entry
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+        raftLog.append(1, Command.put("color", "blue"));
+        service.replicate(1, false);
+        assertEquals(3, requests.size());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+        service.sendHeartbeats(1);
+        assertEquals(4, requests.size());
+        assertEquals("localhost:8002", requests.get(3).peerUrl);
+        assertTrue(requests.get(3).request.getEntries().isEmpty());
+    }
+
+    @Test
+    void testTransferLeadership_ShouldSendTimeoutNowOnceTargetIsUpToDate() {
+        List<PendingAppend> requests = new ArrayList<>();
+        PeerClient peerClient = pendingPeerClient(requests);
+        when(peerClient.timeoutNow(anyString(), anyInt(), any())).thenReturn(Mono.just(false));
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"),
+                List.of(), new ReplicationConfig(), peerClient);
+        service.becomeLeader(2);
+
+        StepVerifier.create(service.transferLeadership(2, "localhost:8001"))
+                .then(() -> {
+                    // Not sent before the target has every entry of the leader
+                    verify(peerClient, never()).timeoutNow(anyString(), anyInt(), any());
+                    StepVerifier.create(service.propose(2, Command.put("color", "blue")))
+                            .expectError(NotLeaderException.class)
+                            .verify();
+                    requestsTo(requests, "localhost:8001").get(0).accept();
+                })
+                // The target did not start an election: the transfer is aborted
+                .expectError(LeadershipTransferException.class)
+                .verify();
+
+        verify(peerClient).timeoutNow("localhost:8001", 0, new TimeoutNowRequest(2, "node1"));
+        // Proposals are accepted again. Polled rather than verified with a Mockito timeout, which would hold the
+        // monitor of the synchronized log while waiting for the append
+        long lastIndex = service.getLastLogIndex();
+        service.propose(2, Command.put("color", "blue")).subscribe();
+        Flux.interval(Duration.ofMillis(10))
+                .filter(tick -> service.getLastLogIndex() > lastIndex)
+                .blockFirst(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testHandleAppendEntries_Configuration_ShouldTakeEffectUntilTruncated() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        String members = "localhost:8000,localhost:8001,localhost:8002;localhost:8003";
+
+        service.handleAppendEntries(new AppendEntriesRequest(1, "node2", "localhost:8001", 0, 0,
+                List.of(entry(1, 1, Command.noop()), entry(2, 1, Command.configuration(members))), 1), 1).block();
+
+        // In effect as soon as it is in the log, before being committed
+        assertEquals(1, service.getCommitIndex());
+        assertEquals(2, service.getConfiguration().getIndex());
+        assertEquals(List.of("localhost:8003"), service.getConfiguration().getLearners());
+
+        // A new leader overwrites the uncommitted entry: the previous configuration is back
+        service.handleAppendEntries(new AppendEntriesRequest(2, "node3", "localhost:8002", 1, 1,
+                List.of(entry(2, 2, Command.noop())), 1), 2).block();
+        assertEquals(0, service.getConfiguration().getIndex());
+        assertEquals(List.of(), service.getConfiguration().getLearners());
+    }
+
+    @Test
+    void testAddMember_ShouldPromoteLearnerOnceCaughtUp() {
+        List<PendingAppend> requests = new CopyOnWriteArrayList<>();
+        ReplicationService service = createService(List.of("localhost:8000"), List.of(), new ReplicationConfig(),
+                pendingPeerClient(requests));
+        service.becomeLeader(1);
+        service.propose(1, Command.put("color", "blue")).block();
+
+        CompletableFuture<ClusterConfiguration> added = service.addMember(1, "localhost:8001", true).toFuture();
+        // The new member answers every request, like a follower that keeps up
+        Flux.interval(Duration.ofMillis(5))
+                .doOnNext(tick -> {
+                    requests.forEach(PendingAppend::accept);
+                    service.replicate(1, true);
+                })
+                .filter(tick -> added.isDone())
+                .blockFirst(Duration.ofSeconds(5));
+
+        ClusterConfiguration configuration = added.join();
+        assertEquals(List.of("localhost:8000", "localhost:8001"), configuration.getVoters());
+        assertEquals(List.of(), configuration.getLearners());
+        // Added as a learner first, at index 3, then promoted at index 4 with both voters acknowledging it
+        assertEquals(4, configuration.getIndex());
+        assertEquals(4, service.getCommitIndex());
+        assertEquals(CommandType.CONFIGURATION, raftLog.getEntry(3).getCommand().getType());
+        assertEquals("blue", stateMachine.get("color"));
+    }
+
+    @Test
+    void testRemoveMember_Leader_ShouldStopCountingItself() {
+        List<PendingAppend> requests = new ArrayList<>();
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"),
+                List.of(), new ReplicationConfig(), pendingPeerClient(requests));
+        service.becomeLeader(1);
+        requestsTo(requests, "localhost:8001").get(0).accept();
+        assertEquals(1, service.getCommitIndex());
+
+        CompletableFuture<ClusterConfiguration> removed = service.removeMember(1, "localhost:8000").toFuture();
+        Flux.interval(Duration.ofMillis(5))
+                .filter(tick -> service.getLastLogIndex() == 2)
+                .blockFirst(Duration.ofSeconds(5));
+        assertEquals(List.of("localhost:8001", "localhost:8002"), service.getConfiguration().getVoters());
+        // One change at a time: the removal is not committed yet
+        StepVerifier.create(service.addMember(1, "localhost:8003", false))
+                .expectError(MembershipChangeException.class)
+                .verify();
+
+        // The leader's own copy no longer counts: both remaining voters must acknowledge the entry
+        requestsTo(requests, "localhost:8001").get(1).accept();
+        assertEquals(1, service.getCommitIndex());
+        assertFalse(service.isRemovedFromConfiguration());
+        requestsTo(requests, "localhost:8002").get(0).accept();
+        assertEquals(1, service.getCommitIndex());
+        requestsTo(requests, "localhost:8002").get(1).accept();
+        assertEquals(2, service.getCommitIndex());
+        assertTrue(service.isRemovedFromConfiguration());
+        assertEquals(2, removed.join().getIndex());
+    }
+
+    @Test
+    void testPropose_NotLeader_ShouldFail() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+
+        StepVerifier.create(service.propose(1, Command.put("color", "blue")))
+                .expectError(NotLeaderException.class)
+                .verify();
+    }
+
+    @Test
+    void testRead_SingleNodeCluster_ShouldNotAppendToLog() {
+        ReplicationService service = createService(List.of("localhost:8000"));
+        service.becomeLeader(1);
+        service.propose(1, Command.put("color", "blue")).block();
+        long lastIndex = raftLog.getLastIndex();
+
+        StepVerifier.create(service.read(1, Command.get("color")))
+                .expectNext("blue")
+                .verifyComplete();
+
+        assertEquals(lastIndex, raftLog.getLastIndex());
+    }
+
+    @Test
+    void testReadAt_Follower_ShouldWaitUntilReadIndexIsApplied() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        service.handleAppendEntries(new AppendEntriesRequest(1, "node2", "localhost:8001", 0, 0,
+                List.of(entry(1, 1, Command.put("color", "red")), entry(2, 1, Command.put("color", "blue"))), 1), 1).block();
+
+        StepVerifier.create(service.readAt(2, Command.get("color")))
+                // The read index is not applied yet: the stale value must not be returned
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> service.handleAppendEntries(new AppendEntriesRequest(1, "node2", "localhost:8001", 2, 1,
+                        List.of(), 2), 1).block())
+                .expectNext("blue")
+                .verifyComplete();
+    }
+
+    @Test
+    void testRead_LeadershipNotConfirmed_ShouldFail() {
+        // The followers are unreachable: no heartbeat round can confirm the leadership
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        service.becomeLeader(1);
+
+        StepVerifier.create(service.read(1, Command.get("color")))
+                .expectError(NotLeaderException.class)
+                .verify();
+    }
+
+    @Test
+    void testStepDown_ShouldFailPendingProposals() {
+        ReplicationService service = createService(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        service.becomeLeader(1);
+
+        StepVerifier.create(service.propose(1, Command.put("color", "blue")))
+                .then(service::stepDown)
+                .expectError(NotLeaderException.class)
+                .verify();
+    }
+
+    @Test
+    void testIsLogUpToDate() {
+        ReplicationService service = createService(List.of("localhost:8000"));
+        raftLog.appendEntries(List.of(entry(1, 1, Command.noop()), entry(2, 2, Command.noop())));
+
+        assertTrue(service.isLogUpToDate(2, 2));
+        assertTrue(service.isLogUpToDate(1, 3));
+        assertFalse(service.isLogUpToDate(5, 1));
+        assertFalse(service.isLogUpToDate(1, 2));
+    }
+}
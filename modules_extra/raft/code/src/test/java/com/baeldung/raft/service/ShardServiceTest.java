@@ -0,0 +1,141 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.CoordinationConfig;
+import com.baeldung.raft.config.ElectionConfig;
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ReplicationConfig;
+import com.baeldung.raft.config.ShardConfig;
+import com.baeldung.raft.config.SnapshotConfig;
+import com.baeldung.raft.config.StorageConfig;
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.persistence.model.NodeState;
+import com.baeldung.raft.persistence.model.NodeStateSnapshot;
+import com.baeldung.raft.persistence.repository.NodeStateRepository;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.web.dto.ShardDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShardServiceTest {
+
+    private final RaftService defaultGroup = mock(RaftService.class);
+    private final PeerClient peerClient = mock(PeerClient.class);
+
+    @TempDir
+    Path storageDir;
+
+    private ShardService shardService;
+
+    private ShardService createService(int shardCount) {
+        NodeConfig nodeConfig = new NodeConfig();
+        nodeConfig.setId("node1");
+        nodeConfig.setClusterNodes(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+
+        TimeoutConfig timeoutConfig = TimeoutConfig.builder()
+                .electionTimeout(TimeoutConfig.ElectionTimeout.builder().min(150).max(300).build())
+                .heartbeatInterval(50)
+                .build();
+
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setDir(storageDir.toString());
+        storageConfig.setFsync(false);
+
+        ShardConfig shardConfig = new ShardConfig();
+        shardConfig.setCount(shardCount);
+
+        when(defaultGroup.getGroupId()).thenReturn(0);
+        shardService = new ShardService(defaultGroup, new KeyValueStateMachine(), mock(NodeStateRepository.class), mock(TransactionalRaftService.class),
+                peerClient, nodeConfig, timeoutConfig, new ReplicationConfig(), new ReadConfig(), new ElectionConfig(), storageConfig,
+                new SnapshotConfig(), shardConfig, new CoordinationConfig(), 8000, new SimpleMeterRegistry());
+        return shardService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (shardService != null) {
+            shardService.close();
+        }
+    }
+
+    @Test
+    void testCreate_ShouldHostOneGroupPerShardWithItsOwnStorage() {
+        ShardService service = createService(4);
+
+        assertEquals(4, service.getShardCount());
+        assertSame(defaultGroup, service.group(0));
+        for (int groupId = 1; groupId < 4; groupId++) {
+            assertEquals(groupId, service.group(groupId).getGroupId());
+            assertTrue(Files.isDirectory(storageDir.resolve("node1").resolve("group-" + groupId).resolve("log")));
+        }
+        assertThrows(IllegalArgumentException.class, () -> service.group(4));
+    }
+
+    @Test
+    void testShardOf_ShouldSpreadKeysAcrossShards() {
+        ShardService service = createService(4);
+
+        long usedShards = IntStream.range(0, 100)
+                .map(i -> service.shardOf("key-" + i))
+                .peek(shard -> assertTrue(shard >= 0 && shard < 4))
+                .distinct()
+                .count();
+
+        assertEquals(4, usedShards);
+        assertEquals(service.shardOf("color"), service.route("color").getShard());
+    }
+
+    @Test
+    void testPropose_NotLeader_ShouldForwardToShardLeader() {
+        ShardService service = createService(1);
+        when(defaultGroup.getState()).thenReturn(new NodeStateSnapshot(NodeState.FOLLOWER, 2, "node2", false));
+        when(defaultGroup.getLeaderUrl()).thenReturn("localhost:8001");
+        when(defaultGroup.getOwnNodeUrl()).thenReturn("localhost:8000");
+        when(peerClient.propose("localhost:8001", 0, Command.put("color", "blue"))).thenReturn(Mono.just("red"));
+
+        StepVerifier.create(service.propose(Command.put("color", "blue")))
+                .expectNext("red")
+                .verifyComplete();
+
+        verify(defaultGroup, never()).propose(any());
+    }
+
+    @Test
+    void testPropose_LeaderUnreachable_ShouldFailWithLeaderAddress() {
+        ShardService service = createService(1);
+        when(defaultGroup.getState()).thenReturn(new NodeStateSnapshot(NodeState.FOLLOWER, 2, "node2", false));
+        when(defaultGroup.getLeaderUrl()).thenReturn("localhost:8001");
+        when(defaultGroup.getOwnNodeUrl()).thenReturn("localhost:8000");
+        when(peerClient.propose("localhost:8001", 0, Command.put("color", "blue")))
+                .thenReturn(Mono.error(new IllegalStateException("Connection closed")));
+
+        StepVerifier.create(service.propose(Command.put("color", "blue")))
+                .expectErrorMatches(e -> e instanceof NotLeaderException
+                        && "localhost:8001".equals(((NotLeaderException) e).getLeaderUrl()))
+                .verify();
+    }
+
+    @Test
+    void testGetShards_ShouldListLeaderOfEveryShard() {
+        ShardService service = createService(1);
+        when(defaultGroup.getState()).thenReturn(new NodeStateSnapshot(NodeState.LEADER, 3, "node1", false));
+        when(defaultGroup.getLeaderUrl()).thenReturn("localhost:8000");
+
+        assertEquals(List.of(new ShardDTO(0, "localhost:8000", 3, NodeState.LEADER)), service.getShards());
+    }
+}
@@ -0,0 +1,120 @@
+package com.baeldung.raft.service;
+
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.SnapshotConfig;
+import com.baeldung.raft.membership.ClusterMembership;
+import com.baeldung.raft.persistence.log.InMemoryRaftLog;
+import com.baeldung.raft.persistence.log.LogEntry;
+import com.baeldung.raft.persistence.snapshot.SnapshotMetadata;
+import com.baeldung.raft.persistence.snapshot.SnapshotStore;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import com.baeldung.raft.statemachine.Lease;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotServiceTest {
+
+    @TempDir
+    Path snapshotDir;
+
+    private static SnapshotConfig config() {
+        SnapshotConfig config = new SnapshotConfig();
+        config.setThreshold(10);
+        config.setRetainedEntries(5);
+        return config;
+    }
+
+    private static ClusterMembership membership() {
+        NodeConfig nodeConfig = new NodeConfig();
+        nodeConfig.setClusterNodes(List.of("localhost:8000", "localhost:8001", "localhost:8002"));
+        return new ClusterMembership(nodeConfig);
+    }
+
+    private static void applyEntries(InMemoryRaftLog raftLog, KeyValueStateMachine stateMachine, int count) {
+        for (int i = 1; i <= count; i++) {
+            LogEntry entry = raftLog.append(2, Command.put("k" + i, "v" + i));
+            stateMachine.apply(entry);
+        }
+    }
+
+    @Test
+    void testTakeSnapshot_ShouldCompactLogBehindRetainedEntries() {
+        InMemoryRaftLog raftLog = new InMemoryRaftLog();
+        KeyValueStateMachine stateMachine = new KeyValueStateMachine();
+        SnapshotService service = new SnapshotService(raftLog, stateMachine, new SnapshotStore(snapshotDir), config(), membership());
+        applyEntries(raftLog, stateMachine, 30);
+
+        SnapshotMetadata snapshot = service.takeSnapshot();
+
+        assertEquals(30, snapshot.getLastIncludedIndex());
+        assertEquals(2, snapshot.getLastIncludedTerm());
+        assertEquals(26, raftLog.getFirstIndex());
+        assertEquals(2, raftLog.getTerm(25));
+        assertNull(service.takeSnapshot());
+    }
+
+    @Test
+    void testRestart_ShouldRestoreLatestSnapshot() {
+        InMemoryRaftLog raftLog = new InMemoryRaftLog();
+        KeyValueStateMachine stateMachine = new KeyValueStateMachine();
+        new SnapshotService(raftLog, stateMachine, new SnapshotStore(snapshotDir), config(), membership()).takeSnapshot();
+        applyEntries(raftLog, stateMachine, 12);
+        new SnapshotService(raftLog, stateMachine, new SnapshotStore(snapshotDir), config(), membership()).takeSnapshot();
+
+        // A node restarting with an empty log only knows about the snapshot
+        InMemoryRaftLog restartedLog = new InMemoryRaftLog();
+        KeyValueStateMachine restartedState = new KeyValueStateMachine();
+        SnapshotService restarted = new SnapshotService(restartedLog, restartedState, new SnapshotStore(snapshotDir), config(), membership());
+
+        assertEquals(12, restarted.getSnapshotIndex());
+        assertEquals(12, restartedState.getLastAppliedIndex());
+        assertEquals("v12", restartedState.get("k12"));
+        assertEquals(12, restartedLog.getLastIndex());
+        assertEquals(2, restartedLog.getLastTerm());
+    }
+
+    @Test
+    void testRestart_ShouldRestoreLeases() {
+        InMemoryRaftLog raftLog = new InMemoryRaftLog();
+        KeyValueStateMachine stateMachine = new KeyValueStateMachine();
+        applyEntries(raftLog, stateMachine, 11);
+        stateMachine.apply(raftLog.append(2, Command.leaseAcquire("lock", "worker-1", 10_000)));
+        new SnapshotService(raftLog, stateMachine, new SnapshotStore(snapshotDir), config(), membership()).takeSnapshot();
+
+        KeyValueStateMachine restartedState = new KeyValueStateMachine();
+        new SnapshotService(new InMemoryRaftLog(), restartedState, new SnapshotStore(snapshotDir), config(), membership());
+
+        assertEquals(new Lease("lock", "worker-1", 12, 12, 10_000), restartedState.query(Command.leaseGet("lock")));
+        assertEquals("v11", restartedState.get("k11"));
+    }
+
+    @Test
+    void testRestart_ShouldRestoreConfigurationOfCompactedEntry() {
+        InMemoryRaftLog raftLog = new InMemoryRaftLog();
+        KeyValueStateMachine stateMachine = new KeyValueStateMachine();
+        ClusterMembership membership = membership();
+        SnapshotService service = new SnapshotService(raftLog, stateMachine, new SnapshotStore(snapshotDir), config(),
+                membership);
+        LogEntry configuration = raftLog.append(2, Command.configuration("localhost:8000,localhost:8001;localhost:8003"));
+        membership.append(List.of(configuration));
+        stateMachine.apply(configuration);
+        applyEntries(raftLog, stateMachine, 11);
+        service.takeSnapshot();
+        assertEquals(8, raftLog.getFirstIndex());
+
+        // The entry that introduced the configuration is gone from the log, but not from the snapshot
+        ClusterMembership restarted = membership();
+        new SnapshotService(new InMemoryRaftLog(), new KeyValueStateMachine(), new SnapshotStore(snapshotDir), config(),
+                restarted);
+
+        assertEquals(1, restarted.current().getIndex());
+        assertEquals(List.of("localhost:8000", "localhost:8001"), restarted.current().getVoters());
+        assertEquals(List.of("localhost:8003"), restarted.current().getLearners());
+    }
+}
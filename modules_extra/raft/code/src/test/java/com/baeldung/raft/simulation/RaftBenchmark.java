@@ -0,0 +1,186 @@
+package com.baeldung.raft.simulation;
+
+import com.baeldung.raft.config.ElectionConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ReplicationConfig;
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.statemachine.Command;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of elections and replication, run on a {@link SimulatedCluster}.
+ * <p>
+ * The primary score is the wall-clock cost of simulating one operation, i.e. the CPU spent by the Raft code.
+ * The secondary {@code virtual*} scores are measured on the virtual clock: they are what a client of a real cluster
+ * with the simulated network would observe, and they only depend on the parameters and the seeds, so that the effect
+ * of a timeout or batching change can be compared run to run. Run with
+ * {@code mvn test-compile exec:exec -Pbenchmark}, or for instance
+ * {@code -Djmh.args="RaftBenchmark.election -p electionTimeoutMin=300"} to select benchmarks and parameters.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RaftBenchmark {
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    @Param({"3", "5"})
+    public int nodes;
+
+    @Param({"150"})
+    public int electionTimeoutMin;
+
+    @Param({"300"})
+    public int electionTimeoutMax;
+
+    @Param({"50"})
+    public int heartbeatInterval;
+
+    @Param({"256"})
+    public int maxProposalBatch;
+
+    @Param({"0"})
+    public int proposalLinger;
+
+    @Param({"0.0"})
+    public double dropRate;
+
+    /**
+     * Number of writes submitted at once by the throughput benchmark.
+     */
+    @Param({"1000"})
+    public int burst;
+
+    private long seed;
+    private SimulatedCluster cluster;
+    private RaftService leader;
+
+    /**
+     * Virtual time measurements, averaged over the operations of each iteration. JMH sums {@code EVENTS} counters
+     * over the measurement iterations, so each iteration reports its share of the average.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class VirtualTime {
+        private int iterations;
+        private long nanos;
+        private long operations;
+        private long commits;
+
+        @Setup(Level.Trial)
+        public void countIterations(BenchmarkParams params) {
+            iterations = params.getMeasurement().getCount();
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nanos = 0;
+            operations = 0;
+            commits = 0;
+        }
+
+        void record(Duration elapsed, int committed) {
+            nanos += elapsed.toNanos();
+            operations++;
+            commits += committed;
+        }
+
+        /**
+         * Average virtual time of an operation: election convergence, commit latency or burst duration.
+         */
+        public double virtualMillisPerOp() {
+            return operations == 0 ? 0 : nanos / 1e6 / operations / iterations;
+        }
+
+        /**
+         * Commits per second of virtual time.
+         */
+        public double virtualCommitsPerSecond() {
+            return nanos == 0 ? 0 : commits * 1e9 / nanos / iterations;
+        }
+    }
+
+    private SimulatedCluster newCluster() {
+        TimeoutConfig timeoutConfig = TimeoutConfig.builder()
+                .electionTimeout(TimeoutConfig.ElectionTimeout.builder().min(electionTimeoutMin).max(electionTimeoutMax).build())
+                .heartbeatInterval(heartbeatInterval)
+                .build();
+        ReplicationConfig replicationConfig = new ReplicationConfig();
+        replicationConfig.setMaxProposalBatch(maxProposalBatch);
+        replicationConfig.setProposalLinger(proposalLinger);
+        SimulatedCluster simulatedCluster = new SimulatedCluster(nodes, seed++, timeoutConfig, replicationConfig, new ReadConfig(),
+                new ElectionConfig());
+        simulatedCluster.getNetwork().setDropRate(dropRate);
+        return simulatedCluster;
+    }
+
+    @Setup(Level.Iteration)
+    public void startCluster() {
+        cluster = newCluster();
+        leader = cluster.awaitLeader(TIMEOUT);
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopCluster() {
+        cluster.close();
+    }
+
+    /**
+     * Time from the start of a fresh cluster until a leader is elected.
+     */
+    @Benchmark
+    public int election(VirtualTime virtualTime) {
+        // The iteration's cluster only holds the global schedulers: each election needs a fresh one
+        cluster.close();
+        cluster = newCluster();
+        Duration elapsed = cluster.runUntil(() -> cluster.leader().isPresent(), TIMEOUT);
+        virtualTime.record(elapsed, 0);
+        return cluster.leader().orElseThrow().getState().getCurrentTerm();
+    }
+
+    /**
+     * Latency of a single write, from its proposal to its application on the leader, with no other load.
+     */
+    @Benchmark
+    public Object commitLatency(VirtualTime virtualTime) {
+        CompletableFuture<Object> result = leader.propose(Command.put("key", "value")).toFuture();
+        virtualTime.record(cluster.runUntil(result::isDone, TIMEOUT), 1);
+        return result.join();
+    }
+
+    /**
+     * Time to commit a burst of concurrent writes.
+     */
+    @Benchmark
+    public long throughput(VirtualTime virtualTime) {
+        CompletableFuture<Long> committed = Flux.range(0, burst)
+                .flatMap(i -> leader.propose(Command.put("key-" + i, "value")), burst)
+                .count()
+                .toFuture();
+        virtualTime.record(cluster.runUntil(committed::isDone, TIMEOUT), burst);
+        return committed.join();
+    }
+}
@@ -0,0 +1,324 @@
+package com.baeldung.raft.simulation;
+
+import com.baeldung.raft.config.ElectionConfig;
+import com.baeldung.raft.config.NodeConfig;
+import com.baeldung.raft.config.ReadConfig;
+import com.baeldung.raft.config.ReplicationConfig;
+import com.baeldung.raft.config.ShardConfig;
+import com.baeldung.raft.config.SnapshotConfig;
+import com.baeldung.raft.config.TimeoutConfig;
+import com.baeldung.raft.membership.ClusterMembership;
+import com.baeldung.raft.persistence.log.InMemoryRaftLog;
+import com.baeldung.raft.persistence.log.MetadataStore;
+import com.baeldung.raft.persistence.repository.NodeStateRepository;
+import com.baeldung.raft.persistence.snapshot.SnapshotStore;
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.service.RaftTimer;
+import com.baeldung.raft.service.ReplicationService;
+import com.baeldung.raft.service.SnapshotService;
+import com.baeldung.raft.service.TransactionalRaftService;
+import com.baeldung.raft.statemachine.KeyValueStateMachine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.FileSystemUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Deterministic in-process Raft cluster: {@code N} {@link RaftService} instances connected by a
+ * {@link SimulatedNetwork} and driven by virtual time.
+ * <p>
+ * The cluster installs a {@link VirtualTimeScheduler} in place of every Reactor scheduler, so that the heartbeat
+ * timers, the RPC timeouts and the network latencies all run on the caller's thread, and only when the virtual clock
+ * is advanced. The services read the same virtual clock, and their election timeouts and the network draw from
+ * {@link Random Randoms} derived from a single seed: two clusters built with the same seed behave identically.
+ * </p>
+ * <p>
+ * Only one cluster can run at a time in a JVM, since the schedulers are global. {@link #close()} restores them.
+ * </p>
+ */
+public class SimulatedCluster implements AutoCloseable {
+    private static final Duration STEP = Duration.ofNanos(100_000);
+
+    private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    private final SimulatedNetwork network;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final List<RaftTimer> timers = new ArrayList<>();
+    private final Path directory;
+    private final Random seeds;
+    private final List<String> clusterNodes = new ArrayList<>();
+    private final TimeoutConfig timeoutConfig;
+    private final ReplicationConfig replicationConfig;
+    private final ReadConfig readConfig;
+    private final ElectionConfig electionConfig;
+    private final NodeStateRepository nodeStateRepository;
+    private final TransactionalRaftService transactionalRaftService;
+
+    /**
+     * Creates a cluster with the default timeouts (election timeout of 150 to 300 ms, heartbeats every 50 ms) and
+     * replication settings.
+     *
+     * @param size the number of voting nodes
+     * @param seed the seed of every random choice made during the run
+     */
+    public SimulatedCluster(int size, long seed) {
+        this(size, seed, TimeoutConfig.builder()
+                .electionTimeout(TimeoutConfig.ElectionTimeout.builder().min(150).max(300).build())
+                .heartbeatInterval(50)
+                .build(), new ReplicationConfig(), new ReadConfig(), new ElectionConfig());
+    }
+
+    /**
+     * Creates a cluster and starts the timers of its nodes.
+     *
+     * @param size              the number of voting nodes
+     * @param seed              the seed of every random choice made during the run
+     * @param timeoutConfig     the election timeout and heartbeat interval of every node
+     * @param replicationConfig the replication configuration of every node
+     * @param readConfig        the read configuration of every node
+     * @param electionConfig    the election configuration of every node
+     */
+    public SimulatedCluster(int size, long seed, TimeoutConfig timeoutConfig, ReplicationConfig replicationConfig,
+                            ReadConfig readConfig, ElectionConfig electionConfig) {
+        // Installed first: the services create their schedulers when they are built
+        VirtualTimeScheduler.set(scheduler);
+        this.seeds = new Random(seed);
+        this.timeoutConfig = timeoutConfig;
+        this.replicationConfig = replicationConfig;
+        this.readConfig = readConfig;
+        this.electionConfig = electionConfig;
+        this.network = new SimulatedNetwork(scheduler, new Random(seeds.nextLong()));
+        try {
+            this.directory = Files.createTempDirectory("raft-simulation");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < size; i++) {
+            clusterNodes.add("localhost:" + (8000 + i));
+        }
+
+        // The database only mirrors the node state for monitoring
+        this.nodeStateRepository = mock(NodeStateRepository.class);
+        when(nodeStateRepository.findByNodeId(anyString())).thenReturn(Mono.empty());
+        this.transactionalRaftService = mock(TransactionalRaftService.class);
+        when(transactionalRaftService.saveNodeState(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        for (int i = 0; i < size; i++) {
+            startNode(i, List.of());
+        }
+        for (Node node : nodes.values()) {
+            startTimer(node);
+        }
+    }
+
+    private void startNode(int i, List<String> learnerNodes) {
+        String nodeUrl = "localhost:" + (8000 + i);
+        NodeConfig nodeConfig = new NodeConfig();
+        nodeConfig.setId("node" + (i + 1));
+        nodeConfig.setClusterNodes(List.copyOf(clusterNodes));
+        nodeConfig.setLearnerNodes(learnerNodes);
+        Path nodeDirectory = directory.resolve(nodeConfig.getId());
+
+        InMemoryRaftLog raftLog = new InMemoryRaftLog();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeyValueStateMachine stateMachine = new KeyValueStateMachine();
+        ClusterMembership membership = new ClusterMembership(nodeConfig);
+        SnapshotService snapshotService = new SnapshotService(raftLog, stateMachine,
+                new SnapshotStore(nodeDirectory.resolve("snapshot")), new SnapshotConfig(), membership);
+        ReplicationService replicationService = new ReplicationService(0, raftLog, stateMachine, snapshotService,
+                membership, network.client(nodeUrl), nodeConfig, timeoutConfig, replicationConfig, readConfig, 8000 + i,
+                meterRegistry, this::nanoTime);
+        RaftService raftService = new RaftService(0, nodeStateRepository, transactionalRaftService,
+                replicationService, new MetadataStore(nodeDirectory), network.client(nodeUrl), nodeConfig,
+                timeoutConfig, readConfig, electionConfig, new ShardConfig(), 8000 + i, meterRegistry, this::nanoTime,
+                new Random(seeds.nextLong()));
+        raftService.monitorReplicationTerms();
+        network.register(nodeUrl, raftService);
+        nodes.put(nodeUrl, new Node(raftService, stateMachine, meterRegistry));
+    }
+
+    private void startTimer(Node node) {
+        RaftTimer timer = new RaftTimer(List.of(node.raftService), timeoutConfig, scheduler, scheduler, this::nanoTime);
+        timer.start();
+        timers.add(timer);
+    }
+
+    /**
+     * Starts a node that is not a member of the cluster yet: it knows the initial voters and is a learner until a
+     * configuration including it reaches its log.
+     *
+     * @return the URL of the new node
+     */
+    public String addNode() {
+        String nodeUrl = "localhost:" + (8000 + nodes.size());
+        startNode(nodes.size(), List.of(nodeUrl));
+        startTimer(nodes.get(nodeUrl));
+        return nodeUrl;
+    }
+
+    private long nanoTime() {
+        return scheduler.now(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the virtual time elapsed since the cluster was created.
+     *
+     * @return the virtual time, in milliseconds
+     */
+    public long now() {
+        return scheduler.now(TimeUnit.MILLISECONDS);
+    }
+
+    public SimulatedNetwork getNetwork() {
+        return network;
+    }
+
+    public List<String> getNodeUrls() {
+        return new ArrayList<>(nodes.keySet());
+    }
+
+    public RaftService node(String nodeUrl) {
+        return nodes.get(nodeUrl).raftService;
+    }
+
+    public KeyValueStateMachine stateMachine(String nodeUrl) {
+        return nodes.get(nodeUrl).stateMachine;
+    }
+
+    public MeterRegistry meterRegistry(String nodeUrl) {
+        return nodes.get(nodeUrl).meterRegistry;
+    }
+
+    /**
+     * Advances the virtual clock, running every timer and delivering every message due in the meantime.
+     *
+     * @param duration the virtual time to let pass
+     */
+    public void advance(Duration duration) {
+        scheduler.advanceTimeBy(duration);
+    }
+
+    /**
+     * Advances the virtual clock by steps of 0.1 ms until a condition holds.
+     *
+     * @param condition the condition to wait for
+     * @param timeout   the maximum virtual time to wait
+     * @return the virtual time it took for the condition to hold
+     * @throws IllegalStateException if the condition does not hold within the timeout
+     */
+    public Duration runUntil(BooleanSupplier condition, Duration timeout) {
+        long start = nanoTime();
+        while (!condition.getAsBoolean()) {
+            if (nanoTime() - start >= timeout.toNanos()) {
+                throw new IllegalStateException("Condition not met after " + timeout.toMillis() + " ms of virtual time");
+            }
+            advance(STEP);
+        }
+        return Duration.ofNanos(nanoTime() - start);
+    }
+
+    /**
+     * Subscribes to a {@link Mono} and advances the virtual clock until it completes.
+     *
+     * @param mono    the {@link Mono} to run
+     * @param timeout the maximum virtual time to wait
+     * @param <T>     the type of the value
+     * @return the value emitted by the {@link Mono}, or {@code null} if it completed empty
+     * @throws IllegalStateException if the {@link Mono} does not complete within the timeout
+     */
+    public <T> T await(Mono<T> mono, Duration timeout) {
+        CompletableFuture<T> future = mono.toFuture();
+        runUntil(future::isDone, timeout);
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the leader with the highest term among the running nodes, if any.
+     *
+     * @return the leader's {@link RaftService}
+     */
+    public Optional<RaftService> leader() {
+        return nodes.values().stream()
+                .map(node -> node.raftService)
+                .filter(raftService -> raftService.getState().isLeader())
+                .max(Comparator.comparingInt(raftService -> raftService.getState().getCurrentTerm()));
+    }
+
+    /**
+     * Advances the virtual clock until a leader is elected.
+     *
+     * @param timeout the maximum virtual time to wait
+     * @return the leader's {@link RaftService}
+     * @throws IllegalStateException if no leader is elected within the timeout
+     */
+    public RaftService awaitLeader(Duration timeout) {
+        runUntil(() -> leader().isPresent(), timeout);
+        return leader().orElseThrow();
+    }
+
+    /**
+     * Crashes a node: it stops its timers and stops answering. Its state is kept, so that it can be restarted.
+     *
+     * @param nodeUrl the URL of the node
+     */
+    public void crash(String nodeUrl) {
+        network.crash(nodeUrl);
+        node(nodeUrl).stopNode().subscribe();
+    }
+
+    /**
+     * Restarts a crashed node, as a follower.
+     *
+     * @param nodeUrl the URL of the node
+     */
+    public void restart(String nodeUrl) {
+        network.restart(nodeUrl);
+        node(nodeUrl).resumeNode().subscribe();
+    }
+
+    /**
+     * Stops the timers, deletes the storage of the nodes and restores the default Reactor schedulers.
+     */
+    @Override
+    public void close() {
+        timers.forEach(RaftTimer::stop);
+        VirtualTimeScheduler.reset();
+        try {
+            FileSystemUtils.deleteRecursively(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Node(RaftService raftService, KeyValueStateMachine stateMachine, MeterRegistry meterRegistry) {
+    }
+}
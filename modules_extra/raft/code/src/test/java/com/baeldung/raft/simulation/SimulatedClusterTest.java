@@ -0,0 +1,233 @@
+package com.baeldung.raft.simulation;
+
+import com.baeldung.raft.exception.NotLeaderException;
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.web.dto.MembershipChangeRequest;
+import com.baeldung.raft.web.dto.MembershipDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatedClusterTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static String runElection(long seed) {
+        try (SimulatedCluster cluster = new SimulatedCluster(5, seed)) {
+            RaftService leader = cluster.awaitLeader(TIMEOUT);
+            return leader.getNodeId() + "/" + leader.getState().getCurrentTerm() + "/" + cluster.now() + "ms/"
+                    + cluster.getNetwork().getMessages();
+        }
+    }
+
+    @Test
+    void testElection_SameSeed_ShouldReplayIdentically() {
+        String first = runElection(42);
+
+        assertEquals(first, runElection(42));
+    }
+
+    @Test
+    void testLeaderCrash_ShouldElectNewLeaderAndKeepCommittedWrites() {
+        try (SimulatedCluster cluster = new SimulatedCluster(3, 7)) {
+            RaftService leader = cluster.awaitLeader(TIMEOUT);
+            cluster.await(leader.propose(Command.put("color", "blue")), TIMEOUT);
+
+            cluster.crash(leader.getOwnNodeUrl());
+            RaftService newLeader = cluster.awaitLeader(TIMEOUT);
+            cluster.await(newLeader.propose(Command.put("size", "L")), TIMEOUT);
+
+            assertNotEquals(leader.getNodeId(), newLeader.getNodeId());
+            assertEquals("blue", cluster.await(newLeader.read(Command.get("color")), TIMEOUT));
+
+            cluster.restart(leader.getOwnNodeUrl());
+            cluster.runUntil(() -> "L".equals(cluster.stateMachine(leader.getOwnNodeUrl()).get("size")), TIMEOUT);
+        }
+    }
+
+    @Test
+    void testMetrics_ShouldMeasureElectionsAndReplicationInVirtualTime() {
+        try (SimulatedCluster cluster = new SimulatedCluster(3, 7)) {
+            RaftService leader = cluster.awaitLeader(TIMEOUT);
+            cluster.await(leader.propose(Command.put("color", "blue")), TIMEOUT);
+            cluster.advance(Duration.ofSeconds(1));
+            MeterRegistry leaderMetrics = cluster.meterRegistry(leader.getOwnNodeUrl());
+
+            assertEquals(1, leaderMetrics.get("raft.election.duration").tag("outcome", "won").timer().count());
+            assertEquals(1, leaderMetrics.get("raft.commit.latency").timer().count());
+            // Two one-way latencies of at most 5 ms each
+            Timer heartbeats = leaderMetrics.get("raft.heartbeat.rtt").timer();
+            assertTrue(heartbeats.count() > 0);
+            assertTrue(heartbeats.max(TimeUnit.MILLISECONDS) <= 10);
+            leaderMetrics.get("raft.follower.lag").gauges().forEach(lag -> assertEquals(0, lag.value()));
+            double votesGranted = cluster.getNodeUrls().stream()
+                    .map(cluster::meterRegistry)
+                    .flatMap(registry -> registry.find("raft.votes").tags("type", "vote", "result", "granted")
+                            .counters().stream())
+                    .mapToDouble(Counter::count)
+                    .sum();
+            assertTrue(votesGranted >= 1);
+
+            cluster.crash(leader.getOwnNodeUrl());
+            cluster.awaitLeader(TIMEOUT);
+            assertEquals(1, leaderMetrics.get("raft.leader.tenure").timer().count());
+        }
+    }
+
+    @Test
+    void testTransferLeadership_ShouldElectTargetWithinElectionTimeout() {
+        try (SimulatedCluster cluster = new SimulatedCluster(3, 13)) {
+            RaftService leader = cluster.awaitLeader(TIMEOUT);
+            cluster.await(leader.propose(Command.put("color", "blue")), TIMEOUT);
+            String targetUrl = cluster.getNodeUrls().stream()
+                    .filter(nodeUrl -> !nodeUrl.equals(leader.getOwnNodeUrl()))
+                    .findFirst()
+                    .orElseThrow();
+
+            CompletableFuture<Void> transfer = leader.transferLeadership(targetUrl).toFuture();
+            // Proposals are rejected from the start of the transfer
+            NotLeaderException rejected = assertThrows(NotLeaderException.class,
+                    () -> cluster.await(leader.propose(Command.put("color", "red")), TIMEOUT));
+            assertEquals(targetUrl, rejected.getLeaderUrl());
+            Duration elapsed = cluster.runUntil(transfer::isDone, TIMEOUT);
+
+            RaftService newLeader = cluster.awaitLeader(TIMEOUT);
+            assertEquals(targetUrl, newLeader.getOwnNodeUrl());
+            assertEquals(leader.getState().getCurrentTerm(), newLeader.getState().getCurrentTerm());
+            // Well under the minimum election timeout a crash would cost
+            assertTrue(elapsed.compareTo(Duration.ofMillis(150)) < 0, "Transfer took " + elapsed);
+            assertEquals("blue", cluster.await(newLeader.read(Command.get("color")), TIMEOUT));
+            // The former leader does not start another election
+            int term = newLeader.getState().getCurrentTerm();
+            cluster.advance(Duration.ofSeconds(2));
+            assertTrue(newLeader.getState().isLeader());
+            assertEquals(term, newLeader.getState().getCurrentTerm());
+            assertEquals(targetUrl, leader.getLeaderUrl());
+        }
+    }
+
+    @Test
+    void testPartitionedLeader_ShouldStepDownWithoutCommitting() {
+        try (SimulatedCluster cluster = new SimulatedCluster(5, 11)) {
+            RaftService oldLeader = cluster.awaitLeader(TIMEOUT);
+            int oldTerm = oldLeader.getState().getCurrentTerm();
+            cluster.getNetwork().isolate(oldLeader.getOwnNodeUrl());
+            CompletableFuture<Object> staleWrite = oldLeader.propose(Command.put("color", "red")).toFuture();
+
+            // CheckQuorum: the old leader cannot reach a majority and steps down on its own, in its own term
+            cluster.runUntil(staleWrite::isDone, TIMEOUT);
+            assertInstanceOf(NotLeaderException.class,
+                    assertThrows(CompletionException.class, staleWrite::join).getCause());
+            assertFalse(oldLeader.getState().isLeader());
+            assertEquals(oldTerm, oldLeader.getState().getCurrentTerm());
+
+            RaftService newLeader = cluster.awaitLeader(TIMEOUT);
+            cluster.await(newLeader.propose(Command.put("color", "blue")), TIMEOUT);
+
+            cluster.getNetwork().heal();
+            cluster.runUntil(() -> "blue".equals(cluster.stateMachine(oldLeader.getOwnNodeUrl()).get("color")), TIMEOUT);
+        }
+    }
+
+    @Test
+    void testRejoiningFollower_ShouldNotDisruptLeader() {
+        try (SimulatedCluster cluster = new SimulatedCluster(5, 17)) {
+            RaftService leader = cluster.awaitLeader(TIMEOUT);
+            int term = leader.getState().getCurrentTerm();
+            RaftService follower = cluster.getNodeUrls().stream()
+                    .map(cluster::node)
+                    .filter(node -> node != leader)
+                    .findFirst()
+                    .orElseThrow();
+
+            // PreVote: the isolated follower keeps timing out without ever incrementing its term
+            cluster.getNetwork().isolate(follower.getOwnNodeUrl());
+            cluster.advance(Duration.ofSeconds(3));
+            assertEquals(term, follower.getState().getCurrentTerm());
+
+            cluster.getNetwork().heal();
+            cluster.await(leader.propose(Command.put("color", "blue")), TIMEOUT);
+            cluster.runUntil(() -> "blue".equals(cluster.stateMachine(follower.getOwnNodeUrl()).get("color")), TIMEOUT);
+            assertTrue(leader.getState().isLeader());
+            assertEquals(term, leader.getState().getCurrentTerm());
+        }
+    }
+
+    @Test
+    void testLossyNetwork_ShouldKeepReplicasConsistent() {
+        try (SimulatedCluster cluster = new SimulatedCluster(5, 3)) {
+            cluster.getNetwork().setDropRate(0.1);
+            cluster.getNetwork().setLatency(Duration.ofMillis(1), Duration.ofMillis(20));
+            RaftService leader = cluster.awaitLeader(TIMEOUT);
+
+            List<Integer> committed = cluster.await(Flux.range(0, 200)
+                    .flatMap(i -> leader.propose(Command.put("key-" + i, "value-" + i)).thenReturn(i))
+                    .collectList(), TIMEOUT);
+            assertEquals(200, committed.size());
+
+            cluster.getNetwork().setDropRate(0);
+            for (String nodeUrl : cluster.getNodeUrls()) {
+                cluster.runUntil(() -> cluster.stateMachine(nodeUrl).size() == 200, TIMEOUT);
+                assertEquals("value-199", cluster.stateMachine(nodeUrl).get("key-199"));
+            }
+        }
+    }
+
+    @Test
+    void testMinorityPartition_ShouldNotElectLeader() {
+        try (SimulatedCluster cluster = new SimulatedCluster(5, 5)) {
+            cluster.getNetwork().partition(Set.of("localhost:8000", "localhost:8001"));
+
+            RaftService leader = cluster.awaitLeader(TIMEOUT);
+            cluster.advance(Duration.ofSeconds(5));
+
+            assertTrue(Set.of("localhost:8002", "localhost:8003", "localhost:8004").contains(leader.getOwnNodeUrl()));
+            assertFalse(cluster.node("localhost:8000").getState().isLeader());
+            assertFalse(cluster.node("localhost:8001").getState().isLeader());
+        }
+    }
+
+    @Test
+    void testMembershipChange_ShouldReplaceLeaderWithNewVoter() {
+        try (SimulatedCluster cluster = new SimulatedCluster(3, 17)) {
+            RaftService leader = cluster.awaitLeader(TIMEOUT);
+            cluster.await(leader.propose(Command.put("color", "blue")), TIMEOUT);
+
+            String newNode = cluster.addNode();
+            MembershipDTO added = cluster.await(leader.changeMembership(
+                    new MembershipChangeRequest(newNode, MembershipChangeRequest.Change.ADD_VOTER)), TIMEOUT);
+            assertEquals(4, added.getVoters().size());
+            assertTrue(added.getLearners().isEmpty());
+            assertEquals("blue", cluster.stateMachine(newNode).get("color"));
+
+            cluster.await(leader.changeMembership(
+                    new MembershipChangeRequest(leader.getOwnNodeUrl(), MembershipChangeRequest.Change.REMOVE)), TIMEOUT);
+            // The removed leader steps down once the change is committed
+            cluster.runUntil(() -> cluster.leader().filter(node -> node != leader).isPresent(), TIMEOUT);
+            RaftService newLeader = cluster.leader().orElseThrow();
+            assertFalse(leader.getState().isLeader());
+            assertFalse(newLeader.getClusterNodes().contains(leader.getOwnNodeUrl()));
+
+            // Two of the three remaining voters, one of them the new node, still form a quorum
+            String oldVoter = newLeader.getClusterNodes().stream()
+                    .filter(url -> !url.equals(newNode) && !url.equals(newLeader.getOwnNodeUrl()))
+                    .findFirst()
+                    .orElseThrow();
+            cluster.crash(oldVoter);
+            cluster.await(newLeader.propose(Command.put("size", "L")), TIMEOUT);
+            cluster.runUntil(() -> "L".equals(cluster.stateMachine(newNode).get("size")), TIMEOUT);
+        }
+    }
+}
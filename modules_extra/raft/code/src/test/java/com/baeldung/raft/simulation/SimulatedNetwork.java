@@ -0,0 +1,233 @@
+package com.baeldung.raft.simulation;
+
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.transport.PeerClient;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import com.baeldung.raft.web.dto.InstallSnapshotResponse;
+import com.baeldung.raft.web.dto.MembershipChangeRequest;
+import com.baeldung.raft.web.dto.MembershipDTO;
+import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.RequestVoteRequest;
+import com.baeldung.raft.web.dto.TimeoutNowRequest;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * In-memory network connecting the nodes of a {@link SimulatedCluster}.
+ * <p>
+ * Every message is delivered on the virtual time scheduler after a random latency, so that messages overtake each
+ * other. Requests and responses can be dropped at random, and nodes can be partitioned from each other: lost messages
+ * are never answered and the sender's timeout fires, as with a real network. Requests to a crashed node fail with a
+ * refused connection. All the randomness comes from a single seeded {@link Random}, so that a run is reproducible.
+ * </p>
+ */
+public class SimulatedNetwork {
+    private final Scheduler scheduler;
+    private final Random random;
+    private final Map<String, RaftService> nodes = new HashMap<>();
+    private final Set<String> crashed = new HashSet<>();
+    private final Map<String, Integer> partitions = new HashMap<>();
+    private long minLatencyNanos = Duration.ofMillis(1).toNanos();
+    private long maxLatencyNanos = Duration.ofMillis(5).toNanos();
+    private double dropRate = 0;
+    private long messages = 0;
+
+    public SimulatedNetwork(Scheduler scheduler, Random random) {
+        this.scheduler = scheduler;
+        this.random = random;
+    }
+
+    void register(String nodeUrl, RaftService node) {
+        nodes.put(nodeUrl, node);
+    }
+
+    /**
+     * Sets the one-way latency range of the network. Each message is delayed by a uniformly distributed latency.
+     *
+     * @param min the minimum latency
+     * @param max the maximum latency
+     */
+    public void setLatency(Duration min, Duration max) {
+        this.minLatencyNanos = min.toNanos();
+        this.maxLatencyNanos = max.toNanos();
+    }
+
+    /**
+     * Sets the probability that a request, or its response, is lost.
+     *
+     * @param dropRate the probability, between {@code 0} and {@code 1}
+     */
+    public void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * Splits the nodes into groups that cannot reach each other. Nodes left out of every group form one more group.
+     *
+     * @param groups the URLs of the nodes of each group
+     */
+    @SafeVarargs
+    public final void partition(Set<String>... groups) {
+        partitions.clear();
+        for (int i = 0; i < groups.length; i++) {
+            for (String nodeUrl : groups[i]) {
+                partitions.put(nodeUrl, i + 1);
+            }
+        }
+    }
+
+    /**
+     * Cuts a node off from every other node.
+     *
+     * @param nodeUrl the URL of the node
+     */
+    public void isolate(String nodeUrl) {
+        partition(Set.of(nodeUrl));
+    }
+
+    /**
+     * Removes every partition.
+     */
+    public void heal() {
+        partitions.clear();
+    }
+
+    void crash(String nodeUrl) {
+        crashed.add(nodeUrl);
+    }
+
+    void restart(String nodeUrl) {
+        crashed.remove(nodeUrl);
+    }
+
+    /**
+     * Returns the number of requests sent since the network was created, including the lost ones.
+     *
+     * @return the number of requests
+     */
+    public long getMessages() {
+        return messages;
+    }
+
+    private boolean reachable(String from, String to) {
+        return partitions.getOrDefault(from, 0).equals(partitions.getOrDefault(to, 0));
+    }
+
+    private Duration latency() {
+        return Duration.ofNanos(minLatencyNanos + (long) (random.nextDouble() * (maxLatencyNanos - minLatencyNanos)));
+    }
+
+    /**
+     * Sends a request and returns its response, both travelling through the network.
+     */
+    private <T> Mono<T> send(String from, String to, Function<RaftService, Mono<T>> handler) {
+        return Mono.defer(() -> {
+            messages++;
+            if (crashed.contains(from)) {
+                return Mono.never();
+            }
+            if (crashed.contains(to)) {
+                return Mono.error(new ConnectException("Connection refused: " + to));
+            }
+            // Drawn when the request is sent, so that the sequence of draws only depends on the seed
+            boolean requestLost = !reachable(from, to) || random.nextDouble() < dropRate;
+            boolean responseLost = random.nextDouble() < dropRate;
+            Duration requestLatency = latency();
+            Duration responseLatency = latency();
+            if (requestLost) {
+                return Mono.never();
+            }
+            return Mono.delay(requestLatency, scheduler)
+                    .flatMap(tick -> crashed.contains(to) ? Mono.<T>never() : handler.apply(nodes.get(to)))
+                    .flatMap(response -> responseLost || !reachable(from, to) || crashed.contains(from)
+                            ? Mono.<T>never()
+                            : Mono.delay(responseLatency, scheduler).thenReturn(response));
+        });
+    }
+
+    /**
+     * Returns the {@link PeerClient} a node sends its RPCs with.
+     *
+     * @param nodeUrl the URL of the sending node
+     * @return the node's client
+     */
+    PeerClient client(String nodeUrl) {
+        return new Client(nodeUrl);
+    }
+
+    /**
+     * {@link PeerClient} delivering the RPCs of a node through the simulated network instead of RSocket.
+     */
+    private final class Client extends PeerClient {
+        private final String nodeUrl;
+
+        private Client(String nodeUrl) {
+            // The requester is never built: no connection is opened
+            super(RSocketRequester.builder(), "/rsocket");
+            this.nodeUrl = nodeUrl;
+        }
+
+        @Override
+        public Scheduler getHeartbeatScheduler() {
+            return scheduler;
+        }
+
+        @Override
+        public Mono<Boolean> requestVote(String peerUrl, int group, RequestVoteRequest request) {
+            return send(nodeUrl, peerUrl, node -> node.requestVote(request));
+        }
+
+        @Override
+        public Mono<Boolean> timeoutNow(String peerUrl, int group, TimeoutNowRequest request) {
+            return send(nodeUrl, peerUrl, node -> node.timeoutNow(request));
+        }
+
+        @Override
+        public Mono<AppendEntriesResponse> appendEntries(String peerUrl, int group, AppendEntriesRequest request) {
+            return send(nodeUrl, peerUrl, node -> node.appendEntries(request));
+        }
+
+        @Override
+        public Mono<InstallSnapshotResponse> installSnapshot(String peerUrl, int group, InstallSnapshotRequest request) {
+            return send(nodeUrl, peerUrl, node -> node.installSnapshot(request));
+        }
+
+        @Override
+        public Mono<NodeStatusDTO> getStatus(String peerUrl) {
+            return send(nodeUrl, peerUrl, RaftService::getNodeStatus);
+        }
+
+        @Override
+        public Mono<Long> readIndex(String peerUrl, int group) {
+            return send(nodeUrl, peerUrl, RaftService::readIndex);
+        }
+
+        @Override
+        public Mono<Object> propose(String peerUrl, int group, Command command) {
+            return send(nodeUrl, peerUrl, node -> node.propose(command));
+        }
+
+        @Override
+        public Mono<MembershipDTO> changeMembership(String peerUrl, int group, MembershipChangeRequest request) {
+            return send(nodeUrl, peerUrl, node -> node.changeMembership(request));
+        }
+
+        @Override
+        public void close() {
+            // The scheduler belongs to the cluster
+        }
+    }
+}
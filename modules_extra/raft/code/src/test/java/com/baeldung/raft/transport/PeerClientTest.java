@@ -0,0 +1,186 @@
+package com.baeldung.raft.transport;
+
+import com.baeldung.raft.persistence.log.LogEntry;
+import com.baeldung.raft.persistence.model.NodeState;
+import com.baeldung.raft.service.RaftService;
+import com.baeldung.raft.service.ShardService;
+import com.baeldung.raft.statemachine.Command;
+import com.baeldung.raft.web.dto.AppendEntriesRequest;
+import com.baeldung.raft.web.dto.AppendEntriesResponse;
+import com.baeldung.raft.web.dto.InstallSnapshotRequest;
+import com.baeldung.raft.web.dto.InstallSnapshotResponse;
+import com.baeldung.raft.web.dto.NodeStatusDTO;
+import com.baeldung.raft.web.dto.NodeStatusUpdate;
+import io.rsocket.Payload;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.plugins.RSocketInterceptor;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.WebsocketServerTransport;
+import io.rsocket.util.RSocketProxy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PeerClientTest {
+
+    private final RaftService raftService = mock(RaftService.class);
+    private final RaftService otherGroup = mock(RaftService.class);
+    private final ShardService shardService = mock(ShardService.class);
+    private final StatusGossip serverGossip = mock(StatusGossip.class);
+    private final AtomicInteger requestsReceived = new AtomicInteger();
+    private final RSocketStrategies strategies = RSocketStrategies.builder()
+            .encoder(new Jackson2CborEncoder())
+            .decoder(new Jackson2CborDecoder())
+            .build();
+
+    private RSocketMessageHandler handler;
+    private CloseableChannel server;
+    private PeerClient peerClient;
+    private String peerUrl;
+
+    @BeforeEach
+    void setUp() {
+        RSocketMessageHandler handler = new RSocketMessageHandler();
+        handler.setRSocketStrategies(strategies);
+        when(shardService.group(0)).thenReturn(raftService);
+        when(shardService.group(1)).thenReturn(otherGroup);
+        handler.setHandlers(List.of(new PeerController(raftService, shardService, serverGossip)));
+        handler.afterPropertiesSet();
+        this.handler = handler;
+        server = startServer(0);
+        peerUrl = "localhost:" + server.address().getPort();
+        peerClient = new PeerClient(RSocketRequester.builder().rsocketStrategies(strategies), "/rsocket");
+    }
+
+    private CloseableChannel startServer(int port) {
+        return RSocketServer.create(handler.responder())
+                .interceptors(registry -> registry.forResponder((RSocketInterceptor) rsocket -> new RSocketProxy(rsocket) {
+                    @Override
+                    public Mono<Payload> requestResponse(Payload payload) {
+                        requestsReceived.incrementAndGet();
+                        return super.requestResponse(payload);
+                    }
+                }))
+                .bind(WebsocketServerTransport.create(HttpServer.create().host("localhost").port(port)))
+                .block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        peerClient.close();
+        server.dispose();
+    }
+
+    @Test
+    void testAppendEntries_ShouldRoundTripOverSharedConnection() {
+        when(raftService.appendEntries(any())).thenAnswer(inv -> {
+            AppendEntriesRequest request = inv.getArgument(0);
+            return Mono.just(new AppendEntriesResponse(2, true, request.getPrevLogIndex() + request.getEntries().size(), 0));
+        });
+        AppendEntriesRequest request = new AppendEntriesRequest(2, "node1", "localhost:8000", 4, 1,
+                List.of(new LogEntry(5, 2, Command.put("color", "blue"))), 4);
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(peerClient.appendEntries(peerUrl, 0, request))
+                    .expectNext(new AppendEntriesResponse(2, true, 5, 0))
+                    .verifyComplete();
+        }
+
+        ArgumentCaptor<AppendEntriesRequest> captor = ArgumentCaptor.forClass(AppendEntriesRequest.class);
+        verify(raftService, times(3)).appendEntries(captor.capture());
+        assertEquals(request, captor.getValue());
+    }
+
+    @Test
+    void testHeartbeats_SameTask_ShouldBeCoalescedIntoOneMessage() {
+        when(raftService.appendEntries(any())).thenReturn(Mono.just(new AppendEntriesResponse(2, true, 4, 0)));
+        // A stopped group does not answer
+        when(otherGroup.appendEntries(any())).thenReturn(Mono.empty());
+        AppendEntriesRequest heartbeat = new AppendEntriesRequest(2, "node1", "localhost:8000", 4, 1, List.of(), 4);
+        NodeStatusDTO followerStatus = new NodeStatusDTO("node2", NodeState.FOLLOWER, 2, "node1", "localhost:8001", false);
+        when(raftService.getNodeStatus()).thenReturn(Mono.just(followerStatus));
+        // Both sides send the statuses they know with the heartbeats
+        StatusGossip clientGossip = mock(StatusGossip.class);
+        List<NodeStatusUpdate> leaderStatuses = List.of(new NodeStatusUpdate(
+                new NodeStatusDTO("node1", NodeState.LEADER, 2, "node1", "localhost:8000", false), 100));
+        List<NodeStatusUpdate> followerStatuses = List.of(new NodeStatusUpdate(followerStatus, 200));
+        when(clientGossip.getStatusUpdates()).thenReturn(leaderStatuses);
+        when(serverGossip.getStatusUpdates()).thenReturn(followerStatuses);
+        peerClient.setStatusGossip(clientGossip);
+        // Opens the connection, so that only the heartbeats are counted
+        peerClient.getStatus(peerUrl).block();
+        requestsReceived.set(0);
+
+        Mono<AppendEntriesResponse> first = Mono.defer(() -> peerClient.appendEntries(peerUrl, 0, heartbeat)).cache();
+        Mono<AppendEntriesResponse> second = Mono.defer(() -> peerClient.appendEntries(peerUrl, 1, heartbeat)).cache();
+        // Waits for the task: verifying first would subscribe to the heartbeats outside of it
+        Mono.fromRunnable(() -> {
+                    first.subscribe();
+                    second.subscribe();
+                })
+                .subscribeOn(peerClient.getHeartbeatScheduler())
+                .block();
+
+        StepVerifier.create(first)
+                .expectNext(new AppendEntriesResponse(2, true, 4, 0))
+                .verifyComplete();
+        StepVerifier.create(second)
+                .verifyComplete();
+        assertEquals(1, requestsReceived.get());
+        verify(raftService).appendEntries(heartbeat);
+        verify(otherGroup).appendEntries(heartbeat);
+        verify(serverGossip).merge(leaderStatuses);
+        verify(clientGossip).merge(followerStatuses);
+    }
+
+    @Test
+    void testInstallSnapshot_ChunkLargerThanWebSocketFrame_ShouldBeFragmented() {
+        byte[] data = new byte[128 * 1024];
+        new Random(42).nextBytes(data);
+        when(raftService.installSnapshot(any())).thenReturn(Mono.just(new InstallSnapshotResponse(2, true, data.length)));
+
+        StepVerifier.create(peerClient.installSnapshot(peerUrl, 0,
+                        new InstallSnapshotRequest(2, "node1", "localhost:8000", 100, 2, 0, data, true)))
+                .expectNextMatches(InstallSnapshotResponse::isSuccess)
+                .verifyComplete();
+
+        ArgumentCaptor<InstallSnapshotRequest> captor = ArgumentCaptor.forClass(InstallSnapshotRequest.class);
+        verify(raftService).installSnapshot(captor.capture());
+        assertArrayEquals(data, captor.getValue().getData());
+    }
+
+    @Test
+    void testRequest_PeerRestarted_ShouldReconnect() {
+        int port = server.address().getPort();
+        server.dispose();
+        server.onClose().block();
+
+        StepVerifier.create(peerClient.getStatus("localhost:" + port))
+                .expectErrorMatches(PeerClient::isConnectionRefused)
+                .verify();
+
+        server = startServer(port);
+        when(raftService.getNodeStatus()).thenReturn(Mono.just(new NodeStatusDTO("node2", NodeState.FOLLOWER, 2, "node1", "localhost:8001", false)));
+
+        StepVerifier.create(peerClient.getStatus("localhost:" + port))
+                .expectNextMatches(status -> "node2".equals(status.getNodeId()))
+                .verifyComplete();
+    }
+}